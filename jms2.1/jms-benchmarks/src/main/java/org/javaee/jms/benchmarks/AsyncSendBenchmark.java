@@ -0,0 +1,171 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.benchmarks;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jms.CompletionListener;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the rate at which messages can be sent to a queue synchronously
+ * with the rate at which they can be sent asynchronously using a
+ * {@code CompletionListener}.
+ * <p>
+ * Asynchronous sends are limited to {@code window} outstanding sends at a
+ * time. The messages are consumed by a {@code MessageListener} on a separate
+ * {@code JMSContext}, so that the queue does not grow.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AsyncSendBenchmark {
+
+	@Param({ "NON_PERSISTENT", "PERSISTENT" })
+	String deliveryMode;
+
+	@Param({ "100" })
+	int window;
+
+	@Param({ "1024" })
+	int payloadSize;
+
+	private JMSContext context;
+
+	private JMSContext listenerContext;
+
+	private Queue queue;
+
+	private JMSProducer syncProducer;
+
+	private JMSProducer asyncProducer;
+
+	private Semaphore outstanding;
+
+	private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+	private byte[] payload;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = ConnectionFactories.create().createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		queue = ConnectionFactories.queue(context);
+		ConnectionFactories.drain(context, queue);
+		listenerContext = context.createContext(JMSContext.DUPS_OK_ACKNOWLEDGE);
+		listenerContext.createConsumer(queue).setMessageListener(message -> {
+			// discard
+		});
+		int mode = "PERSISTENT".equals(deliveryMode) ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT;
+		outstanding = new Semaphore(window);
+		syncProducer = context.createProducer().setDeliveryMode(mode);
+		asyncProducer = context.createProducer().setDeliveryMode(mode).setAsync(new CompletionListener() {
+
+			@Override
+			public void onCompletion(Message message) {
+				outstanding.release();
+			}
+
+			@Override
+			public void onException(Message message, Exception exception) {
+				failure.compareAndSet(null, exception);
+				outstanding.release();
+			}
+		});
+		payload = MessageType.payload(payloadSize);
+	}
+
+	@TearDown(Level.Iteration)
+	public void awaitOutstanding() throws InterruptedException {
+		outstanding.acquire(window);
+		outstanding.release(window);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		listenerContext.close();
+		context.close();
+	}
+
+	@Benchmark
+	public void sendSync() throws JMSException {
+		syncProducer.send(queue, MessageType.BYTES.create(context, payload));
+	}
+
+	@Benchmark
+	public void sendAsync() throws JMSException, InterruptedException {
+		Exception e = failure.get();
+		if (e != null) {
+			throw new IllegalStateException("Asynchronous send failed", e);
+		}
+		Message message = MessageType.BYTES.create(context, payload);
+		outstanding.acquire();
+		try {
+			asyncProducer.send(queue, message);
+		} catch (RuntimeException ex) {
+			// the CompletionListener is not called, so it cannot release the permit
+			outstanding.release();
+			throw ex;
+		}
+	}
+}
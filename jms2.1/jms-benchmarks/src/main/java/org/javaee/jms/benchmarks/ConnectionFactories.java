@@ -0,0 +1,159 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.benchmarks;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.Queue;
+import javax.jms.Topic;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Obtains the {@code ConnectionFactory} and destinations used by the
+ * benchmarks.
+ * <p>
+ * The benchmarks do not depend on any particular JMS provider. The provider is
+ * chosen using system properties, which are passed on to the JVMs forked by
+ * JMH:
+ * <ul>
+ * <li>{@code jms.connectionFactory} - the name of a {@code ConnectionFactory}
+ * implementation class with a public no-argument constructor; or
+ * <li>{@code jms.jndiName} - the JNDI name of a {@code ConnectionFactory}, in
+ * which case the usual JNDI properties, or a {@code jndi.properties} file on the
+ * classpath, are used to create the {@code InitialContext}.
+ * </ul>
+ * The names of the queue and topic may be set using {@code jms.queue} and
+ * {@code jms.topic}, and are passed to {@code createQueue} and
+ * {@code createTopic}. For example:
+ * 
+ * <pre>
+ * java -cp target/benchmarks.jar:<i>provider jars</i> -Djms.connectionFactory=com.example.ExampleConnectionFactory org.openjdk.jmh.Main
+ * </pre>
+ * The in-memory provider in {@code jms-ri},
+ * {@code org.javaee.jms.ri.memory.MemoryConnectionFactory}, may be used to
+ * measure the overhead of the API itself without a JMS server.
+ */
+public final class ConnectionFactories {
+
+	/** the system property specifying a {@code ConnectionFactory} class */
+	public static final String CONNECTION_FACTORY = "jms.connectionFactory";
+
+	/** the system property specifying the JNDI name of a {@code ConnectionFactory} */
+	public static final String JNDI_NAME = "jms.jndiName";
+
+	/** the system property specifying the name of the queue */
+	public static final String QUEUE = "jms.queue";
+
+	/** the system property specifying the name of the topic */
+	public static final String TOPIC = "jms.topic";
+
+	/** the time in milliseconds to wait for a message before failing */
+	static final long RECEIVE_TIMEOUT = 10000;
+
+	private ConnectionFactories() {
+	}
+
+	/**
+	 * Returns the {@code ConnectionFactory} specified by the system
+	 * properties.
+	 * 
+	 * @return the connection factory
+	 * @throws IllegalStateException
+	 *             if no connection factory has been specified, or it cannot be
+	 *             created
+	 */
+	public static ConnectionFactory create() {
+		String className = System.getProperty(CONNECTION_FACTORY);
+		String jndiName = System.getProperty(JNDI_NAME);
+		try {
+			if (className != null) {
+				return (ConnectionFactory) Class.forName(className).newInstance();
+			} else if (jndiName != null) {
+				return (ConnectionFactory) new InitialContext().lookup(jndiName);
+			}
+		} catch (ReflectiveOperationException | NamingException e) {
+			throw new IllegalStateException("Cannot create the connection factory: " + e, e);
+		}
+		throw new IllegalStateException(
+				"Specify the connection factory using -D" + CONNECTION_FACTORY + " or -D" + JNDI_NAME);
+	}
+
+	/**
+	 * Returns the queue used by the benchmarks.
+	 * 
+	 * @param context
+	 *            the context used to create the queue
+	 * @return the queue
+	 */
+	public static Queue queue(JMSContext context) {
+		return context.createQueue(System.getProperty(QUEUE, "jmsBenchmarksQueue"));
+	}
+
+	/**
+	 * Returns the topic used by the benchmarks.
+	 * 
+	 * @param context
+	 *            the context used to create the topic
+	 * @return the topic
+	 */
+	public static Topic topic(JMSContext context) {
+		return context.createTopic(System.getProperty(TOPIC, "jmsBenchmarksTopic"));
+	}
+
+	/**
+	 * Removes any messages left on a queue by an earlier run, so that they do
+	 * not affect the results.
+	 * 
+	 * @param context
+	 *            the context to use
+	 * @param destination
+	 *            the destination to drain
+	 */
+	public static void drain(JMSContext context, Destination destination) {
+		try (JMSConsumer consumer = context.createConsumer(destination)) {
+			while (consumer.receive(100) != null) {
+				// discard
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.StreamMessage;
+
+/**
+ * The types of message used by the benchmarks. Each creates a message of its
+ * type containing the specified payload.
+ */
+public enum MessageType {
+
+	/** a {@code TextMessage} whose text has one character for each byte of the payload */
+	TEXT {
+		@Override
+		Message create(JMSContext context, byte[] payload) {
+			return context.createTextMessage(new String(payload, StandardCharsets.ISO_8859_1));
+		}
+	},
+
+	/** a {@code BytesMessage} containing the payload */
+	BYTES {
+		@Override
+		Message create(JMSContext context, byte[] payload) throws JMSException {
+			BytesMessage message = context.createBytesMessage();
+			message.writeBytes(payload);
+			return message;
+		}
+	},
+
+	/** a {@code MapMessage} containing the payload as a single entry */
+	MAP {
+		@Override
+		Message create(JMSContext context, byte[] payload) throws JMSException {
+			MapMessage message = context.createMapMessage();
+			message.setBytes("payload", payload);
+			return message;
+		}
+	},
+
+	/** a {@code StreamMessage} containing the payload */
+	STREAM {
+		@Override
+		Message create(JMSContext context, byte[] payload) throws JMSException {
+			StreamMessage message = context.createStreamMessage();
+			message.writeBytes(payload);
+			return message;
+		}
+	},
+
+	/** an {@code ObjectMessage} containing the payload as a {@code byte[]} */
+	OBJECT {
+		@Override
+		Message create(JMSContext context, byte[] payload) {
+			return context.createObjectMessage(payload);
+		}
+	};
+
+	/**
+	 * Creates a message of this type.
+	 * 
+	 * @param context
+	 *            the context used to create the message
+	 * @param payload
+	 *            the payload
+	 * @return the message
+	 * @throws JMSException
+	 *             if the message cannot be created
+	 */
+	abstract Message create(JMSContext context, byte[] payload) throws JMSException;
+
+	/**
+	 * Returns a payload of the specified size, containing printable
+	 * characters so that it may also be used as text.
+	 * 
+	 * @param size
+	 *            the size in bytes
+	 * @return the payload
+	 */
+	static byte[] payload(int size) {
+		byte[] payload = new byte[size];
+		Arrays.fill(payload, (byte) 'x');
+		return payload;
+	}
+}
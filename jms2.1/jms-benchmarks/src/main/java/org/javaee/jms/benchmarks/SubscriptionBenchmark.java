@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Topic;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rate at which a single thread can publish a message to a topic
+ * and receive it from a subscription, for each kind of subscription.
+ * <p>
+ * Each trial uses a new subscription name. Durable subscriptions are deleted
+ * at the end of the trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SubscriptionBenchmark {
+
+	/** the kinds of subscription */
+	public enum SubscriptionType {
+		NON_DURABLE, SHARED, DURABLE, SHARED_DURABLE
+	}
+
+	@Param
+	SubscriptionType subscriptionType;
+
+	@Param({ "NON_PERSISTENT", "PERSISTENT" })
+	String deliveryMode;
+
+	@Param({ "1024" })
+	int payloadSize;
+
+	private JMSContext context;
+
+	private Topic topic;
+
+	private String subscriptionName;
+
+	private JMSProducer producer;
+
+	private JMSConsumer consumer;
+
+	private byte[] payload;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = ConnectionFactories.create().createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		subscriptionName = "jmsBenchmarks-" + UUID.randomUUID();
+		if (subscriptionType == SubscriptionType.DURABLE) {
+			// an unshared durable subscription requires a client identifier
+			context.setClientID(subscriptionName);
+		}
+		topic = ConnectionFactories.topic(context);
+		switch (subscriptionType) {
+		case NON_DURABLE:
+			consumer = context.createConsumer(topic);
+			break;
+		case SHARED:
+			consumer = context.createSharedConsumer(topic, subscriptionName);
+			break;
+		case DURABLE:
+			consumer = context.createDurableConsumer(topic, subscriptionName);
+			break;
+		case SHARED_DURABLE:
+			consumer = context.createSharedDurableConsumer(topic, subscriptionName);
+			break;
+		}
+		producer = context.createProducer().setDeliveryMode(
+				"PERSISTENT".equals(deliveryMode) ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+		payload = MessageType.payload(payloadSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		consumer.close();
+		if (subscriptionType == SubscriptionType.DURABLE || subscriptionType == SubscriptionType.SHARED_DURABLE) {
+			context.unsubscribe(subscriptionName);
+		}
+		context.close();
+	}
+
+	@Benchmark
+	public Message publishReceive() throws JMSException {
+		producer.send(topic, MessageType.BYTES.create(context, payload));
+		Message message = consumer.receive(ConnectionFactories.RECEIVE_TIMEOUT);
+		if (message == null) {
+			throw new IllegalStateException("No message received");
+		}
+		return message;
+	}
+}
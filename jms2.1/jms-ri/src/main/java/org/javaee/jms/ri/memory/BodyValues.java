@@ -0,0 +1,172 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import javax.jms.MessageFormatException;
+
+/**
+ * The type conversions which apply to the values in the body of a
+ * {@code MapMessage} or {@code StreamMessage}, as defined in
+ * {@code javax.jms.MapMessage} and {@code javax.jms.StreamMessage}.
+ * <p>
+ * A null value is converted as if it were a null {@code String}, using the
+ * {@code valueOf(String)} method of the corresponding wrapper class.
+ */
+final class BodyValues {
+
+	private BodyValues() {
+	}
+
+	/**
+	 * Checks that the specified object may be stored in the body of a
+	 * {@code MapMessage} or {@code StreamMessage}, and returns it, or a copy of
+	 * it if it is a byte array.
+	 */
+	static Object check(Object value) throws MessageFormatException {
+		if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		if (value == null || value instanceof String || value instanceof Boolean || value instanceof Byte
+				|| value instanceof Short || value instanceof Character || value instanceof Integer
+				|| value instanceof Long || value instanceof Float || value instanceof Double) {
+			return value;
+		}
+		throw new MessageFormatException("Cannot store an object of type " + value.getClass().getName());
+	}
+
+	static boolean toBoolean(Object value) throws MessageFormatException {
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		} else if (value == null || value instanceof String) {
+			return Boolean.valueOf((String) value);
+		}
+		throw conversionError(value, "boolean");
+	}
+
+	static byte toByte(Object value) throws MessageFormatException {
+		if (value instanceof Byte) {
+			return (Byte) value;
+		} else if (value == null || value instanceof String) {
+			return Byte.valueOf((String) value);
+		}
+		throw conversionError(value, "byte");
+	}
+
+	static short toShort(Object value) throws MessageFormatException {
+		if (value instanceof Short || value instanceof Byte) {
+			return ((Number) value).shortValue();
+		} else if (value == null || value instanceof String) {
+			return Short.valueOf((String) value);
+		}
+		throw conversionError(value, "short");
+	}
+
+	static char toChar(Object value) throws MessageFormatException {
+		if (value instanceof Character) {
+			return (Character) value;
+		} else if (value == null) {
+			throw new NullPointerException("Value is null");
+		}
+		throw conversionError(value, "char");
+	}
+
+	static int toInt(Object value) throws MessageFormatException {
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).intValue();
+		} else if (value == null || value instanceof String) {
+			return Integer.valueOf((String) value);
+		}
+		throw conversionError(value, "int");
+	}
+
+	static long toLong(Object value) throws MessageFormatException {
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		} else if (value == null || value instanceof String) {
+			return Long.valueOf((String) value);
+		}
+		throw conversionError(value, "long");
+	}
+
+	static float toFloat(Object value) throws MessageFormatException {
+		if (value instanceof Float) {
+			return (Float) value;
+		} else if (value == null || value instanceof String) {
+			return Float.valueOf((String) value);
+		}
+		throw conversionError(value, "float");
+	}
+
+	static double toDouble(Object value) throws MessageFormatException {
+		if (value instanceof Double || value instanceof Float) {
+			return ((Number) value).doubleValue();
+		} else if (value == null || value instanceof String) {
+			return Double.valueOf((String) value);
+		}
+		throw conversionError(value, "double");
+	}
+
+	static String toString(Object value) throws MessageFormatException {
+		if (value instanceof byte[]) {
+			throw conversionError(value, "String");
+		}
+		return value == null ? null : value.toString();
+	}
+
+	static byte[] toBytes(Object value) throws MessageFormatException {
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		throw conversionError(value, "byte[]");
+	}
+
+	/**
+	 * Returns a copy of the specified value if it is a byte array, so that the
+	 * application cannot modify the body of a message through it.
+	 */
+	static Object copyOf(Object value) {
+		return value instanceof byte[] ? ((byte[]) value).clone() : value;
+	}
+
+	private static MessageFormatException conversionError(Object value, String type) {
+		return new MessageFormatException("A value of type " + value.getClass().getSimpleName()
+				+ " cannot be converted to " + type);
+	}
+}
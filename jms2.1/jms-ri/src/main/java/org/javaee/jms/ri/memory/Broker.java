@@ -0,0 +1,310 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+import org.javaee.jms.ri.selector.Selector;
+
+/**
+ * The queues, topics and subscriptions shared by the connections of one or
+ * more {@code MemoryConnectionFactory} objects.
+ * <p>
+ * Brokers are identified by name and live as long as the JVM. Queues and
+ * topics are created the first time they are used, and are never deleted,
+ * except for temporary queues and topics.
+ * <p>
+ * Each broker has a pool of daemon threads, which are shared by the
+ * {@code SerialExecutor} objects of its sessions, and a single daemon thread
+ * which performs delayed deliveries and other timed actions.
+ */
+final class Broker {
+
+	private static final ConcurrentMap<String, Broker> brokers = new ConcurrentHashMap<String, Broker>();
+
+	private final String name;
+
+	private final ConcurrentMap<String, MessageQueue> queues = new ConcurrentHashMap<String, MessageQueue>();
+
+	private final ConcurrentMap<String, TopicState> topics = new ConcurrentHashMap<String, TopicState>();
+
+	/**
+	 * The durable and shared subscriptions, guarded by the lock of this
+	 * broker.
+	 */
+	private final Map<SubscriptionKey, Subscription> subscriptions = new HashMap<SubscriptionKey, Subscription>();
+
+	private final Set<String> clientIDs = ConcurrentHashMap.newKeySet();
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private final ExecutorService threads;
+
+	private final ScheduledExecutorService timer;
+
+	private Broker(String name) {
+		this.name = name;
+		threads = Executors.newCachedThreadPool(new DaemonThreadFactory("jms-memory-" + name + "-"));
+		timer = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("jms-memory-" + name + "-timer-"));
+	}
+
+	/**
+	 * Returns the broker with the specified name, creating it if necessary.
+	 */
+	static Broker get(String name) {
+		return brokers.computeIfAbsent(name, Broker::new);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns a number which has not previously been returned by this broker.
+	 */
+	long nextId() {
+		return ids.incrementAndGet();
+	}
+
+	/**
+	 * Returns the executor whose threads are shared by the sessions of this
+	 * broker.
+	 */
+	Executor getThreads() {
+		return threads;
+	}
+
+	ScheduledFuture<?> schedule(Runnable task, long delay) {
+		return timer.schedule(task, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reserves the specified client identifier, returning false if it is
+	 * already in use by another connection.
+	 */
+	boolean addClientID(String clientID) {
+		return clientIDs.add(clientID);
+	}
+
+	void removeClientID(String clientID) {
+		clientIDs.remove(clientID);
+	}
+
+	/**
+	 * Returns the queue or topic state for the specified destination.
+	 */
+	Endpoint resolve(Destination destination) throws JMSException {
+		Endpoint endpoint;
+		if (destination instanceof MemoryTemporaryQueue) {
+			endpoint = ((MemoryTemporaryQueue) destination).queue;
+		} else if (destination instanceof MemoryTemporaryTopic) {
+			endpoint = ((MemoryTemporaryTopic) destination).topic;
+		} else if (destination instanceof TemporaryQueue || destination instanceof TemporaryTopic) {
+			throw new InvalidDestinationException("Temporary destination " + destination
+					+ " was not created by this JMS provider");
+		} else if (destination instanceof Queue) {
+			String queueName = ((Queue) destination).getQueueName();
+			if (queueName == null) {
+				throw new InvalidDestinationException("Queue name must not be null");
+			}
+			endpoint = queues.computeIfAbsent(queueName, n -> new MessageQueue(this, n));
+		} else if (destination instanceof Topic) {
+			String topicName = ((Topic) destination).getTopicName();
+			if (topicName == null) {
+				throw new InvalidDestinationException("Topic name must not be null");
+			}
+			endpoint = topics.computeIfAbsent(topicName, TopicState::new);
+		} else if (destination == null) {
+			throw new InvalidDestinationException("Destination must not be null");
+		} else {
+			throw new InvalidDestinationException("Destination " + destination + " is neither a queue nor a topic");
+		}
+		if (endpoint.isDeleted()) {
+			throw new InvalidDestinationException("Temporary destination " + destination + " has been deleted");
+		}
+		return endpoint;
+	}
+
+	/**
+	 * Adds a consumer to a subscription to the specified topic, creating the
+	 * subscription if necessary. A subscription without a name is neither
+	 * durable nor shared, and is always created.
+	 */
+	synchronized Subscription subscribe(TopicState topic, String name, String clientID, boolean durable,
+			boolean shared, Selector selector, boolean noLocal, MemoryConnection connection) throws JMSException {
+		Subscription subscription = null;
+		if (name != null) {
+			SubscriptionKey key = new SubscriptionKey(name, clientID);
+			subscription = subscriptions.get(key);
+			if (subscription != null) {
+				if (subscription.durable != durable || subscription.shared != shared) {
+					throw new JMSException("A " + describe(subscription) + " named " + name + " already exists");
+				}
+				if (!shared && subscription.consumers > 0) {
+					throw new IllegalStateException("Durable subscription " + name + " already has an active consumer");
+				}
+				if (!subscription.matches(topic, selector, noLocal)) {
+					if (subscription.consumers > 0) {
+						throw new JMSException("Shared subscription " + name
+								+ " has active consumers with a different topic or selector");
+					}
+					subscriptions.remove(key);
+					subscription.topic.remove(subscription);
+					subscription = null;
+				}
+			}
+			if (subscription == null) {
+				subscription = new Subscription(this, topic, name, clientID, durable, shared, selector, noLocal);
+				subscriptions.put(key, subscription);
+				topic.add(subscription);
+			}
+		} else {
+			subscription = new Subscription(this, topic, null, clientID, false, false, selector, noLocal);
+			topic.add(subscription);
+		}
+		subscription.consumers++;
+		subscription.connection = connection;
+		return subscription;
+	}
+
+	/**
+	 * Removes a consumer from a subscription, deleting the subscription if it
+	 * is not durable and has no other consumers.
+	 */
+	synchronized void release(Subscription subscription) {
+		if (--subscription.consumers == 0 && !subscription.durable) {
+			if (subscription.name != null) {
+				subscriptions.remove(new SubscriptionKey(subscription.name, subscription.clientID));
+			}
+			subscription.topic.remove(subscription);
+		}
+	}
+
+	synchronized void unsubscribe(String name, String clientID) throws JMSException {
+		SubscriptionKey key = new SubscriptionKey(name, clientID);
+		Subscription subscription = subscriptions.get(key);
+		if (subscription == null || !subscription.durable) {
+			throw new InvalidDestinationException("There is no durable subscription named " + name);
+		}
+		if (subscription.consumers > 0) {
+			throw new IllegalStateException("Durable subscription " + name + " has an active consumer");
+		}
+		subscriptions.remove(key);
+		subscription.topic.remove(subscription);
+	}
+
+	private static String describe(Subscription subscription) {
+		if (subscription.durable) {
+			return subscription.shared ? "shared durable subscription" : "unshared durable subscription";
+		}
+		return "shared non-durable subscription";
+	}
+
+	/**
+	 * The name and client identifier which together identify a durable or
+	 * shared subscription.
+	 */
+	private static final class SubscriptionKey {
+
+		private final String name;
+
+		private final String clientID;
+
+		SubscriptionKey(String name, String clientID) {
+			this.name = name;
+			this.clientID = clientID;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof SubscriptionKey)) {
+				return false;
+			}
+			SubscriptionKey other = (SubscriptionKey) o;
+			return name.equals(other.name) && Objects.equals(clientID, other.clientID);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + Objects.hashCode(clientID);
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import javax.jms.IllegalStateException;
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.InvalidClientIDException;
+import javax.jms.InvalidClientIDRuntimeException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.InvalidDestinationRuntimeException;
+import javax.jms.InvalidSelectorException;
+import javax.jms.InvalidSelectorRuntimeException;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.JMSSecurityException;
+import javax.jms.JMSSecurityRuntimeException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageFormatRuntimeException;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.MessageNotWriteableRuntimeException;
+import javax.jms.ResourceAllocationException;
+import javax.jms.ResourceAllocationRuntimeException;
+import javax.jms.TransactionInProgressException;
+import javax.jms.TransactionInProgressRuntimeException;
+import javax.jms.TransactionRolledBackException;
+import javax.jms.TransactionRolledBackRuntimeException;
+
+/**
+ * Conversions between the exceptions of the classic and simplified APIs.
+ */
+final class Exceptions {
+
+	private Exceptions() {
+	}
+
+	/**
+	 * Returns a {@code JMSException} with the specified message whose linked
+	 * exception and cause are the specified exception.
+	 */
+	static JMSException wrap(String message, Exception cause) {
+		JMSException exception = new JMSException(message + ": " + cause);
+		exception.setLinkedException(cause);
+		exception.initCause(cause);
+		return exception;
+	}
+
+	/**
+	 * Returns the unchecked exception of the simplified API which corresponds
+	 * to the specified checked exception.
+	 */
+	static JMSRuntimeException toRuntime(JMSException e) {
+		String message = e.getMessage();
+		String errorCode = e.getErrorCode();
+		if (e instanceof IllegalStateException) {
+			return new IllegalStateRuntimeException(message, errorCode, e);
+		} else if (e instanceof InvalidDestinationException) {
+			return new InvalidDestinationRuntimeException(message, errorCode, e);
+		} else if (e instanceof InvalidSelectorException) {
+			return new InvalidSelectorRuntimeException(message, errorCode, e);
+		} else if (e instanceof MessageFormatException) {
+			return new MessageFormatRuntimeException(message, errorCode, e);
+		} else if (e instanceof MessageNotWriteableException) {
+			return new MessageNotWriteableRuntimeException(message, errorCode, e);
+		} else if (e instanceof ResourceAllocationException) {
+			return new ResourceAllocationRuntimeException(message, errorCode, e);
+		} else if (e instanceof TransactionRolledBackException) {
+			return new TransactionRolledBackRuntimeException(message, errorCode, e);
+		} else if (e instanceof TransactionInProgressException) {
+			return new TransactionInProgressRuntimeException(message, errorCode, e);
+		} else if (e instanceof InvalidClientIDException) {
+			return new InvalidClientIDRuntimeException(message, errorCode, e);
+		} else if (e instanceof JMSSecurityException) {
+			return new JMSSecurityRuntimeException(message, errorCode, e);
+		}
+		return new JMSRuntimeException(message, errorCode, e);
+	}
+}
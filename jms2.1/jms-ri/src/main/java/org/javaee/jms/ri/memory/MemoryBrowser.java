@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+
+import org.javaee.jms.ri.selector.Selector;
+import org.javaee.jms.ri.selector.SelectorTarget;
+
+/**
+ * A {@code QueueBrowser} of the in-memory JMS provider. Its enumerations are
+ * weakly consistent: they may or may not include messages which are sent or
+ * received while they are being used.
+ */
+final class MemoryBrowser implements QueueBrowser {
+
+	private final MemorySession session;
+
+	private final Queue queue;
+
+	private final MessageQueue messageQueue;
+
+	private final Selector selector;
+
+	private volatile boolean closed;
+
+	MemoryBrowser(MemorySession session, Queue queue, MessageQueue messageQueue, Selector selector) {
+		this.session = session;
+		this.queue = queue;
+		this.messageQueue = messageQueue;
+		this.selector = selector;
+	}
+
+	private void checkNotClosed() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Browser is closed");
+		}
+		session.checkNotClosed();
+	}
+
+	@Override
+	public Queue getQueue() throws JMSException {
+		checkNotClosed();
+		return queue;
+	}
+
+	@Override
+	public String getMessageSelector() throws JMSException {
+		checkNotClosed();
+		return selector == null ? null : selector.getSelectorText();
+	}
+
+	@Override
+	public Enumeration<Message> getEnumeration() throws JMSException {
+		checkNotClosed();
+		return new Browse(messageQueue.iterator());
+	}
+
+	@Override
+	public void close() throws JMSException {
+		closed = true;
+	}
+
+	private final class Browse implements Enumeration<Message> {
+
+		private final Iterator<MessageQueue.Entry> entries;
+
+		private Message next;
+
+		Browse(Iterator<MessageQueue.Entry> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			if (next != null) {
+				return true;
+			}
+			long now = System.currentTimeMillis();
+			while (entries.hasNext()) {
+				MessageQueue.Entry entry = entries.next();
+				if (entry.message.isExpired(now)) {
+					continue;
+				}
+				try {
+					if (selector == null || selector.matches((SelectorTarget) entry.message)) {
+						next = entry.message.deliver(entry.deliveryCount + 1, null, null);
+						return true;
+					}
+				} catch (JMSException e) {
+					// a message which cannot be evaluated or copied is skipped
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Message nextElement() {
+			if (!hasMoreElements()) {
+				throw new NoSuchElementException();
+			}
+			Message result = next;
+			next = null;
+			return result;
+		}
+	}
+}
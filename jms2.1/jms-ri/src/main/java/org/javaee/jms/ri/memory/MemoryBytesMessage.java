@@ -0,0 +1,511 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import javax.jms.BytesMessage;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotReadableException;
+import javax.jms.MessageNotWriteableException;
+
+/**
+ * A {@code BytesMessage} of the in-memory JMS provider.
+ * <p>
+ * The body is written to a {@code ByteArrayOutputStream} and read from a
+ * {@code ByteBuffer} which wraps a byte array. Once the message has been sent
+ * the byte array is never modified, so the copies of the message delivered to
+ * consumers share it, and {@code getBodyAsByteBuffer} returns a read-only
+ * view of it without copying.
+ */
+final class MemoryBytesMessage extends MemoryMessage implements BytesMessage {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * The body being written, or null if the message is in read-only mode or
+	 * has a streamed body.
+	 */
+	private ByteArrayOutputStream output;
+
+	private DataOutputStream writer;
+
+	/**
+	 * The body being read, or null if the message is in write-only mode or
+	 * has a streamed body.
+	 */
+	private ByteBuffer reader;
+
+	/**
+	 * The stream from which a streamed body will be read when the message is
+	 * sent, or null.
+	 */
+	private InputStream source;
+
+	/**
+	 * Whether this message had a streamed body which has already been read.
+	 */
+	private boolean sourceConsumed;
+
+	MemoryBytesMessage() {
+	}
+
+	MemoryBytesMessage(InputStream source) {
+		this.source = source;
+	}
+
+	/**
+	 * Returns a {@code MemoryBytesMessage} with the same body as the specified
+	 * message of another JMS provider, which is left in read-only mode.
+	 */
+	static MemoryBytesMessage convert(BytesMessage message) throws JMSException {
+		message.reset();
+		byte[] body = new byte[(int) message.getBodyLength()];
+		message.readBytes(body);
+		message.reset();
+		MemoryBytesMessage result = new MemoryBytesMessage();
+		result.reader = ByteBuffer.wrap(body);
+		return result;
+	}
+
+	@Override
+	MemoryMessage newInstance() {
+		return new MemoryBytesMessage();
+	}
+
+	@Override
+	void copyBody(MemoryMessage target) throws JMSException {
+		byte[] body;
+		if (source != null || sourceConsumed) {
+			body = readSource();
+		} else if (output != null) {
+			body = output.toByteArray();
+		} else if (reader != null) {
+			body = reader.array();
+		} else {
+			body = EMPTY;
+		}
+		((MemoryBytesMessage) target).reader = ByteBuffer.wrap(body);
+	}
+
+	private byte[] readSource() throws JMSException {
+		if (sourceConsumed) {
+			throw new IllegalStateException("A message with a streamed body may be sent only once");
+		}
+		sourceConsumed = true;
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try {
+			int n;
+			while ((n = source.read(buffer)) >= 0) {
+				body.write(buffer, 0, n);
+			}
+		} catch (IOException e) {
+			throw Exceptions.wrap("Failed to read the message body", e);
+		} finally {
+			source = null;
+		}
+		return body.toByteArray();
+	}
+
+	@Override
+	void prepareForReading() {
+		reader.rewind();
+	}
+
+	@Override
+	long getBodySize() {
+		if (output != null) {
+			return output.size();
+		}
+		return reader == null ? 0 : reader.limit();
+	}
+
+	private DataOutputStream writer() throws JMSException {
+		checkBodyWritable();
+		if (source != null || sourceConsumed) {
+			throw new MessageNotWriteableException("Message has a streamed body");
+		}
+		if (writer == null) {
+			if (reader != null) {
+				throw new MessageNotWriteableException("Message is in read-only mode");
+			}
+			output = new ByteArrayOutputStream();
+			writer = new DataOutputStream(output);
+		}
+		return writer;
+	}
+
+	private ByteBuffer reader() throws JMSException {
+		if (reader == null) {
+			throw new MessageNotReadableException(source != null || sourceConsumed ? "Message has a streamed body"
+					: "Message is in write-only mode");
+		}
+		return reader;
+	}
+
+	private static JMSException writeFailed(IOException e) {
+		return Exceptions.wrap("Failed to write the message body", e);
+	}
+
+	@Override
+	public long getBodyLength() throws JMSException {
+		return reader().limit();
+	}
+
+	@Override
+	public boolean readBoolean() throws JMSException {
+		return readByte() != 0;
+	}
+
+	@Override
+	public byte readByte() throws JMSException {
+		try {
+			return reader().get();
+		} catch (BufferUnderflowException e) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public int readUnsignedByte() throws JMSException {
+		return readByte() & 0xff;
+	}
+
+	@Override
+	public short readShort() throws JMSException {
+		try {
+			return reader().getShort();
+		} catch (BufferUnderflowException e) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public int readUnsignedShort() throws JMSException {
+		return readShort() & 0xffff;
+	}
+
+	@Override
+	public char readChar() throws JMSException {
+		try {
+			return reader().getChar();
+		} catch (BufferUnderflowException e) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public int readInt() throws JMSException {
+		try {
+			return reader().getInt();
+		} catch (BufferUnderflowException e) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public long readLong() throws JMSException {
+		try {
+			return reader().getLong();
+		} catch (BufferUnderflowException e) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public float readFloat() throws JMSException {
+		return Float.intBitsToFloat(readInt());
+	}
+
+	@Override
+	public double readDouble() throws JMSException {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	@Override
+	public String readUTF() throws JMSException {
+		ByteBuffer buffer = reader();
+		int position = buffer.position();
+		int length = readUnsignedShort();
+		if (buffer.remaining() < length) {
+			buffer.position(position);
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+		try {
+			String result = DataInputStream.readUTF(new DataInputStream(new ByteArrayInputStream(buffer.array(),
+					position, 2 + length)));
+			buffer.position(position + 2 + length);
+			return result;
+		} catch (UTFDataFormatException e) {
+			buffer.position(position);
+			throw new MessageFormatException("Invalid UTF-8 string in message body");
+		} catch (IOException e) {
+			buffer.position(position);
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+	}
+
+	@Override
+	public int readBytes(byte[] value) throws JMSException {
+		return readBytes(value, value.length);
+	}
+
+	@Override
+	public int readBytes(byte[] value, int length) throws JMSException {
+		if (length < 0 || length > value.length) {
+			throw new IndexOutOfBoundsException("Invalid length " + length);
+		}
+		ByteBuffer buffer = reader();
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		int n = Math.min(length, buffer.remaining());
+		buffer.get(value, 0, n);
+		return n;
+	}
+
+	@Override
+	public ByteBuffer getBodyAsByteBuffer() throws JMSException {
+		ByteBuffer buffer = reader().duplicate();
+		buffer.rewind();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	@Override
+	public InputStream getBodyInputStream() throws JMSException {
+		ByteBuffer buffer = reader();
+		return new ByteArrayInputStream(buffer.array(), 0, buffer.limit());
+	}
+
+	@Override
+	public void writeBoolean(boolean value) throws JMSException {
+		writeByte(value ? (byte) 1 : (byte) 0);
+	}
+
+	@Override
+	public void writeByte(byte value) throws JMSException {
+		try {
+			writer().writeByte(value);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeShort(short value) throws JMSException {
+		try {
+			writer().writeShort(value);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeChar(char value) throws JMSException {
+		try {
+			writer().writeChar(value);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeInt(int value) throws JMSException {
+		try {
+			writer().writeInt(value);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeLong(long value) throws JMSException {
+		try {
+			writer().writeLong(value);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeFloat(float value) throws JMSException {
+		writeInt(Float.floatToIntBits(value));
+	}
+
+	@Override
+	public void writeDouble(double value) throws JMSException {
+		writeLong(Double.doubleToLongBits(value));
+	}
+
+	@Override
+	public void writeUTF(String value) throws JMSException {
+		try {
+			writer().writeUTF(value);
+		} catch (UTFDataFormatException e) {
+			throw new MessageFormatException("String is too long to be written using writeUTF");
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeBytes(byte[] value) throws JMSException {
+		writeBytes(value, 0, value.length);
+	}
+
+	@Override
+	public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+		try {
+			writer().write(value, offset, length);
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeByteBuffer(ByteBuffer value) throws JMSException {
+		DataOutputStream out = writer();
+		try {
+			if (value.hasArray()) {
+				out.write(value.array(), value.arrayOffset() + value.position(), value.remaining());
+				value.position(value.limit());
+			} else {
+				byte[] bytes = new byte[value.remaining()];
+				value.get(bytes);
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			throw writeFailed(e);
+		}
+	}
+
+	@Override
+	public void writeObject(Object value) throws JMSException {
+		if (value == null) {
+			throw new NullPointerException("Value must not be null");
+		} else if (value instanceof Boolean) {
+			writeBoolean((Boolean) value);
+		} else if (value instanceof Byte) {
+			writeByte((Byte) value);
+		} else if (value instanceof Short) {
+			writeShort((Short) value);
+		} else if (value instanceof Character) {
+			writeChar((Character) value);
+		} else if (value instanceof Integer) {
+			writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			writeLong((Long) value);
+		} else if (value instanceof Float) {
+			writeFloat((Float) value);
+		} else if (value instanceof Double) {
+			writeDouble((Double) value);
+		} else if (value instanceof String) {
+			writeUTF((String) value);
+		} else if (value instanceof byte[]) {
+			writeBytes((byte[]) value);
+		} else {
+			throw new MessageFormatException("Cannot write an object of type " + value.getClass().getName());
+		}
+	}
+
+	@Override
+	public void reset() throws JMSException {
+		if (source != null || sourceConsumed) {
+			return;
+		}
+		if (output != null) {
+			reader = ByteBuffer.wrap(output.toByteArray());
+			output = null;
+			writer = null;
+		} else if (reader == null) {
+			reader = ByteBuffer.wrap(EMPTY);
+		} else {
+			reader.rewind();
+		}
+		bodyReadOnly = true;
+	}
+
+	@Override
+	public void clearBody() throws JMSException {
+		super.clearBody();
+		output = null;
+		writer = null;
+		reader = null;
+		source = null;
+		sourceConsumed = false;
+	}
+
+	@Override
+	public <T> T getBody(Class<T> c) throws JMSException {
+		if (!isBodyAssignableTo(c)) {
+			throw new MessageFormatException("Message body cannot be assigned to " + c.getName());
+		}
+		byte[] body = currentBody();
+		return body.length == 0 ? null : c.cast(body.clone());
+	}
+
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public boolean isBodyAssignableTo(Class c) throws JMSException {
+		if (source != null || sourceConsumed) {
+			throw new MessageNotReadableException("Message has a streamed body");
+		}
+		return currentBody().length == 0 || c.isAssignableFrom(byte[].class);
+	}
+
+	private byte[] currentBody() {
+		if (output != null) {
+			return output.toByteArray();
+		}
+		return reader == null ? EMPTY : reader.array();
+	}
+}
@@ -0,0 +1,440 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidClientIDException;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.jms.TopicConnection;
+import javax.jms.TopicSession;
+
+/**
+ * A {@code Connection} of the in-memory JMS provider.
+ * <p>
+ * {@code ConnectionConsumer} objects, which are an optional facility for
+ * application servers, are supported as long as the sessions of their
+ * {@code ServerSessionPool} are sessions of the in-memory provider.
+ */
+final class MemoryConnection implements QueueConnection, TopicConnection {
+
+	/**
+	 * Creates the consumer used by a connection consumer.
+	 */
+	private interface ConsumerFactory {
+
+		MessageConsumer create(MemorySession session) throws JMSException;
+	}
+
+	private final Broker broker;
+
+	private final String messageIDPrefix;
+
+	private final AtomicLong messageIDs = new AtomicLong();
+
+	private final List<MemorySession> sessions = new CopyOnWriteArrayList<MemorySession>();
+
+	private final List<MemoryConnectionConsumer> connectionConsumers = new CopyOnWriteArrayList<MemoryConnectionConsumer>();
+
+	private final List<Endpoint> temporaryDestinations = new CopyOnWriteArrayList<Endpoint>();
+
+	/**
+	 * Guards changes to {@code started} and {@code closed} which consumers
+	 * waiting in {@code awaitStarted} need to see. A {@code Lock} is used,
+	 * rather than a monitor, so that a virtual thread which waits does not pin
+	 * its carrier thread.
+	 */
+	private final Lock startLock = new ReentrantLock();
+
+	private final Condition startChanged = startLock.newCondition();
+
+	private volatile boolean started;
+
+	private volatile boolean closed;
+
+	private String clientID;
+
+	/**
+	 * Whether the client identifier may no longer be set, because the
+	 * connection has been used.
+	 */
+	private boolean clientIDFixed;
+
+	private volatile ExceptionListener exceptionListener;
+
+	/** the executor whose threads call the exception listener */
+	private final Executor exceptionExecutor;
+
+	MemoryConnection(Broker broker) {
+		this(broker, broker.getThreads());
+	}
+
+	MemoryConnection(Broker broker, Executor exceptionExecutor) {
+		this.broker = broker;
+		this.exceptionExecutor = exceptionExecutor;
+		messageIDPrefix = "ID:" + broker.getName() + "-" + broker.nextId() + "-";
+	}
+
+	Broker getBroker() {
+		return broker;
+	}
+
+	boolean isStarted() {
+		return started;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	String nextMessageID() {
+		return messageIDPrefix + messageIDs.incrementAndGet();
+	}
+
+	private void checkNotClosed() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Connection is closed");
+		}
+	}
+
+	/**
+	 * Checks that the calling thread is not delivering a message to a
+	 * listener, or performing a callback, for a session of this connection.
+	 */
+	private void checkNotInCallback(String method) throws IllegalStateException {
+		for (MemorySession session : sessions) {
+			if (session.isCallbackThread()) {
+				throw new IllegalStateException(method + " may not be called from a callback of its own connection");
+			}
+		}
+	}
+
+	/**
+	 * Waits until the connection is started, the connection is closed, or the
+	 * specified time, as returned by {@code System.nanoTime}, is reached.
+	 * Returns whether the connection has been started.
+	 */
+	boolean awaitStarted(long deadline) {
+		if (started) {
+			return true;
+		}
+		startLock.lock();
+		try {
+			while (!started && !closed) {
+				long remaining = deadline == MessageQueue.FOREVER ? Long.MAX_VALUE : deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				try {
+					startChanged.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return started;
+		} finally {
+			startLock.unlock();
+		}
+	}
+
+	/**
+	 * Reports an exception to the {@code ExceptionListener} of this
+	 * connection, if there is one.
+	 */
+	void onException(JMSException exception) {
+		ExceptionListener listener = exceptionListener;
+		if (listener != null) {
+			Runnable task = () -> listener.onException(exception);
+			try {
+				exceptionExecutor.execute(task);
+			} catch (RejectedExecutionException e) {
+				// the application's executor may be the cause of the exception
+				broker.getThreads().execute(task);
+			}
+		}
+	}
+
+	void addTemporaryDestination(Endpoint endpoint) {
+		temporaryDestinations.add(endpoint);
+	}
+
+	void removeSession(MemorySession session) {
+		sessions.remove(session);
+	}
+
+	void removeConnectionConsumer(MemoryConnectionConsumer connectionConsumer) {
+		connectionConsumers.remove(connectionConsumer);
+	}
+
+	@Override
+	public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+		return createSession(transacted ? Session.SESSION_TRANSACTED : acknowledgeMode);
+	}
+
+	@Override
+	public MemorySession createSession(int sessionMode) throws JMSException {
+		return createSession(sessionMode, broker.getThreads());
+	}
+
+	@Override
+	public MemorySession createSession(int sessionMode, Executor executor) throws JMSException {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		checkNotClosed();
+		if (sessionMode != Session.AUTO_ACKNOWLEDGE && sessionMode != Session.CLIENT_ACKNOWLEDGE
+				&& sessionMode != Session.DUPS_OK_ACKNOWLEDGE && sessionMode != Session.SESSION_TRANSACTED) {
+			throw new JMSException("Invalid session mode: " + sessionMode);
+		}
+		synchronized (this) {
+			clientIDFixed = true;
+		}
+		MemorySession session = new MemorySession(this, sessionMode, executor);
+		sessions.add(session);
+		return session;
+	}
+
+	@Override
+	public Session createSession() throws JMSException {
+		return createSession(Session.AUTO_ACKNOWLEDGE);
+	}
+
+	@Override
+	public QueueSession createQueueSession(boolean transacted, int acknowledgeMode) throws JMSException {
+		return createSession(transacted ? Session.SESSION_TRANSACTED : acknowledgeMode);
+	}
+
+	@Override
+	public TopicSession createTopicSession(boolean transacted, int acknowledgeMode) throws JMSException {
+		return createSession(transacted ? Session.SESSION_TRANSACTED : acknowledgeMode);
+	}
+
+	@Override
+	public synchronized String getClientID() throws JMSException {
+		checkNotClosed();
+		return clientID;
+	}
+
+	@Override
+	public synchronized void setClientID(String clientID) throws JMSException {
+		checkNotClosed();
+		if (clientIDFixed || this.clientID != null) {
+			throw new IllegalStateException("Client identifier may only be set immediately after the connection is created");
+		}
+		if (clientID == null || clientID.isEmpty()) {
+			throw new InvalidClientIDException("Client identifier must not be null or empty");
+		}
+		if (!broker.addClientID(clientID)) {
+			throw new InvalidClientIDException("Client identifier " + clientID + " is already in use");
+		}
+		this.clientID = clientID;
+		clientIDFixed = true;
+	}
+
+	@Override
+	public ConnectionMetaData getMetaData() throws JMSException {
+		checkNotClosed();
+		return MemoryConnectionMetaData.INSTANCE;
+	}
+
+	@Override
+	public ExceptionListener getExceptionListener() throws JMSException {
+		checkNotClosed();
+		return exceptionListener;
+	}
+
+	@Override
+	public void setExceptionListener(ExceptionListener listener) throws JMSException {
+		checkNotClosed();
+		synchronized (this) {
+			clientIDFixed = true;
+		}
+		exceptionListener = listener;
+	}
+
+	@Override
+	public void start() throws JMSException {
+		checkNotClosed();
+		synchronized (this) {
+			clientIDFixed = true;
+		}
+		startLock.lock();
+		try {
+			started = true;
+			startChanged.signalAll();
+		} finally {
+			startLock.unlock();
+		}
+		for (MemorySession session : sessions) {
+			session.scheduleDispatch();
+		}
+	}
+
+	@Override
+	public void stop() throws JMSException {
+		checkNotClosed();
+		checkNotInCallback("stop");
+		started = false;
+		for (MemorySession session : sessions) {
+			session.awaitDispatch();
+			session.stopped();
+		}
+	}
+
+	@Override
+	public void close() throws JMSException {
+		if (closed) {
+			return;
+		}
+		checkNotInCallback("close");
+		startLock.lock();
+		try {
+			started = false;
+			closed = true;
+			startChanged.signalAll();
+		} finally {
+			startLock.unlock();
+		}
+		for (MemoryConnectionConsumer connectionConsumer : connectionConsumers) {
+			connectionConsumer.close();
+		}
+		for (MemorySession session : sessions) {
+			session.close();
+		}
+		for (Endpoint endpoint : temporaryDestinations) {
+			endpoint.delete();
+		}
+		synchronized (this) {
+			if (clientID != null) {
+				broker.removeClientID(clientID);
+			}
+		}
+	}
+
+	/**
+	 * Creates and starts a connection consumer, which receives messages using
+	 * a consumer of a session of its own.
+	 */
+	private ConnectionConsumer createConnectionConsumer(ConsumerFactory factory, ServerSessionPool sessionPool,
+			int maxMessages) throws JMSException {
+		if (sessionPool == null) {
+			throw new IllegalArgumentException("Server session pool must not be null");
+		}
+		if (maxMessages < 1) {
+			throw new JMSException("Invalid maximum number of messages: " + maxMessages);
+		}
+		MemorySession session = createSession(Session.AUTO_ACKNOWLEDGE);
+		MemoryConnectionConsumer connectionConsumer;
+		try {
+			connectionConsumer = new MemoryConnectionConsumer(this, session, (MemoryConsumer) factory.create(session),
+					sessionPool, maxMessages);
+		} catch (JMSException | RuntimeException e) {
+			session.close();
+			throw e;
+		}
+		connectionConsumers.add(connectionConsumer);
+		connectionConsumer.start();
+		return connectionConsumer;
+	}
+
+	@Override
+	public ConnectionConsumer createConnectionConsumer(Destination destination, String messageSelector,
+			ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer(session -> session.createConsumer(destination, messageSelector),
+				sessionPool, maxMessages);
+	}
+
+	@Override
+	public ConnectionConsumer createConnectionConsumer(Queue queue, String messageSelector,
+			ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer((Destination) queue, messageSelector, sessionPool, maxMessages);
+	}
+
+	@Override
+	public ConnectionConsumer createConnectionConsumer(Topic topic, String messageSelector,
+			ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer((Destination) topic, messageSelector, sessionPool, maxMessages);
+	}
+
+	@Override
+	public ConnectionConsumer createSharedConnectionConsumer(Topic topic, String subscriptionName,
+			String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer(
+				session -> session.createSharedConsumer(topic, subscriptionName, messageSelector), sessionPool,
+				maxMessages);
+	}
+
+	@Override
+	public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName,
+			String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer(
+				session -> session.createDurableConsumer(topic, subscriptionName, messageSelector, false),
+				sessionPool, maxMessages);
+	}
+
+	@Override
+	public ConnectionConsumer createSharedDurableConnectionConsumer(Topic topic, String subscriptionName,
+			String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+		return createConnectionConsumer(
+				session -> session.createSharedDurableConsumer(topic, subscriptionName, messageSelector),
+				sessionPool, maxMessages);
+	}
+}
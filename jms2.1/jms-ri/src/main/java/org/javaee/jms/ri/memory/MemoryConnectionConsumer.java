@@ -0,0 +1,179 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.ConnectionConsumer;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+
+/**
+ * A {@code ConnectionConsumer} of the in-memory JMS provider.
+ * <p>
+ * A connection consumer receives messages using a {@code MemoryConsumer} of a
+ * session of its own, using one of the threads of the broker. Once a message
+ * has arrived it obtains a {@code ServerSession} from its pool, which may
+ * block, loads that message and up to {@code maxMessages - 1} more which are
+ * already waiting into the session of the server session, and starts it. The
+ * longer the pool takes to provide a server session, the more messages are
+ * waiting, so the number of messages loaded at once grows with the backlog.
+ * <p>
+ * The sessions of the pool must be sessions of the in-memory provider, since
+ * the messages are loaded into them directly. A connection consumer which
+ * cannot use its pool reports the exception to the {@code ExceptionListener}
+ * of the connection and closes itself.
+ */
+final class MemoryConnectionConsumer implements ConnectionConsumer {
+
+	private final MemoryConnection connection;
+
+	private final MemorySession session;
+
+	private final MemoryConsumer consumer;
+
+	private final ServerSessionPool sessionPool;
+
+	private final int maxMessages;
+
+	/**
+	 * Guards the loading of messages into server sessions, so that none are
+	 * loaded once {@code close} has returned.
+	 */
+	private final Lock loadLock = new ReentrantLock();
+
+	private volatile boolean closed;
+
+	MemoryConnectionConsumer(MemoryConnection connection, MemorySession session, MemoryConsumer consumer,
+			ServerSessionPool sessionPool, int maxMessages) {
+		this.connection = connection;
+		this.session = session;
+		this.consumer = consumer;
+		this.sessionPool = sessionPool;
+		this.maxMessages = maxMessages;
+	}
+
+	void start() {
+		connection.getBroker().getThreads().execute(this::run);
+	}
+
+	private void run() {
+		try {
+			while (!closed) {
+				MessageQueue.Entry entry = consumer.take(MessageQueue.FOREVER);
+				if (entry != null) {
+					load(entry);
+				}
+			}
+		} catch (JMSException | RuntimeException e) {
+			if (!closed) {
+				connection.onException(e instanceof JMSException ? (JMSException) e
+						: Exceptions.wrap("Connection consumer failed", e));
+				try {
+					close();
+				} catch (JMSException ignored) {
+					// the exception which caused the close has been reported
+				}
+			}
+		}
+	}
+
+	/**
+	 * Obtains a server session and loads the message of the specified entry,
+	 * and as many waiting messages as it may, into its session.
+	 */
+	private void load(MessageQueue.Entry entry) throws JMSException {
+		ServerSession serverSession;
+		Session target;
+		try {
+			serverSession = sessionPool.getServerSession();
+			target = serverSession.getSession();
+		} catch (JMSException | RuntimeException e) {
+			consumer.getMessageQueue().addFirst(entry);
+			throw e;
+		}
+		loadLock.lock();
+		try {
+			if (closed || !(target instanceof MemorySession)) {
+				consumer.getMessageQueue().addFirst(entry);
+			} else {
+				MemorySession memorySession = (MemorySession) target;
+				memorySession.load(consumer, entry);
+				for (int i = 1; i < maxMessages && (entry = consumer.poll()) != null; i++) {
+					memorySession.load(consumer, entry);
+				}
+			}
+		} finally {
+			loadLock.unlock();
+		}
+		// a server session with nothing loaded is still started, to return it to the pool
+		serverSession.start();
+		if (!(target instanceof MemorySession)) {
+			throw new JMSException("The sessions of a server session pool must be sessions of the in-memory JMS provider");
+		}
+	}
+
+	@Override
+	public ServerSessionPool getServerSessionPool() throws JMSException {
+		if (closed) {
+			throw new IllegalStateException("Connection consumer is closed");
+		}
+		return sessionPool;
+	}
+
+	@Override
+	public void close() throws JMSException {
+		loadLock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			loadLock.unlock();
+		}
+		session.close();
+		connection.removeConnectionConsumer(this);
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.concurrent.Executor;
+
+import javax.jms.Connection;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.TopicConnection;
+import javax.jms.TopicConnectionFactory;
+
+/**
+ * A {@code ConnectionFactory} for an in-memory reference JMS provider, whose
+ * queues and topics exist only within the current JVM.
+ * <p>
+ * The in-memory provider implements the JMS 2.1 API without a JMS server, so
+ * that applications, and the other reference implementations in this module,
+ * can be tried out and benchmarked without one. Messages are never written to
+ * stable storage, so persistent messages are not retained if the JVM exits.
+ * <p>
+ * Every connection factory created with the same broker name shares the same
+ * queues, topics and durable subscriptions, which are created the first time
+ * they are used. Messages are delivered in the order in which they were sent,
+ * whatever their priority, and each message group is assigned to one consumer
+ * of a queue or shared subscription until that consumer is closed. Message
+ * selectors are evaluated by {@link org.javaee.jms.ri.selector.Selector}, and
+ * topic subscriptions are indexed by
+ * {@link org.javaee.jms.ri.selector.SelectorIndex}.
+ * <p>
+ * The connection factory, and the connections, sessions, producers and
+ * consumers it creates, also implement the interfaces of the point-to-point
+ * and publish/subscribe domains, so that classic applications and helpers
+ * such as {@link javax.jms.QueueRequestor} can be used with it.
+ * <p>
+ * User names and passwords are ignored. Connection consumers are supported
+ * as long as their server session pool provides sessions of this provider,
+ * such as those of {@link org.javaee.jms.ri.pool.ElasticServerSessionPool}.
+ */
+public final class MemoryConnectionFactory implements QueueConnectionFactory, TopicConnectionFactory {
+
+	/** the name of the broker used by the no-argument constructor */
+	public static final String DEFAULT_BROKER = "default";
+
+	private final String brokerName;
+
+	/**
+	 * Creates a connection factory for the default broker.
+	 */
+	public MemoryConnectionFactory() {
+		this(DEFAULT_BROKER);
+	}
+
+	/**
+	 * Creates a connection factory for the broker with the specified name.
+	 *
+	 * @param brokerName
+	 *            the name of the broker
+	 */
+	public MemoryConnectionFactory(String brokerName) {
+		if (brokerName == null) {
+			throw new IllegalArgumentException("Broker name must not be null");
+		}
+		this.brokerName = brokerName;
+	}
+
+	/**
+	 * Returns the name of the broker used by this connection factory.
+	 *
+	 * @return the name of the broker
+	 */
+	public String getBrokerName() {
+		return brokerName;
+	}
+
+	@Override
+	public Connection createConnection() throws JMSException {
+		return new MemoryConnection(Broker.get(brokerName));
+	}
+
+	@Override
+	public Connection createConnection(String userName, String password) throws JMSException {
+		return createConnection();
+	}
+
+	@Override
+	public QueueConnection createQueueConnection() throws JMSException {
+		return new MemoryConnection(Broker.get(brokerName));
+	}
+
+	@Override
+	public QueueConnection createQueueConnection(String userName, String password) throws JMSException {
+		return createQueueConnection();
+	}
+
+	@Override
+	public TopicConnection createTopicConnection() throws JMSException {
+		return new MemoryConnection(Broker.get(brokerName));
+	}
+
+	@Override
+	public TopicConnection createTopicConnection(String userName, String password) throws JMSException {
+		return createTopicConnection();
+	}
+
+	@Override
+	public JMSContext createContext() {
+		return createContext(JMSContext.AUTO_ACKNOWLEDGE);
+	}
+
+	@Override
+	public JMSContext createContext(String userName, String password) {
+		return createContext(JMSContext.AUTO_ACKNOWLEDGE);
+	}
+
+	@Override
+	public JMSContext createContext(String userName, String password, int sessionMode) {
+		return createContext(sessionMode);
+	}
+
+	@Override
+	public JMSContext createContext(int sessionMode) {
+		Broker broker = Broker.get(brokerName);
+		return createContext(broker, sessionMode, broker.getThreads());
+	}
+
+	@Override
+	public JMSContext createContext(int sessionMode, Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		return createContext(Broker.get(brokerName), sessionMode, executor);
+	}
+
+	private static JMSContext createContext(Broker broker, int sessionMode, Executor executor) {
+		if (sessionMode != JMSContext.AUTO_ACKNOWLEDGE && sessionMode != JMSContext.CLIENT_ACKNOWLEDGE
+				&& sessionMode != JMSContext.DUPS_OK_ACKNOWLEDGE && sessionMode != JMSContext.SESSION_TRANSACTED) {
+			throw new JMSRuntimeException("Invalid session mode: " + sessionMode);
+		}
+		return new MemoryContext(new MemoryConnection(broker, executor), sessionMode, executor);
+	}
+}
@@ -0,0 +1,762 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import javax.jms.BatchMessageListener;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageListener;
+import javax.jms.PrefetchStatistics;
+import javax.jms.PropertyKey;
+import javax.jms.QueueReceiver;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+
+import org.javaee.jms.ri.selector.Selector;
+import org.javaee.jms.ri.selector.SelectorTarget;
+
+/**
+ * A {@code MessageConsumer} of the in-memory JMS provider, which receives
+ * messages from a queue or from the queue of a topic subscription.
+ * <p>
+ * A consumer which receives messages asynchronously, using a listener, a
+ * {@code MessagePublisher} or {@code receiveAsync}, registers with its queue,
+ * which tells the session to dispatch messages when one arrives. Messages are
+ * then delivered by the dispatcher of the session, which delivers at most
+ * {@value #DISPATCH_LIMIT} messages to one consumer before giving the other
+ * consumers of the session a turn. State which is only used by asynchronous
+ * delivery is only accessed by the dispatcher.
+ * <p>
+ * A listener which may be called concurrently is instead called by a fixed
+ * number of lanes, each of which is a {@code SerialExecutor}. The dispatcher
+ * hands each message to a lane, choosing the lane from the value of the
+ * ordering property if the message has one, so that messages with the same
+ * value are delivered in order, and otherwise choosing the least busy lane.
+ * It stops handing out messages once there are as many in progress as there
+ * are lanes, leaving the rest on the queue for other consumers.
+ */
+final class MemoryConsumer implements QueueReceiver, TopicSubscriber {
+
+	private static final int DISPATCH_LIMIT = 64;
+
+	private final MemorySession session;
+
+	private final Destination destination;
+
+	private final MessageQueue queue;
+
+	/**
+	 * The selector applied when receiving messages from the queue, which for
+	 * a topic subscription is applied by the subscription instead.
+	 */
+	private final Selector queueSelector;
+
+	private final Subscription subscription;
+
+	private final boolean noLocal;
+
+	private volatile boolean closed;
+
+	private volatile MessageListener listener;
+
+	private volatile int maxBatchSize;
+
+	private volatile long maxBatchWait;
+
+	/**
+	 * The lanes used to call the listener concurrently, or null if the
+	 * listener is called by the dispatcher.
+	 */
+	private volatile Lanes lanes;
+
+	private volatile MemoryMessagePublisher publisher;
+
+	/**
+	 * The number of message groups assigned to this consumer by its queue.
+	 * Guarded by the lock of the queue.
+	 */
+	int groupCount;
+
+	private final Queue<AsyncReceive> asyncReceives = new ConcurrentLinkedQueue<AsyncReceive>();
+
+	private final List<MessageQueue.Entry> batch = new ArrayList<MessageQueue.Entry>();
+
+	private long batchDeadline;
+
+	private ScheduledFuture<?> batchTimer;
+
+	MemoryConsumer(MemorySession session, Destination destination, MessageQueue queue, Selector queueSelector,
+			Subscription subscription, boolean noLocal) {
+		this.session = session;
+		this.destination = destination;
+		this.queue = queue;
+		this.queueSelector = queueSelector;
+		this.subscription = subscription;
+		this.noLocal = noLocal;
+		queue.addConsumer(this);
+	}
+
+	MemorySession getSession() {
+		return session;
+	}
+
+	MessageQueue getMessageQueue() {
+		return queue;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	private void checkNotClosed() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Consumer is closed");
+		}
+	}
+
+	private void checkSynchronous() throws IllegalStateException {
+		checkNotClosed();
+		if (listener != null || publisher != null) {
+			throw new IllegalStateException("Consumer is receiving messages asynchronously");
+		}
+	}
+
+	/**
+	 * Called by the queue when a message arrives, if this consumer has
+	 * registered with it.
+	 */
+	void messageAvailable() {
+		session.scheduleDispatch();
+	}
+
+	/**
+	 * Returns whether this consumer is open, its connection is started and it
+	 * selects the specified message, so that it could receive the message if
+	 * it were given it by its queue.
+	 */
+	boolean accepts(MemoryMessage message) throws JMSException {
+		return !closed && session.getConnection().isStarted()
+				&& (queueSelector == null || queueSelector.matches((SelectorTarget) message));
+	}
+
+	/**
+	 * Removes and returns the next message for this consumer without waiting,
+	 * or returns null if there is none.
+	 */
+	MessageQueue.Entry poll() throws JMSException {
+		return queue.poll(queueSelector, this);
+	}
+
+	/**
+	 * Delivers messages to the listener, publisher or outstanding
+	 * asynchronous receives of this consumer. Called by the dispatcher of the
+	 * session. Returns whether there may be more messages to deliver.
+	 */
+	boolean dispatch() throws JMSException {
+		if (closed || !session.getConnection().isStarted()) {
+			return false;
+		}
+		MessageListener listener = this.listener;
+		if (listener != null) {
+			if (maxBatchSize > 0) {
+				return dispatchBatches((BatchMessageListener) listener);
+			}
+			Lanes lanes = this.lanes;
+			if (lanes != null) {
+				return dispatchConcurrently(listener, lanes);
+			}
+			return dispatchMessages(listener);
+		}
+		MemoryMessagePublisher publisher = this.publisher;
+		if (publisher != null) {
+			return publisher.dispatch(DISPATCH_LIMIT);
+		}
+		return dispatchAsyncReceives();
+	}
+
+	/**
+	 * Returns whether the dispatcher should stop delivering messages to the
+	 * specified listener.
+	 */
+	private boolean interrupted(MessageListener listener) {
+		return closed || this.listener != listener || !session.getConnection().isStarted();
+	}
+
+	private boolean dispatchMessages(MessageListener listener) throws JMSException {
+		for (int i = 0; i < DISPATCH_LIMIT; i++) {
+			MessageQueue.Entry entry = poll();
+			if (entry == null) {
+				return false;
+			}
+			session.deliver(this, entry, listener);
+			if (interrupted(listener)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean dispatchConcurrently(MessageListener listener, Lanes lanes) throws JMSException {
+		for (int i = 0; i < DISPATCH_LIMIT; i++) {
+			// a lane schedules another dispatch when it finishes a message
+			if (lanes.inProgress.get() >= lanes.executors.length) {
+				return false;
+			}
+			MessageQueue.Entry entry = poll();
+			if (entry == null) {
+				return false;
+			}
+			int lane = lanes.choose(entry.message);
+			lanes.inProgress.incrementAndGet();
+			lanes.loads.incrementAndGet(lane);
+			lanes.executors[lane].execute(() -> deliver(entry, listener, lanes, lane));
+			if (interrupted(listener)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Delivers a message to a listener which may be called concurrently.
+	 * Called by a lane.
+	 */
+	private void deliver(MessageQueue.Entry entry, MessageListener listener, Lanes lanes, int lane) {
+		try {
+			session.deliver(this, entry, listener);
+		} catch (JMSException e) {
+			session.getConnection().onException(e);
+		} finally {
+			lanes.loads.decrementAndGet(lane);
+			lanes.inProgress.decrementAndGet();
+			session.scheduleDispatch();
+		}
+	}
+
+	/**
+	 * Returns whether the calling thread is delivering a message to the
+	 * listener of this consumer using one of its lanes.
+	 */
+	boolean isLaneThread() {
+		Lanes lanes = this.lanes;
+		if (lanes != null) {
+			for (SerialExecutor executor : lanes.executors) {
+				if (executor.isCurrentThread()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Waits until every message handed to a lane has been delivered, unless
+	 * called by a lane.
+	 */
+	void awaitLanes() {
+		Lanes lanes = this.lanes;
+		if (lanes != null && !isLaneThread()) {
+			for (SerialExecutor executor : lanes.executors) {
+				executor.awaitCompletion();
+			}
+		}
+	}
+
+	private boolean dispatchBatches(BatchMessageListener listener) throws JMSException {
+		for (int i = 0; i < DISPATCH_LIMIT; i++) {
+			while (batch.size() < maxBatchSize) {
+				MessageQueue.Entry entry = poll();
+				if (entry == null) {
+					break;
+				}
+				if (batch.isEmpty()) {
+					batchDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchWait);
+				}
+				batch.add(entry);
+			}
+			if (batch.isEmpty()) {
+				return false;
+			}
+			long remaining = batchDeadline - System.nanoTime();
+			if (batch.size() < maxBatchSize && remaining > 0) {
+				if (batchTimer == null || batchTimer.isDone()) {
+					batchTimer = session.getConnection().getBroker().schedule(session::scheduleDispatch,
+							TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+				}
+				return false;
+			}
+			cancelBatchTimer();
+			List<MessageQueue.Entry> entries = new ArrayList<MessageQueue.Entry>(batch);
+			batch.clear();
+			session.deliver(this, entries, listener);
+			if (interrupted(listener)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void cancelBatchTimer() {
+		if (batchTimer != null) {
+			batchTimer.cancel(false);
+			batchTimer = null;
+		}
+	}
+
+	/**
+	 * Returns the messages of an incomplete batch to the front of the queue,
+	 * without treating them as delivered.
+	 */
+	private void returnBatch() {
+		cancelBatchTimer();
+		for (int i = batch.size() - 1; i >= 0; i--) {
+			queue.addFirst(batch.get(i));
+		}
+		batch.clear();
+	}
+
+	private boolean dispatchAsyncReceives() throws JMSException {
+		for (int i = 0; i < DISPATCH_LIMIT; i++) {
+			if (asyncReceives.isEmpty()) {
+				return false;
+			}
+			MessageQueue.Entry entry = poll();
+			if (entry == null) {
+				return false;
+			}
+			complete(asyncReceives.poll(), entry);
+		}
+		return true;
+	}
+
+	private void complete(AsyncReceive receive, MessageQueue.Entry entry) {
+		MemoryMessage message;
+		try {
+			message = session.receive(this, entry);
+		} catch (JMSException e) {
+			receive.future.completeExceptionally(Exceptions.toRuntime(e));
+			return;
+		}
+		if (receive.bodyType == null) {
+			receive.future.complete(message);
+			return;
+		}
+		try {
+			receive.future.complete(bodyOf(message, receive.bodyType));
+		} catch (JMSException e) {
+			session.rejected(queue, entry);
+			receive.future.completeExceptionally(Exceptions.toRuntime(e));
+		}
+	}
+
+	/**
+	 * Returns the body of the specified message as an object of the specified
+	 * type, for {@code JMSConsumer.receiveBody}.
+	 */
+	private static <T> T bodyOf(MemoryMessage message, Class<T> c) throws JMSException {
+		if (message instanceof StreamMessage || message.getClass() == MemoryMessage.class) {
+			throw new MessageFormatException("The body of a " + message.getClass().getSimpleName()
+					+ " cannot be returned");
+		}
+		T body = message.getBody(c);
+		if (body == null) {
+			throw new MessageFormatException("Message has no body");
+		}
+		return body;
+	}
+
+	/**
+	 * Returns the value of {@code System.nanoTime} at which a receive with
+	 * the specified timeout expires.
+	 */
+	static long deadline(long timeout) {
+		return timeout == 0 ? MessageQueue.FOREVER : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+	}
+
+	/**
+	 * Removes and returns the next message for this consumer, waiting until
+	 * the specified time, as returned by {@code System.nanoTime}, for one to
+	 * arrive and for the connection to be started. Returns null if there is
+	 * no message by that time or the consumer is closed.
+	 */
+	MessageQueue.Entry take(long deadline) throws JMSException {
+		checkSynchronous();
+		MemoryConnection connection = session.getConnection();
+		while (true) {
+			if (!connection.awaitStarted(deadline) || closed) {
+				return null;
+			}
+			MessageQueue.Entry entry = queue.take(queueSelector, deadline, this);
+			if (entry == null) {
+				return null;
+			}
+			if (closed) {
+				queue.addFirst(entry);
+				return null;
+			}
+			if (connection.isStarted()) {
+				return entry;
+			}
+			queue.addFirst(entry);
+		}
+	}
+
+	Message receiveUntil(long deadline) throws JMSException {
+		MessageQueue.Entry entry = take(deadline);
+		return entry == null ? null : session.receive(this, entry);
+	}
+
+	List<Message> receiveUntil(int maxMessages, long deadline) throws JMSException {
+		if (maxMessages < 1) {
+			throw new IllegalArgumentException("Invalid maximum number of messages: " + maxMessages);
+		}
+		List<Message> messages = new ArrayList<Message>();
+		MessageQueue.Entry entry = take(deadline);
+		while (entry != null) {
+			messages.add(session.receive(this, entry));
+			if (messages.size() == maxMessages || closed || !session.getConnection().isStarted()) {
+				break;
+			}
+			entry = poll();
+		}
+		return messages;
+	}
+
+	<T> T receiveBody(Class<T> c, long deadline) throws JMSException {
+		MessageQueue.Entry entry = take(deadline);
+		if (entry == null) {
+			return null;
+		}
+		MemoryMessage message = session.receive(this, entry);
+		try {
+			return bodyOf(message, c);
+		} catch (JMSException e) {
+			session.rejected(queue, entry);
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a {@code CompletionStage} which is completed with the next
+	 * message for this consumer, or its body if the specified type is not
+	 * null, or with null if the consumer is closed first.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> CompletionStage<T> receiveAsync(Class<T> bodyType) throws JMSException {
+		checkSynchronous();
+		AsyncReceive receive = new AsyncReceive(bodyType);
+		asyncReceives.add(receive);
+		queue.addListener(this);
+		if (closed) {
+			receive.future.complete(null);
+		}
+		session.scheduleDispatch();
+		return (CompletionStage<T>) (CompletionStage<?>) receive.future;
+	}
+
+	MemoryMessagePublisher createPublisher() throws JMSException {
+		checkSynchronous();
+		return new MemoryMessagePublisher(this);
+	}
+
+	/**
+	 * Makes the specified publisher the source of messages for its subscriber.
+	 * Returns false if the consumer already has a listener or a subscribed
+	 * publisher, or is closed.
+	 */
+	synchronized boolean setPublisher(MemoryMessagePublisher publisher) {
+		if (closed || listener != null || this.publisher != null) {
+			return false;
+		}
+		this.publisher = publisher;
+		queue.addListener(this);
+		session.scheduleDispatch();
+		return true;
+	}
+
+	synchronized void removePublisher(MemoryMessagePublisher publisher) {
+		if (this.publisher == publisher) {
+			this.publisher = null;
+			if (asyncReceives.isEmpty()) {
+				queue.removeListener(this);
+			}
+		}
+	}
+
+	@Override
+	public String getMessageSelector() throws JMSException {
+		checkNotClosed();
+		Selector selector = subscription == null ? queueSelector : subscription.selector;
+		return selector == null ? null : selector.getSelectorText();
+	}
+
+	@Override
+	public MessageListener getMessageListener() throws JMSException {
+		checkNotClosed();
+		return listener;
+	}
+
+	@Override
+	public void setMessageListener(MessageListener listener) throws JMSException {
+		setListener(listener, 0, 0, null);
+	}
+
+	@Override
+	public void setMessageListener(BatchMessageListener listener, int maxBatchSize, long maxBatchWait)
+			throws JMSException {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Invalid maximum batch size: " + maxBatchSize);
+		}
+		if (maxBatchWait < 0) {
+			throw new IllegalArgumentException("Invalid maximum batch wait: " + maxBatchWait);
+		}
+		setListener(listener, listener == null ? 0 : maxBatchSize, maxBatchWait, null);
+	}
+
+	@Override
+	public void setMessageListener(MessageListener listener, int concurrency, String orderingProperty)
+			throws JMSException {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Invalid concurrency: " + concurrency);
+		}
+		PropertyKey orderingKey = orderingProperty == null ? null : PropertyKey.of(orderingProperty);
+		if (session.getMode() == Session.SESSION_TRANSACTED) {
+			throw new IllegalStateException("Messages may not be delivered concurrently in a transacted session");
+		}
+		Lanes lanes = listener == null || concurrency == 1 ? null
+				: new Lanes(session, concurrency, orderingKey);
+		setListener(listener, 0, 0, lanes);
+	}
+
+	/**
+	 * Changes the listener using the dispatcher, so that it does not happen
+	 * while a message is being delivered to the current listener, unless it
+	 * is done by that listener.
+	 */
+	private void setListener(MessageListener listener, int maxBatchSize, long maxBatchWait, Lanes lanes)
+			throws JMSException {
+		checkNotClosed();
+		synchronized (this) {
+			if (publisher != null) {
+				throw new IllegalStateException("Consumer has a subscribed publisher");
+			}
+		}
+		session.runOnDispatcher(() -> {
+			returnBatch();
+			synchronized (this) {
+				this.maxBatchSize = maxBatchSize;
+				this.maxBatchWait = maxBatchWait;
+				this.lanes = lanes;
+				this.listener = listener;
+			}
+			if (listener != null) {
+				queue.addListener(this);
+			} else if (asyncReceives.isEmpty()) {
+				queue.removeListener(this);
+			}
+		});
+		if (listener != null) {
+			session.scheduleDispatch();
+		}
+	}
+
+	@Override
+	public Message receive() throws JMSException {
+		return receiveUntil(MessageQueue.FOREVER);
+	}
+
+	@Override
+	public Message receive(long timeout) throws JMSException {
+		return receiveUntil(deadline(timeout));
+	}
+
+	@Override
+	public Message receiveNoWait() throws JMSException {
+		return receiveUntil(System.nanoTime());
+	}
+
+	@Override
+	public List<Message> receive(int maxMessages, long timeout) throws JMSException {
+		return receiveUntil(maxMessages, deadline(timeout));
+	}
+
+	@Override
+	public PrefetchStatistics getPrefetchStatistics() throws JMSException {
+		checkNotClosed();
+		return MemoryPrefetchStatistics.INSTANCE;
+	}
+
+	@Override
+	public void acknowledgeUpTo(Message message) throws JMSException {
+		checkNotClosed();
+		session.acknowledgeUpTo(this, message);
+	}
+
+	@Override
+	public javax.jms.Queue getQueue() throws JMSException {
+		checkNotClosed();
+		if (!(destination instanceof javax.jms.Queue)) {
+			throw new IllegalStateException("Consumer does not consume from a queue");
+		}
+		return (javax.jms.Queue) destination;
+	}
+
+	@Override
+	public Topic getTopic() throws JMSException {
+		checkNotClosed();
+		if (!(destination instanceof Topic)) {
+			throw new IllegalStateException("Consumer does not consume from a topic");
+		}
+		return (Topic) destination;
+	}
+
+	@Override
+	public boolean getNoLocal() throws JMSException {
+		checkNotClosed();
+		return noLocal;
+	}
+
+	@Override
+	public void close() throws JMSException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		queue.removeListener(this);
+		queue.wakeAll();
+		session.runOnDispatcher(this::cleanUp);
+		awaitLanes();
+	}
+
+	/**
+	 * Releases the resources of a closed consumer. Called by the dispatcher.
+	 */
+	private void cleanUp() {
+		returnBatch();
+		AsyncReceive receive;
+		while ((receive = asyncReceives.poll()) != null) {
+			receive.future.complete(null);
+		}
+		MemoryMessagePublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.complete();
+		}
+		queue.removeConsumer(this);
+		if (subscription != null) {
+			session.getConnection().getBroker().release(subscription);
+		}
+		session.removeConsumer(this);
+	}
+
+	/**
+	 * The lanes used to call a listener concurrently.
+	 */
+	private static final class Lanes {
+
+		final SerialExecutor[] executors;
+
+		/** the number of messages handed to each lane and not yet delivered */
+		final AtomicIntegerArray loads;
+
+		final AtomicInteger inProgress = new AtomicInteger();
+
+		/** the ordering property, or null */
+		final PropertyKey orderingKey;
+
+		Lanes(MemorySession session, int concurrency, PropertyKey orderingKey) {
+			executors = new SerialExecutor[concurrency];
+			for (int i = 0; i < concurrency; i++) {
+				executors[i] = new SerialExecutor(session.getExecutor(), session::rejected);
+			}
+			loads = new AtomicIntegerArray(concurrency);
+			this.orderingKey = orderingKey;
+		}
+
+		/**
+		 * Returns the index of the lane which is to deliver the specified
+		 * message.
+		 */
+		int choose(MemoryMessage message) throws JMSException {
+			if (orderingKey != null) {
+				String value = message.getStringPropertyValue(orderingKey);
+				if (value != null) {
+					return (value.hashCode() & Integer.MAX_VALUE) % executors.length;
+				}
+			}
+			int lane = 0;
+			for (int i = 1; i < executors.length; i++) {
+				if (loads.get(i) < loads.get(lane)) {
+					lane = i;
+				}
+			}
+			return lane;
+		}
+	}
+
+	/**
+	 * An outstanding call to {@code receiveAsync} or {@code receiveBodyAsync}.
+	 */
+	private static final class AsyncReceive {
+
+		final Class<?> bodyType;
+
+		final CompletableFuture<Object> future = new CompletableFuture<Object>();
+
+		AsyncReceive(Class<?> bodyType) {
+			this.bodyType = bodyType;
+		}
+	}
+}
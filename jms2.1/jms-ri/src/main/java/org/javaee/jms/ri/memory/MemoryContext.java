@@ -0,0 +1,627 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.concurrent.Executor;
+
+import javax.jms.BytesMessage;
+import javax.jms.CompiledSelector;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+
+import org.javaee.jms.ri.selector.Selector;
+
+/**
+ * A {@code JMSContext} of the in-memory JMS provider, which uses a
+ * {@code MemorySession} and a {@code MemoryConnection}.
+ * <p>
+ * The connection is shared by the contexts created from each other using
+ * {@code createContext}, and is closed when the last of them is closed. The
+ * session is created when it is first needed, so that the client identifier
+ * can be set first.
+ */
+final class MemoryContext implements JMSContext {
+
+	/**
+	 * A connection and the number of contexts which use it, which is guarded
+	 * by this object.
+	 */
+	private static final class SharedConnection {
+
+		final MemoryConnection connection;
+
+		int references = 1;
+
+		SharedConnection(MemoryConnection connection) {
+			this.connection = connection;
+		}
+	}
+
+	private final SharedConnection shared;
+
+	private final MemoryConnection connection;
+
+	private final int sessionMode;
+
+	/** the executor whose threads call the listeners of the session */
+	private final Executor executor;
+
+	private MemorySession session;
+
+	private volatile boolean autoStart = true;
+
+	private boolean closed;
+
+	MemoryContext(MemoryConnection connection, int sessionMode, Executor executor) {
+		this(new SharedConnection(connection), sessionMode, executor);
+	}
+
+	private MemoryContext(SharedConnection shared, int sessionMode, Executor executor) {
+		this.shared = shared;
+		this.connection = shared.connection;
+		this.sessionMode = sessionMode;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the session of this context, creating it if necessary.
+	 */
+	synchronized MemorySession session() throws JMSException {
+		if (closed) {
+			throw new IllegalStateException("Context is closed");
+		}
+		if (session == null) {
+			session = connection.createSession(sessionMode, executor);
+		}
+		return session;
+	}
+
+	private JMSConsumer consumer(MemoryConsumer consumer) throws JMSException {
+		if (autoStart) {
+			connection.start();
+		}
+		return new MemoryJMSConsumer(consumer);
+	}
+
+	@Override
+	public JMSContext createContext(int sessionMode) {
+		return createContext(sessionMode, executor);
+	}
+
+	@Override
+	public JMSContext createContext(int sessionMode, Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		if (sessionMode != AUTO_ACKNOWLEDGE && sessionMode != CLIENT_ACKNOWLEDGE
+				&& sessionMode != DUPS_OK_ACKNOWLEDGE && sessionMode != SESSION_TRANSACTED) {
+			throw new JMSRuntimeException("Invalid session mode: " + sessionMode);
+		}
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateRuntimeException("Context is closed");
+			}
+		}
+		synchronized (shared) {
+			shared.references++;
+		}
+		return new MemoryContext(shared, sessionMode, executor);
+	}
+
+	@Override
+	public JMSProducer createProducer() {
+		try {
+			return new MemoryJMSProducer(session());
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public String getClientID() {
+		try {
+			return connection.getClientID();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setClientID(String clientID) {
+		try {
+			connection.setClientID(clientID);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public ConnectionMetaData getMetaData() {
+		try {
+			return connection.getMetaData();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public ExceptionListener getExceptionListener() {
+		try {
+			return connection.getExceptionListener();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setExceptionListener(ExceptionListener listener) {
+		try {
+			connection.setExceptionListener(listener);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void start() {
+		try {
+			connection.start();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void stop() {
+		try {
+			connection.stop();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setAutoStart(boolean autoStart) {
+		this.autoStart = autoStart;
+	}
+
+	@Override
+	public boolean getAutoStart() {
+		return autoStart;
+	}
+
+	@Override
+	public void close() {
+		MemorySession session;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			session = this.session;
+		}
+		try {
+			if (session != null) {
+				session.close();
+			}
+			synchronized (this) {
+				closed = true;
+			}
+			boolean last;
+			synchronized (shared) {
+				last = --shared.references == 0;
+			}
+			if (last) {
+				connection.close();
+			}
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public BytesMessage createBytesMessage() {
+		try {
+			return session().createBytesMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public BytesMessage createBytesMessage(InputStream body) {
+		try {
+			return session().createBytesMessage(body);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public MapMessage createMapMessage() {
+		try {
+			return session().createMapMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Message createMessage() {
+		try {
+			return session().createMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public ObjectMessage createObjectMessage() {
+		try {
+			return session().createObjectMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public ObjectMessage createObjectMessage(Serializable object) {
+		try {
+			return session().createObjectMessage(object);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public StreamMessage createStreamMessage() {
+		try {
+			return session().createStreamMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public TextMessage createTextMessage() {
+		try {
+			return session().createTextMessage();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public TextMessage createTextMessage(String text) {
+		try {
+			return session().createTextMessage(text);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public boolean getTransacted() {
+		return sessionMode == SESSION_TRANSACTED;
+	}
+
+	@Override
+	public int getSessionMode() {
+		return sessionMode;
+	}
+
+	@Override
+	public void commit() {
+		try {
+			session().commit();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void rollback() {
+		try {
+			session().rollback();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void recover() {
+		try {
+			session().recover();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumer(Destination destination) {
+		try {
+			return consumer(session().createConsumer(destination, (Selector) null, false));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumer(Destination destination, String messageSelector) {
+		try {
+			return consumer(session().createConsumer(destination, MemorySession.compile(messageSelector), false));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) {
+		try {
+			return consumer(session().createConsumer(destination, MemorySession.compile(messageSelector), noLocal));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public CompiledSelector createSelector(String messageSelector) {
+		try {
+			return session().createSelector(messageSelector);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector) {
+		try {
+			return consumer(session().createConsumer(destination, MemorySession.compile(selector), false));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector, boolean noLocal) {
+		try {
+			return consumer(session().createConsumer(destination, MemorySession.compile(selector), noLocal));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal,
+			int prefetchMessages, long prefetchBytes) {
+		try {
+			return consumer((MemoryConsumer) session().createConsumer(destination, messageSelector, noLocal,
+					prefetchMessages, prefetchBytes));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Queue createQueue(String queueName) {
+		try {
+			return session().createQueue(queueName);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Topic createTopic(String topicName) {
+		try {
+			return session().createTopic(topicName);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createDurableConsumer(Topic topic, String name) {
+		try {
+			return consumer(session().createDurableConsumer(topic, name, (Selector) null, false));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal) {
+		try {
+			return consumer(session().createDurableConsumer(topic, name, MemorySession.compile(messageSelector),
+					noLocal));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector,
+			boolean noLocal) {
+		try {
+			return consumer(session().createDurableConsumer(topic, name, MemorySession.compile(selector), noLocal));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedDurableConsumer(Topic topic, String name) {
+		try {
+			return consumer(session().createSharedDurableConsumer(topic, name, (Selector) null));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector) {
+		try {
+			return consumer(session().createSharedDurableConsumer(topic, name,
+					MemorySession.compile(messageSelector)));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector) {
+		try {
+			return consumer(session().createSharedDurableConsumer(topic, name, MemorySession.compile(selector)));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) {
+		try {
+			return consumer(session().createSharedConsumer(topic, sharedSubscriptionName, (Selector) null));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, String messageSelector) {
+		try {
+			return consumer(session().createSharedConsumer(topic, sharedSubscriptionName,
+					MemorySession.compile(messageSelector)));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSConsumer createSharedConsumerWithSelector(Topic topic, String sharedSubscriptionName, CompiledSelector selector) {
+		try {
+			return consumer(session().createSharedConsumer(topic, sharedSubscriptionName,
+					MemorySession.compile(selector)));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public QueueBrowser createBrowser(Queue queue) {
+		try {
+			return session().createBrowser(queue, (Selector) null);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public QueueBrowser createBrowser(Queue queue, String messageSelector) {
+		try {
+			return session().createBrowser(queue, MemorySession.compile(messageSelector));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public QueueBrowser createBrowserWithSelector(Queue queue, CompiledSelector selector) {
+		try {
+			return session().createBrowser(queue, MemorySession.compile(selector));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public TemporaryQueue createTemporaryQueue() {
+		try {
+			return session().createTemporaryQueue();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public TemporaryTopic createTemporaryTopic() {
+		try {
+			return session().createTemporaryTopic();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void unsubscribe(String name) {
+		try {
+			session().unsubscribe(name);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void acknowledge() {
+		try {
+			session().acknowledge();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.jms.BatchMessageListener;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessagePublisher;
+import javax.jms.PrefetchStatistics;
+
+/**
+ * A {@code JMSConsumer} of the in-memory JMS provider, which uses a
+ * {@code MemoryConsumer}.
+ */
+final class MemoryJMSConsumer implements JMSConsumer {
+
+	private final MemoryConsumer consumer;
+
+	MemoryJMSConsumer(MemoryConsumer consumer) {
+		this.consumer = consumer;
+	}
+
+	@Override
+	public String getMessageSelector() {
+		try {
+			return consumer.getMessageSelector();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public MessageListener getMessageListener() {
+		try {
+			return consumer.getMessageListener();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setMessageListener(MessageListener listener) {
+		try {
+			consumer.setMessageListener(listener);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setMessageListener(BatchMessageListener listener, int maxBatchSize, long maxBatchWait) {
+		try {
+			consumer.setMessageListener(listener, maxBatchSize, maxBatchWait);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void setMessageListener(MessageListener listener, int concurrency, String orderingProperty) {
+		try {
+			consumer.setMessageListener(listener, concurrency, orderingProperty);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Message receive() {
+		try {
+			return consumer.receive();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Message receive(long timeout) {
+		try {
+			return consumer.receive(timeout);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public Message receiveNoWait() {
+		try {
+			return consumer.receiveNoWait();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public List<Message> receive(int maxMessages, long timeout) {
+		try {
+			return consumer.receive(maxMessages, timeout);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			consumer.close();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public <T> T receiveBody(Class<T> c) {
+		try {
+			return consumer.receiveBody(c, MessageQueue.FOREVER);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public <T> T receiveBody(Class<T> c, long timeout) {
+		try {
+			return consumer.receiveBody(c, MemoryConsumer.deadline(timeout));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public <T> T receiveBodyNoWait(Class<T> c) {
+		try {
+			return consumer.receiveBody(c, System.nanoTime());
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public CompletionStage<Message> receiveAsync() {
+		try {
+			return consumer.receiveAsync(null);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public <T> CompletionStage<T> receiveBodyAsync(Class<T> c) {
+		if (c == null) {
+			throw new IllegalArgumentException("Body type must not be null");
+		}
+		try {
+			return consumer.receiveAsync(c);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public MessagePublisher createPublisher() {
+		try {
+			return consumer.createPublisher();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public PrefetchStatistics getPrefetchStatistics() {
+		try {
+			return consumer.getPrefetchStatistics();
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public void acknowledgeUpTo(Message message) {
+		try {
+			consumer.acknowledgeUpTo(message);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+}
@@ -0,0 +1,700 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageSubscriber;
+import javax.jms.MessageSubscription;
+import javax.jms.PropertyKey;
+import javax.jms.SendWindow;
+import javax.jms.SendWindowListener;
+
+/**
+ * A {@code JMSProducer} of the in-memory JMS provider.
+ * <p>
+ * The message properties of the producer are held in a
+ * {@code MessageProperties} object, just like those of a message. The queue or
+ * topic state of the destination of the last message sent is remembered, so
+ * that an application which sends many messages to the same destination does
+ * not look it up every time.
+ */
+final class MemoryJMSProducer implements JMSProducer {
+
+	/**
+	 * The number of messages a {@code MessageSubscriber} returned by
+	 * {@code createSubscriber} requests at first, if the send window does not
+	 * limit the number of outstanding messages.
+	 */
+	private static final int SUBSCRIBER_REQUEST = 64;
+
+	private final MemorySession session;
+
+	private final SendOptions options = new SendOptions();
+
+	private final MessageProperties properties = new MessageProperties();
+
+	private final SendWindowState window;
+
+	private Object correlationID;
+
+	private String type;
+
+	private Destination replyTo;
+
+	private CompletionListener completionListener;
+
+	private Destination lastDestination;
+
+	private Endpoint lastEndpoint;
+
+	MemoryJMSProducer(MemorySession session) {
+		this.session = session;
+		window = new SendWindowState(session.getCallbacks());
+	}
+
+	private Endpoint resolve(Destination destination) throws JMSException {
+		if (destination != lastDestination || destination == null || lastEndpoint.isDeleted()) {
+			lastEndpoint = session.getConnection().getBroker().resolve(destination);
+			lastDestination = destination;
+		}
+		return lastEndpoint;
+	}
+
+	private static String checkName(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Property name must not be null or empty");
+		}
+		return name;
+	}
+
+	/**
+	 * Sets the message properties and message headers of this producer on a
+	 * message which is about to be sent.
+	 */
+	private void apply(Message message) throws JMSException {
+		if (message == null) {
+			throw new MessageFormatException("Message must not be null");
+		}
+		if (properties.size() > 0) {
+			for (String name : properties.getNames()) {
+				Object value = properties.getObject(name);
+				if (value == null) {
+					message.setStringProperty(name, null);
+				} else {
+					message.setObjectProperty(name, value);
+				}
+			}
+		}
+		if (correlationID instanceof byte[]) {
+			message.setJMSCorrelationIDAsBytes((byte[]) correlationID);
+		} else if (correlationID != null) {
+			message.setJMSCorrelationID((String) correlationID);
+		}
+		if (type != null) {
+			message.setJMSType(type);
+		}
+		if (replyTo != null) {
+			message.setJMSReplyTo(replyTo);
+		}
+	}
+
+	private void send(Destination destination, Message message, CompletionListener completionListener)
+			throws JMSException {
+		apply(message);
+		session.send(resolve(destination), destination, message, options.deliveryMode, options.priority,
+				options.timeToLive, options, window, completionListener);
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, Message message) {
+		try {
+			send(destination, message, completionListener);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		return this;
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, String body) {
+		return send(destination, new MemoryTextMessage(body));
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, Map<String, Object> body) {
+		try {
+			return send(destination, body == null ? new MemoryMapMessage() : new MemoryMapMessage(body));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, byte[] body) {
+		MemoryBytesMessage message = new MemoryBytesMessage();
+		if (body != null) {
+			try {
+				message.writeBytes(body);
+			} catch (JMSException e) {
+				throw Exceptions.toRuntime(e);
+			}
+		}
+		return send(destination, message);
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, Serializable body) {
+		try {
+			return send(destination, new MemoryObjectMessage(body));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSProducer send(Destination destination, InputStream body) {
+		if (body == null) {
+			throw new IllegalArgumentException("Body must not be null");
+		}
+		return send(destination, new MemoryBytesMessage(body));
+	}
+
+	@Override
+	public JMSProducer sendBatch(Destination destination, List<? extends Message> messages) {
+		try {
+			if (messages == null) {
+				throw new IllegalArgumentException("List of messages must not be null");
+			}
+			for (Message message : messages) {
+				if (message == null) {
+					throw new IllegalArgumentException("List of messages must not contain null");
+				}
+				apply(message);
+			}
+			session.send(resolve(destination), destination, messages, options, window, completionListener);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		return this;
+	}
+
+	@Override
+	public CompletionStage<Message> sendAsync(Destination destination, Message message) {
+		CompletableFuture<Message> result = new CompletableFuture<Message>();
+		try {
+			send(destination, message, new CompletionListener() {
+
+				@Override
+				public void onCompletion(Message message) {
+					result.complete(message);
+				}
+
+				@Override
+				public void onException(Message message, Exception exception) {
+					result.completeExceptionally(exception);
+				}
+			});
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		return result;
+	}
+
+	@Override
+	public MessageSubscriber createSubscriber(Destination destination) {
+		try {
+			return new Subscriber(destination, resolve(destination));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public JMSProducer setDisableMessageID(boolean value) {
+		options.disableMessageID = value;
+		return this;
+	}
+
+	@Override
+	public boolean getDisableMessageID() {
+		return options.disableMessageID;
+	}
+
+	@Override
+	public JMSProducer setDisableMessageTimestamp(boolean value) {
+		options.disableMessageTimestamp = value;
+		return this;
+	}
+
+	@Override
+	public boolean getDisableMessageTimestamp() {
+		return options.disableMessageTimestamp;
+	}
+
+	@Override
+	public JMSProducer setDeliveryMode(int deliveryMode) {
+		try {
+			SendOptions.checkDeliveryMode(deliveryMode);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		options.deliveryMode = deliveryMode;
+		return this;
+	}
+
+	@Override
+	public int getDeliveryMode() {
+		return options.deliveryMode;
+	}
+
+	@Override
+	public JMSProducer setPriority(int priority) {
+		try {
+			SendOptions.checkPriority(priority);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		options.priority = priority;
+		return this;
+	}
+
+	@Override
+	public int getPriority() {
+		return options.priority;
+	}
+
+	@Override
+	public JMSProducer setTimeToLive(long timeToLive) {
+		options.timeToLive = timeToLive;
+		return this;
+	}
+
+	@Override
+	public long getTimeToLive() {
+		return options.timeToLive;
+	}
+
+	@Override
+	public JMSProducer setDeliveryDelay(long deliveryDelay) {
+		options.deliveryDelay = deliveryDelay;
+		return this;
+	}
+
+	@Override
+	public long getDeliveryDelay() {
+		return options.deliveryDelay;
+	}
+
+	@Override
+	public JMSProducer setAsync(CompletionListener completionListener) {
+		this.completionListener = completionListener;
+		return this;
+	}
+
+	@Override
+	public CompletionListener getAsync() {
+		return completionListener;
+	}
+
+	@Override
+	public JMSProducer setSendWindow(int maxMessages, long maxBytes, int policy) {
+		window.set(maxMessages, maxBytes, policy);
+		return this;
+	}
+
+	@Override
+	public SendWindow getSendWindow() {
+		return window.snapshot();
+	}
+
+	@Override
+	public JMSProducer setSendWindowListener(SendWindowListener listener) {
+		window.setListener(listener);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, boolean value) {
+		properties.setBoolean(checkName(name), value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, byte value) {
+		properties.set(checkName(name), MessageProperties.BYTE, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, short value) {
+		properties.set(checkName(name), MessageProperties.SHORT, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, int value) {
+		properties.set(checkName(name), MessageProperties.INT, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, long value) {
+		properties.set(checkName(name), MessageProperties.LONG, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, float value) {
+		properties.setFloat(checkName(name), value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, double value) {
+		properties.setDouble(checkName(name), value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, String value) {
+		properties.setString(checkName(name), value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setProperty(String name, Object value) {
+		try {
+			properties.setObject(checkName(name), value);
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, boolean value) {
+		properties.setBoolean(key, value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, byte value) {
+		properties.set(key, MessageProperties.BYTE, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, short value) {
+		properties.set(key, MessageProperties.SHORT, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, int value) {
+		properties.set(key, MessageProperties.INT, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, long value) {
+		properties.set(key, MessageProperties.LONG, value, null);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, float value) {
+		properties.setFloat(key, value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, double value) {
+		properties.setDouble(key, value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer setPropertyValue(PropertyKey key, String value) {
+		properties.setString(key, value);
+		return this;
+	}
+
+	@Override
+	public JMSProducer clearProperties() {
+		properties.clear();
+		return this;
+	}
+
+	@Override
+	public boolean propertyExists(String name) {
+		return name != null && !name.isEmpty() && properties.exists(name);
+	}
+
+	@Override
+	public boolean getBooleanProperty(String name) {
+		try {
+			return properties.getBoolean(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public byte getByteProperty(String name) {
+		try {
+			return properties.getByte(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public short getShortProperty(String name) {
+		try {
+			return properties.getShort(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public int getIntProperty(String name) {
+		try {
+			return properties.getInt(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public long getLongProperty(String name) {
+		try {
+			return properties.getLong(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public float getFloatProperty(String name) {
+		try {
+			return properties.getFloat(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public double getDoubleProperty(String name) {
+		try {
+			return properties.getDouble(checkName(name));
+		} catch (JMSException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
+	@Override
+	public String getStringProperty(String name) {
+		return properties.getString(checkName(name));
+	}
+
+	@Override
+	public Object getObjectProperty(String name) {
+		return properties.getObject(checkName(name));
+	}
+
+	@Override
+	public Set<String> getPropertyNames() {
+		return new LinkedHashSet<String>(properties.getNames());
+	}
+
+	@Override
+	public JMSProducer setJMSCorrelationIDAsBytes(byte[] correlationID) {
+		this.correlationID = correlationID == null ? null : correlationID.clone();
+		return this;
+	}
+
+	@Override
+	public byte[] getJMSCorrelationIDAsBytes() {
+		if (correlationID instanceof byte[]) {
+			return ((byte[]) correlationID).clone();
+		}
+		return correlationID == null ? null : ((String) correlationID).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public JMSProducer setJMSCorrelationID(String correlationID) {
+		this.correlationID = correlationID;
+		return this;
+	}
+
+	@Override
+	public String getJMSCorrelationID() {
+		if (correlationID instanceof byte[]) {
+			return new String((byte[]) correlationID, StandardCharsets.UTF_8);
+		}
+		return (String) correlationID;
+	}
+
+	@Override
+	public JMSProducer setJMSType(String type) {
+		this.type = type;
+		return this;
+	}
+
+	@Override
+	public String getJMSType() {
+		return type;
+	}
+
+	@Override
+	public JMSProducer setJMSReplyTo(Destination replyTo) {
+		this.replyTo = replyTo;
+		return this;
+	}
+
+	@Override
+	public Destination getJMSReplyTo() {
+		return replyTo;
+	}
+
+	/**
+	 * A {@code MessageSubscriber} which sends the messages passed to it
+	 * asynchronously, requesting a further message each time a send
+	 * completes, so that the number of outstanding sends stays constant.
+	 */
+	private final class Subscriber implements MessageSubscriber, CompletionListener {
+
+		private final Destination destination;
+
+		private final Endpoint endpoint;
+
+		private volatile MessageSubscription subscription;
+
+		private volatile boolean done;
+
+		Subscriber(Destination destination, Endpoint endpoint) {
+			this.destination = destination;
+			this.endpoint = endpoint;
+		}
+
+		@Override
+		public void onSubscribe(MessageSubscription subscription) {
+			if (this.subscription != null || done) {
+				subscription.cancel();
+				return;
+			}
+			this.subscription = subscription;
+			int maxMessages = window.snapshot().getMaxMessages();
+			subscription.request(maxMessages == -1 ? SUBSCRIBER_REQUEST : maxMessages);
+		}
+
+		@Override
+		public void onNext(Message message) {
+			if (done) {
+				return;
+			}
+			try {
+				apply(message);
+				session.send(endpoint, destination, message, options.deliveryMode, options.priority,
+						options.timeToLive, options, window, this);
+			} catch (JMSException e) {
+				fail(e);
+			} catch (RuntimeException e) {
+				fail(Exceptions.wrap("Unable to send message", e));
+			}
+		}
+
+		private void fail(JMSException e) {
+			done = true;
+			MessageSubscription subscription = this.subscription;
+			if (subscription != null) {
+				subscription.cancel();
+			}
+			session.getConnection().onException(e);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			done = true;
+		}
+
+		@Override
+		public void onComplete() {
+			done = true;
+		}
+
+		@Override
+		public void onCompletion(Message message) {
+			CompletionListener completionListener = MemoryJMSProducer.this.completionListener;
+			if (completionListener != null) {
+				completionListener.onCompletion(message);
+			}
+			if (!done) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onException(Message message, Exception exception) {
+			CompletionListener completionListener = MemoryJMSProducer.this.completionListener;
+			if (completionListener != null) {
+				completionListener.onException(message, exception);
+			}
+			fail(exception instanceof JMSException ? (JMSException) exception
+					: Exceptions.wrap("Unable to send message", exception));
+		}
+	}
+}
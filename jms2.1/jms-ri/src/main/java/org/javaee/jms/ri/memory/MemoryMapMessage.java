@@ -0,0 +1,288 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.MessageFormatException;
+
+/**
+ * A {@code MapMessage} of the in-memory JMS provider.
+ * <p>
+ * The body is held in a {@code LinkedHashMap}, so that the names are
+ * returned in the order in which they were first set. Byte arrays are copied
+ * when they are set and when they are returned, so the values in the map are
+ * never modified and the map may be shared by the copies of a sent message.
+ */
+final class MemoryMapMessage extends MemoryMessage implements MapMessage {
+
+	private Map<String, Object> map = new LinkedHashMap<String, Object>();
+
+	/**
+	 * Whether {@code map} is shared with another message and must be copied
+	 * before it is modified.
+	 */
+	private boolean shared;
+
+	MemoryMapMessage() {
+	}
+
+	MemoryMapMessage(Map<String, ?> body) throws JMSException {
+		for (Map.Entry<String, ?> entry : body.entrySet()) {
+			setObject(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Returns a {@code MemoryMapMessage} with the same body as the specified
+	 * message of another JMS provider.
+	 */
+	static MemoryMapMessage convert(MapMessage message) throws JMSException {
+		MemoryMapMessage result = new MemoryMapMessage();
+		for (Enumeration<?> e = message.getMapNames(); e.hasMoreElements();) {
+			String name = (String) e.nextElement();
+			result.map.put(name, BodyValues.check(message.getObject(name)));
+		}
+		return result;
+	}
+
+	@Override
+	MemoryMessage newInstance() {
+		return new MemoryMapMessage();
+	}
+
+	@Override
+	void copyBody(MemoryMessage target) {
+		MemoryMapMessage copy = (MemoryMapMessage) target;
+		copy.map = map;
+		copy.shared = true;
+		shared = true;
+	}
+
+	@Override
+	long getBodySize() {
+		long size = 0;
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			Object value = entry.getValue();
+			size += 2 * entry.getKey().length() + (value instanceof byte[] ? ((byte[]) value).length : 16);
+		}
+		return size;
+	}
+
+	private Object get(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Name must not be null or empty");
+		}
+		return map.get(name);
+	}
+
+	private void put(String name, Object value) throws JMSException {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Name must not be null or empty");
+		}
+		checkBodyWritable();
+		if (shared) {
+			map = new LinkedHashMap<String, Object>(map);
+			shared = false;
+		}
+		map.put(name, value);
+	}
+
+	@Override
+	public boolean getBoolean(String name) throws JMSException {
+		return BodyValues.toBoolean(get(name));
+	}
+
+	@Override
+	public byte getByte(String name) throws JMSException {
+		return BodyValues.toByte(get(name));
+	}
+
+	@Override
+	public short getShort(String name) throws JMSException {
+		return BodyValues.toShort(get(name));
+	}
+
+	@Override
+	public char getChar(String name) throws JMSException {
+		return BodyValues.toChar(get(name));
+	}
+
+	@Override
+	public int getInt(String name) throws JMSException {
+		return BodyValues.toInt(get(name));
+	}
+
+	@Override
+	public long getLong(String name) throws JMSException {
+		return BodyValues.toLong(get(name));
+	}
+
+	@Override
+	public float getFloat(String name) throws JMSException {
+		return BodyValues.toFloat(get(name));
+	}
+
+	@Override
+	public double getDouble(String name) throws JMSException {
+		return BodyValues.toDouble(get(name));
+	}
+
+	@Override
+	public String getString(String name) throws JMSException {
+		return BodyValues.toString(get(name));
+	}
+
+	@Override
+	public byte[] getBytes(String name) throws JMSException {
+		byte[] value = BodyValues.toBytes(get(name));
+		return value == null ? null : value.clone();
+	}
+
+	@Override
+	public Object getObject(String name) throws JMSException {
+		return BodyValues.copyOf(get(name));
+	}
+
+	@Override
+	public Enumeration<String> getMapNames() throws JMSException {
+		return Collections.enumeration(map.keySet());
+	}
+
+	@Override
+	public void setBoolean(String name, boolean value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setByte(String name, byte value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setShort(String name, short value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setChar(String name, char value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setInt(String name, int value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setLong(String name, long value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setFloat(String name, float value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setDouble(String name, double value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setString(String name, String value) throws JMSException {
+		put(name, value);
+	}
+
+	@Override
+	public void setBytes(String name, byte[] value) throws JMSException {
+		put(name, value == null ? null : value.clone());
+	}
+
+	@Override
+	public void setBytes(String name, byte[] value, int offset, int length) throws JMSException {
+		byte[] copy = new byte[length];
+		System.arraycopy(value, offset, copy, 0, length);
+		put(name, copy);
+	}
+
+	@Override
+	public void setObject(String name, Object value) throws JMSException {
+		put(name, BodyValues.check(value));
+	}
+
+	@Override
+	public boolean itemExists(String name) throws JMSException {
+		return map.containsKey(name);
+	}
+
+	@Override
+	public void clearBody() throws JMSException {
+		super.clearBody();
+		map = new LinkedHashMap<String, Object>();
+		shared = false;
+	}
+
+	@Override
+	public <T> T getBody(Class<T> c) throws JMSException {
+		if (!isBodyAssignableTo(c)) {
+			throw new MessageFormatException("Message body cannot be assigned to " + c.getName());
+		}
+		if (map.isEmpty()) {
+			return null;
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, Object> entry : map.entrySet()) {
+			result.put(entry.getKey(), BodyValues.copyOf(entry.getValue()));
+		}
+		return c.cast(result);
+	}
+
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public boolean isBodyAssignableTo(Class c) throws JMSException {
+		return map.isEmpty() || c.isAssignableFrom(Map.class);
+	}
+}
@@ -0,0 +1,745 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+import javax.jms.BytesMessage;
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.ObjectMessage;
+import javax.jms.PropertyKey;
+import javax.jms.PropertyVisitor;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+
+import org.javaee.jms.ri.selector.SelectorKey;
+import org.javaee.jms.ri.selector.SelectorTarget;
+
+/**
+ * A message of the in-memory JMS provider which has no body, and the
+ * superclass of its other message types.
+ * <p>
+ * When a message is sent, an immutable copy is made of it. That copy is
+ * placed on every queue to which the message is delivered, and a further
+ * read-only copy, which shares the body of the first, is made each time the
+ * message is delivered to a consumer. Messages of other JMS providers are
+ * converted when they are sent.
+ * <p>
+ * A {@code MemoryMessage} is also a {@code SelectorTarget}, so that message
+ * selectors are evaluated directly against its header fields and properties.
+ */
+class MemoryMessage implements Message, SelectorTarget {
+
+	static final PropertyKey JMSX_DELIVERY_COUNT = PropertyKey.of("JMSXDeliveryCount");
+
+	static final PropertyKey JMSX_GROUP_ID = PropertyKey.of("JMSXGroupID");
+
+	/**
+	 * The approximate number of bytes taken by a message without any
+	 * properties or body, used when accounting for the size of messages.
+	 */
+	private static final int HEADER_SIZE = 128;
+
+	private static final int PROPERTY_SIZE = 32;
+
+	private String messageID;
+
+	private long timestamp;
+
+	private Object correlationID;
+
+	private Destination replyTo;
+
+	private Destination destination;
+
+	private int deliveryMode = DeliveryMode.PERSISTENT;
+
+	private boolean redelivered;
+
+	private String type;
+
+	/**
+	 * The expiration time, which is read directly by {@code MessageQueue}.
+	 */
+	long expiration;
+
+	/**
+	 * The delivery time, which is read directly by {@code MessageQueue}.
+	 */
+	long deliveryTime;
+
+	private int priority = DEFAULT_PRIORITY;
+
+	private MessageProperties properties = new MessageProperties();
+
+	private boolean propertiesReadOnly;
+
+	/**
+	 * Whether the body of this message may not be modified.
+	 */
+	boolean bodyReadOnly;
+
+	/**
+	 * The consumer to which this message was delivered, or null if it has not
+	 * been delivered to a consumer.
+	 */
+	private MemoryConsumer consumer;
+
+	/**
+	 * The session to which this message was delivered, or null if it has not
+	 * been delivered to a consumer.
+	 */
+	private MemorySession session;
+
+	/**
+	 * The order in which this message was delivered by its session, relative
+	 * to the other messages which may need to be acknowledged.
+	 */
+	long deliverySequence;
+
+	MemoryMessage() {
+	}
+
+	/**
+	 * Returns an immutable copy of the specified message, which may be a
+	 * message of another JMS provider, to be delivered to consumers.
+	 */
+	static MemoryMessage snapshot(Message message) throws JMSException {
+		if (message instanceof MemoryMessage) {
+			return ((MemoryMessage) message).copy();
+		}
+		MemoryMessage result;
+		if (message instanceof TextMessage) {
+			result = new MemoryTextMessage(((TextMessage) message).getText());
+		} else if (message instanceof BytesMessage) {
+			result = MemoryBytesMessage.convert((BytesMessage) message);
+		} else if (message instanceof MapMessage) {
+			result = MemoryMapMessage.convert((MapMessage) message);
+		} else if (message instanceof StreamMessage) {
+			result = MemoryStreamMessage.convert((StreamMessage) message);
+		} else if (message instanceof ObjectMessage) {
+			result = new MemoryObjectMessage(((ObjectMessage) message).getObject());
+		} else {
+			result = new MemoryMessage();
+		}
+		result.messageID = message.getJMSMessageID();
+		result.timestamp = message.getJMSTimestamp();
+		result.correlationID = message.getJMSCorrelationID();
+		result.replyTo = message.getJMSReplyTo();
+		result.destination = message.getJMSDestination();
+		result.deliveryMode = message.getJMSDeliveryMode();
+		result.type = message.getJMSType();
+		result.expiration = message.getJMSExpiration();
+		result.deliveryTime = message.getJMSDeliveryTime();
+		result.priority = message.getJMSPriority();
+		for (Enumeration<?> e = message.getPropertyNames(); e.hasMoreElements();) {
+			String name = (String) e.nextElement();
+			Object value = message.getObjectProperty(name);
+			if (value == null) {
+				result.properties.setString(name, null);
+			} else {
+				result.properties.setObject(name, value);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a copy of this message. Subclasses copy their body using
+	 * {@code copyBody}.
+	 */
+	MemoryMessage copy() throws JMSException {
+		MemoryMessage result = newInstance();
+		result.messageID = messageID;
+		result.timestamp = timestamp;
+		result.correlationID = correlationID;
+		result.replyTo = replyTo;
+		result.destination = destination;
+		result.deliveryMode = deliveryMode;
+		result.redelivered = redelivered;
+		result.type = type;
+		result.expiration = expiration;
+		result.deliveryTime = deliveryTime;
+		result.priority = priority;
+		result.properties = new MessageProperties(properties);
+		copyBody(result);
+		return result;
+	}
+
+	/**
+	 * Returns a new, empty message of the same type as this message.
+	 */
+	MemoryMessage newInstance() {
+		return new MemoryMessage();
+	}
+
+	/**
+	 * Copies the body of this message to the specified message, which was
+	 * created by {@code newInstance}. Unless the body is mutable, the copy may
+	 * share it.
+	 */
+	void copyBody(MemoryMessage target) throws JMSException {
+	}
+
+	/**
+	 * Returns a read-only copy of this message for delivery to the specified
+	 * consumer by the specified session, or to a browser if they are null. The
+	 * session is that of the consumer, unless the message was loaded into
+	 * another session by a connection consumer.
+	 */
+	MemoryMessage deliver(int deliveryCount, MemoryConsumer consumer, MemorySession session) throws JMSException {
+		MemoryMessage result = copy();
+		result.redelivered = deliveryCount > 1;
+		result.properties.set(JMSX_DELIVERY_COUNT, MessageProperties.INT, deliveryCount, null);
+		result.propertiesReadOnly = true;
+		result.bodyReadOnly = true;
+		result.consumer = consumer;
+		result.session = session;
+		result.prepareForReading();
+		return result;
+	}
+
+	/**
+	 * Puts the body of this message into read-only mode, with the position of
+	 * the next read at the start of the body.
+	 */
+	void prepareForReading() throws JMSException {
+	}
+
+	/**
+	 * Returns the approximate size of this message, in bytes.
+	 */
+	long getSize() {
+		return HEADER_SIZE + PROPERTY_SIZE * properties.size() + getBodySize();
+	}
+
+	/**
+	 * Returns the approximate size of the body of this message, in bytes.
+	 */
+	long getBodySize() {
+		return 0;
+	}
+
+	boolean isExpired(long now) {
+		return expiration != 0 && expiration <= now;
+	}
+
+	/**
+	 * Returns the {@code JMSXGroupID} property of this message, or null if it
+	 * does not belong to a message group.
+	 */
+	String getGroupID() {
+		return properties.getString(JMSX_GROUP_ID);
+	}
+
+	MemoryConsumer getConsumer() {
+		return consumer;
+	}
+
+	MemorySession getSession() {
+		return session;
+	}
+
+	void checkBodyWritable() throws MessageNotWriteableException {
+		if (bodyReadOnly) {
+			throw new MessageNotWriteableException("Message body is read-only");
+		}
+	}
+
+	private void checkPropertiesWritable() throws MessageNotWriteableException {
+		if (propertiesReadOnly) {
+			throw new MessageNotWriteableException("Message properties are read-only");
+		}
+	}
+
+	private static String checkName(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Property name must not be null or empty");
+		}
+		return name;
+	}
+
+	@Override
+	public String getJMSMessageID() throws JMSException {
+		return messageID;
+	}
+
+	@Override
+	public void setJMSMessageID(String id) throws JMSException {
+		messageID = id;
+	}
+
+	@Override
+	public long getJMSTimestamp() throws JMSException {
+		return timestamp;
+	}
+
+	@Override
+	public void setJMSTimestamp(long timestamp) throws JMSException {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public byte[] getJMSCorrelationIDAsBytes() throws JMSException {
+		if (correlationID instanceof byte[]) {
+			return ((byte[]) correlationID).clone();
+		}
+		return correlationID == null ? null : ((String) correlationID).getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void setJMSCorrelationIDAsBytes(byte[] correlationID) throws JMSException {
+		this.correlationID = correlationID == null ? null : correlationID.clone();
+	}
+
+	@Override
+	public void setJMSCorrelationID(String correlationID) throws JMSException {
+		this.correlationID = correlationID;
+	}
+
+	@Override
+	public String getJMSCorrelationID() throws JMSException {
+		if (correlationID instanceof byte[]) {
+			return new String((byte[]) correlationID, StandardCharsets.UTF_8);
+		}
+		return (String) correlationID;
+	}
+
+	@Override
+	public Destination getJMSReplyTo() throws JMSException {
+		return replyTo;
+	}
+
+	@Override
+	public void setJMSReplyTo(Destination replyTo) throws JMSException {
+		this.replyTo = replyTo;
+	}
+
+	@Override
+	public Destination getJMSDestination() throws JMSException {
+		return destination;
+	}
+
+	@Override
+	public void setJMSDestination(Destination destination) throws JMSException {
+		this.destination = destination;
+	}
+
+	@Override
+	public int getJMSDeliveryMode() throws JMSException {
+		return deliveryMode;
+	}
+
+	@Override
+	public void setJMSDeliveryMode(int deliveryMode) throws JMSException {
+		this.deliveryMode = deliveryMode;
+	}
+
+	@Override
+	public boolean getJMSRedelivered() throws JMSException {
+		return redelivered;
+	}
+
+	@Override
+	public void setJMSRedelivered(boolean redelivered) throws JMSException {
+		this.redelivered = redelivered;
+	}
+
+	@Override
+	public String getJMSType() throws JMSException {
+		return type;
+	}
+
+	@Override
+	public void setJMSType(String type) throws JMSException {
+		this.type = type;
+	}
+
+	@Override
+	public long getJMSExpiration() throws JMSException {
+		return expiration;
+	}
+
+	@Override
+	public void setJMSExpiration(long expiration) throws JMSException {
+		this.expiration = expiration;
+	}
+
+	@Override
+	public long getJMSDeliveryTime() throws JMSException {
+		return deliveryTime;
+	}
+
+	@Override
+	public void setJMSDeliveryTime(long deliveryTime) throws JMSException {
+		this.deliveryTime = deliveryTime;
+	}
+
+	@Override
+	public int getJMSPriority() throws JMSException {
+		return priority;
+	}
+
+	@Override
+	public void setJMSPriority(int priority) throws JMSException {
+		this.priority = priority;
+	}
+
+	@Override
+	public void clearProperties() throws JMSException {
+		properties.clear();
+		propertiesReadOnly = false;
+	}
+
+	@Override
+	public boolean propertyExists(String name) throws JMSException {
+		return name != null && !name.isEmpty() && properties.exists(name);
+	}
+
+	@Override
+	public boolean getBooleanProperty(String name) throws JMSException {
+		return properties.getBoolean(checkName(name));
+	}
+
+	@Override
+	public byte getByteProperty(String name) throws JMSException {
+		return properties.getByte(checkName(name));
+	}
+
+	@Override
+	public short getShortProperty(String name) throws JMSException {
+		return properties.getShort(checkName(name));
+	}
+
+	@Override
+	public int getIntProperty(String name) throws JMSException {
+		return properties.getInt(checkName(name));
+	}
+
+	@Override
+	public long getLongProperty(String name) throws JMSException {
+		return properties.getLong(checkName(name));
+	}
+
+	@Override
+	public float getFloatProperty(String name) throws JMSException {
+		return properties.getFloat(checkName(name));
+	}
+
+	@Override
+	public double getDoubleProperty(String name) throws JMSException {
+		return properties.getDouble(checkName(name));
+	}
+
+	@Override
+	public String getStringProperty(String name) throws JMSException {
+		return properties.getString(checkName(name));
+	}
+
+	@Override
+	public Object getObjectProperty(String name) throws JMSException {
+		return properties.getObject(checkName(name));
+	}
+
+	@Override
+	public Enumeration<String> getPropertyNames() throws JMSException {
+		return properties.getNameEnumeration();
+	}
+
+	@Override
+	public void setBooleanProperty(String name, boolean value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.setBoolean(name, value);
+	}
+
+	@Override
+	public void setByteProperty(String name, byte value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.set(name, MessageProperties.BYTE, value, null);
+	}
+
+	@Override
+	public void setShortProperty(String name, short value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.set(name, MessageProperties.SHORT, value, null);
+	}
+
+	@Override
+	public void setIntProperty(String name, int value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.set(name, MessageProperties.INT, value, null);
+	}
+
+	@Override
+	public void setLongProperty(String name, long value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.set(name, MessageProperties.LONG, value, null);
+	}
+
+	@Override
+	public void setFloatProperty(String name, float value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.setFloat(name, value);
+	}
+
+	@Override
+	public void setDoubleProperty(String name, double value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.setDouble(name, value);
+	}
+
+	@Override
+	public void setStringProperty(String name, String value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.setString(name, value);
+	}
+
+	@Override
+	public void setObjectProperty(String name, Object value) throws JMSException {
+		checkName(name);
+		checkPropertiesWritable();
+		properties.setObject(name, value);
+	}
+
+	@Override
+	public boolean hasPropertyValue(PropertyKey key) throws JMSException {
+		return properties.exists(key);
+	}
+
+	@Override
+	public boolean getBooleanPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getBoolean(key);
+	}
+
+	@Override
+	public byte getBytePropertyValue(PropertyKey key) throws JMSException {
+		return properties.getByte(key);
+	}
+
+	@Override
+	public short getShortPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getShort(key);
+	}
+
+	@Override
+	public int getIntPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getInt(key);
+	}
+
+	@Override
+	public long getLongPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getLong(key);
+	}
+
+	@Override
+	public float getFloatPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getFloat(key);
+	}
+
+	@Override
+	public double getDoublePropertyValue(PropertyKey key) throws JMSException {
+		return properties.getDouble(key);
+	}
+
+	@Override
+	public String getStringPropertyValue(PropertyKey key) throws JMSException {
+		return properties.getString(key);
+	}
+
+	@Override
+	public void setBooleanPropertyValue(PropertyKey key, boolean value) throws JMSException {
+		checkPropertiesWritable();
+		properties.setBoolean(key, value);
+	}
+
+	@Override
+	public void setBytePropertyValue(PropertyKey key, byte value) throws JMSException {
+		checkPropertiesWritable();
+		properties.set(key, MessageProperties.BYTE, value, null);
+	}
+
+	@Override
+	public void setShortPropertyValue(PropertyKey key, short value) throws JMSException {
+		checkPropertiesWritable();
+		properties.set(key, MessageProperties.SHORT, value, null);
+	}
+
+	@Override
+	public void setIntPropertyValue(PropertyKey key, int value) throws JMSException {
+		checkPropertiesWritable();
+		properties.set(key, MessageProperties.INT, value, null);
+	}
+
+	@Override
+	public void setLongPropertyValue(PropertyKey key, long value) throws JMSException {
+		checkPropertiesWritable();
+		properties.set(key, MessageProperties.LONG, value, null);
+	}
+
+	@Override
+	public void setFloatPropertyValue(PropertyKey key, float value) throws JMSException {
+		checkPropertiesWritable();
+		properties.setFloat(key, value);
+	}
+
+	@Override
+	public void setDoublePropertyValue(PropertyKey key, double value) throws JMSException {
+		checkPropertiesWritable();
+		properties.setDouble(key, value);
+	}
+
+	@Override
+	public void setStringPropertyValue(PropertyKey key, String value) throws JMSException {
+		checkPropertiesWritable();
+		properties.setString(key, value);
+	}
+
+	@Override
+	public void forEachProperty(PropertyVisitor visitor) throws JMSException {
+		properties.forEach(visitor);
+	}
+
+	@Override
+	public void acknowledge() throws JMSException {
+		if (session != null) {
+			session.acknowledge();
+		}
+	}
+
+	@Override
+	public void acknowledgeOnly() throws JMSException {
+		if (session != null) {
+			session.acknowledge(this);
+		}
+	}
+
+	@Override
+	public void clearBody() throws JMSException {
+		bodyReadOnly = false;
+	}
+
+	@Override
+	public <T> T getBody(Class<T> c) throws JMSException {
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isBodyAssignableTo(Class c) throws JMSException {
+		return true;
+	}
+
+	@Override
+	public void release() throws JMSException {
+		// the body is an ordinary Java object, which is garbage collected
+	}
+
+	@Override
+	public int getType(SelectorKey key) throws JMSException {
+		if (key == JMS_DELIVERY_MODE) {
+			return TYPE_STRING;
+		} else if (key == JMS_PRIORITY || key == JMS_TIMESTAMP) {
+			return TYPE_LONG;
+		} else if (key == JMS_MESSAGE_ID) {
+			return messageID == null ? TYPE_NULL : TYPE_STRING;
+		} else if (key == JMS_CORRELATION_ID) {
+			return correlationID == null ? TYPE_NULL : TYPE_STRING;
+		} else if (key == JMS_TYPE) {
+			return type == null ? TYPE_NULL : TYPE_STRING;
+		}
+		return properties.getSelectorType(key);
+	}
+
+	@Override
+	public boolean getBoolean(SelectorKey key) throws JMSException {
+		return properties.getBoolean(key);
+	}
+
+	@Override
+	public long getLong(SelectorKey key) throws JMSException {
+		if (key == JMS_PRIORITY) {
+			return priority;
+		} else if (key == JMS_TIMESTAMP) {
+			return timestamp;
+		}
+		return properties.getLong(key);
+	}
+
+	@Override
+	public double getDouble(SelectorKey key) throws JMSException {
+		if (key == JMS_PRIORITY || key == JMS_TIMESTAMP) {
+			return getLong(key);
+		}
+		return properties.getNumber(key);
+	}
+
+	@Override
+	public String getString(SelectorKey key) throws JMSException {
+		if (key == JMS_DELIVERY_MODE) {
+			return deliveryMode == DeliveryMode.PERSISTENT ? "PERSISTENT" : "NON_PERSISTENT";
+		} else if (key == JMS_MESSAGE_ID) {
+			return messageID;
+		} else if (key == JMS_CORRELATION_ID) {
+			return getJMSCorrelationID();
+		} else if (key == JMS_TYPE) {
+			return type;
+		}
+		return properties.getString(key);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + messageID + "]";
+	}
+}
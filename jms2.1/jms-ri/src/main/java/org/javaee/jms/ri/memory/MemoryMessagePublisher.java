@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.JMSException;
+import javax.jms.MessageListener;
+import javax.jms.MessagePublisher;
+import javax.jms.MessageSubscriber;
+import javax.jms.MessageSubscription;
+
+/**
+ * The {@code MessagePublisher} of a {@code JMSConsumer} of the in-memory JMS
+ * provider, which is also the {@code MessageSubscription} of its subscriber.
+ * <p>
+ * Every method of the subscriber is invoked by the dispatcher of the session,
+ * so they are invoked serially and never at the same time as a message
+ * listener of the same session.
+ */
+final class MemoryMessagePublisher implements MessagePublisher, MessageSubscription {
+
+	private final MemoryConsumer consumer;
+
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	private final AtomicLong demand = new AtomicLong();
+
+	private volatile MessageSubscriber subscriber;
+
+	private volatile boolean cancelled;
+
+	private MessageListener onNext;
+
+	MemoryMessagePublisher(MemoryConsumer consumer) {
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void subscribe(MessageSubscriber subscriber) {
+		Objects.requireNonNull(subscriber, "subscriber");
+		MemorySession session = consumer.getSession();
+		if (!subscribed.compareAndSet(false, true)) {
+			session.executeOnDispatcher(() -> subscriber.onError(
+					new IllegalStateRuntimeException("Publisher already has a subscriber")));
+			return;
+		}
+		this.subscriber = subscriber;
+		onNext = subscriber::onNext;
+		session.executeOnDispatcher(() -> subscriber.onSubscribe(this));
+		if (!consumer.setPublisher(this)) {
+			cancelled = true;
+			session.executeOnDispatcher(() -> subscriber.onError(new IllegalStateRuntimeException(
+					"Consumer is closed, or is already receiving messages asynchronously")));
+		}
+	}
+
+	@Override
+	public void request(long n) {
+		if (cancelled) {
+			return;
+		}
+		if (n <= 0) {
+			cancel();
+			consumer.getSession().executeOnDispatcher(() -> subscriber.onError(
+					new IllegalArgumentException("Number of messages requested must be positive: " + n)));
+			return;
+		}
+		demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+		consumer.getSession().scheduleDispatch();
+	}
+
+	@Override
+	public void cancel() {
+		cancelled = true;
+		consumer.removePublisher(this);
+	}
+
+	/**
+	 * Delivers at most the specified number of messages to the subscriber, as
+	 * long as it has requested them. Called by the dispatcher. Returns whether
+	 * there may be more messages to deliver.
+	 */
+	boolean dispatch(int limit) throws JMSException {
+		MemorySession session = consumer.getSession();
+		for (int i = 0; i < limit; i++) {
+			if (cancelled || consumer.isClosed() || demand.get() == 0) {
+				return false;
+			}
+			MessageQueue.Entry entry = consumer.poll();
+			if (entry == null) {
+				return false;
+			}
+			if (demand.get() != Long.MAX_VALUE) {
+				demand.decrementAndGet();
+			}
+			session.deliver(consumer, entry, onNext);
+		}
+		return true;
+	}
+
+	/**
+	 * Tells the subscriber that no further messages will be delivered,
+	 * because the consumer has been closed. Called by the dispatcher.
+	 */
+	void complete() {
+		if (!cancelled) {
+			cancelled = true;
+			subscriber.onComplete();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.ObjectMessage;
+
+/**
+ * An {@code ObjectMessage} of the in-memory JMS provider.
+ * <p>
+ * The object is serialized when it is set, as required by
+ * {@code ObjectMessage}, and a new copy of it is deserialized each time it is
+ * returned, so that the consumers of a message cannot see each other's
+ * changes to it. Classes are loaded using the context class loader of the
+ * calling thread if it has one.
+ */
+final class MemoryObjectMessage extends MemoryMessage implements ObjectMessage {
+
+	private byte[] serialized;
+
+	MemoryObjectMessage() {
+	}
+
+	MemoryObjectMessage(Serializable object) throws JMSException {
+		serialized = serialize(object);
+	}
+
+	@Override
+	MemoryMessage newInstance() {
+		return new MemoryObjectMessage();
+	}
+
+	@Override
+	void copyBody(MemoryMessage target) {
+		((MemoryObjectMessage) target).serialized = serialized;
+	}
+
+	@Override
+	long getBodySize() {
+		return serialized == null ? 0 : serialized.length;
+	}
+
+	private static byte[] serialize(Serializable object) throws JMSException {
+		if (object == null) {
+			return null;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		} catch (IOException e) {
+			MessageFormatException exception = new MessageFormatException("Failed to serialize object: " + e);
+			exception.setLinkedException(e);
+			exception.initCause(e);
+			throw exception;
+		}
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public void setObject(Serializable object) throws JMSException {
+		checkBodyWritable();
+		serialized = serialize(object);
+	}
+
+	@Override
+	public Serializable getObject() throws JMSException {
+		if (serialized == null) {
+			return null;
+		}
+		try (ObjectInputStream in = new ContextObjectInputStream(new ByteArrayInputStream(serialized))) {
+			return (Serializable) in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			MessageFormatException exception = new MessageFormatException("Failed to deserialize object: " + e);
+			exception.setLinkedException(e);
+			exception.initCause(e);
+			throw exception;
+		}
+	}
+
+	@Override
+	public void clearBody() throws JMSException {
+		super.clearBody();
+		serialized = null;
+	}
+
+	@Override
+	public <T> T getBody(Class<T> c) throws JMSException {
+		Serializable object = getObject();
+		if (object != null && !c.isInstance(object)) {
+			throw new MessageFormatException("Message body cannot be assigned to " + c.getName());
+		}
+		return c.cast(object);
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isBodyAssignableTo(Class c) throws JMSException {
+		Serializable object = getObject();
+		return object == null || c.isInstance(object);
+	}
+
+	/**
+	 * An {@code ObjectInputStream} which loads classes using the context
+	 * class loader of the current thread.
+	 */
+	private static final class ContextObjectInputStream extends ObjectInputStream {
+
+		ContextObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader != null) {
+				try {
+					return Class.forName(desc.getName(), false, loader);
+				} catch (ClassNotFoundException e) {
+					// fall back to the default class loader
+				}
+			}
+			return super.resolveClass(desc);
+		}
+	}
+}
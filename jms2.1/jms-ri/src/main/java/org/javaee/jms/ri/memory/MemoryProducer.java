@@ -0,0 +1,350 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.List;
+
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.QueueSender;
+import javax.jms.SendWindow;
+import javax.jms.SendWindowListener;
+import javax.jms.Topic;
+import javax.jms.TopicPublisher;
+
+/**
+ * A {@code MessageProducer} of the in-memory JMS provider.
+ */
+final class MemoryProducer implements QueueSender, TopicPublisher {
+
+	private final MemorySession session;
+
+	private final Destination destination;
+
+	/**
+	 * The queue or topic state of the destination of this producer, or null
+	 * if it does not have one.
+	 */
+	private final Endpoint endpoint;
+
+	private final SendOptions options = new SendOptions();
+
+	private final SendWindowState window;
+
+	private volatile boolean closed;
+
+	MemoryProducer(MemorySession session, Destination destination, Endpoint endpoint) {
+		this.session = session;
+		this.destination = destination;
+		this.endpoint = endpoint;
+		window = new SendWindowState(session.getCallbacks());
+	}
+
+	private void checkNotClosed() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Producer is closed");
+		}
+	}
+
+	private Endpoint endpoint() throws JMSException {
+		checkNotClosed();
+		if (endpoint == null) {
+			throw new UnsupportedOperationException("Producer does not have a destination");
+		}
+		return endpoint;
+	}
+
+	private Endpoint endpoint(Destination destination) throws JMSException {
+		checkNotClosed();
+		if (endpoint != null) {
+			throw new UnsupportedOperationException("Producer already has a destination");
+		}
+		return session.getConnection().getBroker().resolve(destination);
+	}
+
+	private static void checkCompletionListener(CompletionListener completionListener) {
+		if (completionListener == null) {
+			throw new IllegalArgumentException("CompletionListener must not be null");
+		}
+	}
+
+	@Override
+	public void setDisableMessageID(boolean value) throws JMSException {
+		checkNotClosed();
+		options.disableMessageID = value;
+	}
+
+	@Override
+	public boolean getDisableMessageID() throws JMSException {
+		checkNotClosed();
+		return options.disableMessageID;
+	}
+
+	@Override
+	public void setDisableMessageTimestamp(boolean value) throws JMSException {
+		checkNotClosed();
+		options.disableMessageTimestamp = value;
+	}
+
+	@Override
+	public boolean getDisableMessageTimestamp() throws JMSException {
+		checkNotClosed();
+		return options.disableMessageTimestamp;
+	}
+
+	@Override
+	public void setDeliveryMode(int deliveryMode) throws JMSException {
+		checkNotClosed();
+		SendOptions.checkDeliveryMode(deliveryMode);
+		options.deliveryMode = deliveryMode;
+	}
+
+	@Override
+	public int getDeliveryMode() throws JMSException {
+		checkNotClosed();
+		return options.deliveryMode;
+	}
+
+	@Override
+	public void setPriority(int defaultPriority) throws JMSException {
+		checkNotClosed();
+		SendOptions.checkPriority(defaultPriority);
+		options.priority = defaultPriority;
+	}
+
+	@Override
+	public int getPriority() throws JMSException {
+		checkNotClosed();
+		return options.priority;
+	}
+
+	@Override
+	public void setTimeToLive(long timeToLive) throws JMSException {
+		checkNotClosed();
+		options.timeToLive = timeToLive;
+	}
+
+	@Override
+	public long getTimeToLive() throws JMSException {
+		checkNotClosed();
+		return options.timeToLive;
+	}
+
+	@Override
+	public void setDeliveryDelay(long deliveryDelay) throws JMSException {
+		checkNotClosed();
+		options.deliveryDelay = deliveryDelay;
+	}
+
+	@Override
+	public long getDeliveryDelay() throws JMSException {
+		checkNotClosed();
+		return options.deliveryDelay;
+	}
+
+	@Override
+	public void setSendWindow(int maxMessages, long maxBytes, int policy) throws JMSException {
+		checkNotClosed();
+		window.set(maxMessages, maxBytes, policy);
+	}
+
+	@Override
+	public SendWindow getSendWindow() throws JMSException {
+		checkNotClosed();
+		return window.snapshot();
+	}
+
+	@Override
+	public void setSendWindowListener(SendWindowListener listener) throws JMSException {
+		checkNotClosed();
+		window.setListener(listener);
+	}
+
+	@Override
+	public Destination getDestination() throws JMSException {
+		checkNotClosed();
+		return destination;
+	}
+
+	@Override
+	public Queue getQueue() throws JMSException {
+		checkNotClosed();
+		if (!(destination instanceof Queue)) {
+			throw new IllegalStateException("Producer does not send to a queue");
+		}
+		return (Queue) destination;
+	}
+
+	@Override
+	public Topic getTopic() throws JMSException {
+		checkNotClosed();
+		if (!(destination instanceof Topic)) {
+			throw new IllegalStateException("Producer does not publish to a topic");
+		}
+		return (Topic) destination;
+	}
+
+	@Override
+	public void close() throws JMSException {
+		if (closed) {
+			return;
+		}
+		if (session.getCallbacks().isCurrentThread()) {
+			throw new IllegalStateException("A producer may not be closed by one of its own completion listeners");
+		}
+		closed = true;
+		session.getCallbacks().awaitCompletion();
+		session.removeProducer(this);
+	}
+
+	@Override
+	public void send(Message message) throws JMSException {
+		session.send(endpoint(), destination, message, options.deliveryMode, options.priority,
+				options.timeToLive, options, window, null);
+	}
+
+	@Override
+	public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+		session.send(endpoint(), destination, message, deliveryMode, priority, timeToLive, options, window, null);
+	}
+
+	@Override
+	public void send(Destination destination, Message message) throws JMSException {
+		session.send(endpoint(destination), destination, message, options.deliveryMode, options.priority,
+				options.timeToLive, options, window, null);
+	}
+
+	@Override
+	public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive)
+			throws JMSException {
+		session.send(endpoint(destination), destination, message, deliveryMode, priority, timeToLive, options,
+				window, null);
+	}
+
+	@Override
+	public void send(Queue queue, Message message) throws JMSException {
+		send((Destination) queue, message);
+	}
+
+	@Override
+	public void send(Queue queue, Message message, int deliveryMode, int priority, long timeToLive)
+			throws JMSException {
+		send((Destination) queue, message, deliveryMode, priority, timeToLive);
+	}
+
+	@Override
+	public void publish(Message message) throws JMSException {
+		send(message);
+	}
+
+	@Override
+	public void publish(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+		send(message, deliveryMode, priority, timeToLive);
+	}
+
+	@Override
+	public void publish(Topic topic, Message message) throws JMSException {
+		send(topic, message);
+	}
+
+	@Override
+	public void publish(Topic topic, Message message, int deliveryMode, int priority, long timeToLive)
+			throws JMSException {
+		send(topic, message, deliveryMode, priority, timeToLive);
+	}
+
+	@Override
+	public void send(Message message, CompletionListener completionListener) throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(), destination, message, options.deliveryMode, options.priority,
+				options.timeToLive, options, window, completionListener);
+	}
+
+	@Override
+	public void send(Message message, int deliveryMode, int priority, long timeToLive,
+			CompletionListener completionListener) throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(), destination, message, deliveryMode, priority, timeToLive, options, window,
+				completionListener);
+	}
+
+	@Override
+	public void send(Destination destination, Message message, CompletionListener completionListener)
+			throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(destination), destination, message, options.deliveryMode, options.priority,
+				options.timeToLive, options, window, completionListener);
+	}
+
+	@Override
+	public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+			CompletionListener completionListener) throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(destination), destination, message, deliveryMode, priority, timeToLive, options,
+				window, completionListener);
+	}
+
+	@Override
+	public void sendBatch(List<? extends Message> messages) throws JMSException {
+		session.send(endpoint(), destination, messages, options, window, null);
+	}
+
+	@Override
+	public void sendBatch(Destination destination, List<? extends Message> messages) throws JMSException {
+		session.send(endpoint(destination), destination, messages, options, window, null);
+	}
+
+	@Override
+	public void sendBatch(List<? extends Message> messages, CompletionListener completionListener) throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(), destination, messages, options, window, completionListener);
+	}
+
+	@Override
+	public void sendBatch(Destination destination, List<? extends Message> messages,
+			CompletionListener completionListener) throws JMSException {
+		checkCompletionListener(completionListener);
+		session.send(endpoint(destination), destination, messages, options, window, completionListener);
+	}
+}
@@ -0,0 +1,1133 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.BatchMessageListener;
+import javax.jms.BytesMessage;
+import javax.jms.CompiledSelector;
+import javax.jms.CompletionListener;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageListener;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.QueueReceiver;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicPublisher;
+import javax.jms.TopicSession;
+import javax.jms.TopicSubscriber;
+
+import org.javaee.jms.ri.selector.Selector;
+
+/**
+ * A {@code Session} of the in-memory JMS provider.
+ * <p>
+ * Each session has two {@code SerialExecutor} objects, which share the
+ * threads of the broker, or of the executor with which the session was
+ * created: one delivers messages to the asynchronous consumers of the
+ * session, and the other performs the callbacks of its asynchronous sends.
+ * Neither holds a thread while it has nothing to do.
+ * <p>
+ * In a transacted session, sent messages are held by the session until it is
+ * committed. In a transacted or {@code CLIENT_ACKNOWLEDGE} session, delivered
+ * messages are remembered until they are committed or acknowledged, so that
+ * they can be returned to the front of their queues if the session is rolled
+ * back or recovered.
+ * <p>
+ * The distinguished message listener of a session, which is used by
+ * application servers, is invoked by {@code run} for each of the messages
+ * which a {@code MemoryConnectionConsumer} has loaded into the session.
+ */
+final class MemorySession implements QueueSession, TopicSession {
+
+	private final MemoryConnection connection;
+
+	private final Broker broker;
+
+	private final int mode;
+
+	/** the executor whose threads call the listeners of this session */
+	private final Executor executor;
+
+	private volatile boolean closed;
+
+	private final SerialExecutor dispatcher;
+
+	private final SerialExecutor callbacks;
+
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+	private final Runnable dispatchTask = this::dispatch;
+
+	private final List<MemoryConsumer> consumers = new CopyOnWriteArrayList<MemoryConsumer>();
+
+	private final List<MemoryProducer> producers = new CopyOnWriteArrayList<MemoryProducer>();
+
+	/**
+	 * The messages delivered in the current transaction, or since the session
+	 * was last acknowledged or recovered and which have not been acknowledged
+	 * individually, in the order in which they were delivered, and keyed by
+	 * the copy of the message delivered to the application. Guarded by the
+	 * map itself.
+	 */
+	private final Map<MemoryMessage, Delivery> delivered = new LinkedHashMap<MemoryMessage, Delivery>();
+
+	/**
+	 * The sequence number of the last message added to {@code delivered},
+	 * guarded by {@code delivered}.
+	 */
+	private long deliverySequence;
+
+	/**
+	 * The messages sent in the current transaction, guarded by the list
+	 * itself.
+	 */
+	private final List<PendingSend> pendingSends = new ArrayList<PendingSend>();
+
+	private MessageListener messageListener;
+
+	/**
+	 * The messages loaded into this session by a connection consumer which
+	 * have not yet been delivered by {@code run}.
+	 */
+	private final ConcurrentLinkedQueue<Delivery> loaded = new ConcurrentLinkedQueue<Delivery>();
+
+	MemorySession(MemoryConnection connection, int mode, Executor executor) {
+		this.connection = connection;
+		this.mode = mode;
+		this.executor = executor;
+		broker = connection.getBroker();
+		dispatcher = new SerialExecutor(executor, e -> {
+			// the dispatch task is kept, but the next message must try again
+			dispatchScheduled.set(false);
+			rejected(e);
+		});
+		callbacks = new SerialExecutor(executor, this::rejected);
+	}
+
+	MemoryConnection getConnection() {
+		return connection;
+	}
+
+	int getMode() {
+		return mode;
+	}
+
+	/**
+	 * Returns the executor whose threads call the listeners of this session.
+	 */
+	Executor getExecutor() {
+		return executor;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	void checkNotClosed() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("Session is closed");
+		}
+	}
+
+	/**
+	 * Returns the executor which performs the callbacks of asynchronous sends.
+	 */
+	SerialExecutor getCallbacks() {
+		return callbacks;
+	}
+
+	/**
+	 * Returns whether the calling thread is delivering a message to a listener
+	 * of this session, or performing a callback of one of its asynchronous
+	 * sends.
+	 */
+	boolean isCallbackThread() {
+		return isListenerThread() || callbacks.isCurrentThread();
+	}
+
+	/**
+	 * Returns whether the calling thread is delivering a message to a listener
+	 * of this session, using the dispatcher or the lanes of a consumer.
+	 */
+	private boolean isListenerThread() {
+		if (dispatcher.isCurrentThread()) {
+			return true;
+		}
+		for (MemoryConsumer consumer : consumers) {
+			if (consumer.isLaneThread()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Asks the dispatcher to deliver messages to the asynchronous consumers of
+	 * this session, unless it has already been asked to do so.
+	 */
+	void scheduleDispatch() {
+		if (!closed && dispatchScheduled.compareAndSet(false, true)) {
+			dispatcher.execute(dispatchTask);
+		}
+	}
+
+	/**
+	 * Reports that the executor of this session rejected a task. The task is
+	 * not lost: it is performed when the executor next accepts a task, or
+	 * when the session is closed.
+	 */
+	void rejected(RejectedExecutionException e) {
+		connection.onException(Exceptions.wrap("Executor rejected a task of the session", e));
+	}
+
+	private void dispatch() {
+		dispatchScheduled.set(false);
+		boolean more = false;
+		for (MemoryConsumer consumer : consumers) {
+			try {
+				more |= consumer.dispatch();
+			} catch (JMSException e) {
+				connection.onException(e);
+			}
+		}
+		if (more) {
+			scheduleDispatch();
+		}
+	}
+
+	/**
+	 * Waits until the dispatcher, and the lanes of any consumer, have finished
+	 * delivering any message which they are currently delivering.
+	 */
+	void awaitDispatch() {
+		dispatcher.awaitCompletion();
+		for (MemoryConsumer consumer : consumers) {
+			consumer.awaitLanes();
+		}
+	}
+
+	/**
+	 * Tells the queue of each consumer of this session that the consumer is
+	 * no longer ready to receive messages. Called when the connection is
+	 * stopped.
+	 */
+	void stopped() {
+		for (MemoryConsumer consumer : consumers) {
+			consumer.getMessageQueue().consumerUnavailable();
+		}
+	}
+
+	/**
+	 * Performs the specified task using the dispatcher, so that it does not
+	 * run at the same time as a message listener, and waits for it to
+	 * complete.
+	 */
+	void runOnDispatcher(Runnable task) {
+		if (dispatcher.isCurrentThread()) {
+			task.run();
+		} else {
+			dispatcher.execute(task);
+			dispatcher.awaitCompletion();
+		}
+	}
+
+	/**
+	 * Performs the specified task using the dispatcher, without waiting for
+	 * it to complete.
+	 */
+	void executeOnDispatcher(Runnable task) {
+		dispatcher.execute(task);
+	}
+
+	void removeConsumer(MemoryConsumer consumer) {
+		consumers.remove(consumer);
+	}
+
+	void removeProducer(MemoryProducer producer) {
+		producers.remove(producer);
+	}
+
+	/**
+	 * Returns a copy of the message of the specified entry, which has been
+	 * removed from the queue of the specified consumer of this session, for
+	 * delivery to that consumer, remembering the entry if the message may
+	 * later need to be delivered again.
+	 */
+	MemoryMessage receive(MemoryConsumer consumer, MessageQueue.Entry entry) throws JMSException {
+		MemoryMessage message = entry.message.deliver(entry.deliveryCount + 1, consumer, this);
+		if (mode == CLIENT_ACKNOWLEDGE || mode == SESSION_TRANSACTED) {
+			synchronized (delivered) {
+				message.deliverySequence = ++deliverySequence;
+				delivered.put(message, new Delivery(consumer, entry));
+			}
+		}
+		return message;
+	}
+
+	/**
+	 * Loads the specified entry, which has been removed from the queue of the
+	 * specified consumer of a connection consumer, into this session, so that
+	 * its message is delivered to the distinguished message listener by the
+	 * next call to {@code run}.
+	 */
+	void load(MemoryConsumer consumer, MessageQueue.Entry entry) {
+		loaded.add(new Delivery(consumer, entry));
+	}
+
+	/**
+	 * Returns the messages loaded into this session which have not been
+	 * delivered to the front of their queues, in their original order.
+	 */
+	private void returnLoaded() {
+		List<Delivery> deliveries = new ArrayList<Delivery>();
+		Delivery delivery;
+		while ((delivery = loaded.poll()) != null) {
+			deliveries.add(delivery);
+		}
+		for (int i = deliveries.size() - 1; i >= 0; i--) {
+			deliveries.get(i).queue.addFirst(deliveries.get(i).entry);
+		}
+	}
+
+	/**
+	 * Returns the specified entry, whose message was delivered to a consumer
+	 * of this session without being acknowledged, to the front of its queue.
+	 */
+	void redeliver(MessageQueue queue, MessageQueue.Entry entry) {
+		queue.addFirst(new MessageQueue.Entry(entry.message, entry.deliveryCount + 1));
+	}
+
+	/**
+	 * Handles a message which was received but which the application failed
+	 * to process, because its body could not be returned or a listener threw
+	 * an exception: in a session which acknowledges messages automatically it
+	 * is delivered again, and otherwise it is treated as if it had been
+	 * delivered successfully.
+	 */
+	void rejected(MessageQueue queue, MessageQueue.Entry entry) {
+		if (mode == AUTO_ACKNOWLEDGE || mode == DUPS_OK_ACKNOWLEDGE) {
+			redeliver(queue, entry);
+		}
+	}
+
+	/**
+	 * Delivers the message of the specified entry to a message listener. If
+	 * the listener throws a {@code RuntimeException} in a session which
+	 * acknowledges messages automatically, the message is delivered again.
+	 */
+	void deliver(MemoryConsumer consumer, MessageQueue.Entry entry, MessageListener listener) throws JMSException {
+		MemoryMessage message = receive(consumer, entry);
+		try {
+			listener.onMessage(message);
+		} catch (RuntimeException e) {
+			rejected(consumer.getMessageQueue(), entry);
+		}
+	}
+
+	/**
+	 * Delivers the messages of the specified entries, in order, to a batch
+	 * message listener. If the listener throws a {@code RuntimeException} in a
+	 * session which acknowledges messages automatically, the whole batch is
+	 * delivered again.
+	 */
+	void deliver(MemoryConsumer consumer, List<MessageQueue.Entry> entries, BatchMessageListener listener)
+			throws JMSException {
+		MessageQueue queue = consumer.getMessageQueue();
+		List<Message> messages = new ArrayList<Message>(entries.size());
+		for (MessageQueue.Entry entry : entries) {
+			messages.add(receive(consumer, entry));
+		}
+		try {
+			listener.onMessages(messages);
+		} catch (RuntimeException e) {
+			for (int i = entries.size() - 1; i >= 0; i--) {
+				rejected(queue, entries.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Sends a message, setting its header fields, and performs the callback
+	 * of the specified {@code CompletionListener}, if any, once the message
+	 * has been sent.
+	 */
+	void send(Endpoint endpoint, Destination destination, Message message, int deliveryMode, int priority,
+			long timeToLive, SendOptions options, SendWindowState window, CompletionListener completionListener)
+			throws JMSException {
+		checkNotClosed();
+		MemoryMessage master = prepare(endpoint, destination, message, deliveryMode, priority, timeToLive, options);
+		if (completionListener == null) {
+			route(endpoint, master);
+			return;
+		}
+		long size = master.getSize();
+		window.acquire(size, isCallbackThread());
+		try {
+			route(endpoint, master);
+		} catch (JMSException e) {
+			window.release(size);
+			throw e;
+		}
+		callbacks.execute(() -> complete(message, size, window, completionListener));
+	}
+
+	/**
+	 * Sends a batch of messages using the send options of a producer. If an
+	 * exception is thrown, the messages which precede the one which failed
+	 * have been sent, but no callbacks are performed.
+	 */
+	void send(Endpoint endpoint, Destination destination, List<? extends Message> messages, SendOptions options,
+			SendWindowState window, CompletionListener completionListener) throws JMSException {
+		checkNotClosed();
+		if (messages == null) {
+			throw new IllegalArgumentException("List of messages must not be null");
+		}
+		if (completionListener == null) {
+			for (Message message : messages) {
+				checkNotNull(message);
+				route(endpoint, prepare(endpoint, destination, message, options.deliveryMode, options.priority,
+						options.timeToLive, options));
+			}
+			return;
+		}
+		long[] sizes = new long[messages.size()];
+		int sent = 0;
+		try {
+			for (Message message : messages) {
+				checkNotNull(message);
+				MemoryMessage master = prepare(endpoint, destination, message, options.deliveryMode,
+						options.priority, options.timeToLive, options);
+				long size = master.getSize();
+				window.acquire(size, isCallbackThread());
+				try {
+					route(endpoint, master);
+				} catch (JMSException e) {
+					window.release(size);
+					throw e;
+				}
+				sizes[sent++] = size;
+			}
+		} catch (JMSException | RuntimeException e) {
+			for (int i = 0; i < sent; i++) {
+				window.release(sizes[i]);
+			}
+			throw e;
+		}
+		List<Message> sentMessages = new ArrayList<Message>(messages);
+		callbacks.execute(() -> {
+			for (int i = 0; i < sentMessages.size(); i++) {
+				complete(sentMessages.get(i), sizes[i], window, completionListener);
+			}
+		});
+	}
+
+	private static void checkNotNull(Message message) {
+		if (message == null) {
+			throw new IllegalArgumentException("List of messages must not contain null");
+		}
+	}
+
+	private static void complete(Message message, long size, SendWindowState window,
+			CompletionListener completionListener) {
+		try {
+			completionListener.onCompletion(message);
+		} catch (RuntimeException e) {
+			// an exception thrown by the application is not reported anywhere
+		} finally {
+			window.release(size);
+		}
+	}
+
+	/**
+	 * Sets the header fields of a message which is being sent and returns an
+	 * immutable copy of it.
+	 */
+	private MemoryMessage prepare(Endpoint endpoint, Destination destination, Message message, int deliveryMode,
+			int priority, long timeToLive, SendOptions options) throws JMSException {
+		if (message == null) {
+			throw new MessageFormatException("Message must not be null");
+		}
+		SendOptions.checkDeliveryMode(deliveryMode);
+		SendOptions.checkPriority(priority);
+		if (endpoint.isDeleted()) {
+			throw new InvalidDestinationException("Temporary destination " + destination + " has been deleted");
+		}
+		long now = System.currentTimeMillis();
+		message.setJMSDestination(destination);
+		message.setJMSDeliveryMode(deliveryMode);
+		message.setJMSPriority(priority);
+		message.setJMSTimestamp(options.disableMessageTimestamp ? 0 : now);
+		message.setJMSExpiration(timeToLive == 0 ? 0 : now + timeToLive);
+		message.setJMSDeliveryTime(now + options.deliveryDelay);
+		message.setJMSMessageID(options.disableMessageID ? null : connection.nextMessageID());
+		return MemoryMessage.snapshot(message);
+	}
+
+	private void route(Endpoint endpoint, MemoryMessage master) throws JMSException {
+		if (mode == SESSION_TRANSACTED) {
+			synchronized (pendingSends) {
+				pendingSends.add(new PendingSend(endpoint, master));
+			}
+		} else {
+			endpoint.send(master, connection);
+		}
+	}
+
+	/**
+	 * Returns the selector for the specified selector string, or null if the
+	 * string is null or empty.
+	 */
+	static Selector compile(String messageSelector) throws JMSException {
+		if (messageSelector == null || messageSelector.trim().isEmpty()) {
+			return null;
+		}
+		return Selector.compile(messageSelector);
+	}
+
+	/**
+	 * Returns the selector for the specified compiled selector, which may have
+	 * been created by another JMS provider, or null if it is null.
+	 */
+	static Selector compile(CompiledSelector selector) throws JMSException {
+		if (selector == null || selector instanceof Selector) {
+			return (Selector) selector;
+		}
+		return compile(selector.getSelectorText());
+	}
+
+	/**
+	 * Checks that a temporary destination may be consumed from by this
+	 * session, which is only the case if it was created by the same
+	 * connection.
+	 */
+	private void checkConsumable(Destination destination) throws InvalidDestinationException {
+		MemoryConnection owner = null;
+		if (destination instanceof MemoryTemporaryQueue) {
+			owner = ((MemoryTemporaryQueue) destination).connection;
+		} else if (destination instanceof MemoryTemporaryTopic) {
+			owner = ((MemoryTemporaryTopic) destination).connection;
+		}
+		if (owner != null && owner != connection) {
+			throw new InvalidDestinationException("Temporary destination " + destination
+					+ " may only be consumed from by the connection which created it");
+		}
+	}
+
+	private TopicState resolveTopic(Topic topic) throws JMSException {
+		Endpoint endpoint = broker.resolve(topic);
+		if (!(endpoint instanceof TopicState)) {
+			throw new InvalidDestinationException("Destination " + topic + " is not a topic");
+		}
+		checkConsumable(topic);
+		return (TopicState) endpoint;
+	}
+
+	private static void checkSubscriptionName(String name) throws JMSException {
+		if (name == null || name.isEmpty()) {
+			throw new JMSException("Subscription name must not be null or empty");
+		}
+	}
+
+	MemoryConsumer createConsumer(Destination destination, Selector selector, boolean noLocal) throws JMSException {
+		checkNotClosed();
+		Endpoint endpoint = broker.resolve(destination);
+		checkConsumable(destination);
+		MemoryConsumer consumer;
+		if (endpoint instanceof MessageQueue) {
+			consumer = new MemoryConsumer(this, destination, (MessageQueue) endpoint, selector, null, noLocal);
+		} else {
+			Subscription subscription = broker.subscribe((TopicState) endpoint, null, connection.getClientID(),
+					false, false, selector, noLocal, connection);
+			consumer = new MemoryConsumer(this, destination, subscription.queue, null, subscription, noLocal);
+		}
+		consumers.add(consumer);
+		return consumer;
+	}
+
+	MemoryConsumer createSharedConsumer(Topic topic, String name, Selector selector) throws JMSException {
+		checkNotClosed();
+		checkSubscriptionName(name);
+		return subscribe(topic, resolveTopic(topic), name, false, true, selector, false);
+	}
+
+	MemoryConsumer createDurableConsumer(Topic topic, String name, Selector selector, boolean noLocal)
+			throws JMSException {
+		checkNotClosed();
+		checkSubscriptionName(name);
+		TopicState state = resolveTopic(topic);
+		if (connection.getClientID() == null) {
+			throw new IllegalStateException("The client identifier must be set to create an unshared durable subscription");
+		}
+		return subscribe(topic, state, name, true, false, selector, noLocal);
+	}
+
+	MemoryConsumer createSharedDurableConsumer(Topic topic, String name, Selector selector) throws JMSException {
+		checkNotClosed();
+		checkSubscriptionName(name);
+		return subscribe(topic, resolveTopic(topic), name, true, true, selector, false);
+	}
+
+	private MemoryConsumer subscribe(Topic topic, TopicState state, String name, boolean durable, boolean shared,
+			Selector selector, boolean noLocal) throws JMSException {
+		Subscription subscription = broker.subscribe(state, name, connection.getClientID(), durable, shared,
+				selector, noLocal, connection);
+		MemoryConsumer consumer = new MemoryConsumer(this, topic, subscription.queue, null, subscription, noLocal);
+		consumers.add(consumer);
+		return consumer;
+	}
+
+	MemoryBrowser createBrowser(Queue queue, Selector selector) throws JMSException {
+		checkNotClosed();
+		Endpoint endpoint = broker.resolve(queue);
+		if (!(endpoint instanceof MessageQueue)) {
+			throw new InvalidDestinationException("Destination " + queue + " is not a queue");
+		}
+		checkConsumable(queue);
+		return new MemoryBrowser(this, queue, (MessageQueue) endpoint, selector);
+	}
+
+	@Override
+	public BytesMessage createBytesMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryBytesMessage();
+	}
+
+	@Override
+	public BytesMessage createBytesMessage(InputStream body) throws JMSException {
+		checkNotClosed();
+		if (body == null) {
+			throw new IllegalArgumentException("Body must not be null");
+		}
+		return new MemoryBytesMessage(body);
+	}
+
+	@Override
+	public MapMessage createMapMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryMapMessage();
+	}
+
+	@Override
+	public Message createMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryMessage();
+	}
+
+	@Override
+	public ObjectMessage createObjectMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryObjectMessage();
+	}
+
+	@Override
+	public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+		checkNotClosed();
+		return new MemoryObjectMessage(object);
+	}
+
+	@Override
+	public StreamMessage createStreamMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryStreamMessage();
+	}
+
+	@Override
+	public TextMessage createTextMessage() throws JMSException {
+		checkNotClosed();
+		return new MemoryTextMessage();
+	}
+
+	@Override
+	public TextMessage createTextMessage(String text) throws JMSException {
+		checkNotClosed();
+		return new MemoryTextMessage(text);
+	}
+
+	@Override
+	public boolean getTransacted() throws JMSException {
+		checkNotClosed();
+		return mode == SESSION_TRANSACTED;
+	}
+
+	@Override
+	public int getAcknowledgeMode() throws JMSException {
+		checkNotClosed();
+		return mode;
+	}
+
+	/**
+	 * Acknowledges every message delivered by this session, if it uses
+	 * {@code CLIENT_ACKNOWLEDGE} mode.
+	 */
+	void acknowledge() throws JMSException {
+		checkNotClosed();
+		if (mode == CLIENT_ACKNOWLEDGE) {
+			synchronized (delivered) {
+				delivered.clear();
+			}
+		}
+	}
+
+	/**
+	 * Acknowledges the specified message, which was delivered by this session,
+	 * if it uses {@code CLIENT_ACKNOWLEDGE} mode.
+	 */
+	void acknowledge(MemoryMessage message) throws JMSException {
+		checkNotClosed();
+		if (mode == CLIENT_ACKNOWLEDGE) {
+			synchronized (delivered) {
+				delivered.remove(message);
+			}
+		}
+	}
+
+	/**
+	 * Acknowledges the specified message, and every message delivered to the
+	 * specified consumer before it, if this session uses
+	 * {@code CLIENT_ACKNOWLEDGE} mode.
+	 */
+	void acknowledgeUpTo(MemoryConsumer consumer, Message message) throws JMSException {
+		checkNotClosed();
+		if (mode != CLIENT_ACKNOWLEDGE) {
+			return;
+		}
+		if (!(message instanceof MemoryMessage) || ((MemoryMessage) message).getConsumer() != consumer) {
+			throw new IllegalStateException("Message was not received by this consumer");
+		}
+		long sequence = ((MemoryMessage) message).deliverySequence;
+		synchronized (delivered) {
+			Iterator<Map.Entry<MemoryMessage, Delivery>> deliveries = delivered.entrySet().iterator();
+			while (deliveries.hasNext()) {
+				Map.Entry<MemoryMessage, Delivery> delivery = deliveries.next();
+				if (delivery.getKey().deliverySequence > sequence) {
+					break;
+				}
+				if (delivery.getValue().consumer == consumer) {
+					deliveries.remove();
+				}
+			}
+		}
+	}
+
+	private void checkTransacted(String method) throws JMSException {
+		checkNotClosed();
+		if (mode != SESSION_TRANSACTED) {
+			throw new IllegalStateException(method + " may only be called on a transacted session");
+		}
+		if (callbacks.isCurrentThread()) {
+			throw new IllegalStateException(method + " may not be called from a completion listener of its own session");
+		}
+	}
+
+	@Override
+	public void commit() throws JMSException {
+		checkTransacted("commit");
+		List<PendingSend> sends;
+		synchronized (pendingSends) {
+			sends = new ArrayList<PendingSend>(pendingSends);
+			pendingSends.clear();
+		}
+		for (PendingSend send : sends) {
+			send.endpoint.send(send.message, connection);
+		}
+		synchronized (delivered) {
+			delivered.clear();
+		}
+	}
+
+	@Override
+	public void rollback() throws JMSException {
+		checkTransacted("rollback");
+		synchronized (pendingSends) {
+			pendingSends.clear();
+		}
+		redeliverAll();
+	}
+
+	@Override
+	public void recover() throws JMSException {
+		checkNotClosed();
+		if (mode == SESSION_TRANSACTED) {
+			throw new IllegalStateException("recover may not be called on a transacted session");
+		}
+		if (mode == CLIENT_ACKNOWLEDGE) {
+			redeliverAll();
+		}
+	}
+
+	/**
+	 * Returns every message which has been delivered but not acknowledged or
+	 * committed to the front of its queue, in the order in which the messages
+	 * were delivered.
+	 */
+	private void redeliverAll() {
+		List<Delivery> deliveries;
+		synchronized (delivered) {
+			deliveries = new ArrayList<Delivery>(delivered.values());
+			delivered.clear();
+		}
+		for (int i = deliveries.size() - 1; i >= 0; i--) {
+			Delivery delivery = deliveries.get(i);
+			redeliver(delivery.queue, delivery.entry);
+		}
+	}
+
+	@Override
+	public void close() throws JMSException {
+		if (closed) {
+			return;
+		}
+		if (isListenerThread()) {
+			throw new IllegalStateException("A session may not be closed by one of its own message listeners");
+		}
+		if (callbacks.isCurrentThread()) {
+			throw new IllegalStateException("A session may not be closed by one of its own completion listeners");
+		}
+		closed = true;
+		for (MemoryConsumer consumer : consumers) {
+			consumer.close();
+		}
+		for (MemoryProducer producer : producers) {
+			producer.close();
+		}
+		dispatcher.awaitCompletion();
+		callbacks.awaitCompletion();
+		synchronized (pendingSends) {
+			pendingSends.clear();
+		}
+		returnLoaded();
+		redeliverAll();
+		connection.removeSession(this);
+	}
+
+	@Override
+	public MessageListener getMessageListener() throws JMSException {
+		checkNotClosed();
+		return messageListener;
+	}
+
+	@Override
+	public void setMessageListener(MessageListener listener) throws JMSException {
+		checkNotClosed();
+		messageListener = listener;
+	}
+
+	@Override
+	public void run() {
+		MessageListener listener = messageListener;
+		if (closed || listener == null) {
+			returnLoaded();
+			return;
+		}
+		Delivery delivery;
+		while ((delivery = loaded.poll()) != null) {
+			try {
+				deliver(delivery.consumer, delivery.entry, listener);
+			} catch (JMSException e) {
+				connection.onException(e);
+			}
+		}
+	}
+
+	@Override
+	public MemoryProducer createProducer(Destination destination) throws JMSException {
+		checkNotClosed();
+		Endpoint endpoint = destination == null ? null : broker.resolve(destination);
+		MemoryProducer producer = new MemoryProducer(this, destination, endpoint);
+		producers.add(producer);
+		return producer;
+	}
+
+	@Override
+	public QueueSender createSender(Queue queue) throws JMSException {
+		return createProducer(queue);
+	}
+
+	@Override
+	public TopicPublisher createPublisher(Topic topic) throws JMSException {
+		return createProducer(topic);
+	}
+
+	@Override
+	public QueueReceiver createReceiver(Queue queue) throws JMSException {
+		return createConsumer(queue, (Selector) null, false);
+	}
+
+	@Override
+	public QueueReceiver createReceiver(Queue queue, String messageSelector) throws JMSException {
+		return createConsumer(queue, compile(messageSelector), false);
+	}
+
+	@Override
+	public TopicSubscriber createSubscriber(Topic topic) throws JMSException {
+		return createConsumer(topic, (Selector) null, false);
+	}
+
+	@Override
+	public TopicSubscriber createSubscriber(Topic topic, String messageSelector, boolean noLocal)
+			throws JMSException {
+		return createConsumer(topic, compile(messageSelector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createConsumer(Destination destination) throws JMSException {
+		return createConsumer(destination, (Selector) null, false);
+	}
+
+	@Override
+	public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
+		return createConsumer(destination, compile(messageSelector), false);
+	}
+
+	@Override
+	public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal)
+			throws JMSException {
+		return createConsumer(destination, compile(messageSelector), noLocal);
+	}
+
+	@Override
+	public CompiledSelector createSelector(String messageSelector) throws JMSException {
+		checkNotClosed();
+		return Selector.compile(messageSelector);
+	}
+
+	@Override
+	public MessageConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector) throws JMSException {
+		return createConsumer(destination, compile(selector), false);
+	}
+
+	@Override
+	public MessageConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector, boolean noLocal)
+			throws JMSException {
+		return createConsumer(destination, compile(selector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal,
+			int prefetchMessages, long prefetchBytes) throws JMSException {
+		if (prefetchMessages < -1) {
+			throw new IllegalArgumentException("Invalid number of messages to prefetch: " + prefetchMessages);
+		}
+		if (prefetchBytes < -1) {
+			throw new IllegalArgumentException("Invalid number of bytes to prefetch: " + prefetchBytes);
+		}
+		return createConsumer(destination, compile(messageSelector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName) throws JMSException {
+		return createSharedConsumer(topic, sharedSubscriptionName, (Selector) null);
+	}
+
+	@Override
+	public MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, String messageSelector)
+			throws JMSException {
+		return createSharedConsumer(topic, sharedSubscriptionName, compile(messageSelector));
+	}
+
+	@Override
+	public MessageConsumer createSharedConsumerWithSelector(Topic topic, String sharedSubscriptionName,
+			CompiledSelector selector) throws JMSException {
+		return createSharedConsumer(topic, sharedSubscriptionName, compile(selector));
+	}
+
+	@Override
+	public Queue createQueue(String queueName) throws JMSException {
+		checkNotClosed();
+		if (queueName == null) {
+			throw new InvalidDestinationException("Queue name must not be null");
+		}
+		return new MemoryQueue(queueName);
+	}
+
+	@Override
+	public Topic createTopic(String topicName) throws JMSException {
+		checkNotClosed();
+		if (topicName == null) {
+			throw new InvalidDestinationException("Topic name must not be null");
+		}
+		return new MemoryTopic(topicName);
+	}
+
+	@Override
+	public TopicSubscriber createDurableSubscriber(Topic topic, String name) throws JMSException {
+		return createDurableConsumer(topic, name, (Selector) null, false);
+	}
+
+	@Override
+	public TopicSubscriber createDurableSubscriber(Topic topic, String name, String messageSelector, boolean noLocal)
+			throws JMSException {
+		return createDurableConsumer(topic, name, compile(messageSelector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createDurableConsumer(Topic topic, String name) throws JMSException {
+		return createDurableConsumer(topic, name, (Selector) null, false);
+	}
+
+	@Override
+	public MessageConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal)
+			throws JMSException {
+		return createDurableConsumer(topic, name, compile(messageSelector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector,
+			boolean noLocal) throws JMSException {
+		return createDurableConsumer(topic, name, compile(selector), noLocal);
+	}
+
+	@Override
+	public MessageConsumer createSharedDurableConsumer(Topic topic, String name) throws JMSException {
+		return createSharedDurableConsumer(topic, name, (Selector) null);
+	}
+
+	@Override
+	public MessageConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector)
+			throws JMSException {
+		return createSharedDurableConsumer(topic, name, compile(messageSelector));
+	}
+
+	@Override
+	public MessageConsumer createSharedDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector)
+			throws JMSException {
+		return createSharedDurableConsumer(topic, name, compile(selector));
+	}
+
+	@Override
+	public QueueBrowser createBrowser(Queue queue) throws JMSException {
+		return createBrowser(queue, (Selector) null);
+	}
+
+	@Override
+	public QueueBrowser createBrowser(Queue queue, String messageSelector) throws JMSException {
+		return createBrowser(queue, compile(messageSelector));
+	}
+
+	@Override
+	public QueueBrowser createBrowserWithSelector(Queue queue, CompiledSelector selector) throws JMSException {
+		return createBrowser(queue, compile(selector));
+	}
+
+	@Override
+	public TemporaryQueue createTemporaryQueue() throws JMSException {
+		checkNotClosed();
+		MessageQueue queue = new MessageQueue(broker, "temporaryQueue-" + broker.nextId());
+		connection.addTemporaryDestination(queue);
+		return new MemoryTemporaryQueue(connection, queue);
+	}
+
+	@Override
+	public TemporaryTopic createTemporaryTopic() throws JMSException {
+		checkNotClosed();
+		TopicState topic = new TopicState("temporaryTopic-" + broker.nextId());
+		connection.addTemporaryDestination(topic);
+		return new MemoryTemporaryTopic(connection, topic);
+	}
+
+	@Override
+	public void unsubscribe(String name) throws JMSException {
+		checkNotClosed();
+		checkSubscriptionName(name);
+		broker.unsubscribe(name, connection.getClientID());
+	}
+
+	/**
+	 * A message which was delivered by a session, or loaded into it by a
+	 * connection consumer, the consumer to which it was delivered, and the
+	 * queue to which it is returned if it has to be delivered again.
+	 */
+	private static final class Delivery {
+
+		final MemoryConsumer consumer;
+
+		final MessageQueue queue;
+
+		final MessageQueue.Entry entry;
+
+		Delivery(MemoryConsumer consumer, MessageQueue.Entry entry) {
+			this.consumer = consumer;
+			this.queue = consumer.getMessageQueue();
+			this.entry = entry;
+		}
+	}
+
+	/**
+	 * A message sent in a transaction which has not yet been committed.
+	 */
+	private static final class PendingSend {
+
+		final Endpoint endpoint;
+
+		final MemoryMessage message;
+
+		PendingSend(Endpoint endpoint, MemoryMessage message) {
+			this.endpoint = endpoint;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotReadableException;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.StreamMessage;
+
+/**
+ * A {@code StreamMessage} of the in-memory JMS provider.
+ * <p>
+ * The body is held as a list of values. A read which fails because the value
+ * cannot be converted to the requested type does not move the position of
+ * the next read, so the value may be read again as another type.
+ */
+final class MemoryStreamMessage extends MemoryMessage implements StreamMessage {
+
+	private List<Object> values = new ArrayList<Object>();
+
+	/**
+	 * Whether the message is in read-only mode.
+	 */
+	private boolean reading;
+
+	private int position;
+
+	/**
+	 * The number of bytes of the byte array at {@code position} which have
+	 * been read using {@code readBytes}, or -1 if {@code readBytes} has not
+	 * been called for it.
+	 */
+	private int bytesRead = -1;
+
+	MemoryStreamMessage() {
+	}
+
+	/**
+	 * Returns a {@code MemoryStreamMessage} with the same body as the
+	 * specified message of another JMS provider, which is left in read-only
+	 * mode.
+	 */
+	static MemoryStreamMessage convert(StreamMessage message) throws JMSException {
+		MemoryStreamMessage result = new MemoryStreamMessage();
+		message.reset();
+		try {
+			while (true) {
+				result.values.add(BodyValues.check(message.readObject()));
+			}
+		} catch (MessageEOFException e) {
+			// end of the body
+		}
+		message.reset();
+		return result;
+	}
+
+	@Override
+	MemoryMessage newInstance() {
+		return new MemoryStreamMessage();
+	}
+
+	@Override
+	void copyBody(MemoryMessage target) {
+		// once a message is in read-only mode its values are never modified
+		MemoryStreamMessage copy = (MemoryStreamMessage) target;
+		copy.values = reading ? values : new ArrayList<Object>(values);
+		copy.reading = true;
+	}
+
+	@Override
+	void prepareForReading() {
+		reading = true;
+		position = 0;
+		bytesRead = -1;
+	}
+
+	@Override
+	long getBodySize() {
+		long size = 0;
+		for (Object value : values) {
+			size += value instanceof byte[] ? ((byte[]) value).length : 16;
+		}
+		return size;
+	}
+
+	private Object peek() throws JMSException {
+		if (!reading) {
+			throw new MessageNotReadableException("Message is in write-only mode");
+		}
+		if (position >= values.size()) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+		if (bytesRead >= 0) {
+			throw new MessageFormatException("Reading of a byte array using readBytes has not been completed");
+		}
+		return values.get(position);
+	}
+
+	private void write(Object value) throws JMSException {
+		checkBodyWritable();
+		if (reading) {
+			throw new MessageNotWriteableException("Message is in read-only mode");
+		}
+		values.add(value);
+	}
+
+	@Override
+	public boolean readBoolean() throws JMSException {
+		boolean result = BodyValues.toBoolean(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public byte readByte() throws JMSException {
+		byte result = BodyValues.toByte(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public short readShort() throws JMSException {
+		short result = BodyValues.toShort(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public char readChar() throws JMSException {
+		char result = BodyValues.toChar(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public int readInt() throws JMSException {
+		int result = BodyValues.toInt(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public long readLong() throws JMSException {
+		long result = BodyValues.toLong(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public float readFloat() throws JMSException {
+		float result = BodyValues.toFloat(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public double readDouble() throws JMSException {
+		double result = BodyValues.toDouble(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public String readString() throws JMSException {
+		String result = BodyValues.toString(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public int readBytes(byte[] value) throws JMSException {
+		if (!reading) {
+			throw new MessageNotReadableException("Message is in write-only mode");
+		}
+		if (position >= values.size()) {
+			throw new MessageEOFException("Unexpected end of message body");
+		}
+		byte[] bytes = BodyValues.toBytes(values.get(position));
+		if (bytes == null) {
+			position++;
+			return -1;
+		}
+		int offset = Math.max(bytesRead, 0);
+		if (offset == bytes.length && bytesRead >= 0) {
+			position++;
+			bytesRead = -1;
+			return -1;
+		}
+		int n = Math.min(value.length, bytes.length - offset);
+		System.arraycopy(bytes, offset, value, 0, n);
+		bytesRead = offset + n;
+		return n;
+	}
+
+	@Override
+	public Object readObject() throws JMSException {
+		Object result = BodyValues.copyOf(peek());
+		position++;
+		return result;
+	}
+
+	@Override
+	public void writeBoolean(boolean value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeByte(byte value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeShort(short value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeChar(char value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeInt(int value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeLong(long value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeFloat(float value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeDouble(double value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeString(String value) throws JMSException {
+		write(value);
+	}
+
+	@Override
+	public void writeBytes(byte[] value) throws JMSException {
+		write(value.clone());
+	}
+
+	@Override
+	public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+		byte[] copy = new byte[length];
+		System.arraycopy(value, offset, copy, 0, length);
+		write(copy);
+	}
+
+	@Override
+	public void writeObject(Object value) throws JMSException {
+		write(BodyValues.check(value));
+	}
+
+	@Override
+	public void reset() throws JMSException {
+		bodyReadOnly = true;
+		prepareForReading();
+	}
+
+	@Override
+	public void clearBody() throws JMSException {
+		super.clearBody();
+		values = new ArrayList<Object>();
+		reading = false;
+		position = 0;
+		bytesRead = -1;
+	}
+
+	@Override
+	public <T> T getBody(Class<T> c) throws JMSException {
+		throw new MessageFormatException("The body of a StreamMessage cannot be returned using getBody");
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public boolean isBodyAssignableTo(Class c) throws JMSException {
+		return false;
+	}
+}
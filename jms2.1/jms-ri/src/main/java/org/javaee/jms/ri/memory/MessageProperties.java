@@ -0,0 +1,580 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.jms.MessageFormatException;
+import javax.jms.PropertyKey;
+import javax.jms.PropertyVisitor;
+
+import org.javaee.jms.ri.selector.SelectorKey;
+import org.javaee.jms.ri.selector.SelectorTarget;
+
+/**
+ * The properties of a {@code MemoryMessage}.
+ * <p>
+ * Each property is held as a name, a {@code PropertyKey}, a type code and
+ * either the bits of a primitive value or a string, in parallel arrays which
+ * are searched by comparing keys for identity. Messages usually have only a
+ * few properties, so this is faster than a hash table, and getting or setting
+ * a primitive property using a {@code PropertyKey} creates no objects.
+ * <p>
+ * A property set using its name is stored with the existing
+ * {@code PropertyKey} for the name, if there is one, but a key is never
+ * created for it, since keys are never discarded and the name may have been
+ * made up by the application or taken from a received message. Such a
+ * property has no key, and is found by comparing names. A property used in a
+ * selector is found using the {@code PropertyKey} for its name, if there is
+ * one, and otherwise by comparing names.
+ * <p>
+ * The type conversions performed by the get methods are those defined in
+ * {@code javax.jms.Message}. A property which does not exist is treated as a
+ * {@code String} property whose value is null.
+ */
+final class MessageProperties {
+
+	static final byte BOOLEAN = 1;
+
+	static final byte BYTE = 2;
+
+	static final byte SHORT = 3;
+
+	static final byte INT = 4;
+
+	static final byte LONG = 5;
+
+	static final byte FLOAT = 6;
+
+	static final byte DOUBLE = 7;
+
+	static final byte STRING = 8;
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private String[] names;
+
+	private PropertyKey[] keys;
+
+	private byte[] types;
+
+	private long[] bits;
+
+	private String[] strings;
+
+	private int size;
+
+	MessageProperties() {
+	}
+
+	MessageProperties(MessageProperties other) {
+		size = other.size;
+		if (size > 0) {
+			names = Arrays.copyOf(other.names, size);
+			keys = Arrays.copyOf(other.keys, size);
+			types = Arrays.copyOf(other.types, size);
+			bits = Arrays.copyOf(other.bits, size);
+			strings = Arrays.copyOf(other.strings, size);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		names = null;
+		keys = null;
+		types = null;
+		bits = null;
+		strings = null;
+		size = 0;
+	}
+
+	boolean exists(PropertyKey key) {
+		return indexOf(key) >= 0;
+	}
+
+	boolean exists(String name) {
+		return indexOf(name) >= 0;
+	}
+
+	List<String> getNames() {
+		List<String> result = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			result.add(names[i]);
+		}
+		return result;
+	}
+
+	Enumeration<String> getNameEnumeration() {
+		return Collections.enumeration(getNames());
+	}
+
+	void set(PropertyKey key, byte type, long value, String string) {
+		put(indexOf(key), key.getName(), key, type, value, string);
+	}
+
+	void set(String name, byte type, long value, String string) {
+		int i = indexOf(name);
+		put(i, name, i < 0 ? PropertyKey.lookup(name) : keys[i], type, value, string);
+	}
+
+	private void put(int i, String name, PropertyKey key, byte type, long value, String string) {
+		if (i < 0) {
+			if (keys == null) {
+				names = new String[INITIAL_CAPACITY];
+				keys = new PropertyKey[INITIAL_CAPACITY];
+				types = new byte[INITIAL_CAPACITY];
+				bits = new long[INITIAL_CAPACITY];
+				strings = new String[INITIAL_CAPACITY];
+			} else if (size == keys.length) {
+				int capacity = size * 2;
+				names = Arrays.copyOf(names, capacity);
+				keys = Arrays.copyOf(keys, capacity);
+				types = Arrays.copyOf(types, capacity);
+				bits = Arrays.copyOf(bits, capacity);
+				strings = Arrays.copyOf(strings, capacity);
+			}
+			i = size++;
+			names[i] = name;
+		}
+		keys[i] = key;
+		types[i] = type;
+		bits[i] = value;
+		strings[i] = string;
+	}
+
+	void setBoolean(PropertyKey key, boolean value) {
+		set(key, BOOLEAN, value ? 1 : 0, null);
+	}
+
+	void setBoolean(String name, boolean value) {
+		set(name, BOOLEAN, value ? 1 : 0, null);
+	}
+
+	void setFloat(PropertyKey key, float value) {
+		set(key, FLOAT, Float.floatToRawIntBits(value), null);
+	}
+
+	void setFloat(String name, float value) {
+		set(name, FLOAT, Float.floatToRawIntBits(value), null);
+	}
+
+	void setDouble(PropertyKey key, double value) {
+		set(key, DOUBLE, Double.doubleToRawLongBits(value), null);
+	}
+
+	void setDouble(String name, double value) {
+		set(name, DOUBLE, Double.doubleToRawLongBits(value), null);
+	}
+
+	void setString(PropertyKey key, String value) {
+		set(key, STRING, 0, value);
+	}
+
+	void setString(String name, String value) {
+		set(name, STRING, 0, value);
+	}
+
+	void setObject(String name, Object value) throws MessageFormatException {
+		if (value instanceof String) {
+			setString(name, (String) value);
+		} else if (value instanceof Integer) {
+			set(name, INT, (Integer) value, null);
+		} else if (value instanceof Long) {
+			set(name, LONG, (Long) value, null);
+		} else if (value instanceof Boolean) {
+			setBoolean(name, (Boolean) value);
+		} else if (value instanceof Double) {
+			setDouble(name, (Double) value);
+		} else if (value instanceof Float) {
+			setFloat(name, (Float) value);
+		} else if (value instanceof Short) {
+			set(name, SHORT, (Short) value, null);
+		} else if (value instanceof Byte) {
+			set(name, BYTE, (Byte) value, null);
+		} else if (value == null) {
+			throw new MessageFormatException("Property " + name + " cannot be set to null using setObjectProperty");
+		} else {
+			throw new MessageFormatException("Property " + name + " cannot be set to an object of type "
+					+ value.getClass().getName());
+		}
+	}
+
+	boolean getBoolean(PropertyKey key) throws MessageFormatException {
+		return booleanAt(indexOf(key));
+	}
+
+	boolean getBoolean(String name) throws MessageFormatException {
+		return booleanAt(indexOf(name));
+	}
+
+	boolean getBoolean(SelectorKey key) throws MessageFormatException {
+		return booleanAt(indexOf(key));
+	}
+
+	private boolean booleanAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return false;
+		}
+		switch (types[i]) {
+		case BOOLEAN:
+			return bits[i] != 0;
+		case STRING:
+			return Boolean.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "boolean");
+		}
+	}
+
+	byte getByte(PropertyKey key) throws MessageFormatException {
+		return byteAt(indexOf(key));
+	}
+
+	byte getByte(String name) throws MessageFormatException {
+		return byteAt(indexOf(name));
+	}
+
+	private byte byteAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Byte.valueOf(null);
+		}
+		switch (types[i]) {
+		case BYTE:
+			return (byte) bits[i];
+		case STRING:
+			return Byte.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "byte");
+		}
+	}
+
+	short getShort(PropertyKey key) throws MessageFormatException {
+		return shortAt(indexOf(key));
+	}
+
+	short getShort(String name) throws MessageFormatException {
+		return shortAt(indexOf(name));
+	}
+
+	private short shortAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Short.valueOf(null);
+		}
+		switch (types[i]) {
+		case BYTE:
+		case SHORT:
+			return (short) bits[i];
+		case STRING:
+			return Short.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "short");
+		}
+	}
+
+	int getInt(PropertyKey key) throws MessageFormatException {
+		return intAt(indexOf(key));
+	}
+
+	int getInt(String name) throws MessageFormatException {
+		return intAt(indexOf(name));
+	}
+
+	private int intAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Integer.valueOf(null);
+		}
+		switch (types[i]) {
+		case BYTE:
+		case SHORT:
+		case INT:
+			return (int) bits[i];
+		case STRING:
+			return Integer.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "int");
+		}
+	}
+
+	long getLong(PropertyKey key) throws MessageFormatException {
+		return longAt(indexOf(key));
+	}
+
+	long getLong(String name) throws MessageFormatException {
+		return longAt(indexOf(name));
+	}
+
+	long getLong(SelectorKey key) throws MessageFormatException {
+		return longAt(indexOf(key));
+	}
+
+	private long longAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Long.valueOf(null);
+		}
+		switch (types[i]) {
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+			return bits[i];
+		case STRING:
+			return Long.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "long");
+		}
+	}
+
+	float getFloat(PropertyKey key) throws MessageFormatException {
+		return floatAt(indexOf(key));
+	}
+
+	float getFloat(String name) throws MessageFormatException {
+		return floatAt(indexOf(name));
+	}
+
+	private float floatAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Float.valueOf(null);
+		}
+		switch (types[i]) {
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits[i]);
+		case STRING:
+			return Float.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "float");
+		}
+	}
+
+	double getDouble(PropertyKey key) throws MessageFormatException {
+		return doubleAt(indexOf(key));
+	}
+
+	double getDouble(String name) throws MessageFormatException {
+		return doubleAt(indexOf(name));
+	}
+
+	private double doubleAt(int i) throws MessageFormatException {
+		if (i < 0) {
+			return Double.valueOf(null);
+		}
+		switch (types[i]) {
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits[i]);
+		case DOUBLE:
+			return Double.longBitsToDouble(bits[i]);
+		case STRING:
+			return Double.valueOf(strings[i]);
+		default:
+			throw conversionError(i, "double");
+		}
+	}
+
+	String getString(PropertyKey key) {
+		return stringAt(indexOf(key));
+	}
+
+	String getString(String name) {
+		return stringAt(indexOf(name));
+	}
+
+	String getString(SelectorKey key) {
+		return stringAt(indexOf(key));
+	}
+
+	private String stringAt(int i) {
+		if (i < 0) {
+			return null;
+		}
+		switch (types[i]) {
+		case BOOLEAN:
+			return String.valueOf(bits[i] != 0);
+		case FLOAT:
+			return String.valueOf(Float.intBitsToFloat((int) bits[i]));
+		case DOUBLE:
+			return String.valueOf(Double.longBitsToDouble(bits[i]));
+		case STRING:
+			return strings[i];
+		default:
+			return String.valueOf(bits[i]);
+		}
+	}
+
+	Object getObject(PropertyKey key) {
+		int i = indexOf(key);
+		return i < 0 ? null : valueAt(i);
+	}
+
+	Object getObject(String name) {
+		int i = indexOf(name);
+		return i < 0 ? null : valueAt(i);
+	}
+
+	/**
+	 * Returns the type of the specified property as one of the type codes
+	 * defined in {@code SelectorTarget}.
+	 */
+	int getSelectorType(SelectorKey key) {
+		int i = indexOf(key);
+		if (i < 0) {
+			return SelectorTarget.TYPE_NULL;
+		}
+		switch (types[i]) {
+		case BOOLEAN:
+			return SelectorTarget.TYPE_BOOLEAN;
+		case FLOAT:
+		case DOUBLE:
+			return SelectorTarget.TYPE_DOUBLE;
+		case STRING:
+			return strings[i] == null ? SelectorTarget.TYPE_NULL : SelectorTarget.TYPE_STRING;
+		default:
+			return SelectorTarget.TYPE_LONG;
+		}
+	}
+
+	/**
+	 * Returns the value of a numeric property as a {@code double}, without
+	 * the conversion rules of {@code getDouble}, for use by a selector.
+	 */
+	double getNumber(SelectorKey key) {
+		int i = indexOf(key);
+		switch (types[i]) {
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits[i]);
+		case DOUBLE:
+			return Double.longBitsToDouble(bits[i]);
+		default:
+			return bits[i];
+		}
+	}
+
+	void forEach(PropertyVisitor visitor) {
+		for (int i = 0; i < size; i++) {
+			String name = names[i];
+			switch (types[i]) {
+			case BOOLEAN:
+				visitor.visitBoolean(name, bits[i] != 0);
+				break;
+			case BYTE:
+				visitor.visitByte(name, (byte) bits[i]);
+				break;
+			case SHORT:
+				visitor.visitShort(name, (short) bits[i]);
+				break;
+			case INT:
+				visitor.visitInt(name, (int) bits[i]);
+				break;
+			case LONG:
+				visitor.visitLong(name, bits[i]);
+				break;
+			case FLOAT:
+				visitor.visitFloat(name, Float.intBitsToFloat((int) bits[i]));
+				break;
+			case DOUBLE:
+				visitor.visitDouble(name, Double.longBitsToDouble(bits[i]));
+				break;
+			default:
+				visitor.visitString(name, strings[i]);
+				break;
+			}
+		}
+	}
+
+	private Object valueAt(int i) {
+		switch (types[i]) {
+		case BOOLEAN:
+			return bits[i] != 0;
+		case BYTE:
+			return (byte) bits[i];
+		case SHORT:
+			return (short) bits[i];
+		case INT:
+			return (int) bits[i];
+		case LONG:
+			return bits[i];
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits[i]);
+		case DOUBLE:
+			return Double.longBitsToDouble(bits[i]);
+		default:
+			return strings[i];
+		}
+	}
+
+	private int indexOf(PropertyKey key) {
+		for (int i = 0; i < size; i++) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		// the property may have been set using its name before the key was created
+		String name = key.getName();
+		for (int i = 0; i < size; i++) {
+			if (keys[i] == null && names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < size; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOf(SelectorKey key) {
+		PropertyKey propertyKey = key.getPropertyKey();
+		return propertyKey == null ? indexOf(key.getName()) : indexOf(propertyKey);
+	}
+
+	private MessageFormatException conversionError(int i, String type) {
+		return new MessageFormatException("Property " + names[i] + " cannot be converted to " + type);
+	}
+}
@@ -0,0 +1,437 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.JMSException;
+
+import org.javaee.jms.ri.selector.Selector;
+import org.javaee.jms.ri.selector.SelectorTarget;
+
+/**
+ * The messages of a queue, or of a topic subscription, which are waiting to
+ * be delivered.
+ * <p>
+ * Messages are held in a {@code ConcurrentLinkedDeque}, so sending a message
+ * and receiving a message without a selector are lock-free. A consumer with a
+ * selector searches the deque for a message which it matches and removes that
+ * message, which succeeds for exactly one consumer if several find it at the
+ * same time. Messages which are delivered again, because a session was
+ * recovered or a transaction was rolled back, are returned to the front of
+ * the deque.
+ * <p>
+ * A message with a {@code JMSXGroupID} property belongs to a message group.
+ * A group is assigned to a consumer when the first message of the group is
+ * delivered to it, and remains assigned to it until it is closed. The other
+ * consumers skip the messages of the group, so the messages of each group are
+ * delivered in order to one consumer whilst different groups are delivered to
+ * different consumers. A consumer only takes the first message of a group
+ * which is not assigned if no other consumer which is ready to receive the
+ * message has fewer groups, so new groups are assigned to the least loaded
+ * consumers. Messages of a group are only removed whilst holding the lock,
+ * so that a group is assigned in the same step as its first message is
+ * removed. A consumer without a selector removes messages from the front of
+ * the deque without the lock until it reaches a message which belongs to a
+ * group.
+ * <p>
+ * A consumer which has to wait for a message does so on a {@code Condition},
+ * rather than a monitor, so that a virtual thread which waits does not pin its
+ * carrier thread, and senders only signal it when there are waiting
+ * consumers. Consumers with a
+ * listener register with the queue so that their session is told to
+ * dispatch messages when one arrives.
+ */
+final class MessageQueue extends Endpoint {
+
+	/**
+	 * A message on the queue and the number of times it has already been
+	 * delivered.
+	 */
+	static final class Entry {
+
+		final MemoryMessage message;
+
+		final int deliveryCount;
+
+		/** the group to which the message belongs, or null */
+		final String groupID;
+
+		Entry(MemoryMessage message, int deliveryCount) {
+			this.message = message;
+			this.deliveryCount = deliveryCount;
+			groupID = message.getGroupID();
+		}
+	}
+
+	/**
+	 * A value for the {@code deadline} argument of {@code take} which causes
+	 * it to wait indefinitely.
+	 */
+	static final long FOREVER = Long.MAX_VALUE;
+
+	private final Broker broker;
+
+	private final String name;
+
+	private final ConcurrentLinkedDeque<Entry> entries = new ConcurrentLinkedDeque<Entry>();
+
+	private final Lock lock = new ReentrantLock();
+
+	private final Condition available = lock.newCondition();
+
+	private volatile int waiters;
+
+	private final List<MemoryConsumer> listeners = new CopyOnWriteArrayList<MemoryConsumer>();
+
+	private final List<MemoryConsumer> consumers = new CopyOnWriteArrayList<MemoryConsumer>();
+
+	/**
+	 * The consumers which are waiting in {@code take}. Guarded by the lock.
+	 */
+	private final Set<MemoryConsumer> waiting = new HashSet<MemoryConsumer>();
+
+	/**
+	 * The consumer to which each message group is assigned. Only changed
+	 * whilst holding the lock.
+	 */
+	private final Map<String, MemoryConsumer> groups = new ConcurrentHashMap<String, MemoryConsumer>();
+
+	/**
+	 * Whether a consumer has left the first message of a group for a less
+	 * loaded consumer since the consumers were last signalled. Guarded by the
+	 * lock.
+	 */
+	private boolean deferred;
+
+	MessageQueue(Broker broker, String name) {
+		this.broker = broker;
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	@Override
+	void send(MemoryMessage message, MemoryConnection sender) {
+		long delay = message.deliveryTime - System.currentTimeMillis();
+		if (delay > 0) {
+			broker.schedule(() -> add(new Entry(message, 0)), delay);
+		} else {
+			add(new Entry(message, 0));
+		}
+	}
+
+	@Override
+	boolean hasConsumers() {
+		return !consumers.isEmpty();
+	}
+
+	void addConsumer(MemoryConsumer consumer) {
+		consumers.add(consumer);
+	}
+
+	/**
+	 * Called when the specified consumer is closed, so that the message
+	 * groups which were assigned to it may be assigned to other consumers.
+	 */
+	void removeConsumer(MemoryConsumer consumer) {
+		consumers.remove(consumer);
+		lock.lock();
+		try {
+			if (consumer.groupCount > 0) {
+				groups.values().removeIf(owner -> owner == consumer);
+				consumer.groupCount = 0;
+			}
+		} finally {
+			lock.unlock();
+		}
+		consumerUnavailable();
+	}
+
+	/**
+	 * Called when a consumer stops being ready to receive messages, so that
+	 * the other consumers look again at the messages of any group which they
+	 * left for it.
+	 */
+	void consumerUnavailable() {
+		if (undefer()) {
+			signal();
+		}
+	}
+
+	/**
+	 * Returns whether a consumer has left a message for a less loaded
+	 * consumer since the last call, in which case the consumers should be
+	 * signalled.
+	 */
+	private boolean undefer() {
+		lock.lock();
+		try {
+			boolean result = deferred;
+			deferred = false;
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void add(Entry entry) {
+		entries.addLast(entry);
+		signal();
+	}
+
+	/**
+	 * Returns an entry to the front of this queue. Entries which were removed
+	 * together are returned in the reverse of the order in which they were
+	 * removed.
+	 */
+	void addFirst(Entry entry) {
+		entries.addFirst(entry);
+		signal();
+	}
+
+	private void signal() {
+		if (waiters > 0) {
+			wakeAll();
+		}
+		for (MemoryConsumer listener : listeners) {
+			listener.messageAvailable();
+		}
+	}
+
+	/**
+	 * Wakes every consumer waiting for a message, so that it can find out
+	 * whether it, or its connection, has been closed or stopped.
+	 */
+	void wakeAll() {
+		lock.lock();
+		try {
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void addListener(MemoryConsumer consumer) {
+		if (!listeners.contains(consumer)) {
+			listeners.add(consumer);
+		}
+	}
+
+	void removeListener(MemoryConsumer consumer) {
+		if (listeners.remove(consumer)) {
+			consumerUnavailable();
+		}
+	}
+
+	/**
+	 * Removes and returns the first unexpired entry for the specified
+	 * consumer whose message is matched by the specified selector, or null if
+	 * there is no such entry. An entry is for the consumer unless its message
+	 * belongs to a group which is assigned to another consumer, or to a group
+	 * which is not assigned and which should be assigned to a less loaded
+	 * consumer. Expired messages which are found are discarded.
+	 */
+	Entry poll(Selector selector, MemoryConsumer consumer) throws JMSException {
+		long now = 0;
+		if (selector == null) {
+			Entry entry;
+			while ((entry = entries.peekFirst()) != null && entry.groupID == null) {
+				if (!entries.remove(entry)) {
+					continue;
+				}
+				if (entry.message.expiration == 0) {
+					return entry;
+				}
+				if (now == 0) {
+					now = System.currentTimeMillis();
+				}
+				if (!entry.message.isExpired(now)) {
+					return entry;
+				}
+			}
+			if (entry == null) {
+				return null;
+			}
+		}
+		boolean locked = false;
+		boolean assigned = false;
+		try {
+			Set<String> declined = null;
+			for (Iterator<Entry> i = entries.iterator(); i.hasNext();) {
+				Entry entry = i.next();
+				if (entry.message.expiration != 0) {
+					if (now == 0) {
+						now = System.currentTimeMillis();
+					}
+					if (entry.message.isExpired(now)) {
+						entries.remove(entry);
+						continue;
+					}
+				}
+				if (selector != null && !selector.matches((SelectorTarget) entry.message)) {
+					continue;
+				}
+				if (entry.groupID == null) {
+					if (entries.remove(entry)) {
+						return entry;
+					}
+					continue;
+				}
+				if (!locked) {
+					lock.lock();
+					locked = true;
+				}
+				MemoryConsumer owner = groups.get(entry.groupID);
+				if (owner == consumer) {
+					if (entries.remove(entry)) {
+						return entry;
+					}
+				} else if (owner == null && (declined == null || !declined.contains(entry.groupID))) {
+					if (isLeastLoaded(consumer, entry)) {
+						if (entries.remove(entry)) {
+							groups.put(entry.groupID, consumer);
+							consumer.groupCount++;
+							assigned = true;
+							return entry;
+						}
+					} else {
+						// the later messages of the group must not overtake this one
+						if (declined == null) {
+							declined = new HashSet<String>();
+						}
+						declined.add(entry.groupID);
+						deferred = true;
+					}
+				}
+			}
+			return null;
+		} finally {
+			if (locked) {
+				lock.unlock();
+			}
+			// a consumer which left a message for this one may now be less loaded
+			if (assigned && undefer()) {
+				signal();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether no other consumer which is ready to receive the message
+	 * of the specified entry has fewer groups assigned to it than the
+	 * specified consumer. A consumer is ready if it has registered with this
+	 * queue, or is waiting in {@code take}, and it accepts the message. Called
+	 * whilst holding the lock.
+	 */
+	private boolean isLeastLoaded(MemoryConsumer consumer, Entry entry) throws JMSException {
+		int groupCount = consumer.groupCount;
+		if (groupCount == 0) {
+			return true;
+		}
+		for (MemoryConsumer other : consumers) {
+			if (other != consumer && other.groupCount < groupCount
+					&& (waiting.contains(other) || listeners.contains(other)) && other.accepts(entry.message)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes and returns the first unexpired entry whose message is matched
+	 * by the specified selector, waiting until the specified time, as
+	 * returned by {@code System.nanoTime}, for one to arrive. Returns null if
+	 * there is no such entry by that time, or if the specified consumer is
+	 * closed or the calling thread is interrupted.
+	 */
+	Entry take(Selector selector, long deadline, MemoryConsumer consumer) throws JMSException {
+		Entry entry = poll(selector, consumer);
+		if (entry != null || (deadline != FOREVER && deadline - System.nanoTime() <= 0)) {
+			return entry;
+		}
+		lock.lock();
+		try {
+			waiters++;
+			waiting.add(consumer);
+			while (true) {
+				entry = poll(selector, consumer);
+				if (entry != null || consumer.isClosed()) {
+					return entry;
+				}
+				long remaining = deadline == FOREVER ? Long.MAX_VALUE : deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+				try {
+					available.awaitNanos(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				}
+			}
+		} finally {
+			waiters--;
+			waiting.remove(consumer);
+			lock.unlock();
+			consumerUnavailable();
+		}
+	}
+
+	/**
+	 * Returns an iterator over the entries currently on this queue, which
+	 * does not remove them.
+	 */
+	Iterator<Entry> iterator() {
+		return entries.iterator();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * The send options shared by {@code MemoryProducer} and
+ * {@code MemoryJMSProducer}. Like the producers themselves, these options are
+ * only used by one thread at a time.
+ */
+final class SendOptions {
+
+	int deliveryMode = DeliveryMode.PERSISTENT;
+
+	int priority = Message.DEFAULT_PRIORITY;
+
+	long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+
+	long deliveryDelay = Message.DEFAULT_DELIVERY_DELAY;
+
+	boolean disableMessageID;
+
+	boolean disableMessageTimestamp;
+
+	static void checkDeliveryMode(int deliveryMode) throws JMSException {
+		if (deliveryMode != DeliveryMode.PERSISTENT && deliveryMode != DeliveryMode.NON_PERSISTENT) {
+			throw new JMSException("Invalid delivery mode: " + deliveryMode);
+		}
+	}
+
+	static void checkPriority(int priority) throws JMSException {
+		if (priority < 0 || priority > 9) {
+			throw new JMSException("Invalid priority: " + priority);
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.JMSException;
+import javax.jms.ResourceAllocationException;
+import javax.jms.SendWindow;
+import javax.jms.SendWindowListener;
+
+/**
+ * The send window of a producer: its limits and policy, and the asynchronous
+ * sends which are currently outstanding.
+ * <p>
+ * Although the in-memory JMS provider completes every send as soon as it has
+ * been made, the callbacks of asynchronous sends are performed by another
+ * thread, so an application which sends faster than its callbacks can be
+ * performed is limited by the send window just as it would be by a remote
+ * JMS server.
+ * <p>
+ * The state is guarded by a {@code Lock} rather than a monitor, so that a
+ * virtual thread which waits for space in the window does not pin its carrier
+ * thread.
+ */
+final class SendWindowState {
+
+	private final Executor callbacks;
+
+	private final Lock lock = new ReentrantLock();
+
+	private final Condition changed = lock.newCondition();
+
+	private int maxMessages = -1;
+
+	private long maxBytes = -1;
+
+	private int policy = SendWindow.BLOCK;
+
+	private SendWindowListener listener;
+
+	private int messages;
+
+	private long bytes;
+
+	/**
+	 * Whether the listener was last told that the window is full.
+	 */
+	private boolean full;
+
+	/**
+	 * Creates a send window whose listener is invoked using the specified
+	 * executor, which also performs the callbacks of the asynchronous sends.
+	 */
+	SendWindowState(Executor callbacks) {
+		this.callbacks = callbacks;
+	}
+
+	void set(int maxMessages, long maxBytes, int policy) {
+		if (maxMessages == 0 || maxMessages < -1) {
+			throw new IllegalArgumentException("Invalid maximum number of messages: " + maxMessages);
+		}
+		if (maxBytes == 0 || maxBytes < -1) {
+			throw new IllegalArgumentException("Invalid maximum number of bytes: " + maxBytes);
+		}
+		if (policy != SendWindow.BLOCK && policy != SendWindow.FAIL && policy != SendWindow.NOTIFY) {
+			throw new IllegalArgumentException("Invalid policy: " + policy);
+		}
+		lock.lock();
+		try {
+			this.maxMessages = maxMessages;
+			this.maxBytes = maxBytes;
+			this.policy = policy;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void setListener(SendWindowListener listener) {
+		lock.lock();
+		try {
+			this.listener = listener;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	SendWindow snapshot() {
+		lock.lock();
+		try {
+			return new Snapshot(maxMessages, maxBytes, policy, messages, bytes);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds an asynchronous send of a message of the specified size to the
+	 * window, applying the policy of the window if it is full.
+	 *
+	 * @param inCallback
+	 *            whether the calling thread is performing a callback, and so
+	 *            must not block
+	 */
+	void acquire(long size, boolean inCallback) throws JMSException {
+		lock.lock();
+		try {
+			while (wouldExceed(size) && policy != SendWindow.NOTIFY) {
+				if (policy == SendWindow.FAIL || inCallback) {
+					throw new ResourceAllocationException("Send window is full");
+				}
+				try {
+					changed.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new ResourceAllocationException("Interrupted while waiting for the send window");
+				}
+			}
+			messages++;
+			bytes += size;
+			if (!full && isFull()) {
+				full = true;
+				notifyListener(true);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes a completed asynchronous send of a message of the specified
+	 * size from the window.
+	 */
+	void release(long size) {
+		lock.lock();
+		try {
+			messages--;
+			bytes -= size;
+			changed.signalAll();
+			if (full && !isFull()) {
+				full = false;
+				notifyListener(false);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean wouldExceed(long size) {
+		return (maxMessages != -1 && messages >= maxMessages)
+				|| (maxBytes != -1 && messages > 0 && bytes + size > maxBytes);
+	}
+
+	private boolean isFull() {
+		return (maxMessages != -1 && messages >= maxMessages) || (maxBytes != -1 && bytes >= maxBytes);
+	}
+
+	private void notifyListener(boolean full) {
+		SendWindowListener listener = this.listener;
+		if (listener != null) {
+			SendWindow window = snapshot();
+			callbacks.execute(() -> {
+				if (full) {
+					listener.onSendWindowFull(window);
+				} else {
+					listener.onSendWindowAvailable(window);
+				}
+			});
+		}
+	}
+
+	private static final class Snapshot implements SendWindow {
+
+		private final int maxMessages;
+
+		private final long maxBytes;
+
+		private final int policy;
+
+		private final int outstandingMessages;
+
+		private final long outstandingBytes;
+
+		Snapshot(int maxMessages, long maxBytes, int policy, int outstandingMessages, long outstandingBytes) {
+			this.maxMessages = maxMessages;
+			this.maxBytes = maxBytes;
+			this.policy = policy;
+			this.outstandingMessages = outstandingMessages;
+			this.outstandingBytes = outstandingBytes;
+		}
+
+		@Override
+		public int getMaxMessages() {
+			return maxMessages;
+		}
+
+		@Override
+		public long getMaxBytes() {
+			return maxBytes;
+		}
+
+		@Override
+		public int getPolicy() {
+			return policy;
+		}
+
+		@Override
+		public int getOutstandingMessages() {
+			return outstandingMessages;
+		}
+
+		@Override
+		public long getOutstandingBytes() {
+			return outstandingBytes;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * An {@code Executor} which runs tasks one at a time, in the order in which
+ * they were submitted, using the threads of another {@code Executor}.
+ * <p>
+ * Each session uses one {@code SerialExecutor} to deliver messages to its
+ * listeners and another to perform the callbacks of its asynchronous sends,
+ * so the sessions of a broker share a pool of threads rather than each
+ * having threads of its own.
+ * <p>
+ * If the other {@code Executor} rejects the task which runs the tasks, the
+ * rejection is passed to a handler, and the tasks are kept. They are run
+ * when a later task is accepted, or by a thread which calls
+ * {@link #awaitCompletion()}.
+ */
+final class SerialExecutor implements Executor {
+
+	private final Executor executor;
+
+	private final Consumer<RejectedExecutionException> rejectionHandler;
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	private volatile Thread runner;
+
+	private final Runnable drain = this::drain;
+
+	/** notified when a task waited for by awaitCompletion has run, or a task is rejected */
+	private final Object completion = new Object();
+
+	SerialExecutor(Executor executor, Consumer<RejectedExecutionException> rejectionHandler) {
+		this.executor = executor;
+		this.rejectionHandler = rejectionHandler;
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		tasks.add(task);
+		schedule();
+	}
+
+	/**
+	 * Submits the task which runs the tasks, unless it has already been
+	 * submitted. If the executor rejects it, the tasks are left for a later
+	 * call, or for a thread waiting in {@code awaitCompletion}.
+	 */
+	private void schedule() {
+		if (!scheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(drain);
+		} catch (RejectedExecutionException e) {
+			scheduled.set(false);
+			synchronized (completion) {
+				completion.notifyAll();
+			}
+			rejectionHandler.accept(e);
+		}
+	}
+
+	private void drain() {
+		runner = Thread.currentThread();
+		try {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		} finally {
+			runner = null;
+			scheduled.set(false);
+			if (!tasks.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the calling thread is running a task of this executor.
+	 */
+	boolean isCurrentThread() {
+		return runner == Thread.currentThread();
+	}
+
+	/**
+	 * Waits until every task submitted before this method was called has
+	 * completed. Returns immediately if called by a task of this executor.
+	 * If the executor rejects the task which runs the tasks, the calling
+	 * thread runs them itself.
+	 */
+	void awaitCompletion() {
+		if (isCurrentThread()) {
+			return;
+		}
+		AtomicBoolean done = new AtomicBoolean();
+		execute(() -> {
+			synchronized (completion) {
+				done.set(true);
+				completion.notifyAll();
+			}
+		});
+		boolean interrupted = false;
+		while (true) {
+			synchronized (completion) {
+				if (done.get()) {
+					break;
+				}
+				if (scheduled.get() || tasks.isEmpty()) {
+					try {
+						completion.wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+					continue;
+				}
+			}
+			// the executor rejected the task which runs the tasks
+			if (scheduled.compareAndSet(false, true)) {
+				drain();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
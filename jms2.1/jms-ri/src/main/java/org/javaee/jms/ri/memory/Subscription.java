@@ -0,0 +1,112 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import org.javaee.jms.ri.selector.Selector;
+
+/**
+ * A subscription to a topic, which holds the messages published to the topic
+ * since it was created that match its selector.
+ * <p>
+ * A non-durable subscription which is not shared is created for each consumer
+ * of a topic and deleted when the consumer is closed. A shared non-durable
+ * subscription is deleted when its last consumer is closed. A durable
+ * subscription is deleted only by {@code unsubscribe}. The number of
+ * consumers, and the map of named subscriptions, are guarded by the lock of
+ * the broker.
+ */
+final class Subscription {
+
+	final TopicState topic;
+
+	/**
+	 * The name of the subscription, or null if it is neither durable nor
+	 * shared.
+	 */
+	final String name;
+
+	final String clientID;
+
+	final boolean durable;
+
+	final boolean shared;
+
+	final Selector selector;
+
+	final boolean noLocal;
+
+	final MessageQueue queue;
+
+	/**
+	 * The connection of the consumers of the subscription, from which
+	 * messages are not delivered if {@code noLocal} is set.
+	 */
+	volatile MemoryConnection connection;
+
+	int consumers;
+
+	Subscription(Broker broker, TopicState topic, String name, String clientID, boolean durable, boolean shared,
+			Selector selector, boolean noLocal) {
+		this.topic = topic;
+		this.name = name;
+		this.clientID = clientID;
+		this.durable = durable;
+		this.shared = shared;
+		this.selector = selector;
+		this.noLocal = noLocal;
+		this.queue = new MessageQueue(broker, name == null ? topic.getName() : name);
+	}
+
+	/**
+	 * Returns whether a consumer with the specified properties may use this
+	 * subscription without it having to be replaced.
+	 */
+	boolean matches(TopicState topic, Selector selector, boolean noLocal) {
+		String text = selector == null ? null : selector.getSelectorText();
+		String existing = this.selector == null ? null : this.selector.getSelectorText();
+		return this.topic == topic && this.noLocal == noLocal && (text == null ? existing == null : text.equals(existing));
+	}
+
+	void send(MemoryMessage message, MemoryConnection sender) {
+		if (!noLocal || sender != connection) {
+			queue.send(message, sender);
+		}
+	}
+}
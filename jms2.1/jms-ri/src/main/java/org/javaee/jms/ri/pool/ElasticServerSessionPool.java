@@ -0,0 +1,550 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.pool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.Connection;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.MessageListener;
+import javax.jms.ServerSession;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+
+/**
+ * A {@code ServerSessionPool} which creates sessions when its connection
+ * consumer has a backlog of messages, and closes them again once they have
+ * been idle for a while, so that it does not need to be sized for the largest
+ * burst of messages in advance.
+ * <p>
+ * Each {@code ServerSession} of the pool has a {@code Session} of the pool's
+ * connection, whose distinguished message listener is the listener given to
+ * the pool. The pool holds between a minimum and a maximum number of them:
+ * <ul>
+ * <li>{@code getServerSession} returns the most recently used idle session,
+ * so that under a light load the same few sessions are used and the others
+ * stay idle long enough to be closed;
+ * <li>if there is no idle session, it creates a new one, unless the pool
+ * already holds the maximum number of sessions, in which case it blocks until
+ * a session is returned, which holds back the connection consumer while the
+ * listener cannot keep up;
+ * <li>a session which has been idle for longer than the keep-alive time is
+ * closed, as long as the pool holds more than the minimum number of sessions.
+ * </ul>
+ * Starting a server session submits a call to the {@code run} method of its
+ * session to a {@code ForkJoinPool} with one worker thread for each session
+ * which may be active. A worker which has no runs of its own takes queued runs
+ * from the others, so a burst of messages loaded into many sessions is spread
+ * across every worker rather than waiting for a busy one. The messages loaded
+ * into a session are always processed by that session, since they have to be
+ * acknowledged or committed by it. Worker threads, like sessions, are created
+ * when they are needed and stop when they have been idle.
+ * <p>
+ * The listener is called by the worker threads of every active session at the
+ * same time, so it must be thread-safe. The pool does not start or close its
+ * connection.
+ * <p>
+ * The utilisation of the pool is reported by {@code getPoolSize},
+ * {@code getActiveCount}, {@code getIdleCount}, {@code getWaitingCount},
+ * {@code getLargestPoolSize}, {@code getCompletedRunCount} and
+ * {@code getUtilization}. Each of them returns the state of the pool at the
+ * time it was called, which may already have changed.
+ */
+public final class ElasticServerSessionPool implements ServerSessionPool, AutoCloseable {
+
+	private static final AtomicInteger poolNumbers = new AtomicInteger();
+
+	private final Connection connection;
+
+	private final int sessionMode;
+
+	private final MessageListener listener;
+
+	private final int minSize;
+
+	private final int maxSize;
+
+	private final long keepAliveNanos;
+
+	/** guards the state of the pool, and the idle times of its sessions */
+	private final Lock lock = new ReentrantLock();
+
+	/** signalled when a session is returned to the pool, or it is closed */
+	private final Condition returned = lock.newCondition();
+
+	/** the idle sessions, the most recently used first */
+	private final Deque<PooledServerSession> idle = new ArrayDeque<PooledServerSession>();
+
+	private int size;
+
+	private int active;
+
+	private int largestSize;
+
+	private int waiting;
+
+	private long completedRuns;
+
+	private boolean closed;
+
+	private final ForkJoinPool workers;
+
+	private final ScheduledExecutorService reaper;
+
+	/**
+	 * Creates a pool of sessions of the specified connection, and creates the
+	 * minimum number of sessions.
+	 *
+	 * @param connection
+	 *            the connection used to create sessions
+	 * @param sessionMode
+	 *            the session mode of the sessions, as passed to
+	 *            {@code Connection.createSession(int)}
+	 * @param listener
+	 *            the distinguished message listener of every session, which
+	 *            is passed the messages loaded into the sessions by the
+	 *            connection consumer
+	 * @param minSize
+	 *            the number of sessions which are kept even when they are
+	 *            idle
+	 * @param maxSize
+	 *            the maximum number of sessions, and so the maximum number of
+	 *            messages which are processed at the same time
+	 * @param keepAliveTime
+	 *            how long a session above the minimum number may be idle
+	 *            before it is closed
+	 * @param unit
+	 *            the unit of {@code keepAliveTime}
+	 * @throws JMSException
+	 *             if the minimum number of sessions could not be created
+	 * @throws IllegalArgumentException
+	 *             if {@code minSize} is negative, {@code maxSize} is less
+	 *             than one or less than {@code minSize}, {@code keepAliveTime}
+	 *             is not positive, or any other argument is null
+	 */
+	public ElasticServerSessionPool(Connection connection, int sessionMode, MessageListener listener, int minSize,
+			int maxSize, long keepAliveTime, TimeUnit unit) throws JMSException {
+		if (connection == null || listener == null || unit == null) {
+			throw new IllegalArgumentException("Connection, listener and unit must not be null");
+		}
+		if (minSize < 0 || maxSize < 1 || maxSize < minSize) {
+			throw new IllegalArgumentException("Invalid pool size: " + minSize + " to " + maxSize);
+		}
+		if (keepAliveTime <= 0) {
+			throw new IllegalArgumentException("Invalid keep-alive time: " + keepAliveTime);
+		}
+		this.connection = connection;
+		this.sessionMode = sessionMode;
+		this.listener = listener;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		keepAliveNanos = unit.toNanos(keepAliveTime);
+		String prefix = "jms-server-session-pool-" + poolNumbers.incrementAndGet() + "-";
+		AtomicInteger workerNumbers = new AtomicInteger();
+		workers = new ForkJoinPool(maxSize, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName(prefix + workerNumbers.incrementAndGet());
+			return thread;
+		}, null, true);
+		reaper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, prefix + "reaper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (int i = 0; i < minSize; i++) {
+				PooledServerSession session = createSession();
+				session.idleSince = System.nanoTime();
+				idle.addLast(session);
+				size++;
+			}
+		} catch (JMSException | RuntimeException e) {
+			for (PooledServerSession session : idle) {
+				closeQuietly(session.session);
+			}
+			workers.shutdown();
+			reaper.shutdown();
+			throw e;
+		}
+		largestSize = size;
+		long period = Math.max(keepAliveNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+		reaper.scheduleWithFixedDelay(this::closeIdleSessions, period, period, TimeUnit.NANOSECONDS);
+	}
+
+	private PooledServerSession createSession() throws JMSException {
+		Session session = connection.createSession(sessionMode);
+		try {
+			session.setMessageListener(listener);
+		} catch (JMSException | RuntimeException e) {
+			session.close();
+			throw e;
+		}
+		return new PooledServerSession(session);
+	}
+
+	/**
+	 * Returns an idle server session, creating one if there is none and the
+	 * pool holds less than the maximum number of sessions, and otherwise
+	 * waiting until one is returned to the pool.
+	 *
+	 * @return a server session from the pool
+	 * @throws IllegalStateException
+	 *             if the pool has been closed
+	 * @throws JMSException
+	 *             if a new session could not be created, or the calling
+	 *             thread was interrupted while waiting for one
+	 */
+	@Override
+	public ServerSession getServerSession() throws JMSException {
+		PooledServerSession session;
+		lock.lock();
+		try {
+			while (true) {
+				if (closed) {
+					throw new IllegalStateException("Server session pool is closed");
+				}
+				session = idle.pollFirst();
+				if (session != null || size < maxSize) {
+					break;
+				}
+				waiting++;
+				try {
+					returned.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new JMSException("Interrupted while waiting for a server session");
+				} finally {
+					waiting--;
+				}
+			}
+			if (session == null) {
+				size++;
+				largestSize = Math.max(largestSize, size);
+			}
+			active++;
+		} finally {
+			lock.unlock();
+		}
+		if (session != null) {
+			return session;
+		}
+		try {
+			return createSession();
+		} catch (JMSException | RuntimeException e) {
+			lock.lock();
+			try {
+				size--;
+				active--;
+				returned.signal();
+			} finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a session whose run has finished to the pool, or closes it if
+	 * the pool has been closed.
+	 */
+	private void release(PooledServerSession session) {
+		lock.lock();
+		try {
+			active--;
+			completedRuns++;
+			if (!closed) {
+				session.idleSince = System.nanoTime();
+				idle.addFirst(session);
+				returned.signal();
+				return;
+			}
+			size--;
+		} finally {
+			lock.unlock();
+		}
+		closeQuietly(session.session);
+	}
+
+	/**
+	 * Closes the sessions which have been idle for longer than the keep-alive
+	 * time, leaving at least the minimum number of sessions. Called
+	 * periodically by the reaper.
+	 */
+	private void closeIdleSessions() {
+		List<PooledServerSession> expired = new ArrayList<PooledServerSession>();
+		lock.lock();
+		try {
+			long now = System.nanoTime();
+			while (size > minSize) {
+				PooledServerSession session = idle.peekLast();
+				if (session == null || now - session.idleSince < keepAliveNanos) {
+					break;
+				}
+				idle.pollLast();
+				size--;
+				expired.add(session);
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (PooledServerSession session : expired) {
+			closeQuietly(session.session);
+		}
+	}
+
+	private static void closeQuietly(Session session) {
+		try {
+			session.close();
+		} catch (JMSException | RuntimeException e) {
+			// the session cannot be used again whether or not it was closed
+		}
+	}
+
+	/**
+	 * Closes the idle sessions of the pool and stops its threads. A session
+	 * which is active is closed when its current run finishes. A thread
+	 * waiting in {@code getServerSession} is woken and throws an
+	 * {@code IllegalStateException}.
+	 * <p>
+	 * The connection consumer which uses the pool should be closed first, so
+	 * that it does not load messages into sessions which are being closed.
+	 *
+	 * @throws JMSException
+	 *             if an idle session could not be closed
+	 */
+	@Override
+	public void close() throws JMSException {
+		List<PooledServerSession> sessions;
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			sessions = new ArrayList<PooledServerSession>(idle);
+			size -= idle.size();
+			idle.clear();
+			returned.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		reaper.shutdownNow();
+		workers.shutdown();
+		close(sessions);
+	}
+
+	private static void close(List<PooledServerSession> sessions) throws JMSException {
+		JMSException failure = null;
+		for (PooledServerSession session : sessions) {
+			try {
+				session.session.close();
+			} catch (JMSException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns the number of sessions in the pool, whether they are active or
+	 * idle.
+	 *
+	 * @return the number of sessions
+	 */
+	public int getPoolSize() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of sessions which have been returned by
+	 * {@code getServerSession} and whose run has not yet finished.
+	 *
+	 * @return the number of active sessions
+	 */
+	public int getActiveCount() {
+		lock.lock();
+		try {
+			return active;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of sessions which are waiting to be returned by
+	 * {@code getServerSession}.
+	 *
+	 * @return the number of idle sessions
+	 */
+	public int getIdleCount() {
+		lock.lock();
+		try {
+			return idle.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of threads which are blocked in
+	 * {@code getServerSession} because every session is active and the pool
+	 * is at its maximum size. A value which often exceeds zero means that the
+	 * maximum size is too small for the load.
+	 *
+	 * @return the number of waiting threads
+	 */
+	public int getWaitingCount() {
+		lock.lock();
+		try {
+			return waiting;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the largest number of sessions which the pool has held at the
+	 * same time.
+	 *
+	 * @return the largest pool size
+	 */
+	public int getLargestPoolSize() {
+		lock.lock();
+		try {
+			return largestSize;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of runs of the sessions of the pool which have
+	 * finished.
+	 *
+	 * @return the number of completed runs
+	 */
+	public long getCompletedRunCount() {
+		lock.lock();
+		try {
+			return completedRuns;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of active sessions as a fraction of the maximum size
+	 * of the pool, from 0 when no messages are being processed to 1 when the
+	 * pool is saturated.
+	 *
+	 * @return the utilisation of the pool
+	 */
+	public double getUtilization() {
+		lock.lock();
+		try {
+			return (double) active / maxSize;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A {@code ServerSession} of the pool, which is also the task which runs
+	 * its session.
+	 */
+	private final class PooledServerSession implements ServerSession, Runnable {
+
+		final Session session;
+
+		/** the time at which the session became idle, guarded by the lock */
+		long idleSince;
+
+		PooledServerSession(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		public Session getSession() throws JMSException {
+			return session;
+		}
+
+		@Override
+		public void start() throws JMSException {
+			try {
+				workers.execute(this);
+			} catch (RejectedExecutionException e) {
+				// the pool has been closed, so run the loaded messages here
+				run();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				session.run();
+			} finally {
+				release(this);
+			}
+		}
+	}
+}
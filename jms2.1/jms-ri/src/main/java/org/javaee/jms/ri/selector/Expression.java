@@ -0,0 +1,462 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_BOOLEAN;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_DOUBLE;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_LONG;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_NULL;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_STRING;
+
+import javax.jms.JMSException;
+
+/**
+ * A node of a compiled selector which computes a value: a literal, an
+ * identifier or an arithmetic operation.
+ * <p>
+ * The type of the value is obtained by calling {@code type}. The value itself
+ * is then obtained by calling the method for that type; {@code doubleValue}
+ * may also be called if the type is {@code TYPE_LONG}. Each kind of node is a
+ * separate final class, so that each call site in the tree sees a single
+ * implementation and no value needs to be wrapped in an object.
+ */
+abstract class Expression {
+
+	abstract int type(SelectorTarget target) throws JMSException;
+
+	long longValue(SelectorTarget target) throws JMSException {
+		throw new UnsupportedOperationException();
+	}
+
+	double doubleValue(SelectorTarget target) throws JMSException {
+		throw new UnsupportedOperationException();
+	}
+
+	boolean booleanValue(SelectorTarget target) throws JMSException {
+		throw new UnsupportedOperationException();
+	}
+
+	String stringValue(SelectorTarget target) throws JMSException {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns whether this expression has the same value for every message,
+	 * in which case it may be evaluated with a null target.
+	 */
+	boolean isConstant() {
+		return false;
+	}
+
+	static boolean isNumeric(int type) {
+		return type == TYPE_LONG || type == TYPE_DOUBLE;
+	}
+
+	static final class LongLiteral extends Expression {
+
+		private final long value;
+
+		LongLiteral(long value) {
+			this.value = value;
+		}
+
+		long getValue() {
+			return value;
+		}
+
+		@Override
+		int type(SelectorTarget target) {
+			return TYPE_LONG;
+		}
+
+		@Override
+		long longValue(SelectorTarget target) {
+			return value;
+		}
+
+		@Override
+		double doubleValue(SelectorTarget target) {
+			return value;
+		}
+
+		@Override
+		boolean isConstant() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return Long.toString(value);
+		}
+	}
+
+	static final class DoubleLiteral extends Expression {
+
+		private final double value;
+
+		DoubleLiteral(double value) {
+			this.value = value;
+		}
+
+		double getValue() {
+			return value;
+		}
+
+		@Override
+		int type(SelectorTarget target) {
+			return TYPE_DOUBLE;
+		}
+
+		@Override
+		double doubleValue(SelectorTarget target) {
+			return value;
+		}
+
+		@Override
+		boolean isConstant() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return Double.toString(value);
+		}
+	}
+
+	static final class StringLiteral extends Expression {
+
+		private final String value;
+
+		StringLiteral(String value) {
+			this.value = value;
+		}
+
+		String getValue() {
+			return value;
+		}
+
+		@Override
+		int type(SelectorTarget target) {
+			return TYPE_STRING;
+		}
+
+		@Override
+		String stringValue(SelectorTarget target) {
+			return value;
+		}
+
+		@Override
+		boolean isConstant() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return "'" + value.replace("'", "''") + "'";
+		}
+	}
+
+	static final class BooleanLiteral extends Expression {
+
+		private final boolean value;
+
+		BooleanLiteral(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		int type(SelectorTarget target) {
+			return TYPE_BOOLEAN;
+		}
+
+		@Override
+		boolean booleanValue(SelectorTarget target) {
+			return value;
+		}
+
+		@Override
+		boolean isConstant() {
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			return value ? "TRUE" : "FALSE";
+		}
+	}
+
+	static final class Identifier extends Expression {
+
+		private final SelectorKey key;
+
+		Identifier(SelectorKey key) {
+			this.key = key;
+		}
+
+		SelectorKey getKey() {
+			return key;
+		}
+
+		@Override
+		int type(SelectorTarget target) throws JMSException {
+			return target.getType(key);
+		}
+
+		@Override
+		long longValue(SelectorTarget target) throws JMSException {
+			return target.getLong(key);
+		}
+
+		@Override
+		double doubleValue(SelectorTarget target) throws JMSException {
+			return target.getDouble(key);
+		}
+
+		@Override
+		boolean booleanValue(SelectorTarget target) throws JMSException {
+			return target.getBoolean(key);
+		}
+
+		@Override
+		String stringValue(SelectorTarget target) throws JMSException {
+			return target.getString(key);
+		}
+
+		@Override
+		public String toString() {
+			return key.getName();
+		}
+	}
+
+	static final class Negate extends Expression {
+
+		private final Expression operand;
+
+		Negate(Expression operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		int type(SelectorTarget target) throws JMSException {
+			int type = operand.type(target);
+			return isNumeric(type) ? type : TYPE_NULL;
+		}
+
+		@Override
+		long longValue(SelectorTarget target) throws JMSException {
+			return -operand.longValue(target);
+		}
+
+		@Override
+		double doubleValue(SelectorTarget target) throws JMSException {
+			return -operand.doubleValue(target);
+		}
+
+		@Override
+		boolean isConstant() {
+			return operand.isConstant();
+		}
+
+		@Override
+		public String toString() {
+			return "-" + operand;
+		}
+	}
+
+	/**
+	 * A binary arithmetic operation. The result is {@code NULL} if either
+	 * operand is not numeric, an exact numeric value if both operands are
+	 * exact, and an approximate numeric value otherwise.
+	 */
+	abstract static class Arithmetic extends Expression {
+
+		final Expression left;
+
+		final Expression right;
+
+		Arithmetic(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		abstract long apply(long a, long b);
+
+		abstract double apply(double a, double b);
+
+		abstract String operator();
+
+		@Override
+		int type(SelectorTarget target) throws JMSException {
+			int leftType = left.type(target);
+			if (!isNumeric(leftType)) {
+				return TYPE_NULL;
+			}
+			int rightType = right.type(target);
+			if (!isNumeric(rightType)) {
+				return TYPE_NULL;
+			}
+			return leftType == TYPE_LONG && rightType == TYPE_LONG ? TYPE_LONG : TYPE_DOUBLE;
+		}
+
+		@Override
+		long longValue(SelectorTarget target) throws JMSException {
+			return apply(left.longValue(target), right.longValue(target));
+		}
+
+		@Override
+		double doubleValue(SelectorTarget target) throws JMSException {
+			if (left.type(target) == TYPE_LONG && right.type(target) == TYPE_LONG) {
+				return longValue(target);
+			}
+			return apply(left.doubleValue(target), right.doubleValue(target));
+		}
+
+		@Override
+		boolean isConstant() {
+			return left.isConstant() && right.isConstant();
+		}
+
+		@Override
+		public String toString() {
+			return "(" + left + " " + operator() + " " + right + ")";
+		}
+	}
+
+	static final class Add extends Arithmetic {
+
+		Add(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		long apply(long a, long b) {
+			return a + b;
+		}
+
+		@Override
+		double apply(double a, double b) {
+			return a + b;
+		}
+
+		@Override
+		String operator() {
+			return "+";
+		}
+	}
+
+	static final class Subtract extends Arithmetic {
+
+		Subtract(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		long apply(long a, long b) {
+			return a - b;
+		}
+
+		@Override
+		double apply(double a, double b) {
+			return a - b;
+		}
+
+		@Override
+		String operator() {
+			return "-";
+		}
+	}
+
+	static final class Multiply extends Arithmetic {
+
+		Multiply(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		long apply(long a, long b) {
+			return a * b;
+		}
+
+		@Override
+		double apply(double a, double b) {
+			return a * b;
+		}
+
+		@Override
+		String operator() {
+			return "*";
+		}
+	}
+
+	/**
+	 * Division. Integer division by zero gives a {@code NULL} result rather
+	 * than an exception.
+	 */
+	static final class Divide extends Arithmetic {
+
+		Divide(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		int type(SelectorTarget target) throws JMSException {
+			int type = super.type(target);
+			if (type == TYPE_LONG && right.longValue(target) == 0) {
+				return TYPE_NULL;
+			}
+			return type;
+		}
+
+		@Override
+		long apply(long a, long b) {
+			return a / b;
+		}
+
+		@Override
+		double apply(double a, double b) {
+			return a / b;
+		}
+
+		@Override
+		String operator() {
+			return "/";
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import javax.jms.InvalidSelectorException;
+
+/**
+ * A compiled {@code LIKE} pattern.
+ * <p>
+ * Patterns of the common forms {@code 'abc'}, {@code 'abc%'},
+ * {@code '%abc'} and {@code '%abc%'} are matched using the corresponding
+ * {@code String} method. Any other pattern is matched by a general matcher
+ * which does not create any objects.
+ */
+abstract class LikePattern {
+
+	private static final int ANY_SEQUENCE = -1;
+
+	private static final int ANY_CHARACTER = -2;
+
+	private final String text;
+
+	LikePattern(String text) {
+		this.text = text;
+	}
+
+	abstract boolean matches(String value);
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+	/**
+	 * Compiles a pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern, without the enclosing quotes
+	 * @param escape
+	 *            the escape character, or -1 if there is none
+	 * @param text
+	 *            the text of the pattern and escape clause, for
+	 *            {@code toString}
+	 */
+	static LikePattern compile(String pattern, int escape, String text) throws InvalidSelectorException {
+		int[] codes = new int[pattern.length()];
+		int length = 0;
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c == escape) {
+				if (++i == pattern.length()) {
+					throw new InvalidSelectorException("LIKE pattern " + text + " ends with the escape character");
+				}
+				codes[length++] = pattern.charAt(i);
+			} else if (c == '%') {
+				// consecutive % are equivalent to one
+				if (length == 0 || codes[length - 1] != ANY_SEQUENCE) {
+					codes[length++] = ANY_SEQUENCE;
+				}
+			} else if (c == '_') {
+				codes[length++] = ANY_CHARACTER;
+			} else {
+				codes[length++] = c;
+			}
+		}
+
+		int wildcards = 0;
+		boolean anyCharacter = false;
+		for (int i = 0; i < length; i++) {
+			if (codes[i] == ANY_SEQUENCE) {
+				wildcards++;
+			} else if (codes[i] == ANY_CHARACTER) {
+				anyCharacter = true;
+			}
+		}
+		if (!anyCharacter) {
+			boolean leading = length > 0 && codes[0] == ANY_SEQUENCE;
+			boolean trailing = length > 0 && codes[length - 1] == ANY_SEQUENCE;
+			if (wildcards == 0) {
+				return new Exact(text, literal(codes, 0, length));
+			} else if (wildcards == 1 && trailing) {
+				return new Prefix(text, literal(codes, 0, length - 1));
+			} else if (wildcards == 1 && leading) {
+				return new Suffix(text, literal(codes, 1, length));
+			} else if (wildcards == 2 && leading && trailing && length > 1) {
+				return new Contains(text, literal(codes, 1, length - 1));
+			}
+		}
+		int[] trimmed = new int[length];
+		System.arraycopy(codes, 0, trimmed, 0, length);
+		return new General(text, trimmed);
+	}
+
+	private static String literal(int[] codes, int from, int to) {
+		StringBuilder sb = new StringBuilder(to - from);
+		for (int i = from; i < to; i++) {
+			sb.append((char) codes[i]);
+		}
+		return sb.toString();
+	}
+
+	static final class Exact extends LikePattern {
+
+		private final String literal;
+
+		Exact(String text, String literal) {
+			super(text);
+			this.literal = literal;
+		}
+
+		@Override
+		boolean matches(String value) {
+			return literal.equals(value);
+		}
+	}
+
+	static final class Prefix extends LikePattern {
+
+		private final String prefix;
+
+		Prefix(String text, String prefix) {
+			super(text);
+			this.prefix = prefix;
+		}
+
+		@Override
+		boolean matches(String value) {
+			return value.startsWith(prefix);
+		}
+	}
+
+	static final class Suffix extends LikePattern {
+
+		private final String suffix;
+
+		Suffix(String text, String suffix) {
+			super(text);
+			this.suffix = suffix;
+		}
+
+		@Override
+		boolean matches(String value) {
+			return value.endsWith(suffix);
+		}
+	}
+
+	static final class Contains extends LikePattern {
+
+		private final String infix;
+
+		Contains(String text, String infix) {
+			super(text);
+			this.infix = infix;
+		}
+
+		@Override
+		boolean matches(String value) {
+			return value.contains(infix);
+		}
+	}
+
+	/**
+	 * Matches any pattern. Backtracking is limited to the most recent
+	 * {@code %}, which is sufficient because a later {@code %} can match
+	 * anything an earlier one could.
+	 */
+	static final class General extends LikePattern {
+
+		private final int[] codes;
+
+		General(String text, int[] codes) {
+			super(text);
+			this.codes = codes;
+		}
+
+		@Override
+		boolean matches(String value) {
+			int p = 0;
+			int v = 0;
+			int starP = -1;
+			int starV = 0;
+			while (v < value.length()) {
+				if (p < codes.length && (codes[p] == ANY_CHARACTER || codes[p] == value.charAt(v))) {
+					p++;
+					v++;
+				} else if (p < codes.length && codes[p] == ANY_SEQUENCE) {
+					starP = p++;
+					starV = v;
+				} else if (starP >= 0) {
+					p = starP + 1;
+					v = ++starV;
+				} else {
+					return false;
+				}
+			}
+			while (p < codes.length && codes[p] == ANY_SEQUENCE) {
+				p++;
+			}
+			return p == codes.length;
+		}
+	}
+}
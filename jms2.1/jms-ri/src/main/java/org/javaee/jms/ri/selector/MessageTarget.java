@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * A {@code SelectorTarget} which obtains header field and property values
+ * from any {@code javax.jms.Message}.
+ * <p>
+ * Since the {@code Message} interface does not define a way to find the type
+ * of a property without obtaining its value as an object, this class calls
+ * {@code getObjectProperty} once for each property that is used. A JMS
+ * provider which wishes to evaluate selectors without creating any objects
+ * should implement {@code SelectorTarget} directly against its own message
+ * representation.
+ * <p>
+ * A {@code MessageTarget} may be reused for a different message by calling
+ * {@code setMessage}. It must not be used by more than one thread at a time.
+ */
+public final class MessageTarget implements SelectorTarget {
+
+	private Message message;
+
+	private SelectorKey lastKey;
+
+	private Object lastValue;
+
+	/**
+	 * Creates a {@code MessageTarget} for the specified message.
+	 * 
+	 * @param message
+	 *            the message
+	 */
+	public MessageTarget(Message message) {
+		this.message = message;
+	}
+
+	/**
+	 * Sets the message whose values are returned by this
+	 * {@code MessageTarget}.
+	 * 
+	 * @param message
+	 *            the message
+	 */
+	public void setMessage(Message message) {
+		this.message = message;
+		lastKey = null;
+		lastValue = null;
+	}
+
+	@Override
+	public int getType(SelectorKey key) throws JMSException {
+		Object value = valueOf(key);
+		if (value == null) {
+			return TYPE_NULL;
+		} else if (value instanceof String) {
+			return TYPE_STRING;
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			return TYPE_LONG;
+		} else if (value instanceof Double || value instanceof Float) {
+			return TYPE_DOUBLE;
+		} else if (value instanceof Boolean) {
+			return TYPE_BOOLEAN;
+		} else {
+			return TYPE_NULL;
+		}
+	}
+
+	@Override
+	public boolean getBoolean(SelectorKey key) throws JMSException {
+		return (Boolean) valueOf(key);
+	}
+
+	@Override
+	public long getLong(SelectorKey key) throws JMSException {
+		return ((Number) valueOf(key)).longValue();
+	}
+
+	@Override
+	public double getDouble(SelectorKey key) throws JMSException {
+		return ((Number) valueOf(key)).doubleValue();
+	}
+
+	@Override
+	public String getString(SelectorKey key) throws JMSException {
+		return (String) valueOf(key);
+	}
+
+	private Object valueOf(SelectorKey key) throws JMSException {
+		if (key != lastKey) {
+			lastValue = lookup(key);
+			lastKey = key;
+		}
+		return lastValue;
+	}
+
+	private Object lookup(SelectorKey key) throws JMSException {
+		if (key == JMS_DELIVERY_MODE) {
+			return message.getJMSDeliveryMode() == DeliveryMode.PERSISTENT ? "PERSISTENT" : "NON_PERSISTENT";
+		} else if (key == JMS_PRIORITY) {
+			return message.getJMSPriority();
+		} else if (key == JMS_MESSAGE_ID) {
+			return message.getJMSMessageID();
+		} else if (key == JMS_TIMESTAMP) {
+			return message.getJMSTimestamp();
+		} else if (key == JMS_CORRELATION_ID) {
+			return message.getJMSCorrelationID();
+		} else if (key == JMS_TYPE) {
+			return message.getJMSType();
+		}
+		return message.getObjectProperty(key.getName());
+	}
+}
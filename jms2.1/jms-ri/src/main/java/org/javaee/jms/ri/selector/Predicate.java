@@ -0,0 +1,526 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_BOOLEAN;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_LONG;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_NULL;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_STRING;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jms.JMSException;
+
+/**
+ * A node of a compiled selector which computes a conditional value using
+ * three-valued logic. The result of {@code evaluate} is one of {@code TRUE},
+ * {@code FALSE} or {@code UNKNOWN}.
+ * <p>
+ * Each kind of node is a separate final class, so that each call site in the
+ * tree sees a single implementation.
+ */
+abstract class Predicate {
+
+	static final int FALSE = 0;
+
+	static final int TRUE = 1;
+
+	static final int UNKNOWN = 2;
+
+	abstract int evaluate(SelectorTarget target) throws JMSException;
+
+	static int valueOf(boolean b) {
+		return b ? TRUE : FALSE;
+	}
+
+	static final class And extends Predicate {
+
+		final Predicate left;
+
+		final Predicate right;
+
+		And(Predicate left, Predicate right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int l = left.evaluate(target);
+			if (l == FALSE) {
+				return FALSE;
+			}
+			int r = right.evaluate(target);
+			if (r == FALSE) {
+				return FALSE;
+			}
+			return l == TRUE && r == TRUE ? TRUE : UNKNOWN;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + left + " AND " + right + ")";
+		}
+	}
+
+	static final class Or extends Predicate {
+
+		final Predicate left;
+
+		final Predicate right;
+
+		Or(Predicate left, Predicate right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int l = left.evaluate(target);
+			if (l == TRUE) {
+				return TRUE;
+			}
+			int r = right.evaluate(target);
+			if (r == TRUE) {
+				return TRUE;
+			}
+			return l == FALSE && r == FALSE ? FALSE : UNKNOWN;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + left + " OR " + right + ")";
+		}
+	}
+
+	static final class Not extends Predicate {
+
+		final Predicate operand;
+
+		Not(Predicate operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			switch (operand.evaluate(target)) {
+			case TRUE:
+				return FALSE;
+			case FALSE:
+				return TRUE;
+			default:
+				return UNKNOWN;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "(NOT " + operand + ")";
+		}
+	}
+
+	/**
+	 * A boolean identifier or literal used as a conditional expression. The
+	 * result is unknown if the value is {@code NULL} or is not a boolean.
+	 */
+	static final class BooleanTest extends Predicate {
+
+		final Expression operand;
+
+		BooleanTest(Expression operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int type = operand.type(target);
+			if (type == TYPE_BOOLEAN) {
+				return valueOf(operand.booleanValue(target));
+			}
+			return UNKNOWN;
+		}
+
+		@Override
+		public String toString() {
+			return operand.toString();
+		}
+	}
+
+	/**
+	 * A comparison of two values. The result is unknown if either value is
+	 * {@code NULL}, and false if the values are not of like type. Exact and
+	 * approximate numeric values are compared using numeric promotion.
+	 * Strings and booleans may only be compared for equality.
+	 */
+	abstract static class Comparison extends Predicate {
+
+		final Expression left;
+
+		final Expression right;
+
+		Comparison(Expression left, Expression right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		abstract boolean test(long a, long b);
+
+		abstract boolean test(double a, double b);
+
+		abstract String operator();
+
+		/**
+		 * Compares two non-numeric values of the same type. Only equality
+		 * comparisons support these.
+		 */
+		int testOther(int type, SelectorTarget target) throws JMSException {
+			return FALSE;
+		}
+
+		@Override
+		final int evaluate(SelectorTarget target) throws JMSException {
+			int leftType = left.type(target);
+			if (leftType == TYPE_NULL) {
+				return UNKNOWN;
+			}
+			int rightType = right.type(target);
+			if (rightType == TYPE_NULL) {
+				return UNKNOWN;
+			}
+			if (leftType == TYPE_LONG && rightType == TYPE_LONG) {
+				return valueOf(test(left.longValue(target), right.longValue(target)));
+			}
+			if (Expression.isNumeric(leftType) && Expression.isNumeric(rightType)) {
+				return valueOf(test(left.doubleValue(target), right.doubleValue(target)));
+			}
+			if (leftType == rightType) {
+				return testOther(leftType, target);
+			}
+			return FALSE;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + left + " " + operator() + " " + right + ")";
+		}
+	}
+
+	static final class Equal extends Comparison {
+
+		Equal(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a == b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a == b;
+		}
+
+		@Override
+		int testOther(int type, SelectorTarget target) throws JMSException {
+			if (type == TYPE_STRING) {
+				return valueOf(left.stringValue(target).equals(right.stringValue(target)));
+			}
+			return valueOf(left.booleanValue(target) == right.booleanValue(target));
+		}
+
+		@Override
+		String operator() {
+			return "=";
+		}
+	}
+
+	static final class NotEqual extends Comparison {
+
+		NotEqual(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a != b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a != b;
+		}
+
+		@Override
+		int testOther(int type, SelectorTarget target) throws JMSException {
+			if (type == TYPE_STRING) {
+				return valueOf(!left.stringValue(target).equals(right.stringValue(target)));
+			}
+			return valueOf(left.booleanValue(target) != right.booleanValue(target));
+		}
+
+		@Override
+		String operator() {
+			return "<>";
+		}
+	}
+
+	static final class Less extends Comparison {
+
+		Less(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a < b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a < b;
+		}
+
+		@Override
+		String operator() {
+			return "<";
+		}
+	}
+
+	static final class LessOrEqual extends Comparison {
+
+		LessOrEqual(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a <= b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a <= b;
+		}
+
+		@Override
+		String operator() {
+			return "<=";
+		}
+	}
+
+	static final class Greater extends Comparison {
+
+		Greater(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a > b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a > b;
+		}
+
+		@Override
+		String operator() {
+			return ">";
+		}
+	}
+
+	static final class GreaterOrEqual extends Comparison {
+
+		GreaterOrEqual(Expression left, Expression right) {
+			super(left, right);
+		}
+
+		@Override
+		boolean test(long a, long b) {
+			return a >= b;
+		}
+
+		@Override
+		boolean test(double a, double b) {
+			return a >= b;
+		}
+
+		@Override
+		String operator() {
+			return ">=";
+		}
+	}
+
+	/**
+	 * The comparison {@code identifier = 'literal'}, which is the most common
+	 * form of selector and so is evaluated without the general type dispatch
+	 * of {@code Equal}.
+	 */
+	static final class StringEquals extends Predicate {
+
+		final SelectorKey key;
+
+		final String value;
+
+		StringEquals(SelectorKey key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int type = target.getType(key);
+			if (type == TYPE_STRING) {
+				return valueOf(value.equals(target.getString(key)));
+			}
+			return type == TYPE_NULL ? UNKNOWN : FALSE;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + key.getName() + " = '" + value.replace("'", "''") + "')";
+		}
+	}
+
+	/**
+	 * {@code identifier [NOT] IN (...)}. The result is unknown if the value
+	 * is {@code NULL} or is not a string, whether or not the test is negated,
+	 * so that {@code NOT IN} gives the same result as {@code NOT} applied to
+	 * {@code IN}.
+	 */
+	static final class In extends Predicate {
+
+		final SelectorKey key;
+
+		final Set<String> values;
+
+		final boolean negated;
+
+		In(SelectorKey key, String[] values, boolean negated) {
+			this.key = key;
+			this.values = new HashSet<String>(Arrays.asList(values));
+			this.negated = negated;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int type = target.getType(key);
+			if (type == TYPE_STRING) {
+				return valueOf(values.contains(target.getString(key)) != negated);
+			}
+			return UNKNOWN;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("(").append(key.getName());
+			sb.append(negated ? " NOT IN (" : " IN (");
+			String separator = "";
+			for (String value : values) {
+				sb.append(separator).append('\'').append(value.replace("'", "''")).append('\'');
+				separator = ", ";
+			}
+			return sb.append("))").toString();
+		}
+	}
+
+	/**
+	 * {@code identifier [NOT] LIKE pattern [ESCAPE escape]}. As for
+	 * {@code In}, the result is unknown if the value is {@code NULL} or is not
+	 * a string.
+	 */
+	static final class Like extends Predicate {
+
+		final SelectorKey key;
+
+		final LikePattern pattern;
+
+		final boolean negated;
+
+		Like(SelectorKey key, LikePattern pattern, boolean negated) {
+			this.key = key;
+			this.pattern = pattern;
+			this.negated = negated;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			int type = target.getType(key);
+			if (type == TYPE_STRING) {
+				return valueOf(pattern.matches(target.getString(key)) != negated);
+			}
+			return UNKNOWN;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + key.getName() + (negated ? " NOT LIKE " : " LIKE ") + pattern + ")";
+		}
+	}
+
+	/**
+	 * {@code identifier IS [NOT] NULL}
+	 */
+	static final class IsNull extends Predicate {
+
+		final Expression operand;
+
+		final boolean negated;
+
+		IsNull(Expression operand, boolean negated) {
+			this.operand = operand;
+			this.negated = negated;
+		}
+
+		@Override
+		int evaluate(SelectorTarget target) throws JMSException {
+			return valueOf((operand.type(target) == TYPE_NULL) != negated);
+		}
+
+		@Override
+		public String toString() {
+			return "(" + operand + (negated ? " IS NOT NULL)" : " IS NULL)");
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import javax.jms.CompiledSelector;
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * A reference implementation of the message selector language described in
+ * {@code javax.jms.Message}.
+ * <p>
+ * A selector is compiled once, using {@code compile}, into a tree of predicate
+ * and expression nodes. Each kind of node is a separate final class with a
+ * small evaluation method, so a JIT compiler sees a single implementation at
+ * each call site and can inline the whole tree. Values are obtained from a
+ * {@code SelectorTarget} as primitives, so evaluating a selector against a
+ * message whose properties are not stored as objects creates no garbage.
+ * <p>
+ * The following are performed when the selector is compiled rather than for
+ * each message:
+ * <ul>
+ * <li>the syntax is checked, as are references to header fields which may not
+ * be used in a selector;
+ * <li>arithmetic on literals is evaluated;
+ * <li>{@code LIKE} patterns are compiled, and patterns which only have a
+ * leading or trailing {@code %} are matched using {@code startsWith},
+ * {@code endsWith} or {@code contains};
+ * <li>the string literals of an {@code IN} list are placed in a hash set;
+ * <li>comparisons of an identifier with a string literal for equality are
+ * replaced by a node which only needs to test for a string.
+ * </ul>
+ * <p>
+ * A {@code Selector} is immutable and may be used by any number of threads.
+ * 
+ * @see org.javaee.jms.ri.selector.SelectorIndex
+ */
+public final class Selector implements CompiledSelector {
+
+	private final String text;
+
+	private final Predicate root;
+
+	private Selector(String text, Predicate root) {
+		this.text = text;
+		this.root = root;
+	}
+
+	/**
+	 * Compiles the specified message selector.
+	 * 
+	 * @param selector
+	 *            the message selector expression
+	 * @return the compiled selector
+	 * @throws InvalidSelectorException
+	 *             if the selector is null, empty or not valid
+	 */
+	public static Selector compile(String selector) throws InvalidSelectorException {
+		if (selector == null || selector.trim().isEmpty()) {
+			throw new InvalidSelectorException("The message selector is null or empty");
+		}
+		return new Selector(selector, new SelectorParser(selector).parse());
+	}
+
+	Predicate getRoot() {
+		return root;
+	}
+
+	@Override
+	public String getSelectorText() {
+		return text;
+	}
+
+	/**
+	 * Evaluates this selector against the specified message, using a
+	 * {@code MessageTarget} to obtain its values.
+	 * 
+	 * @param message
+	 *            the message to test
+	 * @return true if the message matches this selector, false otherwise
+	 * @throws JMSException
+	 *             if a value cannot be obtained from the message
+	 */
+	@Override
+	public boolean matches(Message message) throws JMSException {
+		return matches(new MessageTarget(message));
+	}
+
+	/**
+	 * Evaluates this selector against the values returned by the specified
+	 * {@code SelectorTarget}.
+	 * 
+	 * @param target
+	 *            the source of header field and property values
+	 * @return true if the selector evaluates to true, false if it evaluates to
+	 *         false or unknown
+	 * @throws JMSException
+	 *             if the target fails to return a value
+	 */
+	public boolean matches(SelectorTarget target) throws JMSException {
+		return root.evaluate(target) == Predicate.TRUE;
+	}
+
+	/**
+	 * Returns the text of this selector.
+	 * 
+	 * @return the text of this selector
+	 */
+	@Override
+	public String toString() {
+		return text;
+	}
+}
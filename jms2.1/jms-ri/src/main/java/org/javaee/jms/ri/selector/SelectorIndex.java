@@ -0,0 +1,505 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_DOUBLE;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_LONG;
+import static org.javaee.jms.ri.selector.SelectorTarget.TYPE_STRING;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import javax.jms.JMSException;
+
+/**
+ * An index of the subscribers to a topic, keyed by the predicates in their
+ * message selectors, which allows the subscribers whose selectors match a
+ * message to be found without evaluating the selector of every subscriber.
+ * <p>
+ * When a subscriber is added, its selector is divided into the terms which are
+ * combined using {@code AND} at the top level, and one of those terms is
+ * chosen as its anchor. In order of preference the anchor is:
+ * <ul>
+ * <li>a comparison for equality of an identifier with a string or exact
+ * numeric literal, such as {@code symbol = 'X'};
+ * <li>an {@code IN} comparison;
+ * <li>a range comparison of an identifier with a numeric literal, such as
+ * {@code price > 100}, including those resulting from {@code BETWEEN}.
+ * </ul>
+ * The subscriber is then stored under the anchor's identifier and literal
+ * values. When a message is dispatched, the index looks up the message's value
+ * of each indexed identifier and only evaluates the selectors of the
+ * subscribers stored under that value. For an equality or {@code IN} anchor
+ * only the remaining terms of the selector need to be evaluated, so a
+ * subscriber whose selector consists of a single equality comparison is found
+ * by a hash lookup alone. Subscribers whose selector has no suitable term, and
+ * subscribers with no selector, are checked for every message.
+ * <p>
+ * Subscribers may be added and removed while messages are being dispatched.
+ * A message which is being dispatched at the time a subscriber is added or
+ * removed may or may not be given to that subscriber.
+ * 
+ * @param <T>
+ *            the type used to represent a subscriber
+ */
+public final class SelectorIndex<T> {
+
+	private final ConcurrentMap<T, Entry<T>> entries = new ConcurrentHashMap<T, Entry<T>>();
+
+	private final Map<SelectorKey, PropertyIndex<T>> propertyIndexes = new ConcurrentHashMap<SelectorKey, PropertyIndex<T>>();
+
+	/**
+	 * The property indexes, as an array so that dispatching a message does not
+	 * need to create an iterator
+	 */
+	private volatile PropertyIndex<?>[] properties = new PropertyIndex<?>[0];
+
+	private final Bucket<T> unindexed = new Bucket<T>();
+
+	/**
+	 * Adds a subscriber to the index, replacing any existing entry for the same
+	 * subscriber.
+	 * 
+	 * @param subscriber
+	 *            the subscriber
+	 * @param selector
+	 *            the subscriber's message selector, or null if it has none
+	 */
+	public synchronized void add(T subscriber, Selector selector) {
+		remove(subscriber);
+		Entry<T> entry = new Entry<T>(subscriber, selector == null ? null : selector.getRoot());
+		if (entry.predicate != null) {
+			List<Predicate> terms = new ArrayList<Predicate>();
+			flatten(entry.predicate, terms);
+			int best = -1;
+			int bestRank = 0;
+			for (int i = 0; i < terms.size(); i++) {
+				int rank = rank(terms.get(i));
+				if (rank > bestRank) {
+					best = i;
+					bestRank = rank;
+				}
+			}
+			if (best >= 0) {
+				entry.anchor = terms.remove(best);
+				entry.residual = conjunction(terms);
+			}
+		}
+		if (entry.anchor == null) {
+			unindexed.add(entry);
+		} else {
+			indexFor(anchorKey(entry.anchor)).add(entry);
+		}
+		entries.put(subscriber, entry);
+	}
+
+	/**
+	 * Removes a subscriber from the index.
+	 * 
+	 * @param subscriber
+	 *            the subscriber
+	 * @return true if the subscriber was in the index
+	 */
+	public synchronized boolean remove(T subscriber) {
+		Entry<T> entry = entries.remove(subscriber);
+		if (entry == null) {
+			return false;
+		}
+		if (entry.anchor == null) {
+			unindexed.remove(entry);
+		} else {
+			propertyIndexes.get(anchorKey(entry.anchor)).remove(entry);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of subscribers in the index.
+	 * 
+	 * @return the number of subscribers in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Calls the specified action for each subscriber whose selector matches the
+	 * message with the specified values. The action is called in the calling
+	 * thread, and at most once for each subscriber.
+	 * 
+	 * @param target
+	 *            the values of the message
+	 * @param action
+	 *            the action to be called for each matching subscriber
+	 * @throws JMSException
+	 *             if the target fails to return a value
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachMatch(SelectorTarget target, Consumer<? super T> action) throws JMSException {
+		for (Entry<T> entry : unindexed.entries) {
+			if (entry.predicate == null || entry.predicate.evaluate(target) == Predicate.TRUE) {
+				action.accept(entry.subscriber);
+			}
+		}
+		for (PropertyIndex<?> index : properties) {
+			((PropertyIndex<T>) index).forEachMatch(target, action);
+		}
+	}
+
+	private PropertyIndex<T> indexFor(SelectorKey key) {
+		PropertyIndex<T> index = propertyIndexes.get(key);
+		if (index == null) {
+			index = new PropertyIndex<T>(key);
+			propertyIndexes.put(key, index);
+			PropertyIndex<?>[] newProperties = Arrays.copyOf(properties, properties.length + 1);
+			newProperties[properties.length] = index;
+			properties = newProperties;
+		}
+		return index;
+	}
+
+	private static void flatten(Predicate predicate, List<Predicate> terms) {
+		if (predicate instanceof Predicate.And) {
+			flatten(((Predicate.And) predicate).left, terms);
+			flatten(((Predicate.And) predicate).right, terms);
+		} else {
+			terms.add(predicate);
+		}
+	}
+
+	private static Predicate conjunction(List<Predicate> terms) {
+		Predicate result = null;
+		for (Predicate term : terms) {
+			result = result == null ? term : new Predicate.And(result, term);
+		}
+		return result;
+	}
+
+	private static final int RANK_RANGE = 1;
+
+	private static final int RANK_IN = 2;
+
+	private static final int RANK_EQUALITY = 3;
+
+	/**
+	 * Returns how useful a term is as an anchor, or 0 if it cannot be used.
+	 */
+	private static int rank(Predicate term) {
+		if (term instanceof Predicate.StringEquals) {
+			return RANK_EQUALITY;
+		} else if (term instanceof Predicate.In) {
+			return ((Predicate.In) term).negated ? 0 : RANK_IN;
+		} else if (term instanceof Predicate.Equal) {
+			Predicate.Comparison c = (Predicate.Comparison) term;
+			return identifier(c) != null && literal(c) instanceof Expression.LongLiteral ? RANK_EQUALITY : 0;
+		} else if (isRange(term)) {
+			Predicate.Comparison c = (Predicate.Comparison) term;
+			Expression literal = literal(c);
+			return identifier(c) != null
+					&& (literal instanceof Expression.LongLiteral || literal instanceof Expression.DoubleLiteral)
+							? RANK_RANGE : 0;
+		}
+		return 0;
+	}
+
+	private static boolean isRange(Predicate term) {
+		return term instanceof Predicate.Less || term instanceof Predicate.LessOrEqual
+				|| term instanceof Predicate.Greater || term instanceof Predicate.GreaterOrEqual;
+	}
+
+	/**
+	 * Returns the identifier of a comparison between an identifier and a
+	 * literal, or null.
+	 */
+	private static Expression.Identifier identifier(Predicate.Comparison c) {
+		if (c.left instanceof Expression.Identifier && c.right.isConstant()) {
+			return (Expression.Identifier) c.left;
+		} else if (c.right instanceof Expression.Identifier && c.left.isConstant()) {
+			return (Expression.Identifier) c.right;
+		}
+		return null;
+	}
+
+	private static Expression literal(Predicate.Comparison c) {
+		return c.left instanceof Expression.Identifier ? c.right : c.left;
+	}
+
+	private static SelectorKey anchorKey(Predicate anchor) {
+		if (anchor instanceof Predicate.StringEquals) {
+			return ((Predicate.StringEquals) anchor).key;
+		} else if (anchor instanceof Predicate.In) {
+			return ((Predicate.In) anchor).key;
+		}
+		return identifier((Predicate.Comparison) anchor).getKey();
+	}
+
+	private static double doubleValue(Expression literal) {
+		return literal instanceof Expression.LongLiteral ? ((Expression.LongLiteral) literal).getValue()
+				: ((Expression.DoubleLiteral) literal).getValue();
+	}
+
+	/**
+	 * A subscriber, its selector, and the part of the selector used to index
+	 * it.
+	 */
+	private static final class Entry<T> {
+
+		final T subscriber;
+
+		/** the whole selector, or null if there is no selector */
+		final Predicate predicate;
+
+		/** the term used to index the subscriber, or null if not indexed */
+		Predicate anchor;
+
+		/** the other terms of the selector, or null if there are none */
+		Predicate residual;
+
+		Entry(T subscriber, Predicate predicate) {
+			this.subscriber = subscriber;
+			this.predicate = predicate;
+		}
+	}
+
+	/**
+	 * A set of entries which may be iterated without locking or creating an
+	 * iterator. Modifications copy the array and are made while holding the
+	 * lock of the {@code SelectorIndex}.
+	 */
+	private static final class Bucket<T> {
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		volatile Entry<T>[] entries = new Entry[0];
+
+		void add(Entry<T> entry) {
+			Entry<T>[] newEntries = Arrays.copyOf(entries, entries.length + 1);
+			newEntries[entries.length] = entry;
+			entries = newEntries;
+		}
+
+		boolean remove(Entry<T> entry) {
+			Entry<T>[] old = entries;
+			for (int i = 0; i < old.length; i++) {
+				if (old[i] == entry) {
+					Entry<T>[] newEntries = Arrays.copyOf(old, old.length - 1);
+					System.arraycopy(old, i + 1, newEntries, i, old.length - i - 1);
+					entries = newEntries;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		boolean isEmpty() {
+			return entries.length == 0;
+		}
+	}
+
+	/**
+	 * The entries whose anchor tests a single identifier.
+	 */
+	private static final class PropertyIndex<T> {
+
+		/** the magnitude below which every long can be represented exactly as a double */
+		private static final double EXACT_DOUBLE_LIMIT = 1L << 53;
+
+		final SelectorKey key;
+
+		final ConcurrentMap<String, Bucket<T>> strings = new ConcurrentHashMap<String, Bucket<T>>();
+
+		final ConcurrentMap<Long, Bucket<T>> longs = new ConcurrentHashMap<Long, Bucket<T>>();
+
+		/** entries whose anchor requires the value to be above a bound */
+		final ConcurrentSkipListMap<Double, Bucket<T>> lowerBounds = new ConcurrentSkipListMap<Double, Bucket<T>>();
+
+		/** entries whose anchor requires the value to be below a bound */
+		final ConcurrentSkipListMap<Double, Bucket<T>> upperBounds = new ConcurrentSkipListMap<Double, Bucket<T>>();
+
+		PropertyIndex(SelectorKey key) {
+			this.key = key;
+		}
+
+		void add(Entry<T> entry) {
+			Predicate anchor = entry.anchor;
+			if (anchor instanceof Predicate.StringEquals) {
+				bucket(strings, ((Predicate.StringEquals) anchor).value).add(entry);
+			} else if (anchor instanceof Predicate.In) {
+				for (String value : ((Predicate.In) anchor).values) {
+					bucket(strings, value).add(entry);
+				}
+			} else if (anchor instanceof Predicate.Equal) {
+				Expression literal = literal((Predicate.Comparison) anchor);
+				bucket(longs, ((Expression.LongLiteral) literal).getValue()).add(entry);
+			} else {
+				Predicate.Comparison c = (Predicate.Comparison) anchor;
+				bucket(isLowerBound(c) ? lowerBounds : upperBounds, doubleValue(literal(c))).add(entry);
+			}
+		}
+
+		void remove(Entry<T> entry) {
+			Predicate anchor = entry.anchor;
+			if (anchor instanceof Predicate.StringEquals) {
+				remove(strings, ((Predicate.StringEquals) anchor).value, entry);
+			} else if (anchor instanceof Predicate.In) {
+				for (String value : ((Predicate.In) anchor).values) {
+					remove(strings, value, entry);
+				}
+			} else if (anchor instanceof Predicate.Equal) {
+				Expression literal = literal((Predicate.Comparison) anchor);
+				remove(longs, ((Expression.LongLiteral) literal).getValue(), entry);
+			} else {
+				Predicate.Comparison c = (Predicate.Comparison) anchor;
+				remove(isLowerBound(c) ? lowerBounds : upperBounds, doubleValue(literal(c)), entry);
+			}
+		}
+
+		/**
+		 * Returns whether a range comparison requires the identifier to be
+		 * greater than the literal, taking account of which side of the
+		 * operator the identifier is on.
+		 */
+		private static boolean isLowerBound(Predicate.Comparison c) {
+			boolean greater = c instanceof Predicate.Greater || c instanceof Predicate.GreaterOrEqual;
+			return c.left instanceof Expression.Identifier ? greater : !greater;
+		}
+
+		private static <K, T> Bucket<T> bucket(Map<K, Bucket<T>> map, K value) {
+			Bucket<T> bucket = map.get(value);
+			if (bucket == null) {
+				bucket = new Bucket<T>();
+				map.put(value, bucket);
+			}
+			return bucket;
+		}
+
+		private static <K, T> void remove(Map<K, Bucket<T>> map, K value, Entry<T> entry) {
+			Bucket<T> bucket = map.get(value);
+			if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+				map.remove(value);
+			}
+		}
+
+		void forEachMatch(SelectorTarget target, Consumer<? super T> action) throws JMSException {
+			switch (target.getType(key)) {
+			case TYPE_STRING:
+				acceptAll(strings.get(target.getString(key)), target, action);
+				break;
+			case TYPE_LONG:
+				long l = target.getLong(key);
+				if (!longs.isEmpty()) {
+					acceptAll(longs.get(l), target, action);
+				}
+				acceptRanges(l, target, action);
+				break;
+			case TYPE_DOUBLE:
+				double d = target.getDouble(key);
+				if (!longs.isEmpty() && d == Math.rint(d)) {
+					if (Math.abs(d) < EXACT_DOUBLE_LIMIT) {
+						acceptAll(longs.get((long) d), target, action);
+					} else {
+						// more than one long may be equal to d after numeric promotion
+						for (Map.Entry<Long, Bucket<T>> e : longs.entrySet()) {
+							if (e.getKey().doubleValue() == d) {
+								acceptAll(e.getValue(), target, action);
+							}
+						}
+					}
+				}
+				acceptRanges(d, target, action);
+				break;
+			default:
+				// a null or non-numeric value cannot satisfy the anchor of
+				// any entry, so none of the selectors can be true
+			}
+		}
+
+		/**
+		 * Accepts the entries of an equality bucket, for which only the
+		 * residual terms need to be evaluated.
+		 */
+		private void acceptAll(Bucket<T> bucket, SelectorTarget target, Consumer<? super T> action)
+				throws JMSException {
+			if (bucket == null) {
+				return;
+			}
+			for (Entry<T> entry : bucket.entries) {
+				if (entry.residual == null || entry.residual.evaluate(target) == Predicate.TRUE) {
+					action.accept(entry.subscriber);
+				}
+			}
+		}
+
+		private void acceptRanges(double value, SelectorTarget target, Consumer<? super T> action)
+				throws JMSException {
+			if (Double.isNaN(value)) {
+				return;
+			}
+			if (!lowerBounds.isEmpty()) {
+				for (Bucket<T> bucket : lowerBounds.headMap(value, true).values()) {
+					acceptRange(bucket, target, action);
+				}
+			}
+			if (!upperBounds.isEmpty()) {
+				for (Bucket<T> bucket : upperBounds.tailMap(value, true).values()) {
+					acceptRange(bucket, target, action);
+				}
+			}
+		}
+
+		/**
+		 * Accepts the entries of a range bucket, for which the whole selector
+		 * must be evaluated since the bucket only holds candidates.
+		 */
+		private void acceptRange(Bucket<T> bucket, SelectorTarget target, Consumer<? super T> action)
+				throws JMSException {
+			for (Entry<T> entry : bucket.entries) {
+				if (entry.predicate.evaluate(target) == Predicate.TRUE) {
+					action.accept(entry.subscriber);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import javax.jms.PropertyKey;
+
+/**
+ * The name of a header field or property which is used in a message selector.
+ * A {@code SelectorTarget} is passed a {@code SelectorKey} to identify the
+ * value which the selector needs.
+ * <p>
+ * Unlike a {@code PropertyKey}, a {@code SelectorKey} is not registered
+ * globally. Each selector has its own keys, which are discarded with it, so
+ * compiling selectors which use arbitrary property names does not create
+ * objects which are never discarded. A {@code SelectorTarget} which stores
+ * properties using {@code PropertyKey} objects may call
+ * {@code getPropertyKey} to find the key for the name, if the application has
+ * created one.
+ * <p>
+ * The header fields which may be used in a message selector are identified by
+ * the keys defined in {@code SelectorTarget}, which may be compared by
+ * identity. Other keys are equal if they have the same name.
+ * 
+ * @see org.javaee.jms.ri.selector.SelectorTarget
+ */
+public final class SelectorKey {
+
+	private final String name;
+
+	/**
+	 * The {@code PropertyKey} for the name, once one has been found. A
+	 * {@code PropertyKey} is immutable, so it may be cached without
+	 * synchronisation.
+	 */
+	private PropertyKey propertyKey;
+
+	SelectorKey(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the header field or property.
+	 * 
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the {@code PropertyKey} for the name, or null if no
+	 * {@code PropertyKey} has been created for the name. This method never
+	 * creates a {@code PropertyKey}.
+	 * 
+	 * @return the {@code PropertyKey} for the name, or null
+	 */
+	public PropertyKey getPropertyKey() {
+		PropertyKey key = propertyKey;
+		if (key == null) {
+			key = PropertyKey.lookup(name);
+			propertyKey = key;
+		}
+		return key;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof SelectorKey && ((SelectorKey) other).name.equals(name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
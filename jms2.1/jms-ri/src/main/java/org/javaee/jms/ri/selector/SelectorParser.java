@@ -0,0 +1,572 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.jms.InvalidSelectorException;
+
+/**
+ * Parses a message selector into a tree of {@code Predicate} and
+ * {@code Expression} nodes, using the syntax described in
+ * {@code javax.jms.Message}.
+ * <p>
+ * The parser is a recursive descent parser with one method for each level of
+ * operator precedence. Since parentheses may enclose either a conditional or
+ * an arithmetic expression, the methods below the comparison level return
+ * either a {@code Predicate} or an {@code Expression}, and the caller checks
+ * that it has been given the kind it needs. Arithmetic on string or boolean
+ * literals is rejected, and arithmetic on numeric literals is evaluated when
+ * the selector is compiled. Each identifier is given a {@code SelectorKey}
+ * which is shared by every use of the identifier in the selector, but not by
+ * other selectors.
+ */
+final class SelectorParser {
+
+	// token kinds
+	private static final int EOF = 0;
+	private static final int IDENTIFIER = 1;
+	private static final int STRING = 2;
+	private static final int EXACT = 3;
+	private static final int APPROXIMATE = 4;
+	private static final int OPERATOR = 5;
+	private static final int KEYWORD = 6;
+
+	private static final String[] KEYWORDS = { "NOT", "AND", "OR", "BETWEEN", "LIKE", "IN", "IS", "ESCAPE", "NULL",
+			"TRUE", "FALSE" };
+
+	private static final SelectorKey[] HEADER_FIELDS = { SelectorTarget.JMS_DELIVERY_MODE,
+			SelectorTarget.JMS_PRIORITY, SelectorTarget.JMS_MESSAGE_ID, SelectorTarget.JMS_TIMESTAMP,
+			SelectorTarget.JMS_CORRELATION_ID, SelectorTarget.JMS_TYPE };
+
+	private final String selector;
+
+	private final Map<String, SelectorKey> keys = new HashMap<String, SelectorKey>();
+
+	private int position;
+
+	private int kind;
+
+	private String token;
+
+	private int tokenStart;
+
+	SelectorParser(String selector) {
+		this.selector = selector;
+	}
+
+	Predicate parse() throws InvalidSelectorException {
+		next();
+		Predicate result = asPredicate(parseOr());
+		if (kind != EOF) {
+			throw error("unexpected " + describe());
+		}
+		return result;
+	}
+
+	private Object parseOr() throws InvalidSelectorException {
+		Object left = parseAnd();
+		while (isKeyword("OR")) {
+			next();
+			left = new Predicate.Or(asPredicate(left), asPredicate(parseAnd()));
+		}
+		return left;
+	}
+
+	private Object parseAnd() throws InvalidSelectorException {
+		Object left = parseNot();
+		while (isKeyword("AND")) {
+			next();
+			left = new Predicate.And(asPredicate(left), asPredicate(parseNot()));
+		}
+		return left;
+	}
+
+	private Object parseNot() throws InvalidSelectorException {
+		if (isKeyword("NOT")) {
+			next();
+			return new Predicate.Not(asPredicate(parseNot()));
+		}
+		return parseComparison();
+	}
+
+	private Object parseComparison() throws InvalidSelectorException {
+		Object left = parseAdditive();
+		if (kind == OPERATOR) {
+			switch (token) {
+			case "=":
+				next();
+				return equal(asExpression(left), asExpression(parseAdditive()));
+			case "<>":
+				next();
+				return new Predicate.NotEqual(asExpression(left), asExpression(parseAdditive()));
+			case "<":
+				next();
+				return new Predicate.Less(asExpression(left), asExpression(parseAdditive()));
+			case "<=":
+				next();
+				return new Predicate.LessOrEqual(asExpression(left), asExpression(parseAdditive()));
+			case ">":
+				next();
+				return new Predicate.Greater(asExpression(left), asExpression(parseAdditive()));
+			case ">=":
+				next();
+				return new Predicate.GreaterOrEqual(asExpression(left), asExpression(parseAdditive()));
+			default:
+				return left;
+			}
+		}
+		boolean negated = false;
+		if (isKeyword("NOT")) {
+			negated = true;
+			next();
+			if (!isKeyword("BETWEEN") && !isKeyword("LIKE") && !isKeyword("IN")) {
+				throw error("expected BETWEEN, LIKE or IN but found " + describe());
+			}
+		}
+		if (isKeyword("BETWEEN")) {
+			next();
+			return between(asExpression(left), negated);
+		} else if (isKeyword("LIKE")) {
+			next();
+			return like(asIdentifier(left, "LIKE"), negated);
+		} else if (isKeyword("IN")) {
+			next();
+			return in(asIdentifier(left, "IN"), negated);
+		} else if (isKeyword("IS")) {
+			next();
+			boolean not = false;
+			if (isKeyword("NOT")) {
+				not = true;
+				next();
+			}
+			expectKeyword("NULL");
+			return new Predicate.IsNull(asIdentifier(left, "IS NULL"), not);
+		}
+		return left;
+	}
+
+	private Predicate equal(Expression left, Expression right) {
+		if (left instanceof Expression.Identifier && right instanceof Expression.StringLiteral) {
+			return new Predicate.StringEquals(((Expression.Identifier) left).getKey(),
+					((Expression.StringLiteral) right).getValue());
+		} else if (left instanceof Expression.StringLiteral && right instanceof Expression.Identifier) {
+			return new Predicate.StringEquals(((Expression.Identifier) right).getKey(),
+					((Expression.StringLiteral) left).getValue());
+		}
+		return new Predicate.Equal(left, right);
+	}
+
+	private Predicate between(Expression value, boolean negated) throws InvalidSelectorException {
+		Expression low = asExpression(parseAdditive());
+		expectKeyword("AND");
+		Expression high = asExpression(parseAdditive());
+		if (negated) {
+			return new Predicate.Or(new Predicate.Less(value, low), new Predicate.Greater(value, high));
+		}
+		return new Predicate.And(new Predicate.GreaterOrEqual(value, low), new Predicate.LessOrEqual(value, high));
+	}
+
+	private Predicate like(Expression.Identifier identifier, boolean negated) throws InvalidSelectorException {
+		int start = tokenStart;
+		String pattern = expectString();
+		int escape = -1;
+		if (isKeyword("ESCAPE")) {
+			next();
+			String escapeText = expectString();
+			if (escapeText.length() != 1) {
+				throw error("the ESCAPE character must be a single character");
+			}
+			escape = escapeText.charAt(0);
+		}
+		String text = selector.substring(start, tokenStart).trim();
+		return new Predicate.Like(identifier.getKey(), LikePattern.compile(pattern, escape, text), negated);
+	}
+
+	private Predicate in(Expression.Identifier identifier, boolean negated) throws InvalidSelectorException {
+		expectOperator("(");
+		List<String> values = new ArrayList<String>();
+		values.add(expectString());
+		while (isOperator(",")) {
+			next();
+			values.add(expectString());
+		}
+		expectOperator(")");
+		return new Predicate.In(identifier.getKey(), values.toArray(new String[values.size()]), negated);
+	}
+
+	private Object parseAdditive() throws InvalidSelectorException {
+		Object left = parseMultiplicative();
+		while (isOperator("+") || isOperator("-")) {
+			boolean add = token.equals("+");
+			next();
+			Expression l = asNumeric(left);
+			Expression r = asNumeric(parseMultiplicative());
+			left = fold(add ? new Expression.Add(l, r) : new Expression.Subtract(l, r));
+		}
+		return left;
+	}
+
+	private Object parseMultiplicative() throws InvalidSelectorException {
+		Object left = parseUnary();
+		while (isOperator("*") || isOperator("/")) {
+			boolean multiply = token.equals("*");
+			next();
+			Expression l = asNumeric(left);
+			Expression r = asNumeric(parseUnary());
+			left = fold(multiply ? new Expression.Multiply(l, r) : new Expression.Divide(l, r));
+		}
+		return left;
+	}
+
+	private Object parseUnary() throws InvalidSelectorException {
+		if (isOperator("+")) {
+			next();
+			return asNumeric(parseUnary());
+		} else if (isOperator("-")) {
+			next();
+			if (kind == EXACT) {
+				// parse the sign together with the digits so that Long.MIN_VALUE can be written
+				Expression literal = exact("-" + token);
+				next();
+				return literal;
+			}
+			return fold(new Expression.Negate(asNumeric(parseUnary())));
+		}
+		return parsePrimary();
+	}
+
+	private Object parsePrimary() throws InvalidSelectorException {
+		Object result;
+		switch (kind) {
+		case IDENTIFIER:
+			result = identifier(token);
+			break;
+		case STRING:
+			result = new Expression.StringLiteral(token);
+			break;
+		case EXACT:
+			result = exact(token);
+			break;
+		case APPROXIMATE:
+			try {
+				result = new Expression.DoubleLiteral(Double.parseDouble(token));
+			} catch (NumberFormatException e) {
+				throw error("invalid numeric literal " + token);
+			}
+			break;
+		case KEYWORD:
+			if (token.equals("TRUE") || token.equals("FALSE")) {
+				result = new Expression.BooleanLiteral(token.equals("TRUE"));
+				break;
+			}
+			throw error("unexpected " + describe());
+		case OPERATOR:
+			if (token.equals("(")) {
+				next();
+				result = parseOr();
+				if (!isOperator(")")) {
+					throw error("expected ) but found " + describe());
+				}
+				break;
+			}
+			throw error("unexpected " + describe());
+		default:
+			throw error("unexpected end of selector");
+		}
+		next();
+		return result;
+	}
+
+	private Expression identifier(String name) throws InvalidSelectorException {
+		SelectorKey key = keys.get(name);
+		if (key == null) {
+			if (name.startsWith("JMS") && !name.startsWith("JMSX") && !name.startsWith("JMS_")) {
+				for (SelectorKey field : HEADER_FIELDS) {
+					if (field.getName().equals(name)) {
+						key = field;
+					}
+				}
+				if (key == null) {
+					throw error("the header field " + name + " cannot be used in a message selector");
+				}
+			} else {
+				key = new SelectorKey(name);
+			}
+			keys.put(name, key);
+		}
+		return new Expression.Identifier(key);
+	}
+
+	private Expression exact(String text) throws InvalidSelectorException {
+		String digits = text;
+		if (digits.endsWith("l") || digits.endsWith("L")) {
+			digits = digits.substring(0, digits.length() - 1);
+		}
+		boolean negative = digits.startsWith("-");
+		String unsigned = negative ? digits.substring(1) : digits;
+		int radix = 10;
+		if (unsigned.startsWith("0x") || unsigned.startsWith("0X")) {
+			radix = 16;
+			unsigned = unsigned.substring(2);
+		} else if (unsigned.length() > 1 && unsigned.startsWith("0")) {
+			radix = 8;
+			unsigned = unsigned.substring(1);
+		}
+		try {
+			return new Expression.LongLiteral(Long.parseLong(negative ? "-" + unsigned : unsigned, radix));
+		} catch (NumberFormatException e) {
+			throw error("invalid numeric literal " + text);
+		}
+	}
+
+	/**
+	 * Replaces an arithmetic expression on literals by its value.
+	 */
+	private static Expression fold(Expression expression) {
+		if (!expression.isConstant()) {
+			return expression;
+		}
+		try {
+			switch (expression.type(null)) {
+			case SelectorTarget.TYPE_LONG:
+				return new Expression.LongLiteral(expression.longValue(null));
+			case SelectorTarget.TYPE_DOUBLE:
+				return new Expression.DoubleLiteral(expression.doubleValue(null));
+			default:
+				return expression;
+			}
+		} catch (javax.jms.JMSException e) {
+			// not possible without a target
+			return expression;
+		}
+	}
+
+	private Predicate asPredicate(Object node) throws InvalidSelectorException {
+		if (node instanceof Predicate) {
+			return (Predicate) node;
+		}
+		if (node instanceof Expression.Identifier || node instanceof Expression.BooleanLiteral) {
+			return new Predicate.BooleanTest((Expression) node);
+		}
+		throw error(node + " is not a conditional expression");
+	}
+
+	private Expression asExpression(Object node) throws InvalidSelectorException {
+		if (node instanceof Expression) {
+			return (Expression) node;
+		}
+		throw error(node + " cannot be used as a value");
+	}
+
+	private Expression asNumeric(Object node) throws InvalidSelectorException {
+		Expression expression = asExpression(node);
+		if (expression instanceof Expression.StringLiteral || expression instanceof Expression.BooleanLiteral) {
+			throw error(expression + " cannot be used in an arithmetic expression");
+		}
+		return expression;
+	}
+
+	private Expression.Identifier asIdentifier(Object node, String operator) throws InvalidSelectorException {
+		if (node instanceof Expression.Identifier) {
+			return (Expression.Identifier) node;
+		}
+		throw error(operator + " must be applied to an identifier");
+	}
+
+	private boolean isKeyword(String keyword) {
+		return kind == KEYWORD && token.equals(keyword);
+	}
+
+	private boolean isOperator(String operator) {
+		return kind == OPERATOR && token.equals(operator);
+	}
+
+	private void expectKeyword(String keyword) throws InvalidSelectorException {
+		if (!isKeyword(keyword)) {
+			throw error("expected " + keyword + " but found " + describe());
+		}
+		next();
+	}
+
+	private void expectOperator(String operator) throws InvalidSelectorException {
+		if (!isOperator(operator)) {
+			throw error("expected " + operator + " but found " + describe());
+		}
+		next();
+	}
+
+	private String expectString() throws InvalidSelectorException {
+		if (kind != STRING) {
+			throw error("expected a string literal but found " + describe());
+		}
+		String value = token;
+		next();
+		return value;
+	}
+
+	private String describe() {
+		return kind == EOF ? "end of selector" : "'" + selector.substring(tokenStart, position) + "'";
+	}
+
+	private InvalidSelectorException error(String message) {
+		return new InvalidSelectorException("Invalid message selector \"" + selector + "\" at position " + tokenStart
+				+ ": " + message);
+	}
+
+	/**
+	 * Reads the next token, setting {@code kind} and {@code token}. Keywords
+	 * are converted to upper case; string literals have their quotes removed.
+	 */
+	private void next() throws InvalidSelectorException {
+		int length = selector.length();
+		while (position < length && isWhitespace(selector.charAt(position))) {
+			position++;
+		}
+		tokenStart = position;
+		if (position == length) {
+			kind = EOF;
+			token = null;
+			return;
+		}
+		char c = selector.charAt(position);
+		if (Character.isJavaIdentifierStart(c)) {
+			while (position < length && Character.isJavaIdentifierPart(selector.charAt(position))) {
+				position++;
+			}
+			token = selector.substring(tokenStart, position);
+			String upper = token.toUpperCase(Locale.ROOT);
+			for (String keyword : KEYWORDS) {
+				if (keyword.equals(upper)) {
+					kind = KEYWORD;
+					token = keyword;
+					return;
+				}
+			}
+			kind = IDENTIFIER;
+		} else if (c == '\'') {
+			StringBuilder sb = new StringBuilder();
+			position++;
+			while (true) {
+				if (position == length) {
+					throw error("unterminated string literal");
+				}
+				char s = selector.charAt(position++);
+				if (s == '\'') {
+					if (position < length && selector.charAt(position) == '\'') {
+						position++;
+					} else {
+						break;
+					}
+				}
+				sb.append(s);
+			}
+			kind = STRING;
+			token = sb.toString();
+		} else if (Character.isDigit(c) || (c == '.' && position + 1 < length
+				&& Character.isDigit(selector.charAt(position + 1)))) {
+			readNumber();
+		} else {
+			position++;
+			if (position < length) {
+				char d = selector.charAt(position);
+				if ((c == '<' && (d == '>' || d == '=')) || (c == '>' && d == '=')) {
+					position++;
+				}
+			}
+			token = selector.substring(tokenStart, position);
+			if ("=<><=>=+-*/(),".indexOf(c) < 0) {
+				throw error("unexpected character '" + c + "'");
+			}
+			kind = OPERATOR;
+		}
+	}
+
+	private void readNumber() {
+		int length = selector.length();
+		boolean approximate = false;
+		if (selector.startsWith("0x", position) || selector.startsWith("0X", position)) {
+			position += 2;
+			while (position < length && Character.digit(selector.charAt(position), 16) >= 0) {
+				position++;
+			}
+		} else {
+			while (position < length && Character.isDigit(selector.charAt(position))) {
+				position++;
+			}
+			if (position < length && selector.charAt(position) == '.') {
+				approximate = true;
+				position++;
+				while (position < length && Character.isDigit(selector.charAt(position))) {
+					position++;
+				}
+			}
+			if (position < length && (selector.charAt(position) == 'e' || selector.charAt(position) == 'E')) {
+				approximate = true;
+				position++;
+				if (position < length && (selector.charAt(position) == '+' || selector.charAt(position) == '-')) {
+					position++;
+				}
+				while (position < length && Character.isDigit(selector.charAt(position))) {
+					position++;
+				}
+			}
+		}
+		if (position < length) {
+			char suffix = selector.charAt(position);
+			if (suffix == 'l' || suffix == 'L') {
+				position++;
+			} else if (suffix == 'f' || suffix == 'F' || suffix == 'd' || suffix == 'D') {
+				approximate = true;
+				position++;
+			}
+		}
+		kind = approximate ? APPROXIMATE : EXACT;
+		token = selector.substring(tokenStart, position);
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r';
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import javax.jms.JMSException;
+
+/**
+ * A {@code SelectorTarget} gives a {@code Selector} access to the header field
+ * and property values of the message against which it is being evaluated.
+ * <p>
+ * Values are returned as primitives so that a JMS provider which stores
+ * message properties without wrapping them in objects can evaluate a selector
+ * without creating any objects. The selector first calls {@code getType} to
+ * determine the type of a value and then calls the get method for that type.
+ * <p>
+ * The header fields which may be used in a message selector are identified by
+ * the keys {@code JMS_DELIVERY_MODE}, {@code JMS_PRIORITY},
+ * {@code JMS_MESSAGE_ID}, {@code JMS_TIMESTAMP}, {@code JMS_CORRELATION_ID}
+ * and {@code JMS_TYPE}. The value of {@code JMSDeliveryMode} is the string
+ * {@code "PERSISTENT"} or {@code "NON_PERSISTENT"}.
+ * <p>
+ * A {@code SelectorTarget} is only used by the thread which is evaluating the
+ * selector, so an implementation may cache the value most recently looked up.
+ * 
+ * @see org.javaee.jms.ri.selector.Selector#matches(SelectorTarget)
+ * @see org.javaee.jms.ri.selector.MessageTarget
+ */
+public interface SelectorTarget {
+
+	/**
+	 * The type of a missing property or of a header field which has not been
+	 * set.
+	 */
+	static final int TYPE_NULL = 0;
+
+	/**
+	 * The type of a {@code boolean} value.
+	 */
+	static final int TYPE_BOOLEAN = 1;
+
+	/**
+	 * The type of an exact numeric value: a {@code byte}, {@code short},
+	 * {@code int} or {@code long}.
+	 */
+	static final int TYPE_LONG = 2;
+
+	/**
+	 * The type of an approximate numeric value: a {@code float} or
+	 * {@code double}.
+	 */
+	static final int TYPE_DOUBLE = 3;
+
+	/**
+	 * The type of a {@code String} value.
+	 */
+	static final int TYPE_STRING = 4;
+
+	/**
+	 * The key used for the {@code JMSDeliveryMode} header field.
+	 */
+	static final SelectorKey JMS_DELIVERY_MODE = new SelectorKey("JMSDeliveryMode");
+
+	/**
+	 * The key used for the {@code JMSPriority} header field.
+	 */
+	static final SelectorKey JMS_PRIORITY = new SelectorKey("JMSPriority");
+
+	/**
+	 * The key used for the {@code JMSMessageID} header field.
+	 */
+	static final SelectorKey JMS_MESSAGE_ID = new SelectorKey("JMSMessageID");
+
+	/**
+	 * The key used for the {@code JMSTimestamp} header field.
+	 */
+	static final SelectorKey JMS_TIMESTAMP = new SelectorKey("JMSTimestamp");
+
+	/**
+	 * The key used for the {@code JMSCorrelationID} header field.
+	 */
+	static final SelectorKey JMS_CORRELATION_ID = new SelectorKey("JMSCorrelationID");
+
+	/**
+	 * The key used for the {@code JMSType} header field.
+	 */
+	static final SelectorKey JMS_TYPE = new SelectorKey("JMSType");
+
+	/**
+	 * Returns the type of the header field or property with the specified
+	 * key.
+	 * 
+	 * @param key
+	 *            the name of the header field or property
+	 * @return one of {@code TYPE_NULL}, {@code TYPE_BOOLEAN},
+	 *         {@code TYPE_LONG}, {@code TYPE_DOUBLE} or {@code TYPE_STRING}
+	 * @throws JMSException
+	 *             if the value cannot be obtained due to some internal error.
+	 */
+	int getType(SelectorKey key) throws JMSException;
+
+	/**
+	 * Returns the value of a header field or property of type
+	 * {@code TYPE_BOOLEAN}.
+	 * 
+	 * @param key
+	 *            the name of the header field or property
+	 * @return the value
+	 * @throws JMSException
+	 *             if the value cannot be obtained due to some internal error.
+	 */
+	boolean getBoolean(SelectorKey key) throws JMSException;
+
+	/**
+	 * Returns the value of a header field or property of type
+	 * {@code TYPE_LONG}.
+	 * 
+	 * @param key
+	 *            the name of the header field or property
+	 * @return the value
+	 * @throws JMSException
+	 *             if the value cannot be obtained due to some internal error.
+	 */
+	long getLong(SelectorKey key) throws JMSException;
+
+	/**
+	 * Returns the value of a header field or property of type
+	 * {@code TYPE_DOUBLE} or {@code TYPE_LONG}, converted to a {@code double}.
+	 * 
+	 * @param key
+	 *            the name of the header field or property
+	 * @return the value
+	 * @throws JMSException
+	 *             if the value cannot be obtained due to some internal error.
+	 */
+	double getDouble(SelectorKey key) throws JMSException;
+
+	/**
+	 * Returns the value of a header field or property of type
+	 * {@code TYPE_STRING}.
+	 * 
+	 * @param key
+	 *            the name of the header field or property
+	 * @return the value
+	 * @throws JMSException
+	 *             if the value cannot be obtained due to some internal error.
+	 */
+	String getString(SelectorKey key) throws JMSException;
+}
@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.junit.Test;
+
+/**
+ * Tests that messages which have not been acknowledged, or whose transaction
+ * is rolled back, are redelivered.
+ */
+public class AcknowledgeTest extends MemoryTestSupport {
+
+	private static void send(JMSContext context, Queue queue, String... bodies) {
+		JMSProducer producer = context.createProducer();
+		for (String body : bodies) {
+			producer.send(queue, body);
+		}
+	}
+
+	private static List<Message> receive(JMSConsumer consumer, int count) {
+		List<Message> messages = new ArrayList<Message>();
+		for (int i = 0; i < count; i++) {
+			Message message = consumer.receive(1000);
+			assertTrue("message " + i + " was not received", message != null);
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	/**
+	 * Receives every remaining message, and returns their bodies.
+	 */
+	private static List<String> drain(JMSConsumer consumer) throws JMSException {
+		List<String> bodies = new ArrayList<String>();
+		Message message;
+		while ((message = consumer.receive(100)) != null) {
+			bodies.add(message.getBody(String.class));
+		}
+		return bodies;
+	}
+
+	@Test
+	public void testRecoverRedeliversUnacknowledgedMessages() throws JMSException {
+		JMSContext context = createContext(JMSContext.CLIENT_ACKNOWLEDGE);
+		Queue queue = context.createQueue("recover");
+		send(context, queue, "a", "b", "c");
+		JMSConsumer consumer = context.createConsumer(queue);
+		for (Message message : receive(consumer, 3)) {
+			assertFalse(message.getJMSRedelivered());
+			assertEquals(1, message.getIntProperty("JMSXDeliveryCount"));
+		}
+		context.recover();
+		List<Message> redelivered = receive(consumer, 3);
+		for (int i = 0; i < 3; i++) {
+			Message message = redelivered.get(i);
+			assertEquals("abc".substring(i, i + 1), message.getBody(String.class));
+			assertTrue(message.getJMSRedelivered());
+			assertEquals(2, message.getIntProperty("JMSXDeliveryCount"));
+		}
+		context.acknowledge();
+		context.recover();
+		assertEquals(Arrays.asList(), drain(consumer));
+	}
+
+	@Test
+	public void testAcknowledgeOnlyAndAcknowledgeUpTo() throws JMSException {
+		JMSContext context = createContext(JMSContext.CLIENT_ACKNOWLEDGE);
+		Queue queue1 = context.createQueue("individual1");
+		Queue queue2 = context.createQueue("individual2");
+		send(context, queue1, "x0", "x1", "x2", "x3", "x4", "x5");
+		send(context, queue2, "y0", "y1", "y2");
+		JMSConsumer consumer1 = context.createConsumer(queue1);
+		JMSConsumer consumer2 = context.createConsumer(queue2);
+		List<Message> messages1 = receive(consumer1, 6);
+		List<Message> messages2 = receive(consumer2, 3);
+		messages1.get(4).acknowledgeOnly();
+		consumer1.acknowledgeUpTo(messages1.get(2));
+		messages2.get(1).acknowledgeOnly();
+		context.recover();
+		assertEquals(Arrays.asList("x3", "x5"), drain(consumer1));
+		assertEquals(Arrays.asList("y0", "y2"), drain(consumer2));
+	}
+
+	@Test(expected = IllegalStateRuntimeException.class)
+	public void testAcknowledgeUpToMessageOfOtherConsumer() {
+		JMSContext context = createContext(JMSContext.CLIENT_ACKNOWLEDGE);
+		Queue queue1 = context.createQueue("other1");
+		Queue queue2 = context.createQueue("other2");
+		send(context, queue2, "z");
+		JMSConsumer consumer1 = context.createConsumer(queue1);
+		JMSConsumer consumer2 = context.createConsumer(queue2);
+		consumer1.acknowledgeUpTo(receive(consumer2, 1).get(0));
+	}
+
+	@Test
+	public void testCloseRedeliversUnacknowledgedMessages() throws JMSException {
+		JMSContext context = createContext(JMSContext.CLIENT_ACKNOWLEDGE);
+		Queue queue = context.createQueue("close");
+		send(context, queue, "a", "b");
+		receive(context.createConsumer(queue), 2).get(0).acknowledgeOnly();
+		context.close();
+		JMSConsumer consumer = createContext(JMSContext.AUTO_ACKNOWLEDGE).createConsumer(queue);
+		Message message = consumer.receive(1000);
+		assertEquals("b", message.getBody(String.class));
+		assertTrue(message.getJMSRedelivered());
+		assertEquals(Arrays.asList(), drain(consumer));
+	}
+
+	@Test
+	public void testRollbackRedeliversMessages() throws JMSException {
+		JMSContext context = createContext(JMSContext.SESSION_TRANSACTED);
+		Queue queue = context.createQueue("rollback");
+		send(context, queue, "a", "b", "c");
+		JMSConsumer consumer = context.createConsumer(queue);
+		assertEquals(Arrays.asList(), drain(consumer));
+		context.commit();
+		receive(consumer, 2);
+		context.rollback();
+		List<Message> redelivered = receive(consumer, 3);
+		assertEquals("a", redelivered.get(0).getBody(String.class));
+		assertTrue(redelivered.get(0).getJMSRedelivered());
+		assertTrue(redelivered.get(1).getJMSRedelivered());
+		assertFalse(redelivered.get(2).getJMSRedelivered());
+		context.commit();
+		context.rollback();
+		assertEquals(Arrays.asList(), drain(consumer));
+	}
+
+	@Test
+	public void testRollbackDiscardsSentMessages() throws JMSException {
+		JMSContext context = createContext(JMSContext.SESSION_TRANSACTED);
+		Queue queue = context.createQueue("discard");
+		send(context, queue, "a");
+		context.rollback();
+		send(context, queue, "b");
+		context.commit();
+		assertEquals(Arrays.asList("b"), drain(context.createConsumer(queue)));
+	}
+}
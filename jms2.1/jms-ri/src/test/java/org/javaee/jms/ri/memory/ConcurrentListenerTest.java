@@ -0,0 +1,182 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
+
+import org.junit.Test;
+
+/**
+ * Tests the delivery of messages to a message listener by several threads at
+ * the same time.
+ */
+public class ConcurrentListenerTest extends MemoryTestSupport {
+
+	private static final int KEYS = 10;
+
+	private static final int MESSAGES = 200;
+
+	private static final int CONCURRENCY = 4;
+
+	@Test
+	public void testOrderIsPreservedForEachKey() throws InterruptedException {
+		JMSContext context = createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		Queue queue = context.createQueue("ordered");
+		JMSProducer producer = context.createProducer();
+		for (int i = 0; i < MESSAGES; i++) {
+			producer.setProperty("key", "k" + i % KEYS).setProperty("seq", i).send(queue, "m");
+		}
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger maxActive = new AtomicInteger();
+		Map<String, AtomicInteger> activeByKey = new ConcurrentHashMap<String, AtomicInteger>();
+		Map<String, List<Integer>> sequences = new ConcurrentHashMap<String, List<Integer>>();
+		AtomicInteger overlaps = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(MESSAGES);
+		context.createConsumer(queue).setMessageListener(message -> {
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			try {
+				String key = message.getStringProperty("key");
+				AtomicInteger keyActive = activeByKey.computeIfAbsent(key, k -> new AtomicInteger());
+				if (keyActive.incrementAndGet() > 1) {
+					overlaps.incrementAndGet();
+				}
+				Thread.sleep(2);
+				sequences.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<Integer>()))
+						.add(message.getIntProperty("seq"));
+				keyActive.decrementAndGet();
+			} catch (JMSException | InterruptedException e) {
+				throw new RuntimeException(e);
+			} finally {
+				active.decrementAndGet();
+				done.countDown();
+			}
+		}, CONCURRENCY, "key");
+		assertTrue(done.await(20, TimeUnit.SECONDS));
+		assertEquals("messages with the same key were delivered at the same time", 0, overlaps.get());
+		assertTrue("messages were not delivered concurrently", maxActive.get() > 1);
+		assertTrue("concurrency exceeded: " + maxActive, maxActive.get() <= CONCURRENCY);
+		assertEquals(KEYS, sequences.size());
+		for (Map.Entry<String, List<Integer>> entry : sequences.entrySet()) {
+			List<Integer> sequence = entry.getValue();
+			assertEquals(MESSAGES / KEYS, sequence.size());
+			for (int i = 1; i < sequence.size(); i++) {
+				assertTrue(entry.getKey() + " out of order: " + sequence, sequence.get(i) > sequence.get(i - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testFailedMessageIsRedelivered() throws InterruptedException {
+		JMSContext context = createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		Queue queue = context.createQueue("failure");
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch redelivered = new CountDownLatch(1);
+		context.createConsumer(queue).setMessageListener(message -> {
+			try {
+				if (message.getBody(String.class).equals("fail") && attempts.incrementAndGet() == 1) {
+					throw new RuntimeException("fail");
+				}
+				if (message.getJMSRedelivered()) {
+					redelivered.countDown();
+				}
+			} catch (JMSException e) {
+				throw new RuntimeException(e);
+			}
+		}, CONCURRENCY, null);
+		JMSProducer producer = context.createProducer();
+		producer.send(queue, "ok");
+		producer.send(queue, "fail");
+		assertTrue(redelivered.await(5, TimeUnit.SECONDS));
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	public void testAcknowledgeOnlyInClientAcknowledgeMode() throws InterruptedException {
+		JMSContext context = createContext(JMSContext.CLIENT_ACKNOWLEDGE);
+		Queue queue = context.createQueue("client");
+		JMSProducer producer = context.createProducer();
+		for (int i = 0; i < 50; i++) {
+			producer.send(queue, "m" + i);
+		}
+		CountDownLatch done = new CountDownLatch(50);
+		context.createConsumer(queue).setMessageListener(message -> {
+			try {
+				message.acknowledgeOnly();
+			} catch (JMSException e) {
+				throw new RuntimeException(e);
+			}
+			done.countDown();
+		}, CONCURRENCY, null);
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		context.close();
+		assertNull(createContext(JMSContext.AUTO_ACKNOWLEDGE).createConsumer(queue).receive(100));
+	}
+
+	@Test(expected = IllegalStateRuntimeException.class)
+	public void testTransactedSessionIsRejected() {
+		JMSContext context = createContext(JMSContext.SESSION_TRANSACTED);
+		context.createConsumer(context.createQueue("transacted")).setMessageListener(message -> {
+		}, CONCURRENCY, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrencyIsRejected() {
+		JMSContext context = createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		context.createConsumer(context.createQueue("invalid")).setMessageListener(message -> {
+		}, 0, null);
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.CompletionListener;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests a context whose executor rejects the tasks which deliver its messages
+ * and perform its callbacks.
+ */
+public class ExecutorRejectionTest extends MemoryTestSupport {
+
+	private final ExecutorService pool = Executors.newCachedThreadPool();
+
+	/** the number of tasks which the executor is still to reject */
+	private final AtomicInteger rejections = new AtomicInteger();
+
+	private final BlockingQueue<JMSException> exceptions = new LinkedBlockingQueue<JMSException>();
+
+	@Before
+	public void setUp() {
+		// registered first, so that it is shut down after the contexts are closed
+		closeAfterTest(pool::shutdownNow);
+	}
+
+	@Override
+	protected JMSContext createContext() {
+		JMSContext context = connectionFactory.createContext(JMSContext.AUTO_ACKNOWLEDGE, task -> {
+			if (rejections.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+				throw new RejectedExecutionException("rejected by test");
+			}
+			pool.execute(task);
+		});
+		context.setExceptionListener(exceptions::add);
+		return closeAfterTest(context);
+	}
+
+	private static void assertRejectionReported(JMSException exception) {
+		assertNotNull("rejection was not reported", exception);
+		assertTrue(exception.getLinkedException() instanceof RejectedExecutionException);
+	}
+
+	@Test(timeout = 10000)
+	public void testRejectedDeliveryIsRetried() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("retried");
+		BlockingQueue<Message> received = new LinkedBlockingQueue<Message>();
+		rejections.set(1);
+		context.createConsumer(queue).setMessageListener(received::add);
+		context.createProducer().send(queue, "first");
+		context.createProducer().send(queue, "second");
+		assertRejectionReported(exceptions.poll(5, TimeUnit.SECONDS));
+		assertNotNull(received.poll(5, TimeUnit.SECONDS));
+		assertNotNull(received.poll(5, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseCompletesWhenExecutorIsShutDown() throws InterruptedException, JMSException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("shutDown");
+		BlockingQueue<Message> received = new LinkedBlockingQueue<Message>();
+		context.createConsumer(queue).setMessageListener(received::add);
+		context.createProducer().send(queue, "delivered");
+		assertNotNull(received.poll(5, TimeUnit.SECONDS));
+
+		rejections.set(Integer.MAX_VALUE);
+		CountDownLatch completed = new CountDownLatch(1);
+		context.createProducer().setAsync(new CompletionListener() {
+			@Override
+			public void onCompletion(Message message) {
+				completed.countDown();
+			}
+
+			@Override
+			public void onException(Message message, Exception exception) {
+			}
+		}).send(queue, "kept");
+		assertRejectionReported(exceptions.poll(5, TimeUnit.SECONDS));
+		context.close();
+		assertEquals("completion listener was not called by close", 0, completed.getCount());
+		// close either delivers the message or leaves it on the queue
+		Message message = received.poll();
+		if (message != null) {
+			assertEquals("kept", message.getBody(String.class));
+		} else {
+			try (JMSContext other = connectionFactory.createContext()) {
+				assertEquals("kept", other.createConsumer(queue).receiveBody(String.class, 5000));
+			}
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Enumeration;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableException;
+import javax.jms.PropertyKey;
+import javax.jms.Queue;
+
+import org.javaee.jms.ri.selector.Selector;
+import org.javaee.jms.ri.selector.SelectorTarget;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the properties of a {@code MemoryMessage}, set and got using either
+ * their names or {@code PropertyKey} objects.
+ */
+public class MemoryMessageTest {
+
+	private JMSContext context;
+
+	@Before
+	public void setUp() {
+		context = new MemoryConnectionFactory("MemoryMessageTest").createContext();
+	}
+
+	@After
+	public void tearDown() {
+		context.close();
+	}
+
+	@Test
+	public void testNamesDoNotCreateKeys() throws JMSException {
+		Message message = context.createMessage();
+		message.setIntProperty("MemoryMessageTest_set", 1);
+		message.getIntProperty("MemoryMessageTest_set");
+		message.propertyExists("MemoryMessageTest_missing");
+		message.getStringProperty("MemoryMessageTest_missing");
+		assertNull(PropertyKey.lookup("MemoryMessageTest_set"));
+		assertNull(PropertyKey.lookup("MemoryMessageTest_missing"));
+	}
+
+	@Test
+	public void testKeyCreatedAfterPropertyIsSet() throws JMSException {
+		Message message = context.createMessage();
+		message.setLongProperty("MemoryMessageTest_late", 7);
+		PropertyKey key = PropertyKey.of("MemoryMessageTest_late");
+		assertTrue(message.hasPropertyValue(key));
+		assertEquals(7, message.getLongPropertyValue(key));
+		message.setLongPropertyValue(key, 8);
+		assertEquals(8, message.getLongProperty("MemoryMessageTest_late"));
+		Enumeration<?> names = message.getPropertyNames();
+		assertEquals("MemoryMessageTest_late", names.nextElement());
+		assertFalse(names.hasMoreElements());
+	}
+
+	@Test
+	public void testPropertySetUsingKeyIsFoundByName() throws JMSException {
+		PropertyKey key = PropertyKey.of("MemoryMessageTest_key");
+		Message message = context.createMessage();
+		message.setStringPropertyValue(key, "value");
+		assertTrue(message.propertyExists("MemoryMessageTest_key"));
+		assertEquals("value", message.getStringProperty("MemoryMessageTest_key"));
+		assertEquals("value", message.getObjectProperty("MemoryMessageTest_key"));
+	}
+
+	@Test
+	public void testKeyRejectsInvalidNames() {
+		for (String name : new String[] { "", "1abc", "a-b", "NULL", "not", "Escape" }) {
+			try {
+				PropertyKey.of(name);
+				fail("key created for invalid name " + name);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			assertNull(PropertyKey.lookup(name));
+		}
+		assertEquals("MemoryMessageTest_$valid1", PropertyKey.of("MemoryMessageTest_$valid1").getName());
+	}
+
+	@Test
+	public void testSelectorDoesNotCreateKeys() throws JMSException {
+		Selector selector = Selector.compile("MemoryMessageTest_selected = 1 AND MemoryMessageTest_keyed = 'k'");
+		assertNull(PropertyKey.lookup("MemoryMessageTest_selected"));
+		assertNull(PropertyKey.lookup("MemoryMessageTest_keyed"));
+		MemoryMessage message = (MemoryMessage) context.createMessage();
+		message.setIntProperty("MemoryMessageTest_selected", 1);
+		message.setStringPropertyValue(PropertyKey.of("MemoryMessageTest_keyed"), "k");
+		assertTrue(selector.matches((SelectorTarget) message));
+		assertNull(PropertyKey.lookup("MemoryMessageTest_selected"));
+	}
+
+	@Test
+	public void testConversions() throws JMSException {
+		Message message = context.createMessage();
+		message.setByteProperty("b", (byte) 3);
+		message.setFloatProperty("f", 1.5f);
+		message.setStringProperty("s", "12");
+		assertEquals(3, message.getLongProperty("b"));
+		assertEquals("3", message.getStringProperty("b"));
+		assertEquals(1.5, message.getDoubleProperty("f"), 0);
+		assertEquals(12, message.getIntProperty("s"));
+		assertFalse(message.getBooleanProperty("missing"));
+		assertNull(message.getObjectProperty("missing"));
+	}
+
+	@Test(expected = MessageFormatException.class)
+	public void testInvalidConversion() throws JMSException {
+		Message message = context.createMessage();
+		message.setDoubleProperty("d", 1.5);
+		message.getIntProperty("d");
+	}
+
+	@Test(expected = MessageFormatException.class)
+	public void testNullObjectProperty() throws JMSException {
+		context.createMessage().setObjectProperty("o", null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyName() throws JMSException {
+		context.createMessage().setIntProperty("", 1);
+	}
+
+	@Test
+	public void testPropertiesAreSentAndReadOnly() throws JMSException {
+		Queue queue = context.createQueue("MemoryMessageTest");
+		JMSConsumer consumer = context.createConsumer(queue);
+		Message message = context.createMessage();
+		message.setStringProperty("MemoryMessageTest_sent", "a");
+		message.setBooleanPropertyValue(PropertyKey.of("MemoryMessageTest_flag"), true);
+		context.createProducer().setProperty("MemoryMessageTest_producer", 2).send(queue, message);
+		Message received = consumer.receive(1000);
+		assertEquals("a", received.getStringProperty("MemoryMessageTest_sent"));
+		assertTrue(received.getBooleanProperty("MemoryMessageTest_flag"));
+		assertEquals(2, received.getIntProperty("MemoryMessageTest_producer"));
+		try {
+			received.setIntProperty("MemoryMessageTest_sent", 1);
+			fail("properties of a received message are writable");
+		} catch (MessageNotWriteableException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Queue;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that the messages of a message group are delivered to one consumer at
+ * a time, in order, and that new groups are assigned to the least loaded
+ * consumer.
+ */
+public class MessageGroupTest extends MemoryTestSupport {
+
+	private static final int CONSUMERS = 4;
+
+	private static final int GROUPS = 8;
+
+	private static final int MESSAGES = 50;
+
+	/**
+	 * Permits which listeners blocked by a test wait for.
+	 */
+	private final Semaphore gate = new Semaphore(0);
+
+	@After
+	public void openGate() {
+		gate.release(Integer.MAX_VALUE / 2);
+	}
+
+	@Test
+	public void testGroupIsDeliveredToOneConsumerInOrder() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("groups");
+		Map<String, Set<Integer>> owners = new ConcurrentHashMap<String, Set<Integer>>();
+		Map<String, List<Integer>> sequences = new ConcurrentHashMap<String, List<Integer>>();
+		CountDownLatch done = new CountDownLatch(GROUPS * MESSAGES);
+		// no consumer may continue until every consumer has received a message
+		CyclicBarrier started = new CyclicBarrier(CONSUMERS);
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		for (int i = 0; i < CONSUMERS; i++) {
+			int consumer = i;
+			boolean[] first = { true };
+			createContext().createConsumer(queue).setMessageListener(message -> {
+				try {
+					String group = message.getStringProperty("JMSXGroupID");
+					owners.computeIfAbsent(group, g -> ConcurrentHashMap.newKeySet()).add(consumer);
+					sequences.computeIfAbsent(group, g -> Collections.synchronizedList(new ArrayList<Integer>()))
+							.add(message.getIntProperty("JMSXGroupSeq"));
+					if (first[0]) {
+						first[0] = false;
+						started.await(10, TimeUnit.SECONDS);
+					}
+				} catch (Exception e) {
+					failures.add(e);
+				}
+				done.countDown();
+			});
+		}
+		JMSProducer producer = context.createProducer();
+		for (int i = 1; i <= MESSAGES; i++) {
+			for (int group = 0; group < GROUPS; group++) {
+				producer.setProperty("JMSXGroupID", "group" + group).setProperty("JMSXGroupSeq", i).send(queue, "m");
+			}
+		}
+		assertTrue(done.await(20, TimeUnit.SECONDS));
+		assertEquals(Collections.emptyList(), failures);
+		assertEquals(GROUPS, owners.size());
+		Set<Integer> used = ConcurrentHashMap.newKeySet();
+		for (Map.Entry<String, Set<Integer>> entry : owners.entrySet()) {
+			assertEquals(entry.getKey() + " owners", 1, entry.getValue().size());
+			used.addAll(entry.getValue());
+			List<Integer> sequence = sequences.get(entry.getKey());
+			for (int i = 0; i < MESSAGES; i++) {
+				assertEquals(entry.getKey() + " order", i + 1, (int) sequence.get(i));
+			}
+		}
+		assertEquals("consumers assigned groups", CONSUMERS, used.size());
+	}
+
+	@Test
+	public void testNewGroupIsAssignedToLeastLoadedConsumer() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("leastLoaded");
+		BlockingQueue<String> deliveries = new LinkedBlockingQueue<String>();
+		for (int i = 0; i < 2; i++) {
+			String consumer = "consumer" + i;
+			createContext().createConsumer(queue).setMessageListener(message -> {
+				try {
+					String group = message.getStringProperty("JMSXGroupID");
+					deliveries.add(consumer + ":" + group);
+					if (group == null) {
+						// hold this consumer without any groups until the test releases it
+						gate.acquire();
+					}
+				} catch (Exception e) {
+					deliveries.add(consumer + ":" + e);
+				}
+			});
+		}
+		JMSProducer producer = context.createProducer();
+		producer.send(queue, "ungrouped");
+		String idle = deliveries.poll(10, TimeUnit.SECONDS);
+		assertTrue(idle, idle.endsWith(":null"));
+		idle = idle.substring(0, idle.indexOf(':'));
+		producer.setProperty("JMSXGroupID", "first").send(queue, "1");
+		String busy = deliveries.poll(10, TimeUnit.SECONDS);
+		assertTrue(busy, busy.endsWith(":first") && !busy.startsWith(idle));
+		busy = busy.substring(0, busy.indexOf(':'));
+		// the busy consumer already has a group, so it leaves the new one for the held consumer
+		producer.setProperty("JMSXGroupID", "second").send(queue, "2");
+		gate.release();
+		assertEquals(idle + ":second", deliveries.poll(10, TimeUnit.SECONDS));
+		producer.setProperty("JMSXGroupID", "first").send(queue, "3");
+		assertEquals(busy + ":first", deliveries.poll(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testGroupMovesWhenConsumerIsClosed() throws JMSException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("reassign");
+		JMSContext ownerContext = createContext();
+		JMSConsumer owner = ownerContext.createConsumer(queue);
+		JMSConsumer other = createContext().createConsumer(queue);
+		JMSProducer producer = context.createProducer().setProperty("JMSXGroupID", "g");
+		producer.send(queue, "1");
+		assertEquals("1", owner.receiveBody(String.class, 1000));
+		producer.send(queue, "2");
+		assertNull(other.receive(200));
+		owner.close();
+		assertEquals("2", other.receiveBody(String.class, 1000));
+		producer.send(queue, "3");
+		assertEquals("3", other.receiveBody(String.class, 1000));
+	}
+
+	@Test
+	public void testUngroupedMessagesAreNotHeldForGroupOwner() throws JMSException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("ungrouped");
+		JMSConsumer first = createContext().createConsumer(queue);
+		JMSConsumer second = createContext().createConsumer(queue);
+		JMSProducer producer = context.createProducer().setProperty("JMSXGroupID", "g");
+		producer.send(queue, "grouped");
+		assertEquals("grouped", first.receiveBody(String.class, 1000));
+		context.createProducer().send(queue, "ungrouped");
+		assertEquals("ungrouped", second.receiveBody(String.class, 1000));
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.MessageSubscriber;
+import javax.jms.MessageSubscription;
+import javax.jms.Queue;
+
+import org.junit.Test;
+
+/**
+ * Tests that the {@code MessagePublisher} of a {@code JMSConsumer} delivers
+ * messages only as fast as its subscriber requests them.
+ */
+public class MessagePublisherTest extends MemoryTestSupport {
+
+	/**
+	 * Records the messages, and the completion, of a subscription.
+	 */
+	private static final class RecordingSubscriber implements MessageSubscriber {
+
+		final BlockingQueue<String> bodies = new LinkedBlockingQueue<String>();
+
+		final CountDownLatch subscribed = new CountDownLatch(1);
+
+		final CountDownLatch completed = new CountDownLatch(1);
+
+		volatile MessageSubscription subscription;
+
+		@Override
+		public void onSubscribe(MessageSubscription subscription) {
+			this.subscription = subscription;
+			subscribed.countDown();
+		}
+
+		@Override
+		public void onNext(Message message) {
+			try {
+				bodies.add(message.getBody(String.class));
+			} catch (JMSException e) {
+				bodies.add(e.toString());
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			bodies.add(throwable.toString());
+		}
+
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testMessagesAreDeliveredOnDemand() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("demand");
+		JMSProducer producer = context.createProducer();
+		for (int i = 0; i < 5; i++) {
+			producer.send(queue, "m" + i);
+		}
+		JMSConsumer consumer = context.createConsumer(queue);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		consumer.createPublisher().subscribe(subscriber);
+		assertTrue(subscriber.subscribed.await(5, TimeUnit.SECONDS));
+		assertNull("message was delivered without demand", subscriber.bodies.poll(200, TimeUnit.MILLISECONDS));
+
+		subscriber.subscription.request(2);
+		assertEquals("m0", subscriber.bodies.poll(5, TimeUnit.SECONDS));
+		assertEquals("m1", subscriber.bodies.poll(5, TimeUnit.SECONDS));
+		assertNull("message was delivered beyond demand", subscriber.bodies.poll(200, TimeUnit.MILLISECONDS));
+
+		subscriber.subscription.request(3);
+		for (int i = 2; i < 5; i++) {
+			assertEquals("m" + i, subscriber.bodies.poll(5, TimeUnit.SECONDS));
+		}
+		consumer.close();
+		assertTrue("subscriber was not completed", subscriber.completed.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 10000)
+	public void testCancelledSubscriptionReceivesNoMessages() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("cancelled");
+		JMSConsumer consumer = context.createConsumer(queue);
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		consumer.createPublisher().subscribe(subscriber);
+		assertTrue(subscriber.subscribed.await(5, TimeUnit.SECONDS));
+		subscriber.subscription.request(Long.MAX_VALUE);
+		subscriber.subscription.cancel();
+		context.createProducer().send(queue, "after cancel");
+		assertNull(subscriber.bodies.poll(200, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.jms.IllegalStateRuntimeException;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@code CompletionStage} objects returned by
+ * {@code JMSConsumer.receiveAsync} and {@code receiveBodyAsync}.
+ */
+public class ReceiveAsyncTest extends MemoryTestSupport {
+
+	@Test(timeout = 10000)
+	public void testStagesAreCompletedInOrder()
+			throws InterruptedException, ExecutionException, TimeoutException, JMSException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("receiveAsync");
+		JMSConsumer consumer = context.createConsumer(queue);
+		CompletableFuture<Message> first = consumer.receiveAsync().toCompletableFuture();
+		CompletableFuture<String> second = consumer.receiveBodyAsync(String.class).toCompletableFuture();
+		Thread.sleep(100);
+		assertFalse("stage was completed before a message was sent", first.isDone());
+
+		JMSContext producerContext = createContext();
+		producerContext.createProducer().send(queue, "one").send(queue, "two");
+		assertEquals("one", first.get(5, TimeUnit.SECONDS).getBody(String.class));
+		assertEquals("two", second.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 10000)
+	public void testStageIsCompletedWithNullOnClose()
+			throws InterruptedException, ExecutionException, TimeoutException {
+		JMSContext context = createContext();
+		JMSConsumer consumer = context.createConsumer(context.createQueue("closed"));
+		CompletableFuture<Message> stage = consumer.receiveAsync().toCompletableFuture();
+		consumer.close();
+		assertNull(stage.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test(expected = IllegalStateRuntimeException.class)
+	public void testListenerPreventsReceiveAsync() {
+		JMSContext context = createContext();
+		JMSConsumer consumer = context.createConsumer(context.createQueue("listener"));
+		consumer.setMessageListener(message -> {
+		});
+		consumer.receiveAsync();
+	}
+}
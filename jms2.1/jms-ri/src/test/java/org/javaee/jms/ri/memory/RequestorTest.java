@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueRequestor;
+import javax.jms.QueueSession;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.jms.TopicConnection;
+import javax.jms.TopicRequestor;
+import javax.jms.TopicSession;
+
+import org.junit.Test;
+
+/**
+ * Tests that the requests made by a {@code QueueRequestor} or
+ * {@code TopicRequestor} each receive their own reply.
+ */
+public class RequestorTest extends MemoryTestSupport {
+
+	/**
+	 * How a responder sets the {@code JMSCorrelationID} of a reply.
+	 */
+	private enum Correlation {
+		/** not set, as by many JMS 1.x responders */
+		NONE,
+		/** set to the {@code JMSMessageID} of the request */
+		MESSAGE_ID,
+		/** copied from the {@code JMSCorrelationID} of the request */
+		COPIED
+	}
+
+	private <C extends Connection> C start(C connection) throws JMSException {
+		closeAfterTest(connection);
+		connection.start();
+		return connection;
+	}
+
+	/**
+	 * Replies to each request with its body. The reply to a request whose
+	 * body is "late" is not sent until the specified latch is released.
+	 */
+	private void respond(Destination destination, CountDownLatch release, Correlation correlation) {
+		JMSContext context = createContext();
+		JMSConsumer consumer = context.createConsumer(destination);
+		consumer.setMessageListener(request -> {
+			try {
+				String body = request.getBody(String.class);
+				if (body.equals("late")) {
+					release.await();
+				}
+				Message reply = context.createTextMessage(body);
+				if (correlation == Correlation.MESSAGE_ID) {
+					reply.setJMSCorrelationID(request.getJMSMessageID());
+				} else if (correlation == Correlation.COPIED) {
+					reply.setJMSCorrelationID(request.getJMSCorrelationID());
+				}
+				context.createProducer().send(request.getJMSReplyTo(), reply);
+			} catch (JMSException | InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
+	@Test(timeout = 10000)
+	public void testQueueRequestDiscardsLateReply() throws JMSException {
+		QueueConnection connection = start(connectionFactory.createQueueConnection());
+		QueueSession session = connection.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue queue = session.createQueue("requests");
+		CountDownLatch timedOut = new CountDownLatch(1);
+		respond(queue, timedOut, Correlation.MESSAGE_ID);
+		QueueRequestor requestor = new QueueRequestor(session, queue);
+
+		assertNull(requestor.request(session.createTextMessage("late"), 100));
+		timedOut.countDown();
+		assertEquals("prompt", requestor.request(session.createTextMessage("prompt"), 0).getBody(String.class));
+		requestor.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testTopicRequestDiscardsLateReply() throws JMSException {
+		TopicConnection connection = start(connectionFactory.createTopicConnection());
+		TopicSession session = connection.createTopicSession(false, Session.AUTO_ACKNOWLEDGE);
+		Topic topic = session.createTopic("requests");
+		CountDownLatch timedOut = new CountDownLatch(1);
+		respond(topic, timedOut, Correlation.MESSAGE_ID);
+		TopicRequestor requestor = new TopicRequestor(session, topic);
+
+		assertNull(requestor.request(session.createTextMessage("late"), 100));
+		timedOut.countDown();
+		assertEquals("prompt", requestor.request(session.createTextMessage("prompt"), 0).getBody(String.class));
+		requestor.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testReplyWithoutCorrelationIDIsAccepted() throws JMSException {
+		QueueConnection connection = start(connectionFactory.createQueueConnection());
+		QueueSession session = connection.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue queue = session.createQueue("uncorrelated");
+		respond(queue, new CountDownLatch(0), Correlation.NONE);
+		QueueRequestor requestor = new QueueRequestor(session, queue);
+
+		assertEquals("untimed", requestor.request(session.createTextMessage("untimed")).getBody(String.class));
+		assertEquals("timed", requestor.request(session.createTextMessage("timed"), 5000).getBody(String.class));
+		requestor.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testUntimedRequestReturnsReplyWithOtherCorrelationID() throws JMSException {
+		QueueConnection connection = start(connectionFactory.createQueueConnection());
+		QueueSession session = connection.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue queue = session.createQueue("copied");
+		respond(queue, new CountDownLatch(0), Correlation.COPIED);
+		QueueRequestor requestor = new QueueRequestor(session, queue);
+
+		Message request = session.createTextMessage("untimed");
+		request.setJMSCorrelationID("order-1");
+		Message reply = requestor.request(request);
+		assertEquals("untimed", reply.getBody(String.class));
+		assertEquals("order-1", reply.getJMSCorrelationID());
+
+		request = session.createTextMessage("timed");
+		request.setJMSCorrelationID("order-2");
+		assertNull(requestor.request(request, 200));
+		requestor.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testCloseFailsWaitingRequest() throws Exception {
+		QueueConnection connection = start(connectionFactory.createQueueConnection());
+		QueueSession session = connection.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+		QueueSession replySession = connection.createQueueSession(false, Session.AUTO_ACKNOWLEDGE);
+		Queue queue = session.createQueue("unanswered");
+		QueueRequestor requestor = new QueueRequestor(session, queue, replySession);
+		requestor.requestAsync(session.createTextMessage("async"));
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<Message> reply = executor.submit(() -> requestor.request(session.createTextMessage("waiting")));
+			Thread.sleep(100);
+			requestor.close();
+			reply.get();
+			fail("request was not failed by close");
+		} catch (ExecutionException e) {
+			assertTrue("close was reported as " + e.getCause(), e.getCause() instanceof IllegalStateException);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
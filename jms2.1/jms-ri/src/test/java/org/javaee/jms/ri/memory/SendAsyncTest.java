@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.jms.CompletionListener;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@code CompletionStage} returned by {@code JMSProducer.sendAsync}.
+ */
+public class SendAsyncTest extends MemoryTestSupport {
+
+	private static final int MESSAGES = 20;
+
+	@Test(timeout = 10000)
+	public void testStageIsCompletedWithMessageSent()
+			throws InterruptedException, ExecutionException, TimeoutException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("sendAsync");
+		JMSConsumer consumer = context.createConsumer(queue);
+		JMSProducer producer = context.createProducer();
+		List<Message> messages = new ArrayList<Message>();
+		List<CompletableFuture<Message>> stages = new ArrayList<CompletableFuture<Message>>();
+		for (int i = 0; i < MESSAGES; i++) {
+			Message message = context.createTextMessage("m" + i);
+			messages.add(message);
+			stages.add(producer.sendAsync(queue, message).toCompletableFuture());
+		}
+		for (int i = 0; i < MESSAGES; i++) {
+			assertSame(messages.get(i), stages.get(i).get(5, TimeUnit.SECONDS));
+			assertEquals("m" + i, consumer.receiveBody(String.class, 1000));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testCompletionListenerIsNotInvoked() throws InterruptedException, JMSException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("listenerIgnored");
+		List<Message> completed = Collections.synchronizedList(new ArrayList<Message>());
+		JMSProducer producer = context.createProducer().setAsync(new CompletionListener() {
+
+			@Override
+			public void onCompletion(Message message) {
+				completed.add(message);
+			}
+
+			@Override
+			public void onException(Message message, Exception exception) {
+			}
+		});
+		producer.sendAsync(queue, context.createTextMessage("async")).toCompletableFuture().join();
+		producer.send(queue, "listener");
+		while (producer.getSendWindow().getOutstandingMessages() > 0) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, completed.size());
+		assertEquals("listener", completed.get(0).getBody(String.class));
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.CompletionListener;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.jms.ResourceAllocationException;
+import javax.jms.ResourceAllocationRuntimeException;
+import javax.jms.SendWindow;
+import javax.jms.SendWindowListener;
+
+import org.junit.Test;
+
+/**
+ * Tests the limits and policies of the send window of a producer, and the
+ * notifications of its {@code SendWindowListener}.
+ */
+public class SendWindowTest extends MemoryTestSupport {
+
+	/**
+	 * Records the notifications of a {@code SendWindowListener}, as "full" or
+	 * "available".
+	 */
+	private static final class RecordingListener implements SendWindowListener {
+
+		final List<String> notifications = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public void onSendWindowFull(SendWindow window) {
+			notifications.add("full");
+		}
+
+		@Override
+		public void onSendWindowAvailable(SendWindow window) {
+			notifications.add("available");
+		}
+	}
+
+	/**
+	 * Returns a send window whose listener is invoked by the calling thread.
+	 */
+	private static SendWindowState window(int maxMessages, long maxBytes, int policy) {
+		SendWindowState window = new SendWindowState(Runnable::run);
+		window.set(maxMessages, maxBytes, policy);
+		return window;
+	}
+
+	@Test
+	public void testFailPolicyRejectsSendWhenFull() throws JMSException {
+		SendWindowState window = window(2, -1, SendWindow.FAIL);
+		window.acquire(10, false);
+		window.acquire(10, false);
+		try {
+			window.acquire(10, false);
+			fail("send was accepted by a full window");
+		} catch (ResourceAllocationException e) {
+			// expected
+		}
+		assertEquals(2, window.snapshot().getOutstandingMessages());
+		assertEquals(20, window.snapshot().getOutstandingBytes());
+		window.release(10);
+		window.acquire(10, false);
+		assertEquals(2, window.snapshot().getOutstandingMessages());
+	}
+
+	@Test
+	public void testByteLimitAdmitsOneLargeMessage() throws JMSException {
+		SendWindowState window = window(-1, 100, SendWindow.FAIL);
+		window.acquire(500, false);
+		try {
+			window.acquire(1, false);
+			fail("send was accepted by a full window");
+		} catch (ResourceAllocationException e) {
+			// expected
+		}
+		window.release(500);
+		window.acquire(60, false);
+		window.acquire(40, false);
+		assertEquals(100, window.snapshot().getOutstandingBytes());
+	}
+
+	@Test(timeout = 10000)
+	public void testBlockPolicyWaitsForCompletion() throws Exception {
+		SendWindowState window = window(1, -1, SendWindow.BLOCK);
+		window.acquire(10, false);
+		CountDownLatch acquired = new CountDownLatch(1);
+		Thread sender = new Thread(() -> {
+			try {
+				window.acquire(10, false);
+				acquired.countDown();
+			} catch (JMSException e) {
+				// the latch is never released
+			}
+		});
+		sender.start();
+		assertFalse("send did not block", acquired.await(200, TimeUnit.MILLISECONDS));
+		window.release(10);
+		assertTrue("send was not unblocked", acquired.await(5, TimeUnit.SECONDS));
+		sender.join();
+		assertEquals(1, window.snapshot().getOutstandingMessages());
+	}
+
+	@Test(expected = ResourceAllocationException.class)
+	public void testBlockPolicyFailsInCallback() throws JMSException {
+		SendWindowState window = window(1, -1, SendWindow.BLOCK);
+		window.acquire(10, false);
+		window.acquire(10, true);
+	}
+
+	@Test
+	public void testNotifyPolicySendsWhenFull() throws JMSException {
+		SendWindowState window = window(1, -1, SendWindow.NOTIFY);
+		RecordingListener listener = new RecordingListener();
+		window.setListener(listener);
+		window.acquire(10, false);
+		window.acquire(10, true);
+		window.acquire(10, false);
+		assertEquals(3, window.snapshot().getOutstandingMessages());
+		window.release(10);
+		window.release(10);
+		assertEquals("[full]", listener.notifications.toString());
+		window.release(10);
+		assertEquals("[full, available]", listener.notifications.toString());
+	}
+
+	@Test
+	public void testListenerIsNotifiedOnceEachTime() throws JMSException {
+		SendWindowState window = window(2, -1, SendWindow.BLOCK);
+		RecordingListener listener = new RecordingListener();
+		window.setListener(listener);
+		window.acquire(10, false);
+		assertTrue(listener.notifications.isEmpty());
+		window.acquire(10, false);
+		window.release(10);
+		window.acquire(10, false);
+		window.release(10);
+		window.release(10);
+		assertEquals("[full, available, full, available]", listener.notifications.toString());
+		window.setListener(null);
+		window.acquire(10, false);
+		window.acquire(10, false);
+		assertEquals(4, listener.notifications.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroLimitIsRejected() {
+		window(0, -1, SendWindow.BLOCK);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPolicyIsRejected() {
+		window(1, -1, 0);
+	}
+
+	@Test(timeout = 10000)
+	public void testProducerFailsSendFromFullWindowInCallback() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("callback");
+		JMSProducer producer = context.createProducer().setSendWindow(1, -1, SendWindow.BLOCK);
+		BlockingQueue<Exception> results = new LinkedBlockingQueue<Exception>();
+		producer.setAsync(new CompletionListener() {
+
+			@Override
+			public void onCompletion(Message message) {
+				try {
+					if (message.getBody(String.class).equals("first")) {
+						producer.send(queue, "second");
+					}
+				} catch (JMSException | RuntimeException e) {
+					results.add(e);
+				}
+			}
+
+			@Override
+			public void onException(Message message, Exception exception) {
+				results.add(exception);
+			}
+		});
+		producer.send(queue, "first");
+		Exception result = results.poll(5, TimeUnit.SECONDS);
+		assertNotNull("send from the callback did not fail", result);
+		assertTrue("send from the callback failed with " + result,
+				result instanceof ResourceAllocationRuntimeException);
+	}
+
+	@Test(timeout = 10000)
+	public void testSendAsyncIsCountedInWindow() throws InterruptedException {
+		JMSContext context = createContext();
+		Queue queue = context.createQueue("sendAsync");
+		CountDownLatch gate = new CountDownLatch(1);
+		RecordingListener listener = new RecordingListener();
+		JMSProducer producer = context.createProducer().setSendWindow(1, -1, SendWindow.FAIL)
+				.setSendWindowListener(listener).setAsync(new CompletionListener() {
+
+					@Override
+					public void onCompletion(Message message) {
+						try {
+							gate.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+
+					@Override
+					public void onException(Message message, Exception exception) {
+					}
+				});
+		producer.send(queue, "held");
+		try {
+			producer.sendAsync(queue, context.createTextMessage("rejected"));
+			fail("sendAsync was accepted by a full window");
+		} catch (ResourceAllocationRuntimeException e) {
+			// expected
+		} finally {
+			gate.countDown();
+		}
+		while (producer.getSendWindow().getOutstandingMessages() > 0) {
+			Thread.sleep(10);
+		}
+		producer.sendAsync(queue, context.createTextMessage("accepted")).toCompletableFuture().join();
+		assertTrue(listener.notifications.contains("full"));
+	}
+}
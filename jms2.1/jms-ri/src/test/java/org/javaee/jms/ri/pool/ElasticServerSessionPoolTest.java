@@ -0,0 +1,203 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.javaee.jms.ri.memory.MemoryConnectionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests an {@code ElasticServerSessionPool} used by a connection consumer of
+ * the in-memory provider.
+ */
+public class ElasticServerSessionPoolTest {
+
+	private static final int MESSAGES = 2000;
+
+	private Connection connection;
+
+	private Session session;
+
+	private ElasticServerSessionPool pool;
+
+	@Before
+	public void setUp() throws JMSException {
+		connection = new MemoryConnectionFactory("ElasticServerSessionPoolTest").createConnection();
+		session = connection.createSession();
+	}
+
+	@After
+	public void tearDown() throws JMSException {
+		if (pool != null) {
+			pool.close();
+		}
+		connection.close();
+	}
+
+	private void send(Queue queue, int count) throws JMSException {
+		MessageProducer producer = session.createProducer(queue);
+		for (int i = 0; i < count; i++) {
+			producer.send(session.createTextMessage("m" + i));
+		}
+		producer.close();
+	}
+
+	/**
+	 * Waits for up to five seconds for the pool to shrink to the specified
+	 * size.
+	 */
+	private void awaitPoolSize(int size) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (pool.getPoolSize() != size && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertEquals(size, pool.getPoolSize());
+	}
+
+	@Test
+	public void testPoolGrowsUnderLoadAndShrinksWhenIdle() throws JMSException, InterruptedException {
+		Set<String> received = ConcurrentHashMap.newKeySet();
+		AtomicInteger duplicates = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(MESSAGES);
+		pool = new ElasticServerSessionPool(connection, Session.AUTO_ACKNOWLEDGE, message -> {
+			try {
+				if (!received.add(message.getBody(String.class))) {
+					duplicates.incrementAndGet();
+				}
+				Thread.sleep(1);
+			} catch (JMSException | InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			done.countDown();
+		}, 1, 8, 200, TimeUnit.MILLISECONDS);
+		assertEquals(1, pool.getPoolSize());
+		Queue queue = session.createQueue("load");
+		ConnectionConsumer consumer = connection.createConnectionConsumer(queue, null, pool, 5);
+		assertSame(pool, consumer.getServerSessionPool());
+		send(queue, MESSAGES);
+		connection.start();
+		assertTrue(done.await(20, TimeUnit.SECONDS));
+		assertEquals(0, duplicates.get());
+		assertTrue("pool did not grow: " + pool.getLargestPoolSize(), pool.getLargestPoolSize() > 1);
+		assertTrue("pool exceeded its maximum size: " + pool.getLargestPoolSize(), pool.getLargestPoolSize() <= 8);
+		awaitPoolSize(1);
+		assertEquals(1, pool.getIdleCount());
+		assertEquals(0, pool.getActiveCount());
+		// each run delivers at most five messages
+		assertTrue("runs: " + pool.getCompletedRunCount(), pool.getCompletedRunCount() >= MESSAGES / 5);
+		consumer.close();
+	}
+
+	@Test
+	public void testFailedMessageIsRedelivered() throws JMSException, InterruptedException {
+		AtomicInteger attempts = new AtomicInteger();
+		CountDownLatch redelivered = new CountDownLatch(1);
+		pool = new ElasticServerSessionPool(connection, Session.AUTO_ACKNOWLEDGE, message -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new RuntimeException("fail");
+			}
+			try {
+				if (message.getJMSRedelivered()) {
+					redelivered.countDown();
+				}
+			} catch (JMSException e) {
+				throw new RuntimeException(e);
+			}
+		}, 0, 2, 1, TimeUnit.SECONDS);
+		Queue queue = session.createQueue("failure");
+		connection.createConnectionConsumer(queue, null, pool, 1);
+		connection.start();
+		send(queue, 1);
+		assertTrue(redelivered.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testMessagesRemainAfterConnectionConsumerIsClosed() throws JMSException {
+		MessageListener ignore = message -> {
+		};
+		pool = new ElasticServerSessionPool(connection, Session.AUTO_ACKNOWLEDGE, ignore, 0, 2, 1, TimeUnit.SECONDS);
+		Queue queue = session.createQueue("closed");
+		ConnectionConsumer consumer = connection.createConnectionConsumer(queue, null, pool, 1);
+		connection.start();
+		consumer.close();
+		send(queue, 1);
+		Message message = session.createConsumer(queue).receive(1000);
+		assertNotNull(message);
+		assertEquals("m0", message.getBody(String.class));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosedPoolRejectsRequests() throws JMSException {
+		MessageListener ignore = message -> {
+		};
+		pool = new ElasticServerSessionPool(connection, Session.AUTO_ACKNOWLEDGE, ignore, 0, 2, 1, TimeUnit.SECONDS);
+		pool.close();
+		pool.getServerSession();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSizesAreRejected() throws JMSException {
+		MessageListener ignore = message -> {
+		};
+		new ElasticServerSessionPool(connection, Session.AUTO_ACKNOWLEDGE, ignore, 4, 2, 1, TimeUnit.SECONDS);
+	}
+}
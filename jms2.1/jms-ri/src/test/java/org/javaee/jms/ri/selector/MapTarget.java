@@ -0,0 +1,98 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@code SelectorTarget} whose values are held in a map, keyed by name.
+ * Header fields are treated as ordinary values.
+ */
+final class MapTarget implements SelectorTarget {
+
+	private final Map<String, Object> values = new HashMap<String, Object>();
+
+	MapTarget set(String name, Object value) {
+		values.put(name, value);
+		return this;
+	}
+
+	@Override
+	public int getType(SelectorKey key) {
+		Object value = values.get(key.getName());
+		if (value instanceof String) {
+			return TYPE_STRING;
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			return TYPE_LONG;
+		} else if (value instanceof Double || value instanceof Float) {
+			return TYPE_DOUBLE;
+		} else if (value instanceof Boolean) {
+			return TYPE_BOOLEAN;
+		}
+		return TYPE_NULL;
+	}
+
+	@Override
+	public boolean getBoolean(SelectorKey key) {
+		return (Boolean) values.get(key.getName());
+	}
+
+	@Override
+	public long getLong(SelectorKey key) {
+		return ((Number) values.get(key.getName())).longValue();
+	}
+
+	@Override
+	public double getDouble(SelectorKey key) {
+		return ((Number) values.get(key.getName())).doubleValue();
+	}
+
+	@Override
+	public String getString(SelectorKey key) {
+		return (String) values.get(key.getName());
+	}
+
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.jms.JMSException;
+
+import org.junit.Test;
+
+/**
+ * Tests that a {@code SelectorIndex} finds the same subscribers as evaluating
+ * the selector of every subscriber, for randomly generated selectors and
+ * messages.
+ */
+public class SelectorIndexTest {
+
+	private static final String[] SYMBOLS = { "'A'", "'B'", "'C'", "'D'" };
+
+	private final Random random = new Random(42);
+
+	private String symbol() {
+		return SYMBOLS[random.nextInt(SYMBOLS.length)];
+	}
+
+	private String number() {
+		int value = random.nextInt(20);
+		return random.nextBoolean() ? Integer.toString(value) : value + ".5";
+	}
+
+	private String term() {
+		switch (random.nextInt(9)) {
+		case 0:
+			return "sym = " + symbol();
+		case 1:
+			return "sym IN (" + symbol() + ", " + symbol() + ")";
+		case 2:
+			return "qty = " + random.nextInt(20);
+		case 3:
+			return "price > " + number();
+		case 4:
+			return "price <= " + number();
+		case 5:
+			return number() + " < qty";
+		case 6:
+			return "price BETWEEN " + number() + " AND " + number();
+		case 7:
+			return "flag";
+		default:
+			return "sym LIKE 'A%'";
+		}
+	}
+
+	private Selector selector() throws JMSException {
+		switch (random.nextInt(6)) {
+		case 0:
+			return null;
+		case 1:
+			return Selector.compile(term());
+		case 2:
+			return Selector.compile(term() + " OR " + term());
+		case 3:
+			return Selector.compile("NOT (" + term() + ") AND " + term());
+		default:
+			return Selector.compile(term() + " AND " + term() + " AND " + term());
+		}
+	}
+
+	private MapTarget message() {
+		MapTarget target = new MapTarget();
+		switch (random.nextInt(5)) {
+		case 0:
+			break;
+		case 1:
+			target.set("sym", random.nextInt(4));
+			break;
+		default:
+			target.set("sym", SYMBOLS[random.nextInt(SYMBOLS.length)].replace("'", ""));
+		}
+		switch (random.nextInt(4)) {
+		case 0:
+			break;
+		case 1:
+			target.set("price", random.nextInt(20) + 0.5);
+			break;
+		default:
+			target.set("price", random.nextInt(20));
+		}
+		if (random.nextInt(4) > 0) {
+			target.set("qty", (long) random.nextInt(20));
+		}
+		if (random.nextBoolean()) {
+			target.set("flag", random.nextBoolean());
+		}
+		return target;
+	}
+
+	/**
+	 * Returns the subscribers whose selectors match, by evaluating the
+	 * selector of each subscriber in turn.
+	 */
+	private static Set<Integer> linear(List<Selector> selectors, Set<Integer> subscribers, SelectorTarget target)
+			throws JMSException {
+		Set<Integer> result = new HashSet<Integer>();
+		for (int subscriber : subscribers) {
+			Selector selector = selectors.get(subscriber);
+			if (selector == null || selector.matches(target)) {
+				result.add(subscriber);
+			}
+		}
+		return result;
+	}
+
+	private static Set<Integer> indexed(SelectorIndex<Integer> index, SelectorTarget target) throws JMSException {
+		Set<Integer> result = new HashSet<Integer>();
+		index.forEachMatch(target, subscriber -> assertEquals("duplicate " + subscriber, true, result.add(subscriber)));
+		return result;
+	}
+
+	@Test
+	public void testIndexMatchesLinearEvaluation() throws JMSException {
+		List<Selector> selectors = new ArrayList<Selector>();
+		Set<Integer> subscribers = new HashSet<Integer>();
+		SelectorIndex<Integer> index = new SelectorIndex<Integer>();
+		for (int i = 0; i < 500; i++) {
+			Selector selector = selector();
+			selectors.add(selector);
+			subscribers.add(i);
+			index.add(i, selector);
+		}
+		assertEquals(subscribers.size(), index.size());
+		for (int i = 0; i < 2000; i++) {
+			MapTarget target = message();
+			assertEquals(target.toString(), linear(selectors, subscribers, target), indexed(index, target));
+		}
+	}
+
+	@Test
+	public void testRemovedAndReplacedSubscribers() throws JMSException {
+		List<Selector> selectors = new ArrayList<Selector>();
+		Set<Integer> subscribers = new HashSet<Integer>();
+		SelectorIndex<Integer> index = new SelectorIndex<Integer>();
+		for (int i = 0; i < 200; i++) {
+			Selector selector = selector();
+			selectors.add(selector);
+			subscribers.add(i);
+			index.add(i, selector);
+		}
+		for (int i = 0; i < 200; i += 2) {
+			assertEquals(true, index.remove(i));
+			subscribers.remove(i);
+		}
+		assertEquals(false, index.remove(0));
+		for (int i = 1; i < 200; i += 6) {
+			// adding a subscriber again replaces its selector
+			Selector selector = selector();
+			selectors.set(i, selector);
+			index.add(i, selector);
+		}
+		assertEquals(subscribers.size(), index.size());
+		for (int i = 0; i < 1000; i++) {
+			MapTarget target = message();
+			assertEquals(target.toString(), linear(selectors, subscribers, target), indexed(index, target));
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package org.javaee.jms.ri.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
+
+import org.junit.Test;
+
+/**
+ * Tests the parsing of message selectors and their evaluation using the
+ * three-valued logic defined in {@code javax.jms.Message}.
+ */
+public class SelectorTest {
+
+	private static final String TRUE = "TRUE";
+
+	private static final String FALSE = "FALSE";
+
+	private static final String UNKNOWN = "UNKNOWN";
+
+	/**
+	 * The values of {@code t}, {@code f} and {@code u}, which is not set, in
+	 * the order TRUE, FALSE, UNKNOWN.
+	 */
+	private static final String[] OPERANDS = { "t", "f", "u" };
+
+	private final MapTarget target = new MapTarget().set("t", true).set("f", false).set("s", "abc").set("n", 5)
+			.set("d", 2.5);
+
+	/**
+	 * Returns the value of a conditional expression. Since a selector only
+	 * matches when its value is TRUE, a FALSE value is distinguished from an
+	 * UNKNOWN one by evaluating its negation as well.
+	 */
+	private String evaluate(String expression) throws JMSException {
+		if (Selector.compile(expression).matches(target)) {
+			return TRUE;
+		}
+		return Selector.compile("NOT (" + expression + ")").matches(target) ? FALSE : UNKNOWN;
+	}
+
+	@Test
+	public void testAnd() throws JMSException {
+		String[][] expected = { { TRUE, FALSE, UNKNOWN }, { FALSE, FALSE, FALSE }, { UNKNOWN, FALSE, UNKNOWN } };
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				String expression = OPERANDS[i] + " AND " + OPERANDS[j];
+				assertEquals(expression, expected[i][j], evaluate(expression));
+			}
+		}
+	}
+
+	@Test
+	public void testOr() throws JMSException {
+		String[][] expected = { { TRUE, TRUE, TRUE }, { TRUE, FALSE, UNKNOWN }, { TRUE, UNKNOWN, UNKNOWN } };
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				String expression = OPERANDS[i] + " OR " + OPERANDS[j];
+				assertEquals(expression, expected[i][j], evaluate(expression));
+			}
+		}
+	}
+
+	@Test
+	public void testNot() throws JMSException {
+		assertFalse(Selector.compile("NOT t").matches(target));
+		assertTrue(Selector.compile("NOT f").matches(target));
+		assertFalse(Selector.compile("NOT u").matches(target));
+	}
+
+	@Test
+	public void testNonBooleanIdentifierIsUnknown() throws JMSException {
+		assertEquals(UNKNOWN, evaluate("s"));
+		assertEquals(UNKNOWN, evaluate("n"));
+		assertFalse(Selector.compile("NOT s").matches(target));
+	}
+
+	@Test
+	public void testComparisonWithNullIsUnknown() throws JMSException {
+		assertEquals(UNKNOWN, evaluate("u = 1"));
+		assertEquals(UNKNOWN, evaluate("u <> 'abc'"));
+		assertEquals(UNKNOWN, evaluate("u + 1 > 0"));
+		assertEquals(UNKNOWN, evaluate("n > u"));
+		assertEquals(UNKNOWN, evaluate("u BETWEEN 1 AND 10"));
+		assertEquals(UNKNOWN, evaluate("u NOT BETWEEN 1 AND 10"));
+		assertEquals(UNKNOWN, evaluate("u IN ('abc', 'def')"));
+		assertEquals(UNKNOWN, evaluate("u NOT IN ('abc', 'def')"));
+		assertEquals(UNKNOWN, evaluate("u LIKE 'a%'"));
+		assertEquals(UNKNOWN, evaluate("u NOT LIKE 'a%'"));
+	}
+
+	@Test
+	public void testIsNull() throws JMSException {
+		assertEquals(TRUE, evaluate("u IS NULL"));
+		assertEquals(FALSE, evaluate("u IS NOT NULL"));
+		assertEquals(FALSE, evaluate("s IS NULL"));
+		assertEquals(TRUE, evaluate("s IS NOT NULL"));
+	}
+
+	@Test
+	public void testComparisons() throws JMSException {
+		assertEquals(TRUE, evaluate("n = 5"));
+		assertEquals(TRUE, evaluate("n = 5.0"));
+		assertEquals(TRUE, evaluate("d > n / 4"));
+		assertEquals(TRUE, evaluate("n * 2 - 1 = 9"));
+		assertEquals(TRUE, evaluate("-n < 0"));
+		assertEquals(TRUE, evaluate("n BETWEEN 5 AND 6"));
+		assertEquals(FALSE, evaluate("n NOT BETWEEN 5 AND 6"));
+		assertEquals(TRUE, evaluate("s = 'abc'"));
+		assertEquals(TRUE, evaluate("s IN ('x', 'abc')"));
+		assertEquals(TRUE, evaluate("s LIKE 'a_c'"));
+		assertEquals(FALSE, evaluate("s LIKE 'b%'"));
+		assertEquals(TRUE, evaluate("t = TRUE"));
+	}
+
+	@Test
+	public void testComparisonOfUnlikeTypesIsFalse() throws JMSException {
+		assertEquals(FALSE, evaluate("s = 5"));
+		assertEquals(FALSE, evaluate("n = 'abc'"));
+	}
+
+	@Test
+	public void testInAndLikeOfNonStringAreUnknown() throws JMSException {
+		assertEquals(UNKNOWN, evaluate("n IN ('a', 'b')"));
+		assertEquals(UNKNOWN, evaluate("n NOT IN ('a', 'b')"));
+		assertEquals(UNKNOWN, evaluate("NOT (n IN ('a', 'b'))"));
+		assertEquals(UNKNOWN, evaluate("t LIKE 'a%'"));
+		assertEquals(UNKNOWN, evaluate("t NOT LIKE 'a%'"));
+		assertEquals(UNKNOWN, evaluate("NOT (t LIKE 'a%')"));
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void testStringArithmeticIsRejected() throws JMSException {
+		Selector.compile("n + 'x' = 1");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void testStringNegationIsRejected() throws JMSException {
+		Selector.compile("-'x' = 1");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void testBooleanArithmeticIsRejected() throws JMSException {
+		Selector.compile("TRUE * 2 = 2");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void testUnknownHeaderFieldIsRejected() throws JMSException {
+		Selector.compile("JMSExpiration > 0");
+	}
+
+	@Test(expected = InvalidSelectorException.class)
+	public void testIncompleteSelectorIsRejected() throws JMSException {
+		Selector.compile("n = ");
+	}
+}
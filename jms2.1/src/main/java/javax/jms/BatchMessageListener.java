@@ -0,0 +1,118 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@code BatchMessageListener} object is used to receive asynchronously
+ * delivered messages in batches.
+ * <p>
+ * A {@code BatchMessageListener} is registered with a {@code JMSConsumer} or
+ * {@code MessageConsumer} using one of its {@code setMessageListener} methods.
+ * Instead of calling {@code onMessage} once for each message, the JMS provider
+ * calls {@code onMessages} with a list of messages, allowing the application
+ * to process several messages using a single unit of work, such as a single
+ * database transaction.
+ * <p>
+ * A batch is delivered as soon as either the maximum batch size has been
+ * reached or the maximum batch wait time has elapsed since the first message
+ * in the batch became available to the consumer, whichever is sooner. A batch
+ * is never empty. The messages in a batch are in the order in which they would
+ * have been delivered to a {@code MessageListener}.
+ * <p>
+ * The messages in the batch are acknowledged as follows:
+ * <ul>
+ * <li>{@code AUTO_ACKNOWLEDGE}: The session automatically acknowledges all the
+ * messages in the batch when the {@code onMessages} method returns. If the
+ * {@code onMessages} method throws a {@code RuntimeException} then every
+ * message in the batch will be delivered again.
+ * <li>{@code DUPS_OK_ACKNOWLEDGE}: The session lazily acknowledges the
+ * messages in the batch after the {@code onMessages} method returns. If the
+ * {@code onMessages} method throws a {@code RuntimeException} then every
+ * message in the batch will be delivered again.
+ * <li>{@code CLIENT_ACKNOWLEDGE}: The messages in the batch are not
+ * acknowledged until the application calls {@code acknowledge}. A single call
+ * to {@code acknowledge} acknowledges the whole batch.
+ * <li>Transacted session: The messages in the batch are received as part of
+ * the session's transaction. A single call to {@code commit} commits the
+ * receipt of the whole batch.
+ * </ul>
+ * <p>
+ * Each session must ensure that it passes batches of messages serially to the
+ * listener, exactly as it would pass individual messages to a
+ * {@code MessageListener}.
+ * <p>
+ * It is a client programming error for a {@code BatchMessageListener} to
+ * throw an exception.
+ * 
+ * @see javax.jms.JMSConsumer#setMessageListener(BatchMessageListener, int, long)
+ * @see javax.jms.MessageConsumer#setMessageListener(BatchMessageListener, int, long)
+ * @see javax.jms.MessageBatch
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface BatchMessageListener extends MessageListener {
+
+	/**
+	 * Passes a batch of messages to the listener.
+	 * 
+	 * @param messages
+	 *            the messages passed to the listener. This list is never
+	 *            empty and must not be modified by the application.
+	 */
+	void onMessages(List<Message> messages);
+
+	/**
+	 * Passes a single message to the listener. This is equivalent to passing
+	 * a batch containing that one message to {@code onMessages}.
+	 * 
+	 * @param message
+	 *            the message passed to the listener
+	 */
+	@Override
+	default void onMessage(Message message) {
+		onMessages(Collections.singletonList(message));
+	}
+
+}
@@ -40,6 +40,8 @@
  
 package javax.jms;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /** A {@code BytesMessage} object is used to send a message containing a 
   * stream of uninterpreted bytes. It inherits from the {@code Message} 
@@ -67,6 +69,42 @@ package javax.jms;
   * static programming, and the object form is needed when types are not known
   * at compile time.
   *
+  * <P>The message body may also be written from, and read as, a 
+  * {@code java.nio.ByteBuffer}. This allows a JMS provider with a
+  * transport based on {@code java.nio} to avoid copying the message body 
+  * between its own buffers and the application.
+  *
+  * <P><b>Streamed message bodies</b>: A message body which is too large to 
+  * be conveniently held in memory may be supplied as a 
+  * {@code java.io.InputStream}, using {@code Session.createBytesMessage(InputStream)},
+  * {@code JMSContext.createBytesMessage(InputStream)} or
+  * {@code JMSProducer.send(Destination, InputStream)}, and may be read as a 
+  * {@code java.io.InputStream} using {@code getBodyInputStream}. This 
+  * allows a JMS provider to transfer the body between the client and the 
+  * JMS server in chunks, so that neither the sending nor the receiving 
+  * client needs to hold the whole body in memory at the same time. 
+  * Streaming does not change the semantics of sending or receiving a 
+  * message:
+  * <ul>
+  * <li>A message with a streamed body is not delivered to any consumer 
+  * until its whole body has been transferred to the JMS server. If the 
+  * sending application's stream throws an {@code IOException}, or the 
+  * transfer fails for any other reason, then the send fails and no part of 
+  * the message is delivered.
+  * <li>If the message is sent in a transacted session then it is not 
+  * delivered until the transaction is committed, just like any other 
+  * message. If the transaction is rolled back then the message is 
+  * discarded, even if its whole body has already been transferred.
+  * <li>If a message with a streamed body is delivered again, for example 
+  * because a transaction was rolled back or the session was recovered, then 
+  * the whole body is available again from the beginning. Any stream 
+  * obtained from the previous delivery may then throw an 
+  * {@code IOException}.
+  * <li>A stream obtained from a received message remains readable after 
+  * the message has been acknowledged, until the stream is closed, the 
+  * message is delivered again, or the session is closed.
+  * </ul>
+  *
   * <P>When the message is first created, and when {@code clearBody}
   * is called, the body of the message is in write-only mode. After the 
   * first call to {@code reset} has been made, the message body is in 
@@ -98,7 +136,7 @@ package javax.jms;
   * @see         javax.jms.StreamMessage
   * @see         javax.jms.TextMessage
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   *
   */
@@ -377,6 +415,73 @@ public interface BytesMessage extends Message {
 			throws JMSException;
 
 
+    /** Returns the whole of the message body as a read-only 
+      * {@code ByteBuffer}.
+      *
+      * <P>The returned buffer's position is zero and its limit is the length 
+      * of the message body. It is independent of the stream of bytes used by 
+      * the {@code read} methods: calling this method does not change the 
+      * position from which the next {@code read} method will read, and 
+      * calling a {@code read} method does not change the buffer's position.
+      *
+      * <P>This method allows a JMS provider to give the application direct 
+      * access to the message body without copying it. The returned buffer 
+      * may be a direct buffer, and may share its contents with buffers used 
+      * by the JMS provider to receive the message. The contents of the buffer
+      * are undefined after {@code clearBody} or {@code release} has been 
+      * called on this message.
+      *
+      * @return a read-only buffer containing the message body
+      *
+      * @exception JMSException if the JMS provider fails to read the message 
+      *                         due to some internal error.
+      * @exception MessageNotReadableException if the message is in write-only 
+      *                                        mode.
+      *                                        
+      * @since JMS 2.1
+      */ 
+
+    ByteBuffer
+    getBodyAsByteBuffer() throws JMSException;
+
+
+    /** Returns an {@code InputStream} from which the whole of the message 
+      * body may be read.
+      *
+      * <P>The returned stream starts at the beginning of the message body. 
+      * It is independent of the stream of bytes used by the {@code read}
+      * methods: calling this method, or reading from the returned stream, 
+      * does not change the position from which the next {@code read} method
+      * will read.
+      *
+      * <P>This method allows a JMS provider to transfer a large message body
+      * from the JMS server in chunks as the application reads it, rather than
+      * transferring the whole body before the message is returned to the 
+      * application. Such a JMS provider may allow the body to be read only 
+      * once. In that case this method may be called only once for each 
+      * delivery of the message, and the {@code read} methods and 
+      * {@code getBodyAsByteBuffer} may not be used; calling them throws an
+      * {@code IllegalStateException}. 
+      *
+      * <P>The application should close the returned stream when it has 
+      * finished reading from it.
+      *
+      * @return a stream from which the message body may be read
+      *
+      * @exception JMSException if the JMS provider fails to read the message 
+      *                         due to some internal error.
+      * @exception MessageNotReadableException if the message is in write-only 
+      *                                        mode.
+      * @exception IllegalStateException if the message body may be read only
+      *                                  once and has already been read.
+      *                                        
+      * @since JMS 2.1
+      */ 
+
+    InputStream
+    getBodyInputStream() throws JMSException;
+
+
     /** Writes a {@code boolean} to the bytes message stream as a 1-byte 
       * value.
       * The value {@code true} is written as the value 
@@ -558,6 +663,40 @@ public interface BytesMessage extends Message {
 			throws JMSException;
 
 
+    /** Writes the remaining bytes of a {@code ByteBuffer} to the bytes 
+      * message stream.
+      *
+      * <P>The bytes between the buffer's position and its limit are written,
+      * and the buffer's position is then set to its limit. The buffer may be 
+      * a direct buffer.
+      *
+      * <P>To avoid copying the bytes, a JMS provider may retain a reference
+      * to the contents of the buffer rather than copying them when this 
+      * method is called. The application must therefore not modify the 
+      * contents of the buffer between the buffer's original position and 
+      * limit until {@code clearBody} or {@code release} has been called on 
+      * this message or the application has finished using this message, 
+      * including waiting for any asynchronous send of this message to 
+      * complete. For a send using {@code JMSProducer.sendAsync} the buffer
+      * belongs to the JMS provider until the returned 
+      * {@code CompletionStage} has been completed.
+      *
+      * @param value the buffer containing the bytes to be written
+      *
+      * @exception JMSException if the JMS provider fails to write the message
+      *                         due to some internal error.
+      * @exception MessageNotWriteableException if the message is in read-only 
+      *                                         mode.
+      * @exception java.lang.NullPointerException if the parameter 
+      *                                           {@code value} is null.
+      *                                         
+      * @since JMS 2.1
+      */ 
+
+    void
+    writeByteBuffer(ByteBuffer value) throws JMSException;
+
+
     /** Writes an object to the bytes message stream.
       *
       * <P>This method works only for the objectified primitive
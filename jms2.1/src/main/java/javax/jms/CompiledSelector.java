@@ -0,0 +1,109 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code CompiledSelector} object is a message selector which has been
+ * parsed and validated by the JMS provider, and which may be used to create
+ * any number of consumers or queue browsers without being parsed again.
+ * <p>
+ * A {@code CompiledSelector} is created using the {@code createSelector}
+ * method of a {@code Session} or {@code JMSContext}. Any errors in the
+ * message selector are reported when it is created, so an application which
+ * creates many consumers with the same selector only needs to handle an invalid
+ * selector once.
+ * <p>
+ * The message selector syntax is described in {@link Message}. A
+ * {@code CompiledSelector} may be passed in place of a message selector
+ * string to the methods which create a consumer, a durable or shared
+ * subscription, or a queue browser. These methods have the same names as the
+ * methods which take a selector string, followed by {@code WithSelector}, such
+ * as {@code createConsumerWithSelector}. The effect is the same as if the
+ * selector text returned by {@code getSelectorText} had been passed. In particular,
+ * when deciding whether an existing durable or shared subscription has the
+ * same message selector, it is the selector text which is compared.
+ * <p>
+ * Since the selector has already been compiled, a JMS provider may also use
+ * its compiled form to evaluate the selector more efficiently, for example by
+ * indexing the consumers on a topic by the properties which their selectors
+ * test.
+ * <p>
+ * A {@code CompiledSelector} may be used with any {@code Session} or
+ * {@code JMSContext} created by the same JMS provider as the one which created
+ * it, and may be used by multiple threads at the same time. If a JMS provider
+ * is given a {@code CompiledSelector} which was created by a different JMS
+ * provider, it must compile the text returned by {@code getSelectorText}.
+ * 
+ * @see javax.jms.Session#createSelector(String)
+ * @see javax.jms.JMSContext#createSelector(String)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface CompiledSelector {
+
+	/**
+	 * Returns the message selector expression from which this
+	 * {@code CompiledSelector} was created.
+	 * 
+	 * @return the message selector expression
+	 */
+	String getSelectorText();
+
+	/**
+	 * Evaluates this message selector against the specified message.
+	 * <p>
+	 * A message matches the selector if the selector evaluates to true when
+	 * its identifiers are replaced by the corresponding header field and
+	 * property values of the message. A selector which evaluates to false or
+	 * to unknown does not match.
+	 * 
+	 * @param message
+	 *            the message to test
+	 * 
+	 * @return true if the message matches this selector, false otherwise
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to evaluate the selector due to
+	 *                some internal error.
+	 */
+	boolean matches(Message message) throws JMSException;
+}
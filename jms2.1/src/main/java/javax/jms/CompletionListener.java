@@ -54,10 +54,12 @@ package javax.jms;
  * @see javax.jms.MessageProducer#send(javax.jms.Message,int,int,long,javax.jms.CompletionListener)
  * @see javax.jms.MessageProducer#send(javax.jms.Destination,javax.jms.Message,javax.jms.CompletionListener)
  * @see javax.jms.MessageProducer#send(javax.jms.Destination,javax.jms.Message,int,int,long,javax.jms.CompletionListener)
+ * @see javax.jms.MessageProducer#sendBatch(java.util.List,javax.jms.CompletionListener)
+ * @see javax.jms.MessageProducer#sendBatch(javax.jms.Destination,java.util.List,javax.jms.CompletionListener)
  * @see javax.jms.JMSProducer#setAsync(javax.jms.CompletionListener)
  * @see javax.jms.JMSProducer#getAsync()
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 2.0
  * 
  */
@@ -40,6 +40,8 @@
 
 package javax.jms;
 
+import java.util.concurrent.Executor;
+
 /** A {@code Connection} object is a client's active connection to its JMS 
   * provider. It typically allocates provider resources outside the Java virtual
   * machine (JVM).
@@ -90,7 +92,7 @@ package javax.jms;
   * @see         javax.jms.QueueConnection
   * @see         javax.jms.TopicConnection
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   *
   */
@@ -292,6 +294,60 @@ public interface Connection extends AutoCloseable {
      * @see javax.jms.Connection#createSession() 
      */   
     Session createSession(int sessionMode) throws JMSException;
+
+    /** 
+     * Creates a {@code Session} object, specifying {@code sessionMode}
+     * and the {@code Executor} used to call its message listeners and
+     * completion listeners.
+     * <p>
+     * This method behaves in the same way as {@code createSession(int)},
+     * except that the JMS provider does not call 
+     * {@code MessageListener.onMessage} or {@code CompletionListener.onCompletion}
+     * for the new session using threads of its own. Instead each call is 
+     * made by a task which is submitted to the specified executor, such as 
+     * one which starts a new virtual thread for every task.
+     * <p>
+     * Using an executor does not change the threading rules of the session.
+     * Its message listeners are still called serially, except when a
+     * {@code MessageConsumer} has been given a concurrency greater than one by
+     * {@code setMessageListener(MessageListener, int, String)}, and its
+     * completion listeners are still called serially and in the order in
+     * which the messages were sent. A task may block, but the JMS provider 
+     * will not call the next listener of the same sequence until it has 
+     * returned. The JMS provider never shuts down the executor, and the 
+     * application must not shut it down until the session has been closed. 
+     * <p>
+     * The exception listener of the connection is not affected, since it 
+     * belongs to the connection rather than to the session.
+     * <p>
+     * This method must not be used by applications running in the Java EE
+     * web or EJB containers, where threads are managed by the container.
+     * If this method is called in a Java EE web or EJB container then a
+     * {@code JMSException} will be thrown.
+     * 
+     * @param sessionMode specifies the session mode that will be used.
+     * Legal values are
+     * {@code JMSContext.SESSION_TRANSACTED}, {@code JMSContext.CLIENT_ACKNOWLEDGE},
+     * {@code JMSContext.AUTO_ACKNOWLEDGE} and {@code JMSContext.DUPS_OK_ACKNOWLEDGE}.
+     * @param executor the executor used to call the message listeners and
+     * completion listeners of the new session
+     * 
+     * @return a newly created  session
+     *  
+     * @exception JMSException if the {@code Connection} object fails
+     *                         to create a session due to 
+     *                         <ul>
+     *                         <li>some internal error, 
+     *                         <li>lack of support for the specific transaction and acknowledgement mode, or
+     *                         <li>because this method is being called in a Java EE web or EJB application.
+     *                         </ul>
+     * @exception IllegalArgumentException if {@code executor} is null
+     * @since JMS 2.1
+     *
+     * @see javax.jms.Connection#createSession(int) 
+     * @see javax.jms.ConnectionFactory#createContext(int, java.util.concurrent.Executor) 
+     */   
+    Session createSession(int sessionMode, Executor executor) throws JMSException;
                        
     /** 
      * Creates a {@code Session} object, 
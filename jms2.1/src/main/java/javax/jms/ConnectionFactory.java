@@ -40,6 +40,8 @@
 
 package javax.jms;
 
+import java.util.concurrent.Executor;
+
 /** A {@code ConnectionFactory} object encapsulates a set of connection 
   * configuration 
   * parameters that has been defined by an administrator. A client uses 
@@ -95,7 +97,7 @@ package javax.jms;
   * @see         javax.jms.QueueConnectionFactory
   * @see         javax.jms.TopicConnectionFactory
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   *
   */
@@ -421,5 +423,78 @@ public interface ConnectionFactory {
      * @see javax.jms.JMSContext#createContext(int) 
 	 */
 	JMSContext createContext(int sessionMode);
+
+    /** Creates a JMSContext with the default user identity
+     * and the specified session mode, whose message listeners,
+     * completion listeners and exception listener are called
+     * using the specified {@code Executor}.
+     * <p>
+     * This method behaves in the same way as {@code createContext(int)},
+     * except that the JMS provider does not call
+     * {@code MessageListener.onMessage}, {@code CompletionListener.onCompletion}
+     * or {@code ExceptionListener.onException} for the new JMSContext
+     * using threads of its own. Instead each call is made by a task which is
+     * submitted to the specified executor. This allows an application to
+     * decide which threads run its callbacks: for example it may pass an 
+     * executor which starts a new virtual thread for every task, so that a
+     * listener may block without holding a platform thread, or an executor 
+     * whose threads carry the context, such as a security identity or a 
+     * tracing span, that the application's listeners expect.
+     * <p>
+     * Using an executor does not change the threading rules of the JMSContext.
+     * Its message listeners are still called serially, except when a 
+     * {@code JMSConsumer} has been given a concurrency greater than one by 
+     * {@code setMessageListener(MessageListener, int, String)}, and its
+     * completion listeners are still called serially and in the order in 
+     * which the messages were sent. The JMS provider therefore submits at 
+     * most one task at a time for each of these sequences, but tasks for 
+     * different sequences may run at the same time.
+     * <p>
+     * A task submitted to the executor may block, for example in a message
+     * listener that waits for a remote service, but the JMS provider will not
+     * call the next listener of the same sequence until it has returned.
+     * If the executor rejects a task, by throwing a 
+     * {@code RejectedExecutionException} or otherwise, then the JMS provider
+     * may be unable to deliver further messages to the JMSContext. The JMS
+     * provider never shuts down the executor, which remains the 
+     * responsibility of the application, and the application must not shut 
+     * it down until the JMSContext has been closed.
+     * <p>
+     * The executor is also used by every JMSContext created from the new 
+     * JMSContext using {@code JMSContext.createContext(int)}. 
+     * <p>
+     * This method must not be used by applications running in the Java EE
+     * web or EJB containers, where threads are managed by the container.
+     * If this method is called in a Java EE web or EJB container then a
+     * {@code JMSRuntimeException} will be thrown.
+     *
+     * @param sessionMode indicates which of four possible session modes will be used.
+     * The permitted values are 
+     * {@code JMSContext.SESSION_TRANSACTED}, 
+     * {@code JMSContext.CLIENT_ACKNOWLEDGE}, 
+     * {@code JMSContext.AUTO_ACKNOWLEDGE} and
+     * {@code JMSContext.DUPS_OK_ACKNOWLEDGE}. 
+     * @param executor the executor used to call the message listeners, 
+     * completion listeners and exception listener of the new JMSContext
+     * 
+     * @return a newly created JMSContext
+     * 
+     * @exception JMSRuntimeException if the JMS provider fails to create the
+     *                         JMSContext due to
+     *                         <ul>
+     *                         <li>some internal error or
+     *                         <li>because this method is being called in a 
+     *                         Java EE web or EJB application.
+     *                         </ul>
+     * @exception JMSSecurityRuntimeException  if client authentication fails due to 
+     *                         an invalid user name or password.
+     * @exception IllegalArgumentException if {@code executor} is null
+     * @since JMS 2.1 
+     * 
+     * @see javax.jms.ConnectionFactory#createContext(int) 
+     * @see javax.jms.Connection#createSession(int, java.util.concurrent.Executor) 
+     * @see javax.jms.JMSContext#createContext(int, java.util.concurrent.Executor) 
+     */
+    JMSContext createContext(int sessionMode, Executor executor);
       
 }
@@ -45,7 +45,7 @@ import java.util.Enumeration;
 /** A {@code ConnectionMetaData} object provides information describing the 
   * {@code Connection} object.
   *
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   */
 
@@ -136,6 +136,10 @@ public interface ConnectionMetaData {
 
  
     /** Gets an enumeration of the JMSX property names.
+      *  
+      * <P>A provider which includes {@code JMSXGroupID} delivers the 
+      * messages of each message group to a single consumer at a time, as 
+      * described in {@link javax.jms.Message}.
       *  
       * @return an Enumeration of JMSX property names
       *  
@@ -145,4 +149,49 @@ public interface ConnectionMetaData {
 
     Enumeration
     getJMSXPropertyNames() throws JMSException;
+
+    /** Indicates whether the JMS provider blocks in a way that allows a 
+      * large number of lightweight threads, such as virtual threads, to 
+      * block in JMS methods at the same time.
+      *
+      * <P>A lightweight thread typically runs on a small pool of carrier 
+      * threads, and is only unmounted from its carrier when it blocks in a 
+      * way that the runtime can recognise, such as waiting on a 
+      * {@code java.util.concurrent.locks.Condition} or performing I/O 
+      * through the standard libraries. A thread which waits while holding an 
+      * object monitor, that is inside a {@code synchronized} block or 
+      * method, may remain pinned to its carrier for the whole of the wait, so 
+      * a few such threads can prevent every other lightweight thread from 
+      * running.
+      *
+      * <P>A JMS provider which returns true guarantees that none of the 
+      * following methods hold an object monitor whilst they wait for a 
+      * message, for the connection to be started, for space in a send 
+      * window, or for a reply or acknowledgement from a JMS server:
+      * <ul>
+      * <li>the {@code receive} and {@code receiveBody} methods of
+      * {@code MessageConsumer} and {@code JMSConsumer},
+      * <li>the synchronous {@code send} methods of {@code MessageProducer}
+      * and {@code JMSProducer}, and
+      * <li>the {@code commit} methods of {@code Session} and 
+      * {@code JMSContext}.
+      * </ul>
+      * An application which runs one lightweight thread for each of many 
+      * destinations, each of which blocks in {@code receive}, can check this
+      * method to decide whether to do so or to fall back to a bounded pool of 
+      * platform threads.
+      *
+      * <P>A return value of false does not mean that these methods pin their
+      * threads, only that the JMS provider does not guarantee that they do not.
+      *
+      * @return true if the JMS provider does not hold an object monitor 
+      *         while blocking in the methods listed above
+      *  
+      * @exception JMSException if the JMS provider fails to retrieve the
+      *                         metadata due to some internal error.
+      *
+      * @since JMS 2.1
+      */
+    boolean
+    isVirtualThreadFriendly() throws JMSException;
 }
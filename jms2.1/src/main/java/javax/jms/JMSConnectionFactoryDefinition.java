@@ -60,7 +60,7 @@ import java.lang.annotation.Target;
  * for example by using the {@code lookup} element of the {@code Resource}
  * annotation.
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 2.0
  * 
  * @see javax.annotation.Resource
@@ -151,4 +151,39 @@ public @interface JMSConnectionFactoryDefinition {
 	 */ 
 	int minPoolSize() default -1;
 
+	/**
+	 * Maximum number of messages which may be transferred to a consumer in
+	 * advance of them being received by the application. This applies to
+	 * every consumer created using this connection factory unless a different
+	 * value is specified when the consumer is created. A value of zero is
+	 * allowed, and means that no messages may be transferred in advance.
+	 * <p>
+	 * The default value of -1 means that no value is specified, and the JMS
+	 * provider's default is used, as for the {@code prefetchMaxMessages}
+	 * argument of {@code Session.createConsumer} and
+	 * {@code JMSContext.createConsumer}. A value less than -1 is invalid.
+	 * 
+	 * @since JMS 2.1
+	 */
+	int prefetchMaxMessages() default -1;
+
+	/**
+	 * Maximum total size, in bytes, of the messages which may be transferred
+	 * to a consumer in advance of them being received by the application.
+	 * This applies to every consumer created using this connection factory
+	 * unless a different value is specified when the consumer is created.
+	 * A value of zero is allowed. Since a message which is larger than this
+	 * limit may always be transferred if no other messages have been
+	 * transferred in advance, it means that at most one message may be
+	 * transferred in advance.
+	 * <p>
+	 * The default value of -1 means that no value is specified, and the JMS
+	 * provider's default is used, as for the {@code prefetchMaxBytes}
+	 * argument of {@code Session.createConsumer} and
+	 * {@code JMSContext.createConsumer}. A value less than -1 is invalid.
+	 * 
+	 * @since JMS 2.1
+	 */
+	long prefetchMaxBytes() default -1;
+
 }
@@ -39,6 +39,9 @@
  */
 
 package javax.jms;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
  
 /**
  * A client using the simplified JMS API introduced for JMS 2.0 uses a
@@ -59,19 +62,31 @@ package javax.jms;
  * For synchronous receipt, a client can request the next message from a
  * {@code JMSConsumer} using one of its {@code receive} methods. There are
  * several variations of {@code receive} that allow a client to poll or wait for
- * the next message.
+ * the next message. A client can also request a batch of messages in a single
+ * call, or request the next message without blocking by using
+ * {@code receiveAsync}, which returns a {@code CompletionStage}.
+ * The blocking {@code receive} methods may be called by virtual threads: see
+ * {@link ConnectionMetaData#isVirtualThreadFriendly} for whether waiting in
+ * them leaves the carrier thread free.
  * <p>
  * For asynchronous delivery, a client can register a {@code MessageListener}
  * object with a {@code JMSConsumer}. As messages arrive at the
  * {@code JMSConsumer}, it delivers them by calling the {@code MessageListener}
  * 's {@code onMessage} method.
+ * Alternatively a client can register a {@code BatchMessageListener}, which
+ * is passed messages in batches.
+ * <p>
+ * A client which needs to control the rate at which messages are delivered to
+ * it can instead subscribe to the {@code MessagePublisher} returned by
+ * {@code createPublisher}, which delivers messages only when they have been
+ * requested.
  * <p>
  * It is a client programming error for a {@code MessageListener} to throw an
  * exception.
  * 
  * @see javax.jms.JMSContext
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 2.0
  * 
  */
@@ -137,6 +152,138 @@ public interface JMSConsumer extends AutoCloseable {
       * @see javax.jms.JMSConsumer#getMessageListener()
       */ 
     void setMessageListener(MessageListener listener) throws JMSRuntimeException;
+
+    /** Sets the {@code JMSConsumer}'s {@code MessageListener} to a 
+      * {@code BatchMessageListener} which will be passed messages in batches.
+      * <p>
+      * The JMS provider delivers a batch to the listener's {@code onMessages}
+      * method as soon as either {@code maxBatchSize} messages are available or
+      * {@code maxBatchWait} milliseconds have elapsed since the first message
+      * in the batch became available, whichever is sooner. A batch is never
+      * empty. See {@link BatchMessageListener} for how the messages in a batch
+      * are acknowledged.
+      * <p>
+      * A {@code BatchMessageListener} may also be passed to 
+      * {@link javax.jms.JMSConsumer#setMessageListener(MessageListener)}, in which case the JMS provider chooses 
+      * the batch size and wait time, and may deliver batches containing a single
+      * message.
+      * <p>
+      * Setting the listener to null is the equivalent of 
+      * unsetting the {@code MessageListener} for the {@code JMSConsumer}. 
+      * <p>
+      * The effect of calling this method
+      * while messages are being consumed by an existing listener
+      * or the {@code JMSConsumer} is being used to consume messages synchronously
+      * is undefined.
+      * <p>
+      * This method must not be used in a Java EE web or EJB application. 
+      * Doing so may cause a {@code JMSRuntimeException} to be thrown though this is not guaranteed.
+      * 
+      * @param listener the listener to which batches of messages are to be 
+      *                 delivered
+      * @param maxBatchSize the maximum number of messages in each batch; must
+      *                 be greater than zero
+      * @param maxBatchWait the maximum time, in milliseconds, to wait for a 
+      *                 batch to reach {@code maxBatchSize} messages after the 
+      *                 first message in the batch has become available. A value
+      *                 of zero means that a batch is delivered as soon as at 
+      *                 least one message is available. 
+      *  
+      * @exception JMSRuntimeException if the JMS provider fails to set the {@code JMSConsumer}'s {@code MessageListener}
+      *                         for one of the following reasons:
+      *                         <ul>
+      *                         <li>an internal error has occurred or  
+      *                         <li>this method has been called in a Java EE web or EJB application 
+      *                         (though it is not guaranteed that an exception is thrown in this case)
+      *                         </ul>    
+      * @exception java.lang.IllegalArgumentException if {@code maxBatchSize} 
+      *                         is less than one or {@code maxBatchWait} is negative
+      *                         
+      * @see javax.jms.BatchMessageListener
+      * 
+      * @since JMS 2.1
+      */ 
+    void setMessageListener(BatchMessageListener listener, int maxBatchSize, long maxBatchWait) throws JMSRuntimeException;
+
+    /** Sets the {@code JMSConsumer}'s {@code MessageListener}, and allows the 
+      * JMS provider to call it from more than one thread at the same time.
+      * <p>
+      * Normally a session delivers messages to its message listeners one at 
+      * a time. When this method is used, the JMS provider may call the 
+      * listener's {@code onMessage} method for up to {@code concurrency} 
+      * messages received by this {@code JMSConsumer} at the same time, in 
+      * different threads, so that a single {@code JMSContext} can process 
+      * messages using several threads. Messages received by the other 
+      * consumers of the {@code JMSContext} are delivered as before, and may be 
+      * delivered at the same time as these messages.
+      * <p>
+      * <b>Ordering</b>: If {@code orderingProperty} is not null, messages 
+      * which have the same value of the message property with that name are 
+      * delivered one at a time, in the order in which they were received, 
+      * whilst messages with different values may be delivered at the same 
+      * time. For example, an ordering property of {@code JMSXGroupID} 
+      * preserves the order of each message group. Messages which do not 
+      * have the property, and all messages if {@code orderingProperty} is 
+      * null, may be delivered at the same time as each other and in any 
+      * order. A {@code concurrency} of one delivers messages one at a time, 
+      * in order, as {@code setMessageListener(MessageListener)} does.
+      * <p>
+      * <b>Acknowledgement</b>: If the session has an acknowledgement mode of 
+      * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE}, each message 
+      * is acknowledged when its own call to {@code onMessage} returns, and 
+      * if the call throws a {@code RuntimeException} only that message is 
+      * delivered again. If the session has an acknowledgement mode of 
+      * {@code CLIENT_ACKNOWLEDGE}, the listener should acknowledge each 
+      * message using {@code Message.acknowledgeOnly}, since 
+      * {@code Message.acknowledge} also acknowledges messages which are 
+      * still being processed by other threads. Concurrent delivery may not 
+      * be used with a transacted session, since a transaction would include 
+      * messages being processed by other threads.
+      * <p>
+      * <b>Threading</b>: Whilst listener calls are in progress in several 
+      * threads, each may use the {@code JMSContext} in the same way as a message 
+      * listener of a single thread, for example to create and send messages,
+      * and the JMS provider must allow this. However each thread must use its 
+      * own {@code JMSProducer}, and the listener must not recover or close the 
+      * {@code JMSContext}, or stop or close its connection.
+      * <p>
+      * Setting the listener to null is the equivalent of 
+      * unsetting the {@code MessageListener} for the {@code JMSConsumer}. 
+      * <p>
+      * The effect of calling this method
+      * while messages are being consumed by an existing listener
+      * or the {@code JMSConsumer} is being used to consume messages synchronously
+      * is undefined.
+      * <p>
+      * This method must not be used in a Java EE web or EJB application. 
+      * Doing so may cause a {@code JMSRuntimeException} to be thrown though this is not guaranteed.
+      * 
+      * @param listener the listener to which the messages are to be 
+      *                 delivered
+      * @param concurrency the maximum number of messages which may be 
+      *                 delivered to the listener at the same time; must be 
+      *                 greater than zero
+      * @param orderingProperty the name of the message property whose value 
+      *                 determines which messages are delivered in order, or 
+      *                 null
+      *  
+      * @exception JMSRuntimeException if the JMS provider fails to set the {@code JMSConsumer}'s {@code MessageListener}
+      *                         for one of the following reasons:
+      *                         <ul>
+      *                         <li>an internal error has occurred or  
+      *                         <li>this method has been called in a Java EE web or EJB application 
+      *                         (though it is not guaranteed that an exception is thrown in this case)
+      *                         </ul>    
+      * @exception IllegalStateRuntimeException if the session is transacted
+      * @exception java.lang.IllegalArgumentException if {@code concurrency} 
+      *                         is less than one or {@code orderingProperty} is 
+      *                         an empty string
+      *                         
+      * @see javax.jms.Message#acknowledgeOnly()
+      * 
+      * @since JMS 2.1
+      */ 
+    void setMessageListener(MessageListener listener, int concurrency, String orderingProperty) throws JMSRuntimeException;
     
 
     /** Receives the next message produced for this {@code JMSConsumer}.
@@ -190,6 +337,64 @@ public interface JMSConsumer extends AutoCloseable {
 
     Message receiveNoWait();
 
+    /** Receives up to {@code maxMessages} messages produced for this
+      * {@code JMSConsumer} in a single operation. JMS refers to this as a
+      * "batch receive".
+      *  
+      * <P>This call blocks until at least one message is available, the 
+      * timeout expires, or this {@code JMSConsumer} is closed.
+      * A {@code timeout} of zero never expires, and the call blocks 
+      * indefinitely until at least one message is available.
+      * Once at least one message is available this call returns all the 
+      * messages that are then available to this {@code JMSConsumer}, up to a 
+      * maximum of {@code maxMessages}. It does not wait for further messages
+      * to arrive in order to fill the batch.
+      * 
+      * <P>A batch receive has the same effect as calling {@code receive} 
+      * once for each message returned, and messages are returned in the order
+      * in which they would have been returned by successive calls to 
+      * {@code receive}. However it allows the JMS provider to hand over 
+      * messages which it has already fetched in advance as a single list, 
+      * rather than performing a separate operation for each message.
+      * 
+      * <P>The messages in the batch are acknowledged as follows:
+      * <ul>
+      * <li>{@code AUTO_ACKNOWLEDGE}: The session automatically acknowledges 
+      * all the messages in the batch when this method returns successfully.
+      * <li>{@code DUPS_OK_ACKNOWLEDGE}: The session lazily acknowledges the 
+      * messages in the batch, just as if they had been received individually.
+      * If the JMS provider fails, some or all of the messages in the batch may 
+      * be delivered again.
+      * <li>{@code CLIENT_ACKNOWLEDGE}: The messages in the batch are not 
+      * acknowledged until {@code acknowledge} is called on the 
+      * {@code JMSContext}. As with messages received individually, this
+      * acknowledges every message that has been consumed by the
+      * {@code JMSContext}, including the whole batch. If {@code recover} is
+      * called on the {@code JMSContext} then every unacknowledged message in
+      * the batch will be delivered again.
+      * <li>Transacted session: The messages in the batch are received as part 
+      * of the session's transaction, and are retained by the consumer until 
+      * the transaction commits.
+      * </ul>
+      *
+      * @param maxMessages the maximum number of messages to return; must be 
+      * greater than zero
+      * @param timeout the timeout value (in milliseconds)
+      *
+      * @return a list of between one and {@code maxMessages} messages produced
+      * for this {@code JMSConsumer}, or an empty list if the timeout expires or this 
+      * {@code JMSConsumer} is concurrently closed
+      *  
+      * @exception JMSRuntimeException if the JMS provider fails to receive the 
+      *                         messages due to some internal error.
+      * @exception java.lang.IllegalArgumentException if {@code maxMessages} 
+      *                         is less than one
+      * 
+      * @since JMS 2.1
+      */ 
+
+    List<Message> receive(int maxMessages, long timeout);
+
 
 	/**
 	 * Closes the {@code JMSConsumer}.
@@ -499,5 +704,240 @@ public interface JMSConsumer extends AutoCloseable {
 
 	 */
     <T> T receiveBodyNoWait(Class<T> c);
+
+	/**
+	 * Requests the next message produced for this {@code JMSConsumer} without
+	 * blocking the calling thread. This method returns immediately with a
+	 * {@code CompletionStage} which will be completed with the next message
+	 * when it becomes available. JMS refers to this as an "asynchronous
+	 * receive".
+	 * <p>
+	 * An asynchronous receive allows a single application thread to consume
+	 * messages from many {@code JMSConsumer} objects without dedicating a
+	 * blocked thread to each one.
+	 * <p>
+	 * <b>Completion</b>: When a message becomes available the JMS provider
+	 * completes the returned {@code CompletionStage} normally with that
+	 * message. If this {@code JMSConsumer} is closed before a message becomes
+	 * available then the {@code CompletionStage} is completed normally with
+	 * null. If the JMS provider fails to receive the next message then the
+	 * {@code CompletionStage} is completed exceptionally with a
+	 * {@code JMSRuntimeException}.
+	 * <p>
+	 * <b>Multiple requests</b>: An application may call this method again
+	 * before a previously returned {@code CompletionStage} has been completed.
+	 * Outstanding requests are satisfied in the order in which they were made,
+	 * and each message is used to complete exactly one request.
+	 * <p>
+	 * <b>Acknowledgement</b>: A message is treated as having been received at
+	 * the time the {@code CompletionStage} is completed with it, and is
+	 * acknowledged, or retained until the transaction commits, exactly as if
+	 * it had been returned by a call to {@code receive} at that time.
+	 * <p>
+	 * <b>Threading</b>: Whilst an asynchronous receive is outstanding, the
+	 * {@code JMSContext} is treated in the same way as if a
+	 * {@code MessageListener} had been set: the application must not use it
+	 * for synchronous receives, and must not set a {@code MessageListener} on
+	 * this {@code JMSConsumer}. Actions which are registered using the
+	 * non-async methods of the returned {@code CompletionStage}, such as
+	 * {@code thenAccept}, before it has been completed are performed in the
+	 * thread of control of the {@code JMSContext}, in the same way as the
+	 * {@code onMessage} method of a {@code MessageListener}, and may
+	 * therefore use the {@code JMSContext}, for example to acknowledge the
+	 * message or commit the transaction. An action which is registered after
+	 * the {@code CompletionStage} has been completed is performed by the
+	 * thread which registers it, as defined by {@code CompletableFuture}, and
+	 * an action registered using one of the async methods, such as
+	 * {@code thenAcceptAsync}, is performed by the executor of that method.
+	 * Neither is performed in the thread of control of the
+	 * {@code JMSContext}, so neither may use the {@code JMSContext} unless
+	 * the application otherwise ensures that it is not being used by another
+	 * thread at the same time.
+	 * <p>
+	 * This method must not be used in a Java EE web or EJB application. Doing
+	 * so may cause a {@code JMSRuntimeException} to be thrown though this is
+	 * not guaranteed.
+	 * 
+	 * @return a {@code CompletionStage} which will be completed with the next
+	 *         message produced for this {@code JMSConsumer}, or with null if
+	 *         this {@code JMSConsumer} is closed first
+	 * 
+	 * @throws IllegalStateRuntimeException
+	 *             if a {@code MessageListener} has been set on this
+	 *             {@code JMSConsumer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to request the next message due
+	 *             to some internal error
+	 * 
+	 * @see javax.jms.JMSConsumer#receive()
+	 * 
+	 * @since JMS 2.1
+	 */
+	CompletionStage<Message> receiveAsync();
+
+	/**
+	 * Requests the next message produced for this {@code JMSConsumer} without
+	 * blocking the calling thread, and returns a {@code CompletionStage} which
+	 * will be completed with the body of that message as an object of the
+	 * specified type.
+	 * <p>
+	 * This method has the same relationship to {@code receiveAsync} as
+	 * {@code receiveBody} has to {@code receive}. It may be used to receive
+	 * any type of message except for {@code StreamMessage} and
+	 * {@code Message}, so long as the message has a body which is capable of
+	 * being assigned to the specified type. See
+	 * {@link JMSConsumer#receiveBody(Class)} for the supported types.
+	 * <p>
+	 * <b>Completion</b>: When a message becomes available the JMS provider
+	 * completes the returned {@code CompletionStage} normally with its body.
+	 * If this {@code JMSConsumer} is closed before a message becomes
+	 * available then the {@code CompletionStage} is completed normally with
+	 * null. If the message is not one of the supported types, or its body
+	 * cannot be assigned to the specified type, or it has no body, then the
+	 * {@code CompletionStage} is completed exceptionally with a
+	 * {@code MessageFormatRuntimeException}. What then happens to the message
+	 * depends on the session mode, exactly as defined for a
+	 * {@code receiveBody} call which throws a
+	 * {@code MessageFormatRuntimeException}. If the JMS provider fails to
+	 * receive the next message then the {@code CompletionStage} is completed
+	 * exceptionally with a {@code JMSRuntimeException}.
+	 * <p>
+	 * The requirements defined in {@link JMSConsumer#receiveAsync()} for
+	 * multiple requests, acknowledgement and threading also apply to this
+	 * method.
+	 * <p>
+	 * This method must not be used in a Java EE web or EJB application. Doing
+	 * so may cause a {@code JMSRuntimeException} to be thrown though this is
+	 * not guaranteed.
+	 * 
+	 * @param c
+	 *            The type to which the body of the next message should be
+	 *            assigned.
+	 * 
+	 * @return a {@code CompletionStage} which will be completed with the body
+	 *         of the next message produced for this {@code JMSConsumer}, or
+	 *         with null if this {@code JMSConsumer} is closed first
+	 * 
+	 * @throws IllegalStateRuntimeException
+	 *             if a {@code MessageListener} has been set on this
+	 *             {@code JMSConsumer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to request the next message due
+	 *             to some internal error
+	 * 
+	 * @see javax.jms.JMSConsumer#receiveBody(Class)
+	 * 
+	 * @since JMS 2.1
+	 */
+	<T> CompletionStage<T> receiveBodyAsync(Class<T> c);
+
+	/**
+	 * Returns a {@code MessagePublisher} which delivers the messages received
+	 * by this {@code JMSConsumer} to a single {@code MessageSubscriber}, and
+	 * only as fast as that subscriber requests them.
+	 * <p>
+	 * Unlike a {@code MessageListener}, which is passed every message as soon
+	 * as it arrives, a {@code MessageSubscriber} is passed messages only when
+	 * it has outstanding demand, which it signals by calling {@code request}
+	 * on its {@code MessageSubscription}. The JMS provider must use the
+	 * outstanding demand to limit the number of messages it transfers to the
+	 * client in advance, so that a slow subscriber neither causes messages to
+	 * be buffered without limit in the client nor blocks the thread of control
+	 * of the {@code JMSContext}.
+	 * <p>
+	 * The {@code JMSConsumer} does not deliver any messages to the subscriber
+	 * until the subscriber has subscribed and requested messages. Once a
+	 * subscriber has subscribed, the {@code JMSConsumer} is treated in the
+	 * same way as if a {@code MessageListener} had been set: the application
+	 * must not use it for synchronous or asynchronous receives and must not
+	 * set a {@code MessageListener}. The subscriber's methods are invoked in
+	 * the thread of control of the {@code JMSContext}, and messages passed to
+	 * {@code onNext} are acknowledged as defined for a
+	 * {@code MessageListener}.
+	 * <p>
+	 * If the {@code JMSConsumer} is closed then the subscriber's
+	 * {@code onComplete} method is invoked. If the subscription is cancelled
+	 * then no further messages are passed to the subscriber, but the
+	 * {@code JMSConsumer} remains open.
+	 * <p>
+	 * This method must not be used in a Java EE web or EJB application. Doing
+	 * so may cause a {@code JMSRuntimeException} to be thrown though this is
+	 * not guaranteed.
+	 * 
+	 * @return a {@code MessagePublisher} for the messages received by this
+	 *         {@code JMSConsumer}
+	 * 
+	 * @throws IllegalStateRuntimeException
+	 *             if a {@code MessageListener} has been set on this
+	 *             {@code JMSConsumer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to create the
+	 *             {@code MessagePublisher} due to some internal error
+	 * 
+	 * @see javax.jms.MessagePublisher
+	 * @see javax.jms.MessageSubscription#request(long)
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessagePublisher createPublisher();
+
+	/**
+	 * Returns a snapshot of the messages which the JMS provider has
+	 * transferred to this {@code JMSConsumer} in advance of them being received by
+	 * the application, together with the prefetch limits which apply to this
+	 * {@code JMSConsumer}.
+	 * <p>
+	 * An application can use this information to tune the prefetch limits
+	 * specified when the {@code JMSConsumer} is created.
+	 * 
+	 * @return a snapshot of the prefetch statistics of this {@code JMSConsumer}
+	 * 
+	 * @exception JMSRuntimeException
+	 *                if the JMS provider fails to obtain the prefetch
+	 *                statistics due to some internal error.
+	 * 
+	 * @see javax.jms.PrefetchStatistics
+	 * 
+	 * @since JMS 2.1
+	 */
+	PrefetchStatistics getPrefetchStatistics();
+
+	/**
+	 * Acknowledges the specified message, and every message received by this
+	 * {@code JMSConsumer} before it which has not already been acknowledged.
+	 * <p>
+	 * This method is for use when the session has an acknowledgement mode of
+	 * {@code CLIENT_ACKNOWLEDGE}. Unlike the {@code acknowledge} method on
+	 * {@code JMSContext}, it does not acknowledge messages received by other
+	 * consumers created by the same {@code JMSContext}, or messages received
+	 * by this {@code JMSConsumer} after the specified message. This allows an
+	 * application to acknowledge the messages received by one consumer
+	 * cumulatively, by calling this method once for every group of messages
+	 * it has processed, in the order in which they were received.
+	 * <p>
+	 * If the session is transacted or has an acknowledgement mode of
+	 * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE} calling this
+	 * method has no effect.
+	 * <p>
+	 * Messages that have been received but not acknowledged may be
+	 * redelivered.
+	 * 
+	 * @param message
+	 *            a message received by this {@code JMSConsumer}
+	 * 
+	 * @exception JMSRuntimeException
+	 *                if the JMS provider fails to acknowledge the messages due
+	 *                to some internal error.
+	 * @exception IllegalStateRuntimeException
+	 *                if this method is called on a closed {@code JMSConsumer},
+	 *                or the specified message was not received by this
+	 *                {@code JMSConsumer}.
+	 * 
+	 * @see javax.jms.JMSContext#acknowledge()
+	 * @see javax.jms.Message#acknowledgeOnly()
+	 * 
+	 * @since JMS 2.1
+	 */
+	void acknowledgeUpTo(Message message);
     
 }
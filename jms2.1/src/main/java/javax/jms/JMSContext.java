@@ -40,7 +40,9 @@
 
 package javax.jms;
 
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.Executor;
 
 /**
  * A {@code JMSContext} is the main interface in the simplified JMS API
@@ -95,7 +97,7 @@ import java.io.Serializable;
  * these {@code JMSContext} objects are application-managed and must be
  * closed when no longer needed by calling their {@code close} method.
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 2.0
  * 
  */
@@ -166,6 +168,56 @@ public interface JMSContext extends AutoCloseable {
 	 */
 	JMSContext createContext(int sessionMode);
 
+	/**
+	 * Creates a new {@code JMSContext} with the specified session mode,
+	 * using the same connection as this {@code JMSContext}, whose message
+	 * listeners and completion listeners are called using the specified
+	 * {@code Executor}.
+	 * <p>
+	 * This method behaves in the same way as {@code createContext(int)},
+	 * except that the JMS provider does not call
+	 * {@code MessageListener.onMessage} or
+	 * {@code CompletionListener.onCompletion} for the new
+	 * {@code JMSContext} using threads of its own. Instead each call is made
+	 * by a task which is submitted to the specified executor. The rules which
+	 * apply to the executor are described in
+	 * {@link ConnectionFactory#createContext(int, Executor)}.
+	 * <p>
+	 * The exception listener is not affected, since it belongs to the
+	 * connection, which is shared with this {@code JMSContext}.
+	 * <p>
+	 * This method must not be used by applications running in the Java EE web
+	 * or EJB containers. If this method is called in a Java EE web or EJB
+	 * container then a {@code JMSRuntimeException} will be thrown.
+	 * 
+	 * @param sessionMode
+	 *            indicates which of four possible session modes will be used.
+	 *            The permitted values are
+	 *            {@code JMSContext.SESSION_TRANSACTED},
+	 *            {@code JMSContext.CLIENT_ACKNOWLEDGE},
+	 *            {@code JMSContext.AUTO_ACKNOWLEDGE} and
+	 *            {@code JMSContext.DUPS_OK_ACKNOWLEDGE}.
+	 * @param executor
+	 *            the executor used to call the message listeners and
+	 *            completion listeners of the new {@code JMSContext}
+	 * 
+	 * @return a newly created JMSContext
+	 * 
+	 * @exception JMSRuntimeException
+	 *                if the JMS provider fails to create the JMSContext due to
+	 *                <ul>
+	 *                <li>some internal error or <li>because this method is
+	 *                being called in a Java EE web or EJB application.
+	 *                </ul>
+	 * @exception IllegalArgumentException
+	 *                if {@code executor} is null
+	 * @since JMS 2.1
+	 * 
+	 * @see javax.jms.JMSContext#createContext(int)
+	 * @see javax.jms.ConnectionFactory#createContext(int, java.util.concurrent.Executor)
+	 */
+	JMSContext createContext(int sessionMode, Executor executor);
+
 	/**
 	 * Creates a new {@code JMSProducer} object which can be used to
 	 * configure and send messages
@@ -615,6 +667,38 @@ public interface JMSContext extends AutoCloseable {
 
 	BytesMessage createBytesMessage();
 
+	/**
+	 * Creates a {@code BytesMessage} object whose body will be read from the
+	 * specified {@code InputStream}.
+	 * <p>
+	 * The message body is read from the specified stream, until the end of
+	 * the stream is reached, when the message is sent. This allows the
+	 * JMS provider to transfer the body to the JMS server in chunks, without
+	 * holding the whole body in memory. The stream is not closed by the JMS
+	 * provider.
+	 * <p>
+	 * Since the stream can be read only once, the returned message may be
+	 * sent only once. Its body cannot otherwise be accessed: the {@code write}
+	 * methods throw a {@code MessageNotWriteableException} and the {@code read}
+	 * methods throw a {@code MessageNotReadableException}. Calling
+	 * {@code clearBody} discards the stream and makes the body empty and
+	 * writable.
+	 * <p>
+	 * See {@link BytesMessage} for how streamed message bodies interact with
+	 * transactions and redelivery.
+	 * 
+	 * @param body
+	 *            the stream from which the message body will be read
+	 * 
+	 * @exception JMSRuntimeException
+	 *                if the JMS provider fails to create this message due to
+	 *                some internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	BytesMessage createBytesMessage(InputStream body);
+
 	/**
 	 * Creates a {@code MapMessage} object. A {@code MapMessage}
 	 * object is used to send a self-defining set of name-value pairs, where
@@ -807,6 +891,11 @@ public interface JMSContext extends AutoCloseable {
 	 * <tt>commit</tt> on its own <tt>JMSContext</tt>. Doing so will cause an
 	 * <tt>IllegalStateRuntimeException</tt> to be thrown.
 	 * <p>
+	 * If {@link ConnectionMetaData#isVirtualThreadFriendly} returns true, this
+	 * method does not hold an object monitor while it waits for the
+	 * transaction to be committed, so a virtual thread which calls it does
+	 * not pin its carrier thread.
+	 * <p>
 	 * This method must not be used if the {@code JMSContext} is
 	 * container-managed (injected). Doing so will cause a
 	 * {@code IllegalStateRuntimeException} to be thrown.
@@ -975,6 +1064,163 @@ public interface JMSContext extends AutoCloseable {
 	 */
 	JMSConsumer createConsumer(Destination destination, java.lang.String messageSelector, boolean noLocal);
 
+	/**
+	 * Creates a {@code CompiledSelector} object by parsing and validating the
+	 * specified message selector expression.
+	 * <p>
+	 * The {@code CompiledSelector} may be passed in place of a message
+	 * selector string to the {@code WithSelector} methods of this or any other {@code JMSContext} which create
+	 * a consumer, a durable or shared subscription, or a queue browser, so
+	 * that the message selector does not need to be parsed each time.
+	 * 
+	 * @param messageSelector
+	 *            the message selector expression
+	 * @return a {@code CompiledSelector} for the specified expression
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code CompiledSelector}
+	 *             due to some internal error.
+	 * @throws InvalidSelectorRuntimeException
+	 *             if the message selector is null, empty or invalid.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	CompiledSelector createSelector(String messageSelector);
+
+	/**
+	 * Creates a {@code JMSConsumer} for the specified destination, using a
+	 * pre-compiled message selector.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createConsumer(destination, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @return a {@code JMSConsumer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code JMSConsumer} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector);
+
+	/**
+	 * Creates a {@code JMSConsumer} for the specified destination, using a
+	 * pre-compiled message selector and specifying the {@code noLocal} parameter.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createConsumer(destination, selector.getSelectorText(), noLocal)},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @param noLocal
+	 *            if true, and the destination is a topic, then the consumer
+	 *            will not receive messages published to the topic by its own
+	 *            connection.
+	 * @return a {@code JMSConsumer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code JMSConsumer} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector, boolean noLocal);
+
+	/**
+	 * Creates a {@code JMSConsumer} for the specified destination,
+	 * specifying a message selector, the {@code noLocal} parameter and the
+	 * limits on the messages which may be transferred to the
+	 * {@code JMSConsumer} in advance.
+	 * <P>
+	 * A client uses a {@code JMSConsumer} object to receive messages that
+	 * have been sent to a destination.
+	 * <P>
+	 * The {@code noLocal} argument is for use when the destination is a
+	 * topic and the JMSContext's connection is also being used to publish
+	 * messages to that topic. If {@code noLocal} is set to true then the
+	 * {@code JMSConsumer} will not receive messages published to the topic
+	 * by its own connection. The default value of this argument is false. If
+	 * the destination is a queue then the effect of setting
+	 * {@code noLocal} to true is not specified.
+	 * <P>
+	 * The {@code prefetchMaxMessages} and {@code prefetchMaxBytes} arguments
+	 * limit how many messages, and how many bytes, the JMS provider may
+	 * transfer to the {@code JMSConsumer} in advance of them being received by the
+	 * application, whether synchronously or by a {@code MessageListener}.
+	 * When either limit has been reached the JMS provider must not transfer
+	 * further messages to the {@code JMSConsumer} until some of the messages already
+	 * transferred have been received. However a message which is larger than
+	 * {@code prefetchMaxBytes} may always be transferred if no other messages
+	 * have been transferred in advance, so that it can be received. A JMS
+	 * provider which does not transfer messages in advance may ignore these
+	 * arguments.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param messageSelector
+	 *            only messages with properties matching the message selector
+	 *            expression are delivered. A value of null or an empty string
+	 *            indicates that there is no message selector for the
+	 *            {@code JMSConsumer}.
+	 * @param noLocal
+	 *            if true, and the destination is a topic, then the
+	 *            {@code JMSConsumer} will not receive messages published
+	 *            to the topic by its own connection
+	 * @param prefetchMaxMessages
+	 *            the maximum number of messages which the JMS provider may
+	 *            transfer to the {@code JMSConsumer} in advance of them being
+	 *            received by the application. A value of zero means that no
+	 *            messages may be transferred in advance. A value of -1 means
+	 *            that the connection factory or JMS provider default is used.
+	 * @param prefetchMaxBytes
+	 *            the maximum total size, in bytes, of the messages which the
+	 *            JMS provider may transfer to the {@code JMSConsumer} in advance of
+	 *            them being received by the application. A value of -1 means
+	 *            that the connection factory or JMS provider default is used.
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the session fails to create a {@code JMSConsumer} due
+	 *             to some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * @throws InvalidSelectorRuntimeException
+	 *             if the message selector is invalid.
+	 * @throws java.lang.IllegalArgumentException
+	 *             if {@code prefetchMaxMessages} or {@code prefetchMaxBytes}
+	 *             is less than -1
+	 * 
+	 * @see javax.jms.JMSConsumer#getPrefetchStatistics()
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal,
+			int prefetchMaxMessages, long prefetchMaxBytes);
+
 	/**
 	 * Creates a {@code Queue} object which encapsulates a specified
 	 * provider-specific queue name.
@@ -1216,6 +1462,47 @@ public interface JMSContext extends AutoCloseable {
 	 */ 
       JMSConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal);     
 
+	/**
+	 * Creates an unshared durable subscription on the specified topic (if one
+	 * does not already exist), using a pre-compiled message selector and
+	 * specifying the {@code noLocal} parameter, and creates a consumer on that
+	 * durable subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createDurableConsumer(topic, name, selector.getSelectorText(), noLocal)},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param name
+	 *            the name used to identify this subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @param noLocal
+	 *            if true, then messages published to the topic by its own
+	 *            connection will not be added to the durable subscription.
+	 * @return a {@code JMSConsumer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code JMSConsumer} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid topic is specified.
+	 * @throws JMSRuntimeException
+	 *             if an unshared durable subscription already exists with the
+	 *             same name and client identifier and there is a consumer already
+	 *             active, or if a shared durable subscription already exists with
+	 *             the same name and client identifier.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector, boolean noLocal);
+
    	/**
    	 * Creates a shared durable subscription on the specified topic (if one
    	 * does not already exist), specifying a message selector,
@@ -1387,6 +1674,44 @@ public interface JMSContext extends AutoCloseable {
    * @since JMS 2.0
  	 */
       JMSConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector);         
+
+	/**
+	 * Creates a shared durable subscription on the specified topic (if one
+	 * does not already exist), using a pre-compiled message selector, and
+	 * creates a consumer on that durable subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createSharedDurableConsumer(topic, name, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param name
+	 *            the name used to identify this subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @return a {@code JMSConsumer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code JMSConsumer} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid topic is specified.
+	 * @throws JMSRuntimeException
+	 *             if a shared durable subscription already exists with the same
+	 *             name and client identifier but a different topic or message
+	 *             selector and there is a consumer already active, or if an
+	 *             unshared durable subscription already exists with the same
+	 *             name and client identifier.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createSharedDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector);
       
   	/**
   	 * Creates a shared non-durable subscription with the specified name on the
@@ -1496,6 +1821,42 @@ public interface JMSContext extends AutoCloseable {
 	 */
 	JMSConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, java.lang.String messageSelector);
 
+	/**
+	 * Creates a shared non-durable subscription with the specified name on the
+	 * specified topic (if one does not already exist), using a pre-compiled
+	 * message selector, and creates a consumer on that subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createSharedConsumer(topic, sharedSubscriptionName, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param sharedSubscriptionName
+	 *            the name used to identify the shared non-durable subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @return a {@code JMSConsumer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code JMSConsumer} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid topic is specified.
+	 * @throws JMSRuntimeException
+	 *             if a shared non-durable subscription already exists with the
+	 *             same name and client identifier but a different topic or message
+	 *             selector, and there is a consumer already active on it.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSConsumer createSharedConsumerWithSelector(Topic topic, String sharedSubscriptionName, CompiledSelector selector);
+
 	/**
 	 * Creates a {@code QueueBrowser} object to peek at the messages on the
 	 * specified queue.
@@ -1538,6 +1899,35 @@ public interface JMSContext extends AutoCloseable {
 
 	QueueBrowser createBrowser(Queue queue, String messageSelector);
 
+	/**
+	 * Creates a {@code QueueBrowser} object to peek at the messages on the
+	 * specified queue using a pre-compiled message selector.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createBrowser(queue, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param queue
+	 *            the {@code queue} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @return a {@code QueueBrowser}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the {@code JMSContext} fails to create the {@code QueueBrowser} due to
+	 *             some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	QueueBrowser createBrowserWithSelector(Queue queue, CompiledSelector selector);
+
 	/**
 	 * Creates a {@code TemporaryQueue} object. Its lifetime will be that
 	 * of the JMSContext's {@code Connection} unless it is deleted earlier.
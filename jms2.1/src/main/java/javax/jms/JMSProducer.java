@@ -40,9 +40,12 @@
 
 package javax.jms;
 
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
 /**
  * A {@code JMSProducer} is a simple object used to send messages on behalf
@@ -59,10 +62,23 @@ import java.util.Set;
  * {@code setDisableMessageTimestamp}, {@code setDisableMessageID} and
  * {@code setAsync}.
  * <p>
+ * A message may also be sent asynchronously using {@code sendAsync}, which
+ * returns a {@code CompletionStage} that will be completed when the send
+ * operation has completed. An application which prefers to block in a
+ * synchronous {@code send} on a virtual thread can use
+ * {@link ConnectionMetaData#isVirtualThreadFriendly} to find out whether the
+ * JMS provider will hold a monitor, and so pin the carrier thread, while the
+ * send waits.
+ * <p>
+ * The number of asynchronous sends which may be outstanding at the same time
+ * may be limited using {@code setSendWindow}.
+ * <p>
  * Message properties may be may be specified using one or more of nine
  * {@code setProperty} methods. Any message properties set using these
  * methods will override any message properties that have been set directly on
  * the message.
+ * A property may also be set using one of the {@code setPropertyValue}
+ * methods, which take a {@code PropertyKey} in place of the property name.
  * <p>
  * Message headers may be specified using one or more of the following methods:
  * {@code setJMSCorrelationID}, {@code setJMSCorrelationIDAsBytes},
@@ -80,7 +96,7 @@ import java.util.Set;
  * which can be created freely and which do not consume significant resources.
  * This interface therefore does not provide a {@code close} method.
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 2.0
  * 
  */
@@ -199,6 +215,259 @@ public interface JMSProducer {
 	 */
 	JMSProducer send(Destination destination, Serializable body);
 
+	/**
+	 * Send a {@code BytesMessage} whose body is read from the specified
+	 * stream to the specified destination, using any send options, message
+	 * properties and message headers that have been defined on this
+	 * {@code JMSProducer}.
+	 * <p>
+	 * The stream is read until the end of the stream is reached. This allows
+	 * the JMS provider to transfer the body to the JMS server in chunks,
+	 * without holding the whole body in memory. The stream is not closed by
+	 * the JMS provider. If the send is asynchronous then the stream may still
+	 * be being read after this method has returned, and the application must
+	 * not use the stream until the {@code CompletionListener} has been
+	 * invoked.
+	 * <p>
+	 * If the stream throws an {@code IOException} then the send fails and no
+	 * part of the message is delivered. See {@link BytesMessage} for how
+	 * streamed message bodies interact with transactions and redelivery.
+	 * 
+	 * @param destination
+	 *            the destination to send this message to
+	 * @param body
+	 *            the stream from which the body of the {@code BytesMessage}
+	 *            will be read
+	 * @return this {@code JMSProducer}
+	 * @throws MessageFormatRuntimeException
+	 *             if an invalid message is specified.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if a client uses this method with an invalid destination.
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the message due to some
+	 *             internal error, including the stream throwing an
+	 *             {@code IOException}.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer send(Destination destination, InputStream body);
+
+	/**
+	 * Sends a batch of messages to the specified destination, using any send
+	 * options, message properties and message headers that have been defined
+	 * on this {@code JMSProducer}. JMS refers to this as a "batch send".
+	 * <p>
+	 * A batch send has the same effect as calling
+	 * {@code send(Destination, Message)} once for each message in the list,
+	 * in list order. However it allows the JMS provider to transfer all the
+	 * messages to the JMS server in a single operation and, for persistent
+	 * messages, to write them to stable storage in a single operation, rather
+	 * than performing a separate synchronous operation for each message.
+	 * <p>
+	 * <b>Message order</b>: The messages in the batch are sent in the order in
+	 * which they appear in the list. For the purposes of JMS message ordering
+	 * they must be treated exactly as if they had been sent individually, in
+	 * that order, using this {@code JMSContext}.
+	 * <p>
+	 * <b>Exceptions</b>: If the {@code JMSContext} is not transacted then a
+	 * batch send is not atomic. If an exception is thrown then some of the
+	 * messages in the batch may have been successfully sent. However if any
+	 * message in the batch was successfully sent then every message which
+	 * precedes it in the list must also have been successfully sent. Which
+	 * messages, if any, were sent is otherwise undefined. An application which
+	 * requires all the messages in the batch to be sent, or none of them,
+	 * should use a transacted {@code JMSContext}.
+	 * <p>
+	 * <b>Asynchronous batch send</b>: If a {@code CompletionListener} has been
+	 * set using {@code setAsync} then the batch is sent asynchronously and
+	 * all the requirements of an asynchronous send apply to each message in
+	 * the batch. The JMS provider must invoke the {@code CompletionListener}
+	 * exactly once for each message in the batch, in list order. If the JMS
+	 * provider cannot confirm that a message was successfully sent then
+	 * {@code onException} is invoked for that message and for every message
+	 * which follows it in the list. If an exception is thrown by this method
+	 * itself then no callbacks are performed for any message in the batch.
+	 * <p>
+	 * The list must not be modified by the application until this method has
+	 * returned. An empty list is permitted and causes no messages to be sent.
+	 * 
+	 * @param destination
+	 *            the destination to send these messages to
+	 * @param messages
+	 *            the messages to send
+	 * @return this {@code JMSProducer}
+	 * @throws MessageFormatRuntimeException
+	 *             if an invalid message is specified.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if a client uses this method with an invalid destination.
+	 * @throws MessageNotWriteableRuntimeException
+	 *             if this {@code JMSProducer} has been configured to set a
+	 *             message property, but the properties of one of the messages
+	 *             are read-only
+	 * @throws java.lang.IllegalArgumentException
+	 *             if the specified list, or any element of it, is null
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the messages due to some
+	 *             internal error.
+	 * 
+	 * @see javax.jms.JMSProducer#setAsync
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer sendBatch(Destination destination, List<? extends Message> messages);
+
+	/**
+	 * Sends a message to the specified destination asynchronously, using any
+	 * send options, message properties and message headers that have been
+	 * defined on this {@code JMSProducer}, and returns a
+	 * {@code CompletionStage} which will be completed when the send operation
+	 * has completed.
+	 * <p>
+	 * This method always performs an asynchronous send, whether or not a
+	 * {@code CompletionListener} has been set using {@code setAsync}. Any
+	 * {@code CompletionListener} that has been set is not invoked. Apart from
+	 * the way in which the application is notified, all the requirements for
+	 * an asynchronous send defined in {@link JMSProducer#setAsync} apply.
+	 * <p>
+	 * <b>Completion</b>: When the message has been successfully sent, with
+	 * the same degree of confidence as if a normal synchronous send had been
+	 * performed, the JMS provider completes the returned
+	 * {@code CompletionStage} normally with the message that was sent. It must
+	 * not be completed earlier than this. If the JMS provider cannot confirm
+	 * that the message was successfully sent then the {@code CompletionStage}
+	 * is completed exceptionally with the exception which would otherwise have
+	 * been passed to {@code CompletionListener.onException}. In that case it
+	 * is undefined whether or not the message was successfully sent.
+	 * <p>
+	 * <b>Exceptions</b>: If an exception is encountered during the call to
+	 * this method then an appropriate exception is thrown in the calling
+	 * thread and no {@code CompletionStage} is returned.
+	 * <p>
+	 * <b>Message order</b>: JMS message ordering requirements must be
+	 * satisfied, just as for any other send using the same
+	 * {@code JMSContext}. The {@code CompletionStage} objects returned by
+	 * successive calls to this method are completed in the order in which the
+	 * calls were made.
+	 * <p>
+	 * <b>Dependent actions</b>: Actions which are registered using the
+	 * non-async methods of the returned {@code CompletionStage}, such as
+	 * {@code thenAccept}, before it has been completed may be performed by a
+	 * thread belonging to the JMS provider, in which case they are subject to
+	 * the same restrictions as the callback methods of a
+	 * {@code CompletionListener}. In particular they must not call
+	 * {@code close}, {@code commit} or {@code rollback} on this
+	 * {@code JMSContext}. An action which is registered after the
+	 * {@code CompletionStage} has been completed is performed by the thread
+	 * which registers it, as defined by {@code CompletableFuture}, which may
+	 * be the thread which called this method. An action registered using one
+	 * of the async methods, such as {@code thenAcceptAsync}, is performed by
+	 * the executor of that method. An application which needs to perform
+	 * operations such as {@code commit}, or long-running work, should
+	 * register its actions using the async methods and an application
+	 * {@code Executor}.
+	 * <p>
+	 * <b>Flow control</b>: Each call to this method is an asynchronous send,
+	 * which is counted in the send window of this {@code JMSProducer} until the
+	 * returned {@code CompletionStage} has been completed. If the send window
+	 * is full, this method blocks, throws a
+	 * {@code ResourceAllocationRuntimeException} or sends the message anyway,
+	 * according to the limits and policy set using
+	 * {@link JMSProducer#setSendWindow}. A dependent action performed by a
+	 * thread belonging to the JMS provider which calls this method when the
+	 * send window is full fails as described for {@link SendWindow#BLOCK}.
+	 * <p>
+	 * <b>Restrictions on usage in Java EE</b> This method must not be used in a
+	 * Java EE EJB or web container. Doing so may cause a
+	 * {@code JMSRuntimeException} to be thrown though this is not guaranteed.
+	 * <p>
+	 * <b>Restrictions on the use of the Message object</b>: After this method
+	 * has returned, the application must not attempt to read the headers,
+	 * properties or body of the {@code Message} object until the returned
+	 * {@code CompletionStage} has been completed.
+	 * 
+	 * @param destination
+	 *            the destination to send this message to
+	 * @param message
+	 *            the message to send
+	 * @return a {@code CompletionStage} which will be completed when the send
+	 *         operation has completed
+	 * @throws MessageFormatRuntimeException
+	 *             if an invalid message is specified.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if a client uses this method with an invalid destination.
+	 * @throws MessageNotWriteableRuntimeException
+	 *             if this {@code JMSProducer} has been configured to set a
+	 *             message property, but the message's properties are read-only
+	 * @throws ResourceAllocationRuntimeException
+	 *             if the send window is full and its policy is
+	 *             {@code SendWindow.FAIL}, or it is {@code SendWindow.BLOCK}
+	 *             and this method is called by a thread belonging to the JMS
+	 *             provider
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the message due to some
+	 *             internal error.
+	 * 
+	 * @see javax.jms.JMSProducer#setAsync
+	 * @see javax.jms.JMSProducer#setSendWindow
+	 * 
+	 * @since JMS 2.1
+	 */
+	CompletionStage<Message> sendAsync(Destination destination, Message message);
+
+	/**
+	 * Returns a {@code MessageSubscriber} which sends every message passed to
+	 * it to the specified destination, using any send options, message
+	 * properties and message headers that have been defined on this
+	 * {@code JMSProducer}.
+	 * <p>
+	 * The returned {@code MessageSubscriber} may be subscribed to any source of
+	 * messages which follows the protocol defined by
+	 * {@code MessagePublisher}, {@code MessageSubscriber} and
+	 * {@code MessageSubscription}. It requests messages from that source only
+	 * as fast as the JMS provider is able to send them: the JMS provider
+	 * requests further messages only when sends of the messages it has
+	 * already been passed have completed, or are able to proceed without
+	 * causing messages to be buffered without limit in the client. This
+	 * allows a slow JMS server to slow down the source of the messages.
+	 * <p>
+	 * Each message is sent asynchronously, and all the requirements for an
+	 * asynchronous send defined in {@link JMSProducer#setAsync} apply. In
+	 * particular, messages are sent in the order in which they are passed to
+	 * {@code onNext}, and the application must not access a message after
+	 * passing it to {@code onNext}. Any {@code CompletionListener} that has
+	 * been set using {@code setAsync} is invoked for each message.
+	 * <p>
+	 * If a send fails, the JMS provider cancels its subscription and reports
+	 * the failure to the {@code ExceptionListener}, if any, of the
+	 * {@code JMSContext}. When {@code onComplete} or {@code onError} is
+	 * invoked, no further messages are sent, but the {@code JMSContext} is not
+	 * closed.
+	 * <p>
+	 * The methods of the returned {@code MessageSubscriber} must be invoked
+	 * serially, and conform to the same threading restrictions as the
+	 * {@code send} methods of this {@code JMSProducer}.
+	 * <p>
+	 * This method must not be used in a Java EE EJB or web container. Doing so
+	 * may cause a {@code JMSRuntimeException} to be thrown though this is not
+	 * guaranteed.
+	 * 
+	 * @param destination
+	 *            the destination to send the messages to
+	 * @return a {@code MessageSubscriber} which sends every message passed to
+	 *         it
+	 * @throws InvalidDestinationRuntimeException
+	 *             if a client uses this method with an invalid destination.
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to create the
+	 *             {@code MessageSubscriber} due to some internal error.
+	 * 
+	 * @see javax.jms.MessageSubscriber
+	 * @see javax.jms.JMSConsumer#createPublisher()
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageSubscriber createSubscriber(Destination destination);
+
 	/**
 	 * Specifies whether message IDs may be disabled for messages that are sent
 	 * using this {@code JMSProducer}
@@ -616,6 +885,81 @@ public interface JMSProducer {
 	 */
 	CompletionListener getAsync();
 
+	/**
+	 * Sets the limits on the asynchronous send operations of this
+	 * {@code JMSProducer} which may be outstanding at the same time, and the
+	 * policy which determines what happens when an asynchronous send is
+	 * attempted and those limits have been reached.
+	 * <p>
+	 * An asynchronous send is outstanding from the time the {@code send}
+	 * method returns until the JMS provider has notified the application that
+	 * it has completed. See {@link SendWindow} for a full definition.
+	 * <p>
+	 * By default the limits are chosen by the JMS provider, and may be
+	 * unlimited, and the policy is {@code SendWindow.BLOCK}.
+	 * 
+	 * @param maxMessages
+	 *            the maximum number of outstanding asynchronous sends, which
+	 *            must be greater than zero, or -1 if the number is not limited
+	 * @param maxBytes
+	 *            the maximum total size, in bytes, of the messages of the
+	 *            outstanding asynchronous sends, which must be greater than
+	 *            zero, or -1 if the size is not limited
+	 * @param policy
+	 *            the policy when the send window is full; legal values are
+	 *            {@code SendWindow.BLOCK}, {@code SendWindow.FAIL} and
+	 *            {@code SendWindow.NOTIFY}
+	 * @return this {@code JMSProducer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the send window due to
+	 *             some internal error.
+	 * @throws java.lang.IllegalArgumentException
+	 *             if any of the arguments is invalid
+	 * 
+	 * @see javax.jms.SendWindow
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setSendWindow(int maxMessages, long maxBytes, int policy);
+
+	/**
+	 * Returns a snapshot of the asynchronous send operations of this
+	 * {@code JMSProducer} which are outstanding, together with the limits and
+	 * policy which apply to them.
+	 * 
+	 * @return a snapshot of the send window of this {@code JMSProducer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to obtain the send window due to
+	 *             some internal error.
+	 * 
+	 * @see javax.jms.SendWindow
+	 * 
+	 * @since JMS 2.1
+	 */
+	SendWindow getSendWindow();
+
+	/**
+	 * Sets a {@code SendWindowListener} to be notified when the send window
+	 * of this {@code JMSProducer} becomes full and when it becomes available
+	 * again. Setting the listener to null removes any listener that has been
+	 * set.
+	 * 
+	 * @param listener
+	 *            the listener, or null
+	 * @return this {@code JMSProducer}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the listener due to some
+	 *             internal error.
+	 * 
+	 * @see javax.jms.SendWindowListener
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setSendWindowListener(SendWindowListener listener);
+
 	/**
 	 * Specifies that messages sent using this {@code JMSProducer} will
 	 * have the specified property set to the specified {@code boolean}
@@ -828,6 +1172,182 @@ public interface JMSProducer {
 	 */
 	JMSProducer setProperty(String name, Object value);
 
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code boolean} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code boolean} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, boolean value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code byte} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code byte} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, byte value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code short} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code short} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, short value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code int} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code int} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, int value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code long} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code long} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, long value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code float} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code float} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, float value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code double} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code double} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, double value);
+
+	/**
+	 * Specifies that messages sent using this {@code JMSProducer} will
+	 * have the property with the specified {@code PropertyKey} set to the
+	 * specified {@code String} value. This has the same effect as
+	 * {@code setProperty(key.getName(), value)}.
+	 * <p>
+	 * This will replace any property of the same name that is already set on
+	 * the message being sent.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param value
+	 *            the {@code String} property value to set
+	 * @return this {@code JMSProducer}
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to set the property due to some
+	 *             internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	JMSProducer setPropertyValue(PropertyKey key, String value);
+
 	/**
 	 * Clears any message properties set on this {@code JMSProducer}
 	 * 
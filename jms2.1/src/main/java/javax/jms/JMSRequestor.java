@@ -0,0 +1,436 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.jms;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The {@code JMSRequestor} helper class simplifies making service requests
+ * using the simplified API, and allows any number of requests to be
+ * outstanding at the same time.
+ * <p>
+ * The {@code JMSRequestor} constructor is given a {@code JMSContext} and a
+ * destination to which requests are sent. It creates a single
+ * {@code TemporaryQueue} to which all replies are sent, and a
+ * {@code MessageListener} which matches each reply to its request using the
+ * {@code JMSCorrelationID} header field of the reply. No temporary destination
+ * is created for an individual request.
+ * <p>
+ * A request is sent using {@code requestAsync}, which returns a
+ * {@code CompletionStage} that is completed with the reply, or using
+ * {@code request}, which waits for the reply for up to a specified time. The
+ * methods of a {@code JMSRequestor} may be called by any number of threads at
+ * the same time.
+ * <p>
+ * <b>Timeouts</b>: A request sent using {@code requestAsync(Message, long)} is
+ * expired by a task scheduled on the {@code ScheduledExecutorService} passed
+ * to the constructor, which the {@code JMSRequestor} never shuts down. If no
+ * {@code ScheduledExecutorService} is passed to the constructor, the
+ * {@code JMSRequestor} starts a daemon thread of its own the first time such a
+ * request is sent, which is only stopped when the {@code JMSRequestor} is
+ * closed.
+ * <p>
+ * <b>Responders</b>: The {@code JMSRequestor} sets the {@code JMSReplyTo}
+ * header field of each request to its temporary queue. An application that
+ * responds to a request must send exactly one reply to that destination, and
+ * must set the {@code JMSCorrelationID} header field of the reply to the
+ * {@code JMSMessageID} of the request. A reply whose {@code JMSCorrelationID}
+ * does not match an outstanding request, for example because the request has
+ * timed out, is acknowledged and discarded.
+ * <p>
+ * The {@code JMSContext} passed to the constructor is only used to create the
+ * {@code JMSContext} objects used by the {@code JMSRequestor}, which share its
+ * connection, so it may not be a {@code JMSContext} that is injected into a
+ * Java EE application, and replies are only received whilst its connection
+ * is started. Messages sent as requests should be created using the same
+ * connection.
+ * 
+ * @see javax.jms.QueueRequestor
+ * @see javax.jms.TopicRequestor
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ */
+public class JMSRequestor implements AutoCloseable {
+
+	private final Destination destination;
+
+	private final JMSContext sendContext;
+
+	private final JMSProducer producer;
+
+	private final JMSContext replyContext;
+
+	private final TemporaryQueue replyQueue;
+
+	private final JMSConsumer replyConsumer;
+
+	/**
+	 * Held whilst a request is sent and then added to {@code replies}, since
+	 * its {@code JMSMessageID} is not known until it has been sent. This is a
+	 * {@code Lock} rather than a monitor so that a virtual thread which blocks
+	 * in {@code send} whilst holding it does not pin its carrier thread.
+	 */
+	private final Lock sendLock = new ReentrantLock();
+
+	/** The outstanding requests */
+	private final PendingReplies replies = new PendingReplies(sendLock);
+
+	/**
+	 * The application's executor used to expire requests, or null if none was
+	 * passed to the constructor
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Used to expire requests if no {@code scheduler} was passed to the
+	 * constructor. Created the first time a request with a timeout is sent
+	 * asynchronously, and guarded by {@code sendLock}
+	 */
+	private ScheduledThreadPoolExecutor timer;
+
+	private volatile boolean closed;
+
+	/**
+	 * Constructor for the {@code JMSRequestor} class.
+	 * <p>
+	 * Creates the temporary queue to which replies are sent, and a consumer
+	 * on it. The consumer uses a new {@code JMSContext}, created using the
+	 * {@code createContext} method of the specified {@code JMSContext}, so
+	 * that replies are received in a different thread of control from that
+	 * used by the specified {@code JMSContext}.
+	 * 
+	 * @param context
+	 *            the {@code JMSContext} whose connection is used to send
+	 *            requests and receive replies
+	 * @param destination
+	 *            the queue or topic to which requests are sent
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to create the
+	 *             {@code JMSRequestor} due to some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * @throws IllegalStateRuntimeException
+	 *             if the specified {@code JMSContext} is container-managed
+	 *             (injected).
+	 */
+	public JMSRequestor(JMSContext context, Destination destination) {
+		this(context, destination, null);
+	}
+
+	/**
+	 * Constructor for the {@code JMSRequestor} class, which expires requests
+	 * using the specified {@code ScheduledExecutorService}.
+	 * <p>
+	 * This constructor behaves in the same way as
+	 * {@code JMSRequestor(JMSContext, Destination)}, except that a request sent
+	 * using {@code requestAsync(Message, long)} is expired by a task scheduled
+	 * on {@code scheduler} rather than by a thread started by the
+	 * {@code JMSRequestor}. The task only completes a {@code CompletionStage},
+	 * and {@code scheduler} is not shut down when the {@code JMSRequestor} is
+	 * closed.
+	 * 
+	 * @param context
+	 *            the {@code JMSContext} whose connection is used to send
+	 *            requests and receive replies
+	 * @param destination
+	 *            the queue or topic to which requests are sent
+	 * @param scheduler
+	 *            the {@code ScheduledExecutorService} used to expire requests,
+	 *            or null to use a thread started by the {@code JMSRequestor}
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to create the
+	 *             {@code JMSRequestor} due to some internal error.
+	 * @throws InvalidDestinationRuntimeException
+	 *             if an invalid destination is specified.
+	 * @throws IllegalStateRuntimeException
+	 *             if the specified {@code JMSContext} is container-managed
+	 *             (injected).
+	 */
+	public JMSRequestor(JMSContext context, Destination destination, ScheduledExecutorService scheduler) {
+		if (destination == null) {
+			throw new InvalidDestinationRuntimeException("destination==null");
+		}
+		this.destination = destination;
+		this.scheduler = scheduler;
+		sendContext = context.createContext(JMSContext.AUTO_ACKNOWLEDGE);
+		try {
+			producer = sendContext.createProducer();
+			replyContext = context.createContext(JMSContext.AUTO_ACKNOWLEDGE);
+			try {
+				replyQueue = replyContext.createTemporaryQueue();
+				replyConsumer = replyContext.createConsumer(replyQueue);
+				replyConsumer.setMessageListener(replies::complete);
+			} catch (RuntimeException e) {
+				replyContext.close();
+				throw e;
+			}
+		} catch (RuntimeException e) {
+			sendContext.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends a request, and returns a {@code CompletionStage} which is
+	 * completed with its reply. The temporary queue of this
+	 * {@code JMSRequestor} is used for the {@code JMSReplyTo} destination, and
+	 * only one reply per request is expected.
+	 * <p>
+	 * The returned {@code CompletionStage} is never completed if no reply is
+	 * received. The {@code requestAsync(Message, long)} method should be used
+	 * if a reply may not be received.
+	 * <p>
+	 * Actions registered using the non-async methods of the returned
+	 * {@code CompletionStage}, such as {@code thenAccept}, may be performed in
+	 * the thread of control used to receive replies, in which case the next
+	 * reply is not received until they return. They must not call the
+	 * {@code request} method of this {@code JMSRequestor}, or close it.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @return a {@code CompletionStage} which is completed with the reply, or
+	 *         is completed exceptionally with an
+	 *         {@code IllegalStateRuntimeException} if this
+	 *         {@code JMSRequestor} is closed before the reply is received
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the request due to some
+	 *             internal error.
+	 * @throws IllegalStateRuntimeException
+	 *             if this {@code JMSRequestor} has been closed.
+	 */
+	public CompletionStage<Message> requestAsync(Message message) {
+		return send(message);
+	}
+
+	/**
+	 * Sends a request, and returns a {@code CompletionStage} which is
+	 * completed with its reply, or is completed exceptionally with a
+	 * {@code java.util.concurrent.TimeoutException} if no reply is received
+	 * within the specified time. The temporary queue of this
+	 * {@code JMSRequestor} is used for the {@code JMSReplyTo} destination, and
+	 * only one reply per request is expected.
+	 * <p>
+	 * Actions registered using the non-async methods of the returned
+	 * {@code CompletionStage} are performed in the same way as those of a
+	 * {@code CompletionStage} returned by {@code requestAsync(Message)}.
+	 * <p>
+	 * If a {@code ScheduledExecutorService} was passed to the constructor, and
+	 * it rejects the task which expires the request, the returned
+	 * {@code CompletionStage} is completed exceptionally with a
+	 * {@code JMSRuntimeException} whose cause is the
+	 * {@code RejectedExecutionException}. If not, the first call of this method
+	 * with a non-zero timeout starts a thread which is only stopped by
+	 * {@code close}.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @param timeout
+	 *            the time to wait for the reply, in milliseconds, or zero to
+	 *            wait indefinitely
+	 * @return a {@code CompletionStage} which is completed with the reply
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the request due to some
+	 *             internal error.
+	 * @throws IllegalStateRuntimeException
+	 *             if this {@code JMSRequestor} has been closed.
+	 * @throws IllegalArgumentException
+	 *             if the timeout is negative.
+	 * 
+	 * @see JMSRequestor#requestAsync(Message)
+	 */
+	public CompletionStage<Message> requestAsync(Message message, long timeout) {
+		checkTimeout(timeout);
+		CompletableFuture<Message> reply = send(message);
+		ScheduledExecutorService timer = timeout > 0 && !reply.isDone() ? timer() : null;
+		if (timer != null) {
+			PendingReplies.expire(reply, timeout, timer);
+		}
+		return reply;
+	}
+
+	/**
+	 * Sends a request and waits for its reply for up to the specified time.
+	 * The temporary queue of this {@code JMSRequestor} is used for the
+	 * {@code JMSReplyTo} destination, and only one reply per request is
+	 * expected.
+	 * <p>
+	 * A timeout of zero never expires, and the call blocks indefinitely.
+	 * 
+	 * @param message
+	 *            the message to send
+	 * @param timeout
+	 *            the time to wait for the reply, in milliseconds
+	 * @return the reply, or null if no reply is received within the specified
+	 *         time, or if the calling thread is interrupted whilst waiting
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to send the request due to some
+	 *             internal error.
+	 * @throws IllegalStateRuntimeException
+	 *             if this {@code JMSRequestor} has been closed, or is closed
+	 *             whilst waiting for the reply.
+	 * @throws IllegalArgumentException
+	 *             if the timeout is negative.
+	 */
+	public Message request(Message message, long timeout) {
+		checkTimeout(timeout);
+		CompletableFuture<Message> reply = send(message);
+		try {
+			return PendingReplies.await(reply, timeout);
+		} catch (JMSException e) {
+			throw new JMSRuntimeException(e.getMessage(), e.getErrorCode(), e);
+		}
+	}
+
+	/**
+	 * Closes the {@code JMSRequestor}, and deletes its temporary queue.
+	 * <p>
+	 * Every request which has not yet received a reply is completed
+	 * exceptionally with an {@code IllegalStateRuntimeException}. This method
+	 * does not close the {@code JMSContext} passed to the {@code JMSRequestor}
+	 * constructor, and does not shut down a {@code ScheduledExecutorService}
+	 * passed to it.
+	 * <p>
+	 * If no {@code ScheduledExecutorService} was passed to the constructor,
+	 * this method stops the thread which the {@code JMSRequestor} started to
+	 * expire requests. That thread is not stopped otherwise, so this method
+	 * must be called once the {@code JMSRequestor} is no longer needed.
+	 * 
+	 * @throws JMSRuntimeException
+	 *             if the JMS provider fails to close the {@code JMSRequestor}
+	 *             due to some internal error.
+	 */
+	@Override
+	public void close() {
+		sendLock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (timer != null) {
+				timer.shutdownNow();
+			}
+		} finally {
+			sendLock.unlock();
+		}
+		try {
+			replyConsumer.close();
+			replyQueue.delete();
+		} catch (JMSException e) {
+			throw new JMSRuntimeException(e.getMessage(), e.getErrorCode(), e);
+		} finally {
+			try {
+				replyContext.close();
+			} finally {
+				sendContext.close();
+				replies.failAll(new IllegalStateRuntimeException("Requestor is closed"));
+			}
+		}
+	}
+
+	private static void checkTimeout(long timeout) {
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Timeout must not be negative: " + timeout);
+		}
+	}
+
+	private CompletableFuture<Message> send(Message message) {
+		sendLock.lock();
+		try {
+			if (closed) {
+				throw new IllegalStateRuntimeException("Requestor is closed");
+			}
+			String messageID;
+			try {
+				message.setJMSReplyTo(replyQueue);
+				producer.send(destination, message);
+				messageID = message.getJMSMessageID();
+			} catch (JMSException e) {
+				throw new JMSRuntimeException(e.getMessage(), e.getErrorCode(), e);
+			}
+			if (messageID == null) {
+				throw new JMSRuntimeException("Request was sent without a JMSMessageID");
+			}
+			return replies.register(messageID);
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the executor used to expire requests, or null if this requestor
+	 * has been closed, in which case every outstanding request is completed by
+	 * {@code close}.
+	 */
+	private ScheduledExecutorService timer() {
+		sendLock.lock();
+		try {
+			if (closed) {
+				return null;
+			}
+			if (scheduler != null) {
+				return scheduler;
+			}
+			if (timer == null) {
+				timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+					Thread thread = new Thread(runnable, "JMSRequestor timer");
+					thread.setDaemon(true);
+					return thread;
+				});
+				timer.setRemoveOnCancelPolicy(true);
+			}
+			return timer;
+		} finally {
+			sendLock.unlock();
+		}
+	}
+}
@@ -198,6 +198,21 @@ import java.util.Enumeration;
   * a property name enumeration and then use the various property get methods 
   * to retrieve their values.
   *
+  * <P>The {@code forEachProperty} method may be used instead to iterate 
+  * through a message's property values without creating any objects. A 
+  * {@code PropertyVisitor} is called with the name and value of each 
+  * property, using a method that corresponds to the type of the value.
+  *
+  * <P>The {@code get<I>type</I>PropertyValue}, 
+  * {@code set<I>type</I>PropertyValue} and {@code hasPropertyValue} methods
+  * correspond to the {@code get<I>type</I>Property}, 
+  * {@code set<I>type</I>Property} and {@code propertyExists} methods, but
+  * take a {@code PropertyKey} in place of the property name. 
+  * A {@code PropertyKey} is a pre-interned handle for a 
+  * property name which allows a JMS provider to store property values 
+  * without looking up the name, and without wrapping primitive values 
+  * in objects.
+  *
   * <P>A message's properties are deleted by the {@code clearProperties}
   * method. This leaves the message with an empty set of properties.
   *
@@ -232,6 +247,8 @@ import java.util.Enumeration;
   * <P>{@code JMSXGroupID} and {@code JMSXGroupSeq} are standard 
   * properties that clients 
   * should use if they want to group messages. All providers must support them.
+  * How a provider delivers the messages of a group is described under 
+  * <a href="#groups">Message Groups</a> below.
   * Unless specifically noted, the values and semantics of the JMSX properties 
   * are undefined.
   *
@@ -246,6 +263,46 @@ import java.util.Enumeration;
   * single JMS application. They should not be used for messaging between JMS 
   * clients.
   *
+  * <H4><a name="groups">Message Groups</a></H4>
+  *
+  * <P>Messages sent to the same queue, or to the same topic and consumed 
+  * using a shared subscription, which have the same value of the 
+  * {@code JMSXGroupID} property form a message group. A provider delivers 
+  * the messages of a group to the consumers of the queue or subscription 
+  * as follows:
+  *
+  * <UL>
+  *   <LI>All the messages of a group are delivered to a single consumer, 
+  *       to which the provider assigns the group when it delivers the first 
+  *       message of the group. Messages of the group are not delivered to 
+  *       any other consumer whilst the group is assigned to that consumer.
+  *   <LI>The messages of a group are delivered in the order in which they 
+  *       were sent, in the same way as messages sent by one session to 
+  *       one destination are delivered to a single consumer.
+  *   <LI>Different groups may be assigned to different consumers, so that 
+  *       the messages of different groups are processed in parallel.
+  *   <LI>When the consumer to which a group is assigned is closed, the 
+  *       provider may assign the group to another consumer. A provider may 
+  *       also assign a group to another consumer when every message of the 
+  *       group which it has delivered has been acknowledged or committed.
+  * </UL>
+  *
+  * <P>This allows an application which requires messages with the same key, 
+  * such as messages about the same account, to be processed in order to 
+  * use several consumers, rather than a single consumer of the whole queue.
+  * Messages without a {@code JMSXGroupID} property are delivered to any 
+  * consumer, as usual.
+  *
+  * <P>The {@code JMSXGroupSeq} property, if set, is the position of a 
+  * message in its group, starting at 1. It is for use by the application, 
+  * and does not affect the order in which messages are delivered.
+  *
+  * <P>Message groups have no effect on queue browsers, or on a topic 
+  * subscription which is not shared, which has only one consumer. 
+  * A provider which implements message groups in this way includes 
+  * {@code JMSXGroupID} in the names returned by 
+  * {@code ConnectionMetaData.getJMSXPropertyNames}.
+  *
   * <H4>Provider Implementations of JMS Message Interfaces</H4>
   *
   * <P>The JMS API provides a set of message interfaces that define the JMS 
@@ -266,6 +323,31 @@ import java.util.Enumeration;
   * implementation, the provider is not required to handle or preserve the 
   * value of this header field. 
   *
+  * <H4>Releasing Messages</H4>
+  *
+  * <P>A message is normally an ordinary object that is discarded when the 
+  * application no longer refers to it. An application that creates or 
+  * receives messages at a high rate may instead call {@code release} 
+  * once it has finished with a message. This tells the provider that the 
+  * message object, together with its header fields, properties and body 
+  * storage, may be reused for a message subsequently created by the 
+  * same session or received by one of its consumers. A provider may use 
+  * this to back its message factories with a pool of message objects.
+  *
+  * <P>Releasing messages is optional. An application that never calls 
+  * {@code release} sees exactly the same behaviour as in earlier 
+  * versions of JMS, and a provider that does not pool messages may 
+  * implement {@code release} so that it does nothing.
+  *
+  * <P>Once a message has been released the application must not use it 
+  * again, nor any object obtained from it that shares its storage, such 
+  * as a {@code ByteBuffer} returned by 
+  * {@code BytesMessage.getBodyAsByteBuffer} or an {@code InputStream} 
+  * returned by {@code BytesMessage.getBodyInputStream}. The result of 
+  * doing so is undefined: the provider may throw an 
+  * {@code IllegalStateException}, or the object may already contain 
+  * the contents of a different message.
+  *
   * <H4>Message Selectors</H4>
   *
   * <P>A JMS message selector allows a client to specify, by
@@ -547,7 +629,7 @@ import java.util.Enumeration;
   *
   * <P>SQL comments are not supported.
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   * 
   * @see         javax.jms.MessageConsumer#receive()
@@ -1550,6 +1632,356 @@ public interface Message {
                         throws JMSException;
 
 
+    /** Indicates whether a property value exists for the specified 
+      * {@code PropertyKey}.
+      *
+      * @param key the key of the property to test
+      *
+      * @return true if the property exists
+      *  
+      * @exception JMSException if the JMS provider fails to determine if the 
+      *                         property exists due to some internal error.
+      *
+      * @see javax.jms.Message#propertyExists(String)
+      *
+      * @since JMS 2.1
+      */
+
+    boolean
+    hasPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code boolean} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getBooleanProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code boolean} property
+      *  
+      * @return the {@code boolean} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    boolean
+    getBooleanPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code byte} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getByteProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code byte} property
+      *  
+      * @return the {@code byte} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    byte
+    getBytePropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code short} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getShortProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code short} property
+      *  
+      * @return the {@code short} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    short
+    getShortPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code int} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getIntProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code int} property
+      *  
+      * @return the {@code int} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    int
+    getIntPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code long} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getLongProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code long} property
+      *  
+      * @return the {@code long} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    long
+    getLongPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code float} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getFloatProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code float} property
+      *  
+      * @return the {@code float} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    float
+    getFloatPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code double} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getDoubleProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code double} property
+      *  
+      * @return the {@code double} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    double
+    getDoublePropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Returns the value of the {@code String} property with the 
+      * specified {@code PropertyKey}. This returns the same value as 
+      * {@code getStringProperty(key.getName())}.
+      *  
+      * @param key the key of the {@code String} property
+      *  
+      * @return the {@code String} property value for the specified key
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         value due to some internal error.
+      * @exception MessageFormatException if this type conversion is invalid. 
+      *
+      * @since JMS 2.1
+      */ 
+
+    String
+    getStringPropertyValue(PropertyKey key) throws JMSException;
+
+
+    /** Sets a {@code boolean} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setBooleanProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code boolean} property
+      * @param value the {@code boolean} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setBooleanPropertyValue(PropertyKey key, boolean value)
+                        throws JMSException;
+
+
+    /** Sets a {@code byte} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setByteProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code byte} property
+      * @param value the {@code byte} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setBytePropertyValue(PropertyKey key, byte value)
+                        throws JMSException;
+
+
+    /** Sets a {@code short} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setShortProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code short} property
+      * @param value the {@code short} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setShortPropertyValue(PropertyKey key, short value)
+                        throws JMSException;
+
+
+    /** Sets an {@code int} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setIntProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code int} property
+      * @param value the {@code int} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setIntPropertyValue(PropertyKey key, int value)
+                        throws JMSException;
+
+
+    /** Sets a {@code long} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setLongProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code long} property
+      * @param value the {@code long} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setLongPropertyValue(PropertyKey key, long value)
+                        throws JMSException;
+
+
+    /** Sets a {@code float} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setFloatProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code float} property
+      * @param value the {@code float} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setFloatPropertyValue(PropertyKey key, float value)
+                        throws JMSException;
+
+
+    /** Sets a {@code double} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setDoubleProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code double} property
+      * @param value the {@code double} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setDoublePropertyValue(PropertyKey key, double value)
+                        throws JMSException;
+
+
+    /** Sets a {@code String} property value with the specified 
+      * {@code PropertyKey} into the message. This has the same effect as
+      * {@code setStringProperty(key.getName(), value)}.
+      *
+      * @param key the key of the {@code String} property
+      * @param value the {@code String} property value to set
+      *  
+      * @exception JMSException if the JMS provider fails to set the property
+      *                          due to some internal error.
+      * @exception MessageNotWriteableException if properties are read-only
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    setStringPropertyValue(PropertyKey key, String value)
+                        throws JMSException;
+
+
+    /** Calls the specified {@code PropertyVisitor} once for each of the 
+      * message's properties, passing it the property name and value.
+      *
+      * <P>The visitor method that is called for each property depends on 
+      * the type of the property value, so no wrapper object needs to be 
+      * created for a primitive value. The properties visited are those whose
+      * names would be returned by {@code getPropertyNames}. JMS standard 
+      * header fields are not considered properties and are not visited.
+      *
+      * <P>The visitor is called in the thread that calls this method, 
+      * before this method returns. The order in which properties are 
+      * visited is not defined.
+      *
+      * @param visitor the {@code PropertyVisitor} to be called for each 
+      *                property
+      *  
+      * @exception JMSException if the JMS provider fails to get the property
+      *                         values due to some internal error.
+      *
+      * @see javax.jms.PropertyVisitor
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    forEachProperty(PropertyVisitor visitor) throws JMSException;
+
     /** Acknowledges all consumed messages of the session of this consumed 
       * message.
       *  
@@ -1582,6 +2014,40 @@ public interface Message {
     acknowledge() throws JMSException;
 
 
+    /** Acknowledges this consumed message, without acknowledging any other 
+      * message consumed by the session that it was delivered to.
+      *  
+      * <P>This method is for use when a client has specified that its JMS 
+      * session's consumed messages are to be explicitly acknowledged. Unlike
+      * {@code acknowledge}, it allows messages which are processed 
+      * independently, such as by several threads to which the messages 
+      * received by a session are handed, to be acknowledged as soon as each 
+      * has been processed, in any order.
+      * 
+      * <P>Calls to {@code acknowledgeOnly} are ignored for both transacted 
+      * sessions and sessions specified to use implicit acknowledgement modes,
+      * and for a message which has already been acknowledged.
+      *
+      * <P>Messages that have been received but not acknowledged may be 
+      * redelivered. A message which has been acknowledged using this method 
+      * is not redelivered if the session is later recovered.
+      *
+      * @exception JMSException if the JMS provider fails to acknowledge the
+      *                         message due to some internal error.
+      * @exception IllegalStateException if this method is called on a closed
+      *                         session.
+      *
+      * @see javax.jms.Session#CLIENT_ACKNOWLEDGE
+      * @see javax.jms.Message#acknowledge()
+      * @see javax.jms.MessageConsumer#acknowledgeUpTo(Message)
+      *
+      * @since JMS 2.1
+      */ 
+
+    void
+    acknowledgeOnly() throws JMSException;
+
+
     /** Clears out the message body. Clearing a message's body does not clear 
       * its header values or property entries.
       *
@@ -1692,4 +2158,50 @@ public interface Message {
 	 *                internal error.
 	 */
 	boolean isBodyAssignableTo(Class c) throws JMSException;    
+
+	/**
+	 * Informs the JMS provider that the application has finished with this
+	 * message, so that the message object and the storage used for its header
+	 * fields, properties and body may be reused for another message.
+	 * <p>
+	 * Calling this method is optional. If it is not called the message is
+	 * discarded in the normal way when it is no longer referenced. The default
+	 * implementation does nothing, so a JMS provider that does not reuse
+	 * message objects need not implement this method.
+	 * <p>
+	 * After calling this method the application must not use this message
+	 * again, or any object obtained from it which shares its storage. The
+	 * result of doing so is undefined. If this method is called more than
+	 * once on the same message then the second and subsequent calls are
+	 * ignored, provided that the message has not been reused in the meantime.
+	 * <p>
+	 * A message may be released as soon as a synchronous send of it has
+	 * returned. A message sent asynchronously must not be released until
+	 * the {@code CompletionListener} has been called, since the provider may
+	 * still be using it; it may however be released by the
+	 * {@code CompletionListener} itself. Likewise a message sent using
+	 * {@code JMSProducer.sendAsync} belongs to the JMS provider until the
+	 * returned {@code CompletionStage} has been completed, whether normally
+	 * or exceptionally, and may be released by an action which depends on
+	 * that stage. The same applies to any buffer whose contents were passed
+	 * to {@code BytesMessage.writeByteBuffer}: the application must
+	 * not modify or reuse it until the send has completed in this way.
+	 * <p>
+	 * Releasing a message that was received does not acknowledge it. In
+	 * {@code CLIENT_ACKNOWLEDGE} mode the application may release a message
+	 * before calling {@code acknowledge} on a later message of the same
+	 * session; the provider must retain whatever it needs to acknowledge
+	 * or redeliver the released message.
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to release the message due to
+	 *                some internal error.
+	 * 
+	 * @see javax.jms.Session#createMessage()
+	 * @see javax.jms.JMSContext#createMessage()
+	 * 
+	 * @since JMS 2.1
+	 */
+	default void release() throws JMSException {
+	}
 }
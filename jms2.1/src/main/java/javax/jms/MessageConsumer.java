@@ -40,6 +40,8 @@
 
 package javax.jms;
 
+import java.util.List;
+
 /** A client uses a {@code MessageConsumer} object to receive messages 
  * from a destination.  A {@code MessageConsumer} object is created by 
  * passing a {@code Destination} object to a message-consumer creation
@@ -60,11 +62,18 @@ package javax.jms;
  * For synchronous receipt, a client can request the next message from a 
  * {@code MessageConsumer} using one of its {@code receive} methods. There are several 
  * variations of {@code receive} that allow a client to poll or wait for the next message. 
+ * A client can also request a batch of messages in a single call.
+ * If {@link ConnectionMetaData#isVirtualThreadFriendly} returns true then a
+ * thread which blocks in one of these methods does not hold an object
+ * monitor while it waits, so many virtual threads may each wait in
+ * {@code receive} on a different consumer without pinning their carriers.
  * <p>
  * For asynchronous delivery, a client can register a {@code MessageListener} object 
  * with a {@code MessageConsumer}.
  * As messages arrive at the {@code MessageConsumer}, it delivers them by calling 
  * the {@code MessageListener}'s {@code onMessage} method.
+ * Alternatively a client can register a {@code BatchMessageListener}, which
+ * is passed messages in batches.
  * <p>
  * It is a client programming error for a {@code MessageListener} to throw an exception.
  *
@@ -72,7 +81,7 @@ package javax.jms;
  * @see         javax.jms.TopicSubscriber
  * @see         javax.jms.Session
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 1.0
  */
 public interface MessageConsumer extends AutoCloseable{
@@ -138,6 +147,138 @@ public interface MessageConsumer extends AutoCloseable{
      * @see javax.jms.MessageConsumer#getMessageListener()
      */ 
     void setMessageListener(MessageListener listener) throws JMSException;
+
+    /** Sets the {@code MessageConsumer}'s {@code MessageListener} to a 
+      * {@code BatchMessageListener} which will be passed messages in batches.
+      * <p>
+      * The JMS provider delivers a batch to the listener's {@code onMessages}
+      * method as soon as either {@code maxBatchSize} messages are available or
+      * {@code maxBatchWait} milliseconds have elapsed since the first message
+      * in the batch became available, whichever is sooner. A batch is never
+      * empty. See {@link BatchMessageListener} for how the messages in a batch
+      * are acknowledged.
+      * <p>
+      * A {@code BatchMessageListener} may also be passed to 
+      * {@link javax.jms.MessageConsumer#setMessageListener(MessageListener)}, in which case the JMS provider chooses 
+      * the batch size and wait time, and may deliver batches containing a single
+      * message.
+      * <p>
+      * Setting the listener to null is the equivalent of 
+      * unsetting the {@code MessageListener} for the {@code MessageConsumer}. 
+      * <p>
+      * The effect of calling this method
+      * while messages are being consumed by an existing listener
+      * or the {@code MessageConsumer} is being used to consume messages synchronously
+      * is undefined.
+      * <p>
+      * This method must not be used in a Java EE web or EJB application. 
+      * Doing so may cause a {@code JMSException} to be thrown though this is not guaranteed.
+      * 
+      * @param listener the listener to which batches of messages are to be 
+      *                 delivered
+      * @param maxBatchSize the maximum number of messages in each batch; must
+      *                 be greater than zero
+      * @param maxBatchWait the maximum time, in milliseconds, to wait for a 
+      *                 batch to reach {@code maxBatchSize} messages after the 
+      *                 first message in the batch has become available. A value
+      *                 of zero means that a batch is delivered as soon as at 
+      *                 least one message is available. 
+      *  
+      * @exception JMSException if the JMS provider fails to set the {@code MessageConsumer}'s {@code MessageListener}
+      *                         for one of the following reasons:
+      *                         <ul>
+      *                         <li>an internal error has occurred or  
+      *                         <li>this method has been called in a Java EE web or EJB application 
+      *                         (though it is not guaranteed that an exception is thrown in this case)
+      *                         </ul>    
+      * @exception java.lang.IllegalArgumentException if {@code maxBatchSize} 
+      *                         is less than one or {@code maxBatchWait} is negative
+      *                         
+      * @see javax.jms.BatchMessageListener
+      * 
+      * @since JMS 2.1
+      */ 
+    void setMessageListener(BatchMessageListener listener, int maxBatchSize, long maxBatchWait) throws JMSException;
+
+    /** Sets the {@code MessageConsumer}'s {@code MessageListener}, and allows the 
+      * JMS provider to call it from more than one thread at the same time.
+      * <p>
+      * Normally a session delivers messages to its message listeners one at 
+      * a time. When this method is used, the JMS provider may call the 
+      * listener's {@code onMessage} method for up to {@code concurrency} 
+      * messages received by this {@code MessageConsumer} at the same time, in 
+      * different threads, so that a single session can process 
+      * messages using several threads. Messages received by the other 
+      * consumers of the session are delivered as before, and may be 
+      * delivered at the same time as these messages.
+      * <p>
+      * <b>Ordering</b>: If {@code orderingProperty} is not null, messages 
+      * which have the same value of the message property with that name are 
+      * delivered one at a time, in the order in which they were received, 
+      * whilst messages with different values may be delivered at the same 
+      * time. For example, an ordering property of {@code JMSXGroupID} 
+      * preserves the order of each message group. Messages which do not 
+      * have the property, and all messages if {@code orderingProperty} is 
+      * null, may be delivered at the same time as each other and in any 
+      * order. A {@code concurrency} of one delivers messages one at a time, 
+      * in order, as {@code setMessageListener(MessageListener)} does.
+      * <p>
+      * <b>Acknowledgement</b>: If the session has an acknowledgement mode of 
+      * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE}, each message 
+      * is acknowledged when its own call to {@code onMessage} returns, and 
+      * if the call throws a {@code RuntimeException} only that message is 
+      * delivered again. If the session has an acknowledgement mode of 
+      * {@code CLIENT_ACKNOWLEDGE}, the listener should acknowledge each 
+      * message using {@code Message.acknowledgeOnly}, since 
+      * {@code Message.acknowledge} also acknowledges messages which are 
+      * still being processed by other threads. Concurrent delivery may not 
+      * be used with a transacted session, since a transaction would include 
+      * messages being processed by other threads.
+      * <p>
+      * <b>Threading</b>: Whilst listener calls are in progress in several 
+      * threads, each may use the session in the same way as a message 
+      * listener of a single thread, for example to create and send messages,
+      * and the JMS provider must allow this. However each thread must use its 
+      * own {@code MessageProducer}, and the listener must not recover or close the 
+      * session, or stop or close its connection.
+      * <p>
+      * Setting the listener to null is the equivalent of 
+      * unsetting the {@code MessageListener} for the {@code MessageConsumer}. 
+      * <p>
+      * The effect of calling this method
+      * while messages are being consumed by an existing listener
+      * or the {@code MessageConsumer} is being used to consume messages synchronously
+      * is undefined.
+      * <p>
+      * This method must not be used in a Java EE web or EJB application. 
+      * Doing so may cause a {@code JMSException} to be thrown though this is not guaranteed.
+      * 
+      * @param listener the listener to which the messages are to be 
+      *                 delivered
+      * @param concurrency the maximum number of messages which may be 
+      *                 delivered to the listener at the same time; must be 
+      *                 greater than zero
+      * @param orderingProperty the name of the message property whose value 
+      *                 determines which messages are delivered in order, or 
+      *                 null
+      *  
+      * @exception JMSException if the JMS provider fails to set the {@code MessageConsumer}'s {@code MessageListener}
+      *                         for one of the following reasons:
+      *                         <ul>
+      *                         <li>an internal error has occurred or  
+      *                         <li>this method has been called in a Java EE web or EJB application 
+      *                         (though it is not guaranteed that an exception is thrown in this case)
+      *                         </ul>    
+      * @exception IllegalStateException if the session is transacted
+      * @exception java.lang.IllegalArgumentException if {@code concurrency} 
+      *                         is less than one or {@code orderingProperty} is 
+      *                         an empty string
+      *                         
+      * @see javax.jms.Message#acknowledgeOnly()
+      * 
+      * @since JMS 2.1
+      */ 
+    void setMessageListener(MessageListener listener, int concurrency, String orderingProperty) throws JMSException;
            
     /** Receives the next message produced for this message consumer.
       *  
@@ -193,6 +334,125 @@ public interface MessageConsumer extends AutoCloseable{
     Message
     receiveNoWait() throws JMSException;
 
+    /** Receives up to {@code maxMessages} messages produced for this
+      * message consumer in a single operation. JMS refers to this as a
+      * "batch receive".
+      *  
+      * <P>This call blocks until at least one message is available, the 
+      * timeout expires, or this message consumer is closed.
+      * A {@code timeout} of zero never expires, and the call blocks 
+      * indefinitely until at least one message is available.
+      * Once at least one message is available this call returns all the 
+      * messages that are then available to this message consumer, up to a 
+      * maximum of {@code maxMessages}. It does not wait for further messages
+      * to arrive in order to fill the batch.
+      * 
+      * <P>A batch receive has the same effect as calling {@code receive} 
+      * once for each message returned, and messages are returned in the order
+      * in which they would have been returned by successive calls to 
+      * {@code receive}. However it allows the JMS provider to hand over 
+      * messages which it has already fetched in advance as a single list, 
+      * rather than performing a separate operation for each message.
+      * 
+      * <P>The messages in the batch are acknowledged as follows:
+      * <ul>
+      * <li>{@code AUTO_ACKNOWLEDGE}: The session automatically acknowledges 
+      * all the messages in the batch when this method returns successfully.
+      * <li>{@code DUPS_OK_ACKNOWLEDGE}: The session lazily acknowledges the 
+      * messages in the batch, just as if they had been received individually.
+      * If the JMS provider fails, some or all of the messages in the batch may 
+      * be delivered again.
+      * <li>{@code CLIENT_ACKNOWLEDGE}: The messages in the batch are not 
+      * acknowledged until {@code acknowledge} is called on a message. As
+      * with messages received individually, this acknowledges every message
+      * that has been consumed by the session, so acknowledging one message in
+      * the batch acknowledges the whole batch. If the session is recovered
+      * then every unacknowledged message in the batch will be delivered again.
+      * <li>Transacted session: The messages in the batch are received as part 
+      * of the session's transaction, and are retained by the consumer until 
+      * the transaction commits.
+      * </ul>
+      *
+      * @param maxMessages the maximum number of messages to return; must be 
+      * greater than zero
+      * @param timeout the timeout value (in milliseconds)
+      *
+      * @return a list of between one and {@code maxMessages} messages produced
+      * for this message consumer, or an empty list if the timeout expires or this 
+      * message consumer is concurrently closed
+      *  
+      * @exception JMSException if the JMS provider fails to receive the 
+      *                         messages due to some internal error.
+      * @exception java.lang.IllegalArgumentException if {@code maxMessages} 
+      *                         is less than one
+      * 
+      * @since JMS 2.1
+      */ 
+
+    List<Message>
+    receive(int maxMessages, long timeout) throws JMSException;
+
+	/**
+	 * Returns a snapshot of the messages which the JMS provider has
+	 * transferred to this {@code MessageConsumer} in advance of them being received by
+	 * the application, together with the prefetch limits which apply to this
+	 * {@code MessageConsumer}.
+	 * <p>
+	 * An application can use this information to tune the prefetch limits
+	 * specified when the {@code MessageConsumer} is created.
+	 * 
+	 * @return a snapshot of the prefetch statistics of this {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to obtain the prefetch
+	 *                statistics due to some internal error.
+	 * 
+	 * @see javax.jms.PrefetchStatistics
+	 * 
+	 * @since JMS 2.1
+	 */
+	PrefetchStatistics getPrefetchStatistics() throws JMSException;
+
+	/**
+	 * Acknowledges the specified message, and every message received by this
+	 * {@code MessageConsumer} before it which has not already been
+	 * acknowledged.
+	 * <p>
+	 * This method is for use when the session has an acknowledgement mode of
+	 * {@code CLIENT_ACKNOWLEDGE}. Unlike the {@code acknowledge} method on
+	 * {@code Message}, it does not acknowledge messages received by other
+	 * consumers on the same session, or messages received by this
+	 * {@code MessageConsumer} after the specified message. This allows an
+	 * application to acknowledge the messages received by one consumer
+	 * cumulatively, by calling this method once for every group of messages
+	 * it has processed, in the order in which they were received.
+	 * <p>
+	 * If the session is transacted or has an acknowledgement mode of
+	 * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE} calling this
+	 * method has no effect.
+	 * <p>
+	 * Messages that have been received but not acknowledged may be
+	 * redelivered.
+	 * 
+	 * @param message
+	 *            a message received by this {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to acknowledge the messages due
+	 *                to some internal error.
+	 * @exception IllegalStateException
+	 *                if this method is called on a closed
+	 *                {@code MessageConsumer}, or the specified message was not
+	 *                received by this {@code MessageConsumer}.
+	 * 
+	 * @see javax.jms.Session#CLIENT_ACKNOWLEDGE
+	 * @see javax.jms.Message#acknowledge()
+	 * @see javax.jms.Message#acknowledgeOnly()
+	 * 
+	 * @since JMS 2.1
+	 */
+	void acknowledgeUpTo(Message message) throws JMSException;
+
 
 	/**
 	 * Closes the message consumer.
@@ -40,6 +40,8 @@
 
 package javax.jms;
 
+import java.util.List;
+
 /**
  * A client uses a {@code MessageProducer} object to send messages to a
  * destination. A {@code MessageProducer} object is created by passing a
@@ -71,11 +73,18 @@ package javax.jms;
  * <P>
  * A JMS provider should do its best to expire messages accurately; however, the
  * JMS API does not define the accuracy provided.
+ * 
+ * <P>
+ * A client can send a list of messages in a single "batch send" operation,
+ * using one of the {@code sendBatch} methods.
+ * This allows the JMS provider to transfer the messages, and to write
+ * persistent messages to stable storage, in a single operation rather than
+ * one operation per message.
  * @see javax.jms.TopicPublisher
  * @see javax.jms.QueueSender
  * @see javax.jms.Session#createProducer
  * 
- * @version JMS 2.0
+ * @version JMS 2.1
  * @since JMS 1.0
  * 
  */
@@ -302,6 +311,82 @@ public interface MessageProducer extends AutoCloseable {
 
 	long getDeliveryDelay() throws JMSException;
 
+	/**
+	 * Sets the limits on the asynchronous send operations of this
+	 * {@code MessageProducer} which may be outstanding at the same time, and the
+	 * policy which determines what happens when an asynchronous send is
+	 * attempted and those limits have been reached.
+	 * <p>
+	 * An asynchronous send is outstanding from the time the {@code send}
+	 * method returns until the JMS provider has notified the application that
+	 * it has completed. See {@link SendWindow} for a full definition.
+	 * <p>
+	 * By default the limits are chosen by the JMS provider, and may be
+	 * unlimited, and the policy is {@code SendWindow.BLOCK}.
+	 * 
+	 * @param maxMessages
+	 *            the maximum number of outstanding asynchronous sends, which
+	 *            must be greater than zero, or -1 if the number is not limited
+	 * @param maxBytes
+	 *            the maximum total size, in bytes, of the messages of the
+	 *            outstanding asynchronous sends, which must be greater than
+	 *            zero, or -1 if the size is not limited
+	 * @param policy
+	 *            the policy when the send window is full; legal values are
+	 *            {@code SendWindow.BLOCK}, {@code SendWindow.FAIL} and
+	 *            {@code SendWindow.NOTIFY}
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to set the send window due to
+	 *                some internal error.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if any of the arguments is invalid
+	 * 
+	 * @see javax.jms.SendWindow
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void setSendWindow(int maxMessages, long maxBytes, int policy) throws JMSException;
+
+	/**
+	 * Returns a snapshot of the asynchronous send operations of this
+	 * {@code MessageProducer} which are outstanding, together with the limits and
+	 * policy which apply to them.
+	 * 
+	 * @return a snapshot of the send window of this {@code MessageProducer}
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to obtain the send window due to
+	 *                some internal error.
+	 * 
+	 * @see javax.jms.SendWindow
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	SendWindow getSendWindow() throws JMSException;
+
+	/**
+	 * Sets a {@code SendWindowListener} to be notified when the send window
+	 * of this {@code MessageProducer} becomes full and when it becomes available
+	 * again. Setting the listener to null removes any listener that has been
+	 * set.
+	 * 
+	 * @param listener
+	 *            the listener, or null
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to set the listener due to some
+	 *                internal error.
+	 * 
+	 * @see javax.jms.SendWindowListener
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void setSendWindowListener(SendWindowListener listener) throws JMSException;
+
 	/**
 	 * Gets the destination associated with this {@code MessageProducer}.
 	 * 
@@ -1168,4 +1253,199 @@ public interface MessageProducer extends AutoCloseable {
 	void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
 			CompletionListener completionListener) throws JMSException;
 
+	/**
+	 * Sends a batch of messages using the {@code MessageProducer}'s default
+	 * delivery mode, priority, and time to live. JMS refers to this as a
+	 * "batch send".
+	 * <p>
+	 * A batch send has the same effect as calling {@code send(Message)} once
+	 * for each message in the list, in list order. However it allows the JMS
+	 * provider to transfer all the messages to the JMS server in a single
+	 * operation and, for persistent messages, to write them to stable storage
+	 * in a single operation, rather than performing a separate synchronous
+	 * operation for each message.
+	 * <p>
+	 * <b>Message order</b>: The messages in the batch are sent in the order in
+	 * which they appear in the list. For the purposes of JMS message ordering
+	 * they must be treated exactly as if they had been sent individually, in
+	 * that order, using this {@code MessageProducer}.
+	 * <p>
+	 * <b>Exceptions</b>: If the session is not transacted then a batch send is
+	 * not atomic. If an exception is thrown then some of the messages in the
+	 * batch may have been successfully sent. However if any message in the
+	 * batch was successfully sent then every message which precedes it in the
+	 * list must also have been successfully sent. Which messages, if any, were
+	 * sent is otherwise undefined. An application which requires all the
+	 * messages in the batch to be sent, or none of them, should use a
+	 * transacted session. In that case the messages are sent as part of the
+	 * session's transaction in the normal way.
+	 * <p>
+	 * <b>Message headers</b> The JMS provider sets the message header fields
+	 * and message properties which must be set "by the JMS provider on send"
+	 * on each message in the batch, just as if it had been sent individually.
+	 * <p>
+	 * The list must not be modified by the application until this method has
+	 * returned. An empty list is permitted and causes no messages to be sent.
+	 * 
+	 * @param messages
+	 *            the messages to send
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to send the messages due to
+	 *                some internal error.
+	 * @exception MessageFormatException
+	 *                if an invalid message is specified.
+	 * @exception InvalidDestinationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} with an invalid destination.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if the specified list, or any element of it, is null
+	 * @exception java.lang.UnsupportedOperationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} that did not specify a
+	 *                destination at creation time.
+	 * 
+	 * @see javax.jms.Session#createProducer
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void sendBatch(List<? extends Message> messages) throws JMSException;
+
+	/**
+	 * Sends a batch of messages to a destination for an unidentified message
+	 * producer using the {@code MessageProducer}'s default delivery mode,
+	 * priority, and time to live. JMS refers to this as a "batch send".
+	 * <p>
+	 * Typically, a message producer is assigned a destination at creation time;
+	 * however, the JMS API also supports unidentified message producers, which
+	 * require that the destination be supplied every time a message is sent.
+	 * <p>
+	 * See {@link MessageProducer#sendBatch(List)} for the ordering and
+	 * partial-failure semantics of a batch send.
+	 * 
+	 * @param destination
+	 *            the destination to send these messages to
+	 * @param messages
+	 *            the messages to send
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to send the messages due to
+	 *                some internal error.
+	 * @exception MessageFormatException
+	 *                if an invalid message is specified.
+	 * @exception InvalidDestinationException
+	 *                if a client uses this method with an invalid destination.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if the specified list, or any element of it, is null
+	 * @exception java.lang.UnsupportedOperationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} that specified a destination
+	 *                at creation time.
+	 * 
+	 * @see javax.jms.Session#createProducer
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void sendBatch(Destination destination, List<? extends Message> messages) throws JMSException;
+
+	/**
+	 * Sends a batch of messages using the {@code MessageProducer}'s default
+	 * delivery mode, priority, and time to live, performing part of the work
+	 * involved in sending the messages in a separate thread and notifying the
+	 * specified <tt>CompletionListener</tt> as each message is sent.
+	 * <p>
+	 * This combines a batch send, as defined in
+	 * {@link MessageProducer#sendBatch(List)}, with an asynchronous send, as defined
+	 * in {@link MessageProducer#send(Message, CompletionListener)}. All the
+	 * requirements of an asynchronous send apply to each message in the
+	 * batch. In addition:
+	 * <p>
+	 * <b>Per-message results</b>: The JMS provider must invoke the
+	 * <tt>CompletionListener</tt> exactly once for each message in the batch,
+	 * passing that message as the first argument. The callbacks must be
+	 * performed in list order. If a message was successfully sent then
+	 * <tt>onCompletion</tt> is invoked. If the JMS provider cannot confirm
+	 * that a message was successfully sent then <tt>onException</tt> is
+	 * invoked for that message and for every message which follows it in the
+	 * list, since none of the following messages can then be assumed to have
+	 * been sent. If an exception is thrown by this method itself then no
+	 * callbacks are performed for any message in the batch.
+	 * <p>
+	 * <b>Restrictions on the use of the Message objects</b>: After this method
+	 * has returned, the application must not attempt to access any message in
+	 * the batch until the <tt>CompletionListener</tt> has been invoked for that
+	 * message.
+	 * 
+	 * @param messages
+	 *            the messages to send
+	 * @param completionListener
+	 *            a {@code CompletionListener} to be notified as each message
+	 *            in the batch has been sent
+	 * 
+	 * @exception JMSException
+	 *                if an internal error occurs
+	 * @exception MessageFormatException
+	 *                if an invalid message is specified.
+	 * @exception InvalidDestinationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} with an invalid destination.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if the specified list, or any element of it, is null or
+	 *                if the specified {@code CompletionListener} is null
+	 * @exception java.lang.UnsupportedOperationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} that did not specify a
+	 *                destination at creation time.
+	 * 
+	 * @see javax.jms.Session#createProducer
+	 * @see javax.jms.CompletionListener
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void sendBatch(List<? extends Message> messages, CompletionListener completionListener) throws JMSException;
+
+	/**
+	 * Sends a batch of messages to a destination for an unidentified message
+	 * producer using the {@code MessageProducer}'s default delivery mode,
+	 * priority, and time to live, performing part of the work involved in
+	 * sending the messages in a separate thread and notifying the specified
+	 * <tt>CompletionListener</tt> as each message is sent.
+	 * <p>
+	 * See {@link MessageProducer#sendBatch(List, CompletionListener)} for the
+	 * semantics of an asynchronous batch send.
+	 * 
+	 * @param destination
+	 *            the destination to send these messages to
+	 * @param messages
+	 *            the messages to send
+	 * @param completionListener
+	 *            a {@code CompletionListener} to be notified as each message
+	 *            in the batch has been sent
+	 * 
+	 * @exception JMSException
+	 *                if an internal error occurs
+	 * @exception MessageFormatException
+	 *                if an invalid message is specified.
+	 * @exception InvalidDestinationException
+	 *                if a client uses this method with an invalid destination.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if the specified list, or any element of it, is null or
+	 *                if the specified {@code CompletionListener} is null
+	 * @exception java.lang.UnsupportedOperationException
+	 *                if a client uses this method with a
+	 *                {@code MessageProducer} that specified a destination
+	 *                at creation time.
+	 * 
+	 * @see javax.jms.Session#createProducer
+	 * @see javax.jms.CompletionListener
+	 * 
+	 * @since JMS 2.1
+	 */
+
+	void sendBatch(Destination destination, List<? extends Message> messages, CompletionListener completionListener)
+			throws JMSException;
+
 }
@@ -0,0 +1,88 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code MessagePublisher} is a source of messages which are delivered to a
+ * {@code MessageSubscriber} only as fast as the subscriber requests them.
+ * <p>
+ * A {@code MessagePublisher} for the messages received by a
+ * {@code JMSConsumer} is obtained by calling the {@code JMSConsumer}'s
+ * {@code createPublisher} method. This provides an alternative to a
+ * {@code MessageListener} in which the application, rather than the JMS
+ * provider, decides how many messages may be delivered to it at any time.
+ * <p>
+ * {@code MessagePublisher}, {@code MessageSubscriber} and
+ * {@code MessageSubscription} follow the Reactive Streams protocol and have
+ * the same methods as the corresponding interfaces nested in
+ * {@code java.util.concurrent.Flow}, so that an application or library can
+ * adapt between them without any change in behaviour.
+ * 
+ * @see javax.jms.JMSConsumer#createPublisher()
+ * @see javax.jms.MessageSubscriber
+ * @see javax.jms.MessageSubscription
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface MessagePublisher {
+
+	/**
+	 * Adds the specified subscriber to this {@code MessagePublisher}.
+	 * <p>
+	 * If the subscriber is accepted then its {@code onSubscribe} method is
+	 * invoked with a new {@code MessageSubscription}. No messages are
+	 * delivered to the subscriber until it has called {@code request} on that
+	 * {@code MessageSubscription}.
+	 * <p>
+	 * A {@code MessagePublisher} obtained from a {@code JMSConsumer} accepts
+	 * only one subscriber. If this method is called again then the subscriber
+	 * is rejected by invoking its {@code onError} method with an
+	 * {@code IllegalStateRuntimeException}.
+	 * 
+	 * @param subscriber
+	 *            the subscriber
+	 * @exception java.lang.NullPointerException
+	 *                if the specified subscriber is null
+	 */
+	void subscribe(MessageSubscriber subscriber);
+
+}
@@ -0,0 +1,110 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code MessageSubscriber} is implemented by the application to receive
+ * messages from a {@code MessagePublisher}, or by the JMS provider to send
+ * messages which are supplied by the application. Messages are passed to a
+ * {@code MessageSubscriber} only after it has requested them by calling
+ * {@code request} on its {@code MessageSubscription}.
+ * <p>
+ * The methods of a {@code MessageSubscriber} are invoked serially and in
+ * the following order: first {@code onSubscribe}, then zero or more calls to
+ * {@code onNext}, then at most one call to either {@code onError} or
+ * {@code onComplete}.
+ * <p>
+ * When a {@code MessageSubscriber} receives messages from a
+ * {@code MessagePublisher} obtained from a {@code JMSConsumer}, its methods
+ * are invoked in the thread of control of the {@code JMSContext}, in the same
+ * way as the {@code onMessage} method of a {@code MessageListener}, and each
+ * message is acknowledged as defined for a {@code MessageListener}.
+ * <p>
+ * It is a client programming error for a {@code MessageSubscriber} to throw
+ * an exception.
+ * 
+ * @see javax.jms.MessagePublisher
+ * @see javax.jms.MessageSubscription
+ * @see javax.jms.JMSProducer#createSubscriber(Destination)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface MessageSubscriber {
+
+	/**
+	 * Invoked before any other method, to pass the
+	 * {@code MessageSubscription} which this subscriber must use to request
+	 * messages.
+	 * 
+	 * @param subscription
+	 *            the subscription
+	 */
+	void onSubscribe(MessageSubscription subscription);
+
+	/**
+	 * Passes the next message to the subscriber. This method is never invoked
+	 * more times than the total number of messages requested.
+	 * 
+	 * @param message
+	 *            the message
+	 */
+	void onNext(Message message);
+
+	/**
+	 * Invoked when no further messages will be passed to the subscriber
+	 * because an error has occurred. For example, this method is invoked if
+	 * the JMS provider detects a problem with the connection.
+	 * 
+	 * @param throwable
+	 *            the error
+	 */
+	void onError(Throwable throwable);
+
+	/**
+	 * Invoked when no further messages will be passed to the subscriber and
+	 * no error has occurred. For example, this method is invoked if the
+	 * application closes the {@code JMSConsumer} from which the messages are
+	 * being received.
+	 */
+	void onComplete();
+
+}
@@ -0,0 +1,103 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code MessageSubscription} links a {@code MessageSubscriber} to the
+ * source of its messages. The subscriber uses it to signal how many further
+ * messages it is prepared to accept, and to stop the flow of messages
+ * altogether.
+ * <p>
+ * When the {@code MessageSubscription} was created by a
+ * {@code MessagePublisher} obtained from a {@code JMSConsumer}, the
+ * outstanding demand is the only thing which allows the JMS provider to
+ * deliver messages to the consumer. A JMS provider which transfers messages
+ * from a JMS server to the client in advance should use the outstanding
+ * demand to limit how many messages it transfers, for example by granting the
+ * server credit equal to the outstanding demand. A JMS provider must not
+ * buffer an unbounded number of messages in the client because the subscriber
+ * is slow to request them.
+ * <p>
+ * The methods of a {@code MessageSubscription} may be called from any thread,
+ * including from the methods of the {@code MessageSubscriber}.
+ * 
+ * @see javax.jms.MessagePublisher
+ * @see javax.jms.MessageSubscriber
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface MessageSubscription {
+
+	/**
+	 * Adds the specified number of messages to the outstanding demand of the
+	 * subscriber. Demand is cumulative: a subscriber which calls
+	 * {@code request(1)} twice may be passed two messages. A value of
+	 * {@code Long.MAX_VALUE} is treated as unbounded demand.
+	 * <p>
+	 * If the specified value is zero or negative then the subscriber's
+	 * {@code onError} method is invoked with an
+	 * {@code IllegalArgumentException} and the subscription is cancelled.
+	 * 
+	 * @param n
+	 *            the number of additional messages requested
+	 */
+	void request(long n);
+
+	/**
+	 * Requests that no further messages be passed to the subscriber. Messages
+	 * may still be passed to the subscriber for a short time after this method
+	 * is called, but the subscriber's {@code onComplete} and {@code onError}
+	 * methods will not be invoked.
+	 * <p>
+	 * When the {@code MessageSubscription} was created by a
+	 * {@code MessagePublisher} obtained from a {@code JMSConsumer}, any
+	 * messages which the JMS provider had transferred to the client but which
+	 * had not yet been passed to {@code onNext} are not considered to have
+	 * been delivered. They may be delivered to another consumer, and doing so
+	 * does not cause their {@code JMSRedelivered} message header field to be
+	 * set or their {@code JMSXDeliveryCount} message property to be
+	 * incremented. The {@code JMSConsumer} itself remains open until it is
+	 * closed by the application.
+	 */
+	void cancel();
+
+}
@@ -0,0 +1,212 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.jms;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The outstanding requests of a {@code QueueRequestor},
+ * {@code TopicRequestor} or {@code JMSRequestor}, keyed by the
+ * {@code JMSMessageID} of the request, to which replies are matched using
+ * their {@code JMSCorrelationID}.
+ * 
+ * @see javax.jms.QueueRequestor
+ * @see javax.jms.TopicRequestor
+ * @see javax.jms.JMSRequestor
+ */
+final class PendingReplies {
+
+	private final Map<String, CompletableFuture<Message>> requests = new ConcurrentHashMap<>();
+
+	/**
+	 * The requestor's lock, which is held whilst a request is sent and then
+	 * registered, since its {@code JMSMessageID} is not known until it has
+	 * been sent
+	 */
+	private final Lock lock;
+
+	PendingReplies(Lock lock) {
+		this.lock = lock;
+	}
+
+	/**
+	 * Registers a request which has been sent, and returns the
+	 * {@code CompletableFuture} which is completed with its reply. Called
+	 * whilst holding the requestor's lock.
+	 */
+	CompletableFuture<Message> register(String messageID) {
+		CompletableFuture<Message> reply = new CompletableFuture<>();
+		requests.put(messageID, reply);
+		reply.whenComplete((m, e) -> requests.remove(messageID, reply));
+		return reply;
+	}
+
+	/**
+	 * Completes the request to which the specified message is a reply. A
+	 * reply which does not match an outstanding request is discarded.
+	 */
+	void complete(Message message) {
+		String correlationID;
+		try {
+			correlationID = message.getJMSCorrelationID();
+		} catch (JMSException e) {
+			return;
+		}
+		if (correlationID == null) {
+			return;
+		}
+		CompletableFuture<Message> reply = requests.remove(correlationID);
+		if (reply == null) {
+			// the reply may have overtaken the call to send that sent its request
+			lock.lock();
+			try {
+				reply = requests.remove(correlationID);
+			} finally {
+				lock.unlock();
+			}
+		}
+		if (reply != null) {
+			reply.complete(message);
+		}
+	}
+
+	/**
+	 * Completes every outstanding request exceptionally, when the requestor
+	 * is closed.
+	 */
+	void failAll(Throwable exception) {
+		requests.values().forEach(reply -> reply.completeExceptionally(exception));
+		requests.clear();
+	}
+
+	/**
+	 * Completes the specified request exceptionally with a
+	 * {@code TimeoutException} if it has not received a reply within the
+	 * specified time, using the specified executor. If the executor rejects
+	 * the task, the request is completed exceptionally with a
+	 * {@code JMSRuntimeException} instead.
+	 */
+	static void expire(CompletableFuture<Message> reply, long timeout, ScheduledExecutorService timer) {
+		ScheduledFuture<?> expiry;
+		try {
+			expiry = timer.schedule(
+					() -> reply.completeExceptionally(new TimeoutException("No reply received within " + timeout + " ms")),
+					timeout, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			reply.completeExceptionally(new JMSRuntimeException("Request could not be scheduled to expire", null, e));
+			return;
+		}
+		reply.whenComplete((m, e) -> expiry.cancel(false));
+	}
+
+	/**
+	 * Waits for the reply to the specified request for up to the specified
+	 * time, or indefinitely if the timeout is zero.
+	 * 
+	 * @return the reply, or null if no reply is received within the specified
+	 *         time, or if the calling thread is interrupted whilst waiting
+	 * @throws JMSException
+	 *             if the request was completed exceptionally with a
+	 *             {@code JMSException}, which is thrown unchanged. A
+	 *             {@code RuntimeException} is thrown unchanged as well.
+	 */
+	static Message await(CompletableFuture<Message> reply, long timeout) throws JMSException {
+		try {
+			return timeout == 0 ? reply.get() : reply.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			reply.cancel(false);
+			return null;
+		} catch (InterruptedException e) {
+			reply.cancel(false);
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof JMSException) {
+				throw (JMSException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			JMSException jmse = new JMSException("Request failed: " + cause);
+			jmse.initCause(cause);
+			throw jmse;
+		}
+	}
+
+	/**
+	 * Receives the reply to a request synchronously, waiting for up to the
+	 * specified time, or indefinitely if the timeout is zero. A reply whose
+	 * {@code JMSCorrelationID} is set to a value other than the
+	 * {@code JMSMessageID} of the request, such as a late reply to an earlier
+	 * request, is discarded. A reply whose {@code JMSCorrelationID} is not
+	 * set is accepted, as JMS 1.x responders are not required to set it.
+	 * 
+	 * @return the reply, or null if no reply is received within the specified
+	 *         time
+	 */
+	static Message receive(MessageConsumer consumer, String messageID, long timeout) throws JMSException {
+		long deadline = System.currentTimeMillis() + timeout;
+		for (;;) {
+			long remaining = deadline - System.currentTimeMillis();
+			Message message = timeout == 0 ? consumer.receive() : remaining > 0 ? consumer.receive(remaining) : null;
+			if (message == null) {
+				return null;
+			}
+			String correlationID = message.getJMSCorrelationID();
+			if (correlationID == null || correlationID.equals(messageID)) {
+				return message;
+			}
+		}
+	}
+}
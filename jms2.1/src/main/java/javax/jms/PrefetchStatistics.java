@@ -0,0 +1,116 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code PrefetchStatistics} object describes the messages which a JMS
+ * provider has transferred to a consumer in advance of them being received
+ * by the application, and the limits which apply to them. It is obtained by
+ * calling the {@code getPrefetchStatistics} method on a {@code JMSConsumer}
+ * or {@code MessageConsumer}.
+ * <p>
+ * A {@code PrefetchStatistics} object is a snapshot: its values do not change
+ * after it has been returned.
+ * <p>
+ * The prefetch limits of a consumer may be specified when the consumer is
+ * created. If they are not specified then the limits defined for the
+ * connection factory are used, or if none were defined, limits chosen by the
+ * JMS provider.
+ * 
+ * @see javax.jms.JMSConsumer#getPrefetchStatistics()
+ * @see javax.jms.MessageConsumer#getPrefetchStatistics()
+ * @see javax.jms.JMSContext#createConsumer(Destination, String, boolean, int, long)
+ * @see javax.jms.Session#createConsumer(Destination, String, boolean, int, long)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface PrefetchStatistics {
+
+	/**
+	 * Returns the maximum number of messages which may be transferred to the
+	 * consumer in advance of being received by the application.
+	 * 
+	 * @return the maximum number of prefetched messages, or -1 if the JMS
+	 *         provider does not limit the number of prefetched messages
+	 */
+	int getMaxMessages();
+
+	/**
+	 * Returns the maximum total size, in bytes, of the messages which may be
+	 * transferred to the consumer in advance of being received by the
+	 * application.
+	 * 
+	 * @return the maximum total size of prefetched messages, or -1 if the JMS
+	 *         provider does not limit the total size of prefetched messages
+	 */
+	long getMaxBytes();
+
+	/**
+	 * Returns the number of messages which had been transferred to the
+	 * consumer but not yet received by the application when this snapshot was
+	 * taken.
+	 * 
+	 * @return the number of prefetched messages
+	 */
+	int getMessageCount();
+
+	/**
+	 * Returns the total size, in bytes, of the messages which had been
+	 * transferred to the consumer but not yet received by the application when
+	 * this snapshot was taken. How the size of a message is measured is
+	 * defined by the JMS provider, but it must include the message body and
+	 * properties.
+	 * 
+	 * @return the total size of prefetched messages
+	 */
+	long getByteCount();
+
+	/**
+	 * Returns the number of times the JMS provider has stopped transferring
+	 * messages to the consumer in advance because one of the prefetch limits
+	 * had been reached, since the consumer was created.
+	 * 
+	 * @return the number of times a prefetch limit has been reached
+	 */
+	long getLimitReachedCount();
+
+}
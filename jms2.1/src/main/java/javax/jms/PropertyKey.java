@@ -0,0 +1,203 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@code PropertyKey} is a pre-interned handle for the name of a message
+ * property.
+ * <p>
+ * Applications which set or get the same message properties on every message
+ * can obtain a {@code PropertyKey} for each property name once, typically
+ * when the application is initialised, and then use it in place of the
+ * property name when calling the {@code Message} and {@code JMSProducer}
+ * methods which accept a {@code PropertyKey}, such as
+ * {@code getLongPropertyValue} and {@code setPropertyValue}. For example:
+ * 
+ * <pre>
+ * static final PropertyKey ORDER_ID = PropertyKey.of("OrderId");
+ * ...
+ * long orderId = message.getLongPropertyValue(ORDER_ID);
+ * </pre>
+ * <p>
+ * There is only one {@code PropertyKey} instance for each property name, so
+ * keys may be compared by identity. Each key also has an index, a small
+ * non-negative integer which is different for every key. A JMS provider may
+ * use the index to store property values in an array, or in some other
+ * representation which does not need to allocate an object when a property is
+ * set or got, rather than looking up the property name in a map.
+ * <p>
+ * Keys are never discarded once they have been created. They are therefore
+ * intended for a fixed set of property names that are known to the
+ * application, and should not be created for arbitrary names taken from
+ * received messages. A JMS provider which is given a property name can use
+ * {@code lookup} to find the key for the name, if there is one, without
+ * creating a key.
+ * <p>
+ * A property set using a {@code PropertyKey} is the same as a property set
+ * using its name. Property names used to create a {@code PropertyKey} must
+ * obey the same rules as any other property name: a name must be a valid
+ * message selector identifier, as defined in {@code Message}.
+ * 
+ * @see javax.jms.Message#getIntPropertyValue(PropertyKey)
+ * @see javax.jms.Message#setIntPropertyValue(PropertyKey, int)
+ * @see javax.jms.JMSProducer#setPropertyValue(PropertyKey, int)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public final class PropertyKey {
+
+	private static final ConcurrentMap<String, PropertyKey> keys = new ConcurrentHashMap<String, PropertyKey>();
+
+	private static final AtomicInteger nextIndex = new AtomicInteger();
+
+	/**
+	 * The words which may not be used as identifiers in a message selector,
+	 * in upper case.
+	 */
+	private static final Set<String> reservedWords = new HashSet<String>(Arrays.asList("NULL", "TRUE", "FALSE",
+			"NOT", "AND", "OR", "BETWEEN", "LIKE", "IN", "IS", "ESCAPE"));
+
+	private final String name;
+
+	private final int index;
+
+	private PropertyKey(String name, int index) {
+		this.name = name;
+		this.index = index;
+	}
+
+	/**
+	 * Returns the {@code PropertyKey} for the specified property name,
+	 * creating it if it does not already exist.
+	 * 
+	 * @param name
+	 *            the property name
+	 * 
+	 * @return the {@code PropertyKey} for the specified property name
+	 * 
+	 * @exception IllegalArgumentException
+	 *                if the name is null, if the name is an empty string, or
+	 *                if the name is not a valid message selector identifier.
+	 */
+	public static PropertyKey of(String name) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("Property name must not be null or empty");
+		}
+		PropertyKey key = keys.get(name);
+		if (key == null && !isIdentifier(name)) {
+			throw new IllegalArgumentException("Invalid property name: " + name);
+		}
+		if (key == null) {
+			key = keys.computeIfAbsent(name, n -> new PropertyKey(n, nextIndex.getAndIncrement()));
+		}
+		return key;
+	}
+
+	/**
+	 * Returns whether the specified name is a valid message selector
+	 * identifier: a Java identifier which is not one of the reserved words,
+	 * ignoring case.
+	 */
+	private static boolean isIdentifier(String name) {
+		if (!Character.isJavaIdentifierStart(name.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isJavaIdentifierPart(name.charAt(i))) {
+				return false;
+			}
+		}
+		return !reservedWords.contains(name.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Returns the {@code PropertyKey} for the specified property name, if one
+	 * has already been created. Unlike {@code of}, this method never creates a
+	 * key.
+	 * 
+	 * @param name
+	 *            the property name
+	 * 
+	 * @return the {@code PropertyKey} for the specified property name, or
+	 *         null if no key has been created for the name
+	 */
+	public static PropertyKey lookup(String name) {
+		return name == null ? null : keys.get(name);
+	}
+
+	/**
+	 * Returns the property name.
+	 * 
+	 * @return the property name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the index of this key. The first key to be created has the index
+	 * 0, and each subsequent key has the next integer.
+	 * 
+	 * @return the index of this key
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the property name.
+	 * 
+	 * @return the property name
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code PropertyVisitor} is passed to the {@code forEachProperty} method of
+ * a {@code Message} in order to read each of the message's properties without
+ * creating any objects.
+ * <p>
+ * The {@code forEachProperty} method calls the method of this interface which
+ * corresponds to the type of each property value, passing the property name
+ * and the value as a primitive. A property of type {@code String} is passed to
+ * {@code visitString}. The type of a property is the type with which it was
+ * set, either directly or when the message was sent. No type conversion is
+ * performed.
+ * <p>
+ * Each method of this interface has a default implementation that does
+ * nothing, so an application need only implement the methods for the types
+ * of property in which it is interested.
+ * <p>
+ * The order in which properties are visited is not defined. A
+ * {@code PropertyVisitor} must not modify the properties of the message that
+ * is being visited.
+ * 
+ * @see javax.jms.Message#forEachProperty(PropertyVisitor)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface PropertyVisitor {
+
+	/**
+	 * Called for a property with a {@code boolean} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitBoolean(String name, boolean value) {
+	}
+
+	/**
+	 * Called for a property with a {@code byte} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitByte(String name, byte value) {
+	}
+
+	/**
+	 * Called for a property with a {@code short} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitShort(String name, short value) {
+	}
+
+	/**
+	 * Called for a property with an {@code int} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitInt(String name, int value) {
+	}
+
+	/**
+	 * Called for a property with a {@code long} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitLong(String name, long value) {
+	}
+
+	/**
+	 * Called for a property with a {@code float} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitFloat(String name, float value) {
+	}
+
+	/**
+	 * Called for a property with a {@code double} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitDouble(String name, double value) {
+	}
+
+	/**
+	 * Called for a property with a {@code String} value.
+	 * 
+	 * @param name
+	 *            the property name
+	 * @param value
+	 *            the property value
+	 */
+	default void visitString(String name, String value) {
+	}
+}
@@ -61,6 +61,7 @@ import java.lang.annotation.Target;
  * or {@code TopicListener} then deployment will fail.
  * 
  * @see JMSMessageDrivenBean
+ * @see MessageBatch
  * @see TopicListener
  * 
  * @version JMS 2.1
@@ -40,6 +40,11 @@
 
 package javax.jms;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 /** The {@code QueueRequestor} helper class simplifies
   * making service requests.
   *
@@ -49,14 +54,26 @@ package javax.jms;
   * {@code request} method that sends the request message and waits 
   * for its reply.
   * <p>
+  * The {@code request(Message, long)} method waits for the reply for no 
+  * longer than a specified time, and the {@code requestAsync} method returns 
+  * a {@code CompletionStage} which is completed with the reply, so that 
+  * more than one request may be outstanding at a time. Replies are matched 
+  * to their requests using the {@code JMSCorrelationID} header field, which 
+  * a responder should set to the {@code JMSMessageID} of the request. 
+  * Since replies to asynchronous requests are delivered by a 
+  * {@code MessageListener}, {@code requestAsync} may only be used if a 
+  * second session, on which replies are received, is passed to the 
+  * constructor.
+  * <p>
   * This is a very basic request/reply abstraction which assumes the session 
   * is non-transacted with a delivery mode of either AUTO_ACKNOWLEDGE or 
   * DUPS_OK_ACKNOWLEDGE. It is expected that most applications will create 
   * less basic implementations.
   *
   * @see javax.jms.TopicRequestor
+  * @see javax.jms.JMSRequestor
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   * 
   */
@@ -68,6 +85,19 @@ public class QueueRequestor {
     QueueSender    sender;
     QueueReceiver  receiver;
 
+    // The session on which replies are received, which is session itself 
+    // unless a separate session was passed to the constructor.
+    private final QueueSession replySession;
+
+    // Held whilst a request is sent and its reply is received or registered.
+    // A Lock rather than a monitor, so that a virtual thread which waits for 
+    // a reply whilst holding it does not pin its carrier thread.
+    private final Lock lock = new ReentrantLock();
+
+    // Outstanding requests made using requestAsync.
+    private final PendingReplies replies = new PendingReplies(lock);
+    private boolean asynchronous; // Whether receiver has a MessageListener.
+
 
     /** Constructor for the {@code QueueRequestor} class.
       *  
@@ -86,13 +116,43 @@ public class QueueRequestor {
 
     public
     QueueRequestor(QueueSession session, Queue queue) throws JMSException {
+        this(session, queue, session);
+    }
+
+
+    /** Constructor for the {@code QueueRequestor} class, which receives 
+      * replies using a separate session.
+      *  
+      * <P>Requests are sent using {@code session}, and replies are received 
+      * using {@code replySession}, which allows {@code requestAsync} to be 
+      * used. Neither session may be used other than by this 
+      * {@code QueueRequestor}. This implementation assumes both sessions 
+      * to be non-transacted, with a delivery mode of either 
+      * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE}.
+      *
+      * @param session the {@code QueueSession} used to send requests
+      * @param queue the queue to perform the request/reply call on
+      * @param replySession the {@code QueueSession} used to receive replies
+      *  
+      * @exception JMSException if the JMS provider fails to create the
+      *                         {@code QueueRequestor} due to some internal
+      *                         error.
+      * @exception InvalidDestinationException if an invalid queue is specified.
+      *
+      * @since JMS 2.1
+      */ 
+
+    public
+    QueueRequestor(QueueSession session, Queue queue, 
+                   QueueSession replySession) throws JMSException {
     	
     	if (queue==null) throw new InvalidDestinationException("queue==null");
     	
         this.session = session;
-        tempQueue    = session.createTemporaryQueue();
+        this.replySession = replySession;
+        tempQueue    = replySession.createTemporaryQueue();
         sender       = session.createSender(queue);
-        receiver     = session.createReceiver(tempQueue);
+        receiver     = replySession.createReceiver(tempQueue);
     }
 
 
@@ -100,6 +160,15 @@ public class QueueRequestor {
       * the {@code JMSReplyTo} destination, and only one reply per request 
       * is expected.
       *  
+      * <P>The first message received on the temporary queue is returned, 
+      * whatever its {@code JMSCorrelationID}, as in JMS 1.x. If a request 
+      * made using {@code request(Message, long)} has timed out, its reply 
+      * may therefore be returned by this method. To discard replies which 
+      * do not match the request, call {@code request(message, 0)} instead. 
+      * Once {@code requestAsync} has been called, the reply is matched to 
+      * the request using its {@code JMSCorrelationID}, in the same way as 
+      * for {@code requestAsync}.
+      *  
       * @param message the message to send
       *  
       * @return the reply message
@@ -110,13 +179,145 @@ public class QueueRequestor {
 
     public Message
     request(Message message) throws JMSException {
-	message.setJMSReplyTo(tempQueue);
-	sender.send(message);
-	return (receiver.receive());
+        CompletableFuture<Message> reply;
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                send(message);
+                return (receiver.receive());
+            }
+            reply = register(send(message));
+        } finally {
+            lock.unlock();
+        }
+        return PendingReplies.await(reply, 0);
+    }
+
+
+    /** Sends a request and waits for a reply for up to the specified time. 
+      * The temporary queue is used for the {@code JMSReplyTo} destination, 
+      * and only one reply per request is expected.
+      *
+      * <P>Unlike {@code request(Message)}, this method matches the reply 
+      * to the request. A reply whose {@code JMSCorrelationID} is set to a 
+      * value other than the {@code JMSMessageID} of the request, such as a 
+      * late reply to an earlier request, or a reply from a responder which 
+      * copies the {@code JMSCorrelationID} of the request, is discarded. A 
+      * reply whose {@code JMSCorrelationID} is not set is returned, as 
+      * responders written for JMS 1.x need not set it. A timeout of zero 
+      * never expires, and the call blocks indefinitely.
+      *  
+      * @param message the message to send
+      * @param timeout the time to wait for the reply, in milliseconds
+      *  
+      * @return the reply message, or null if no reply is received within 
+      *         the specified time, or if the calling thread is interrupted 
+      *         whilst waiting
+      *  
+      * @exception JMSException if the JMS provider fails to complete the
+      *                         request due to some internal error.
+      * @exception IllegalArgumentException if the timeout is negative.
+      *
+      * @since JMS 2.1
+      */
+
+    public Message
+    request(Message message, long timeout) throws JMSException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout<0");
+        }
+        CompletableFuture<Message> reply;
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                return PendingReplies.receive(receiver, send(message), timeout);
+            }
+            reply = register(send(message));
+        } finally {
+            lock.unlock();
+        }
+        return PendingReplies.await(reply, timeout);
+    }
+
+
+    /** Sends a request, and returns a {@code CompletionStage} which is 
+      * completed with its reply. The temporary queue is used for the 
+      * {@code JMSReplyTo} destination, and only one reply per request is 
+      * expected.
+      *
+      * <P>The first time this method is called, a {@code MessageListener} 
+      * is set on the receiver for the temporary queue. Replies are then 
+      * delivered by the session's thread of control, and each is matched 
+      * to its request using its {@code JMSCorrelationID}, which a responder 
+      * must set to the {@code JMSMessageID} of the request. A reply which 
+      * does not match an outstanding request is discarded. Requests are 
+      * sent by the calling thread, whilst the reply session may be 
+      * delivering a reply, so this method may only be used if the 
+      * {@code QueueRequestor} was created with a separate session for 
+      * replies.
+      *
+      * <P>Actions registered using the non-async methods of the returned 
+      * {@code CompletionStage}, such as {@code thenAccept}, may be 
+      * performed by the session's thread of control, and must not call a 
+      * {@code request} method of this {@code QueueRequestor}. The returned 
+      * {@code CompletionStage} is never completed if no reply is received, 
+      * unless this {@code QueueRequestor} is closed, when it is completed 
+      * exceptionally with an {@code IllegalStateException}.
+      *  
+      * @param message the message to send
+      *  
+      * @return a {@code CompletionStage} which is completed with the reply
+      *  
+      * @exception JMSException if the JMS provider fails to send the 
+      *                         request due to some internal error.
+      * @exception IllegalStateException if the {@code QueueRequestor} was 
+      *                         not created with a separate session for 
+      *                         replies.
+      *
+      * @see javax.jms.JMSRequestor
+      *
+      * @since JMS 2.1
+      */
+
+    public CompletionStage<Message>
+    requestAsync(Message message) throws JMSException {
+        if (replySession == session) {
+            throw new IllegalStateException(
+                "requestAsync requires a separate session for replies");
+        }
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                receiver.setMessageListener(replies::complete);
+                asynchronous = true;
+            }
+            return register(send(message));
+        } finally {
+            lock.unlock();
+        }
     }
 
 
-    /** Closes the {@code QueueRequestor} and its session.
+    private String
+    send(Message message) throws JMSException {
+        message.setJMSReplyTo(tempQueue);
+        sender.send(message);
+        return message.getJMSMessageID();
+    }
+
+
+    // Called whilst holding lock, so that a reply cannot be matched before 
+    // its request has been registered.
+    private CompletableFuture<Message>
+    register(String messageID) throws JMSException {
+        if (messageID == null) {
+            throw new JMSException("request has no JMSMessageID");
+        }
+        return replies.register(messageID);
+    }
+
+
+    /** Closes the {@code QueueRequestor} and its sessions.
       *
       * <P>Since a provider may allocate some resources on behalf of a 
       * {@code QueueRequestor} outside the Java virtual machine, clients 
@@ -124,9 +325,13 @@ public class QueueRequestor {
       * are not needed. Relying on garbage collection to eventually reclaim 
       * these resources may not be timely enough.
       *  
-      * <P>Note that this method closes the {@code QueueSession} object 
+      * <P>Note that this method closes the {@code QueueSession} objects 
       * passed to the {@code QueueRequestor} constructor.
       *
+      * <P>Every {@code CompletionStage} returned by {@code requestAsync} 
+      * which has not yet been completed with a reply is completed 
+      * exceptionally with an {@code IllegalStateException}.
+      *
       * @exception JMSException if the JMS provider fails to close the
       *                         {@code QueueRequestor} due to some internal
       *                         error.
@@ -137,6 +342,10 @@ public class QueueRequestor {
 
 	// publisher and consumer created by constructor are implicitly closed.
 	session.close();
+        if (replySession != session) {
+            replySession.close();
+        }
+        replies.failAll(new IllegalStateException("QueueRequestor is closed"));
         tempQueue.delete();
     }
 }
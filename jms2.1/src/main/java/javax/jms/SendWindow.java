@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code SendWindow} object describes the asynchronous send operations of a
+ * {@code JMSProducer} or {@code MessageProducer} which have not yet completed,
+ * and the limits which apply to them. It is obtained by calling the
+ * {@code getSendWindow} method on a {@code JMSProducer} or
+ * {@code MessageProducer}. This interface also defines the policies which
+ * determine what happens when an asynchronous send is attempted and the send
+ * window is full.
+ * <p>
+ * An asynchronous send is outstanding from the time the {@code send} method
+ * returns until the JMS provider has invoked its {@code CompletionListener}
+ * or completed its {@code CompletionStage}. Each message in an asynchronous
+ * batch send counts as a separate outstanding send. Synchronous sends are
+ * never counted. The send window is full when sending a further message would
+ * cause the number of outstanding sends, or the total size of their messages,
+ * to exceed the limits of the send window. However a single message which is
+ * larger than the maximum size of the send window may always be sent when no
+ * other sends are outstanding.
+ * <p>
+ * Bounding the send window prevents an application which sends messages
+ * asynchronously faster than the JMS server can accept them from causing an
+ * unlimited number of messages to be held in the client.
+ * <p>
+ * A {@code SendWindow} object is a snapshot: its values do not change after it
+ * has been returned.
+ * 
+ * @see javax.jms.JMSProducer#setSendWindow(int, long, int)
+ * @see javax.jms.MessageProducer#setSendWindow(int, long, int)
+ * @see javax.jms.SendWindowListener
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface SendWindow {
+
+	/**
+	 * If an asynchronous send is attempted when the send window is full then
+	 * the {@code send} method blocks until enough outstanding sends have
+	 * completed for the message to be sent. This is the default policy.
+	 * <p>
+	 * If the {@code send} method is called from a {@code CompletionListener}
+	 * callback method when the send window is full then it fails as if the
+	 * {@code FAIL} policy had been specified, since blocking could prevent the
+	 * outstanding sends from ever completing.
+	 */
+	static final int BLOCK = 1;
+
+	/**
+	 * If an asynchronous send is attempted when the send window is full then
+	 * the {@code send} method throws a {@code ResourceAllocationException} or
+	 * {@code ResourceAllocationRuntimeException} immediately. The message is
+	 * not sent and no completion callback is performed for it.
+	 */
+	static final int FAIL = 2;
+
+	/**
+	 * If an asynchronous send is attempted when the send window is full then
+	 * the message is sent anyway. The application is expected to use a
+	 * {@code SendWindowListener} to learn when the send window becomes full,
+	 * and to stop sending until it is notified that the send window is
+	 * available again.
+	 */
+	static final int NOTIFY = 3;
+
+	/**
+	 * Returns the maximum number of outstanding asynchronous sends.
+	 * 
+	 * @return the maximum number of outstanding asynchronous sends, or -1 if
+	 *         the number is not limited
+	 */
+	int getMaxMessages();
+
+	/**
+	 * Returns the maximum total size, in bytes, of the messages of the
+	 * outstanding asynchronous sends.
+	 * 
+	 * @return the maximum total size of the messages of the outstanding
+	 *         asynchronous sends, or -1 if the size is not limited
+	 */
+	long getMaxBytes();
+
+	/**
+	 * Returns the policy which determines what happens when an asynchronous
+	 * send is attempted and the send window is full.
+	 * 
+	 * @return one of {@code BLOCK}, {@code FAIL} or {@code NOTIFY}
+	 */
+	int getPolicy();
+
+	/**
+	 * Returns the number of asynchronous sends which were outstanding when
+	 * this snapshot was taken.
+	 * 
+	 * @return the number of outstanding asynchronous sends
+	 */
+	int getOutstandingMessages();
+
+	/**
+	 * Returns the total size, in bytes, of the messages of the asynchronous
+	 * sends which were outstanding when this snapshot was taken. How the size
+	 * of a message is measured is defined by the JMS provider, but it must
+	 * include the message body and properties.
+	 * 
+	 * @return the total size of the messages of the outstanding asynchronous
+	 *         sends
+	 */
+	long getOutstandingBytes();
+
+}
@@ -0,0 +1,86 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2015 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://glassfish.dev.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package javax.jms;
+
+/**
+ * A {@code SendWindowListener} is implemented by the application and may be
+ * registered with a {@code JMSProducer} or {@code MessageProducer} to be
+ * notified when its send window becomes full and when it becomes available
+ * again.
+ * <p>
+ * The JMS provider invokes the {@code SendWindowListener} whatever the policy
+ * of the send window. It is most useful with the {@code SendWindow.NOTIFY}
+ * policy, where it allows the application to stop supplying messages when the
+ * JMS server falls behind, rather than blocking or handling an exception.
+ * <p>
+ * The callback methods are invoked alternately, starting with
+ * {@code onSendWindowFull}. They are subject to the same restrictions as the
+ * callback methods of a {@code CompletionListener}, and are never invoked in
+ * the thread which is calling {@code send}.
+ * 
+ * @see javax.jms.SendWindow
+ * @see javax.jms.JMSProducer#setSendWindowListener(SendWindowListener)
+ * @see javax.jms.MessageProducer#setSendWindowListener(SendWindowListener)
+ * 
+ * @version JMS 2.1
+ * @since JMS 2.1
+ * 
+ */
+public interface SendWindowListener {
+
+	/**
+	 * Notifies the application that the send window is full, which means that
+	 * a further asynchronous send would exceed its limits.
+	 * 
+	 * @param sendWindow
+	 *            a snapshot of the send window
+	 */
+	void onSendWindowFull(SendWindow sendWindow);
+
+	/**
+	 * Notifies the application that enough outstanding asynchronous sends
+	 * have completed for the send window to no longer be full.
+	 * 
+	 * @param sendWindow
+	 *            a snapshot of the send window
+	 */
+	void onSendWindowAvailable(SendWindow sendWindow);
+
+}
@@ -40,6 +40,7 @@
 
 package javax.jms;
 
+import java.io.InputStream;
 import java.io.Serializable;
 
 /** <P>A {@code Session} object is a single-threaded context for producing and consuming 
@@ -131,7 +132,7 @@ import java.io.Serializable;
   * @see         javax.jms.TopicSession
   * @see         javax.jms.XASession
   *
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   * 
   */ 
@@ -152,6 +153,11 @@ public interface Session extends Runnable, AutoCloseable {
       * Acknowledging a consumed message acknowledges all messages that the 
       * session has consumed.
       *
+      * <P>A client may instead acknowledge a single message by calling the 
+      * message's {@code acknowledgeOnly} method, or acknowledge the messages 
+      * received by a single consumer up to and including a given message by 
+      * calling the consumer's {@code acknowledgeUpTo} method.
+      *
       * <P>When client acknowledgment mode is used, a client may build up a 
       * large number of unacknowledged messages while attempting to process 
       * them. A JMS provider should provide administrators with a way to 
@@ -160,6 +166,9 @@ public interface Session extends Runnable, AutoCloseable {
       * is temporarily blocked.
       *
       * @see javax.jms.Message#acknowledge()
+      * @see javax.jms.Message#acknowledgeOnly()
+      * @see javax.jms.MessageConsumer#acknowledgeUpTo(Message)
+      * @see javax.jms.JMSConsumer#acknowledgeUpTo(Message)
       */ 
 
     static final int CLIENT_ACKNOWLEDGE = 2;
@@ -206,6 +215,37 @@ public interface Session extends Runnable, AutoCloseable {
     BytesMessage 
     createBytesMessage() throws JMSException; 
 
+	/**
+	 * Creates a {@code BytesMessage} object whose body will be read from the
+	 * specified {@code InputStream}.
+	 * <p>
+	 * The message body is read from the specified stream, until the end of
+	 * the stream is reached, when the message is sent. This allows the
+	 * JMS provider to transfer the body to the JMS server in chunks, without
+	 * holding the whole body in memory. The stream is not closed by the JMS
+	 * provider.
+	 * <p>
+	 * Since the stream can be read only once, the returned message may be
+	 * sent only once. Its body cannot otherwise be accessed: the {@code write}
+	 * methods throw a {@code MessageNotWriteableException} and the {@code read}
+	 * methods throw a {@code MessageNotReadableException}. Calling
+	 * {@code clearBody} discards the stream and makes the body empty and
+	 * writable.
+	 * <p>
+	 * See {@link BytesMessage} for how streamed message bodies interact with
+	 * transactions and redelivery.
+	 * 
+	 * @param body
+	 *            the stream from which the message body will be read
+	 * 
+	 * @exception JMSException
+	 *                if the JMS provider fails to create this message due to
+	 *                some internal error.
+	 * 
+	 * @since JMS 2.1
+	 */
+	BytesMessage createBytesMessage(InputStream body) throws JMSException;
+
  
     /** Creates a {@code MapMessage} object. A {@code MapMessage} 
       * object is used to send a self-defining set of name-value pairs, where 
@@ -719,6 +759,165 @@ public interface Session extends Runnable, AutoCloseable {
     MessageConsumer     
     createConsumer(Destination destination, java.lang.String messageSelector, 
     boolean noLocal)   throws JMSException;
+
+	/**
+	 * Creates a {@code CompiledSelector} object by parsing and validating the
+	 * specified message selector expression.
+	 * <p>
+	 * The {@code CompiledSelector} may be passed in place of a message
+	 * selector string to the {@code WithSelector} methods of this or any other
+	 * session which create a consumer, a durable or shared subscription, or a
+	 * queue browser, so that the message selector does not need to be parsed
+	 * each time.
+	 * 
+	 * @param messageSelector
+	 *            the message selector expression
+	 * @return a {@code CompiledSelector} for the specified expression
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code CompiledSelector}
+	 *                due to some internal error.
+	 * @exception InvalidSelectorException
+	 *                if the message selector is null, empty or invalid.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	CompiledSelector createSelector(String messageSelector) throws JMSException;
+
+	/**
+	 * Creates a {@code MessageConsumer} for the specified destination, using a
+	 * pre-compiled message selector.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createConsumer(destination, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @return a {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code MessageConsumer} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector) throws JMSException;
+
+	/**
+	 * Creates a {@code MessageConsumer} for the specified destination, using a
+	 * pre-compiled message selector and specifying the {@code noLocal} parameter.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createConsumer(destination, selector.getSelectorText(), noLocal)},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @param noLocal
+	 *            if true, and the destination is a topic, then the consumer
+	 *            will not receive messages published to the topic by its own
+	 *            connection.
+	 * @return a {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code MessageConsumer} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createConsumerWithSelector(Destination destination, CompiledSelector selector, boolean noLocal) throws JMSException;
+
+	/**
+	 * Creates a {@code MessageConsumer} for the specified destination,
+	 * specifying a message selector, the {@code noLocal} parameter and the
+	 * limits on the messages which may be transferred to the
+	 * {@code MessageConsumer} in advance.
+	 * <P>
+	 * Since {@code Queue} and {@code Topic} both inherit from
+	 * {@code Destination}, they can be used in the destination parameter to
+	 * create a {@code MessageConsumer}.
+	 * <P>
+	 * The {@code noLocal} argument is for use when the destination is a topic
+	 * and the session's connection is also being used to publish messages to
+	 * that topic. If {@code noLocal} is set to true then the
+	 * {@code MessageConsumer} will not receive messages published to the topic
+	 * by its own connection. The default value of this argument is false. If
+	 * the destination is a queue then the effect of setting {@code noLocal} to
+	 * true is not specified.
+	 * <P>
+	 * The {@code prefetchMaxMessages} and {@code prefetchMaxBytes} arguments
+	 * limit how many messages, and how many bytes, the JMS provider may
+	 * transfer to the {@code MessageConsumer} in advance of them being received by the
+	 * application, whether synchronously or by a {@code MessageListener}.
+	 * When either limit has been reached the JMS provider must not transfer
+	 * further messages to the {@code MessageConsumer} until some of the messages already
+	 * transferred have been received. However a message which is larger than
+	 * {@code prefetchMaxBytes} may always be transferred if no other messages
+	 * have been transferred in advance, so that it can be received. A JMS
+	 * provider which does not transfer messages in advance may ignore these
+	 * arguments.
+	 * 
+	 * @param destination
+	 *            the {@code Destination} to access
+	 * @param messageSelector
+	 *            only messages with properties matching the message selector
+	 *            expression are delivered. A value of null or an empty string
+	 *            indicates that there is no message selector for the message
+	 *            consumer.
+	 * @param noLocal
+	 *            if true, and the destination is a topic, then the
+	 *            {@code MessageConsumer} will not receive messages published
+	 *            to the topic by its own connection
+	 * @param prefetchMaxMessages
+	 *            the maximum number of messages which the JMS provider may
+	 *            transfer to the {@code MessageConsumer} in advance of them being
+	 *            received by the application. A value of zero means that no
+	 *            messages may be transferred in advance. A value of -1 means
+	 *            that the connection factory or JMS provider default is used.
+	 * @param prefetchMaxBytes
+	 *            the maximum total size, in bytes, of the messages which the
+	 *            JMS provider may transfer to the {@code MessageConsumer} in advance of
+	 *            them being received by the application. A value of -1 means
+	 *            that the connection factory or JMS provider default is used.
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create a MessageConsumer due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid destination is specified.
+	 * @exception InvalidSelectorException
+	 *                if the message selector is invalid.
+	 * @exception java.lang.IllegalArgumentException
+	 *                if {@code prefetchMaxMessages} or
+	 *                {@code prefetchMaxBytes} is less than -1
+	 * 
+	 * @see javax.jms.MessageConsumer#getPrefetchStatistics()
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal,
+			int prefetchMaxMessages, long prefetchMaxBytes) throws JMSException;
     
 	/**
 	 * Creates a shared non-durable subscription with the specified name on the
@@ -832,6 +1031,42 @@ public interface Session extends Runnable, AutoCloseable {
 	 */ 
 	MessageConsumer createSharedConsumer(Topic topic, String sharedSubscriptionName, java.lang.String messageSelector)
 			throws JMSException;
+
+	/**
+	 * Creates a shared non-durable subscription with the specified name on the
+	 * specified topic (if one does not already exist), using a pre-compiled
+	 * message selector, and creates a consumer on that subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createSharedConsumer(topic, sharedSubscriptionName, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param sharedSubscriptionName
+	 *            the name used to identify the shared non-durable subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @return a {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code MessageConsumer} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid topic is specified.
+	 * @exception JMSException
+	 *                if a shared non-durable subscription already exists with the
+	 *                same name and client identifier but a different topic or message
+	 *                selector, and there is a consumer already active on it.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createSharedConsumerWithSelector(Topic topic, String sharedSubscriptionName, CompiledSelector selector) throws JMSException;
     
 	/**
 	 * Creates a {@code Queue} object which encapsulates a specified
@@ -1268,6 +1503,47 @@ public interface Session extends Runnable, AutoCloseable {
 	 * @since JMS 2.0
 	 */ 
       MessageConsumer createDurableConsumer(Topic topic, String name, String messageSelector, boolean noLocal) throws JMSException;     
+
+	/**
+	 * Creates an unshared durable subscription on the specified topic (if one
+	 * does not already exist), using a pre-compiled message selector and
+	 * specifying the {@code noLocal} parameter, and creates a consumer on that
+	 * durable subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createDurableConsumer(topic, name, selector.getSelectorText(), noLocal)},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param name
+	 *            the name used to identify this subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @param noLocal
+	 *            if true, then messages published to the topic by its own
+	 *            connection will not be added to the durable subscription.
+	 * @return a {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code MessageConsumer} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid topic is specified.
+	 * @exception JMSException
+	 *                if an unshared durable subscription already exists with the
+	 *                same name and client identifier and there is a consumer already
+	 *                active, or if a shared durable subscription already exists with
+	 *                the same name and client identifier.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector, boolean noLocal) throws JMSException;
       
 	/**
 	 * Creates a shared durable subscription on the specified topic (if one does
@@ -1435,6 +1711,44 @@ public interface Session extends Runnable, AutoCloseable {
      * @since JMS 2.0
    	 */
         MessageConsumer createSharedDurableConsumer(Topic topic, String name, String messageSelector) throws JMSException;           
+
+	/**
+	 * Creates a shared durable subscription on the specified topic (if one
+	 * does not already exist), using a pre-compiled message selector, and
+	 * creates a consumer on that durable subscription.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createSharedDurableConsumer(topic, name, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param topic
+	 *            the {@code Topic} to subscribe to
+	 * @param name
+	 *            the name used to identify this subscription
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are added to the subscription. A value of null indicates that
+	 *            there is no message selector for the subscription.
+	 * @return a {@code MessageConsumer}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code MessageConsumer} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid topic is specified.
+	 * @exception JMSException
+	 *                if a shared durable subscription already exists with the same
+	 *                name and client identifier but a different topic or message
+	 *                selector and there is a consumer already active, or if an
+	 *                unshared durable subscription already exists with the same
+	 *                name and client identifier.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	MessageConsumer createSharedDurableConsumerWithSelector(Topic topic, String name, CompiledSelector selector) throws JMSException;
     
   /** Creates a {@code QueueBrowser} object to peek at the messages on 
       * the specified queue.
@@ -1480,6 +1794,35 @@ public interface Session extends Runnable, AutoCloseable {
 	QueueBrowser createBrowser(Queue queue, String messageSelector)
 			throws JMSException;
 
+	/**
+	 * Creates a {@code QueueBrowser} object to peek at the messages on the
+	 * specified queue using a pre-compiled message selector.
+	 * <p>
+	 * This behaves in the same way as
+	 * {@code createBrowser(queue, selector.getSelectorText())},
+	 * except that the message selector has already been compiled and is not
+	 * parsed again.
+	 * 
+	 * @param queue
+	 *            the {@code queue} to access
+	 * @param selector
+	 *            only messages with properties matching the message selector
+	 *            are delivered. A value of null indicates that there is no
+	 *            message selector for the message consumer.
+	 * @return a {@code QueueBrowser}
+	 * 
+	 * @exception JMSException
+	 *                if the session fails to create the {@code QueueBrowser} due to
+	 *                some internal error.
+	 * @exception InvalidDestinationException
+	 *                if an invalid destination is specified.
+	 * 
+	 * @see javax.jms.CompiledSelector
+	 * 
+	 * @since JMS 2.1
+	 */
+	QueueBrowser createBrowserWithSelector(Queue queue, CompiledSelector selector) throws JMSException;
+
     
      /** Creates a {@code TemporaryQueue} object. Its lifetime will be that 
       * of the {@code Connection} unless it is deleted earlier.
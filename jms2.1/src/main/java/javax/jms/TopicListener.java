@@ -65,6 +65,7 @@ import java.lang.annotation.Target;
  * or {@code TopicListener} then deployment will fail.
  * 
  * @see JMSMessageDrivenBean
+ * @see MessageBatch
  * @see QueueListener
  * @see DurableSubscription
  * 
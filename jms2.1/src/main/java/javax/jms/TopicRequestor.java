@@ -40,6 +40,11 @@
 
 package javax.jms;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 /** The {@code TopicRequestor} helper class simplifies
   * making service requests.
   *
@@ -49,14 +54,26 @@ package javax.jms;
   * {@code request} method that sends the request message and waits 
   * for its reply.
   * <p>
+  * The {@code request(Message, long)} method waits for the reply for no 
+  * longer than a specified time, and the {@code requestAsync} method returns 
+  * a {@code CompletionStage} which is completed with the reply, so that 
+  * more than one request may be outstanding at a time. Replies are matched 
+  * to their requests using the {@code JMSCorrelationID} header field, which 
+  * a responder should set to the {@code JMSMessageID} of the request. 
+  * Since replies to asynchronous requests are delivered by a 
+  * {@code MessageListener}, {@code requestAsync} may only be used if a 
+  * second session, on which replies are received, is passed to the 
+  * constructor.
+  * <p>
   * This is a very basic request/reply abstraction which assumes the session 
   * is non-transacted with a delivery mode of either AUTO_ACKNOWLEDGE or 
   * DUPS_OK_ACKNOWLEDGE. It is expected that most applications will create 
   * less basic implementations.
   * 
   * @see javax.jms.QueueRequestor
+  * @see javax.jms.JMSRequestor
   * 
-  * @version JMS 2.0
+  * @version JMS 2.1
   * @since JMS 1.0
   * 
   */
@@ -68,6 +85,19 @@ public class TopicRequestor {
     TopicPublisher  publisher;
     TopicSubscriber subscriber;
 
+    // The session on which replies are received, which is session itself 
+    // unless a separate session was passed to the constructor.
+    private final TopicSession replySession;
+
+    // Held whilst a request is sent and its reply is received or registered.
+    // A Lock rather than a monitor, so that a virtual thread which waits for 
+    // a reply whilst holding it does not pin its carrier thread.
+    private final Lock lock = new ReentrantLock();
+
+    // Outstanding requests made using requestAsync.
+    private final PendingReplies replies = new PendingReplies(lock);
+    private boolean asynchronous; // Whether subscriber has a MessageListener.
+
 
     /** Constructor for the {@code TopicRequestor} class.
       * 
@@ -86,19 +116,58 @@ public class TopicRequestor {
 
     public 
     TopicRequestor(TopicSession session, Topic topic) throws JMSException {
+        this(session, topic, session);
+    }
+
+
+    /** Constructor for the {@code TopicRequestor} class, which receives 
+      * replies using a separate session.
+      * 
+      * <P>Requests are published using {@code session}, and replies are 
+      * received using {@code replySession}, which allows 
+      * {@code requestAsync} to be used. Neither session may be used other 
+      * than by this {@code TopicRequestor}. This implementation assumes both 
+      * sessions to be non-transacted, with a delivery mode of either 
+      * {@code AUTO_ACKNOWLEDGE} or {@code DUPS_OK_ACKNOWLEDGE}.
+      *
+      * @param session the {@code TopicSession} used to publish requests
+      * @param topic the topic to perform the request/reply call on
+      * @param replySession the {@code TopicSession} used to receive replies
+      *
+      * @exception JMSException if the JMS provider fails to create the
+      *                         {@code TopicRequestor} due to some internal
+      *                         error.
+      * @exception InvalidDestinationException if an invalid topic is specified.
+      *
+      * @since JMS 2.1
+      */ 
+
+    public 
+    TopicRequestor(TopicSession session, Topic topic, 
+                   TopicSession replySession) throws JMSException {
     	
     	if (topic==null) throw new InvalidDestinationException("topic==null");
 
 	    this.session = session;
-        tempTopic    = session.createTemporaryTopic();
+        this.replySession = replySession;
+        tempTopic    = replySession.createTemporaryTopic();
         publisher    = session.createPublisher(topic);
-        subscriber   = session.createSubscriber(tempTopic);
+        subscriber   = replySession.createSubscriber(tempTopic);
     }
 
 
     /** Sends a request and waits for a reply. The temporary topic is used for
-      * the {@code JMSReplyTo} destination; the first reply is returned, 
-      * and any following replies are discarded.
+      * the {@code JMSReplyTo} destination, and the first reply is returned.
+      *
+      * <P>The first message received on the subscription to the temporary 
+      * topic is returned, whatever its {@code JMSCorrelationID}, as in 
+      * JMS 1.x. Any following replies remain on the subscription, and are 
+      * returned by later calls of this method, as may the reply to a 
+      * request made using {@code request(Message, long)} which has timed 
+      * out. To discard replies which do not match the request, call 
+      * {@code request(message, 0)} instead. Once {@code requestAsync} has 
+      * been called, the reply is matched to the request using its 
+      * {@code JMSCorrelationID}, in the same way as for {@code requestAsync}.
       *
       * @param message the message to send
       *  
@@ -110,13 +179,147 @@ public class TopicRequestor {
 
     public Message
     request(Message message) throws JMSException {
-	message.setJMSReplyTo(tempTopic);
+        CompletableFuture<Message> reply;
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                send(message);
+                return (subscriber.receive());
+            }
+            reply = register(send(message));
+        } finally {
+            lock.unlock();
+        }
+        return PendingReplies.await(reply, 0);
+    }
+
+
+    /** Sends a request and waits for a reply for up to the specified time. 
+      * The temporary topic is used for the {@code JMSReplyTo} destination, 
+      * and the first reply is returned.
+      *
+      * <P>Unlike {@code request(Message)}, this method matches the reply 
+      * to the request. A reply whose {@code JMSCorrelationID} is set to a 
+      * value other than the {@code JMSMessageID} of the request, such as a 
+      * following reply to an earlier request, or a reply from a responder 
+      * which copies the {@code JMSCorrelationID} of the request, is 
+      * discarded. A reply whose {@code JMSCorrelationID} is not set is 
+      * returned, as responders written for JMS 1.x need not set it. Any 
+      * following replies to this request remain on the subscription to the 
+      * temporary topic until they are discarded by a later request. A 
+      * timeout of zero never expires, and the call blocks indefinitely.
+      *  
+      * @param message the message to send
+      * @param timeout the time to wait for the reply, in milliseconds
+      *  
+      * @return the reply message, or null if no reply is received within 
+      *         the specified time, or if the calling thread is interrupted 
+      *         whilst waiting
+      *  
+      * @exception JMSException if the JMS provider fails to complete the
+      *                         request due to some internal error.
+      * @exception IllegalArgumentException if the timeout is negative.
+      *
+      * @since JMS 2.1
+      */
+
+    public Message
+    request(Message message, long timeout) throws JMSException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout<0");
+        }
+        CompletableFuture<Message> reply;
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                return PendingReplies.receive(subscriber, send(message), timeout);
+            }
+            reply = register(send(message));
+        } finally {
+            lock.unlock();
+        }
+        return PendingReplies.await(reply, timeout);
+    }
+
+
+    /** Sends a request, and returns a {@code CompletionStage} which is 
+      * completed with its reply. The temporary topic is used for the 
+      * {@code JMSReplyTo} destination; the stage is completed with the 
+      * first reply, and any following replies are discarded.
+      *
+      * <P>The first time this method is called, a {@code MessageListener} 
+      * is set on the subscriber for the temporary topic. Replies are then 
+      * delivered by the session's thread of control, and each is matched 
+      * to its request using its {@code JMSCorrelationID}, which a responder 
+      * must set to the {@code JMSMessageID} of the request. A reply which 
+      * does not match an outstanding request is discarded. Requests are 
+      * published by the calling thread, whilst the reply session may be 
+      * delivering a reply, so this method may only be used if the 
+      * {@code TopicRequestor} was created with a separate session for 
+      * replies.
+      *
+      * <P>Actions registered using the non-async methods of the returned 
+      * {@code CompletionStage}, such as {@code thenAccept}, may be 
+      * performed by the session's thread of control, and must not call a 
+      * {@code request} method of this {@code TopicRequestor}. The returned 
+      * {@code CompletionStage} is never completed if no reply is received, 
+      * unless this {@code TopicRequestor} is closed, when it is completed 
+      * exceptionally with an {@code IllegalStateException}.
+      *  
+      * @param message the message to send
+      *  
+      * @return a {@code CompletionStage} which is completed with the reply
+      *  
+      * @exception JMSException if the JMS provider fails to send the 
+      *                         request due to some internal error.
+      * @exception IllegalStateException if the {@code TopicRequestor} was 
+      *                         not created with a separate session for 
+      *                         replies.
+      *
+      * @see javax.jms.JMSRequestor
+      *
+      * @since JMS 2.1
+      */
+
+    public CompletionStage<Message>
+    requestAsync(Message message) throws JMSException {
+        if (replySession == session) {
+            throw new IllegalStateException(
+                "requestAsync requires a separate session for replies");
+        }
+        lock.lock();
+        try {
+            if (!asynchronous) {
+                subscriber.setMessageListener(replies::complete);
+                asynchronous = true;
+            }
+            return register(send(message));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private String
+    send(Message message) throws JMSException {
+        message.setJMSReplyTo(tempTopic);
         publisher.publish(message);
-	return(subscriber.receive());
+        return message.getJMSMessageID();
     }
 
 
-    /** Closes the {@code TopicRequestor} and its session.
+    // Called whilst holding lock, so that a reply cannot be matched before 
+    // its request has been registered.
+    private CompletableFuture<Message>
+    register(String messageID) throws JMSException {
+        if (messageID == null) {
+            throw new JMSException("request has no JMSMessageID");
+        }
+        return replies.register(messageID);
+    }
+
+
+    /** Closes the {@code TopicRequestor} and its sessions.
       *
       * <P>Since a provider may allocate some resources on behalf of a 
       * {@code TopicRequestor} outside the Java virtual machine, clients 
@@ -124,8 +327,12 @@ public class TopicRequestor {
       * are not needed. Relying on garbage collection to eventually reclaim 
       * these resources may not be timely enough.
       *
-      * <P>Note that this method closes the {@code TopicSession} object 
+      * <P>Note that this method closes the {@code TopicSession} objects 
       * passed to the {@code TopicRequestor} constructor.
+      *
+      * <P>Every {@code CompletionStage} returned by {@code requestAsync} 
+      * which has not yet been completed with a reply is completed 
+      * exceptionally with an {@code IllegalStateException}.
       *  
       * @exception JMSException if the JMS provider fails to close the
       *                         {@code TopicRequestor} due to some internal
@@ -137,6 +344,10 @@ public class TopicRequestor {
 
 	// publisher and consumer created by constructor are implicitly closed.
 	session.close();
+        if (replySession != session) {
+            replySession.close();
+        }
+        replies.failAll(new IllegalStateException("TopicRequestor is closed"));
 	tempTopic.delete();
     }
 }